@@ -0,0 +1,59 @@
+package de.hambuch.voronoiapp;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.ViewModel;
+
+/**
+ * Keeps the diagram of {@link VoronoiMain} over configuration changes: the
+ * geometry engine with its triangulation survives a rotation, so nothing
+ * is copied into the saved instance state or rebuilt. Only if the process
+ * is killed, the state file written by the activity is read again.
+ */
+public class DiagramViewModel extends ViewModel {
+
+	/* no version of the triangulation */
+	static final long NO_VERSION = Long.MIN_VALUE;
+
+	@NonNull
+	private final GeometryEngine engine = new GeometryEngine();
+	/* the state of a killed process has been read (or there was none) */
+	private boolean initialized = false;
+	/* version of the triangulation in the state file */
+	private volatile long savedVersion = NO_VERSION;
+
+	@NonNull
+	public GeometryEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Mark the model as initialized, only the first call returns
+	 * <VAR>true</VAR>. Must be called by the main thread.
+	 *
+	 * @return boolean <VAR>true</VAR> if the model is new
+	 */
+	public boolean initialize() {
+		final boolean first = !initialized;
+		initialized = true;
+		return first;
+	}
+
+	/**
+	 * return the version of the triangulation in the state file.
+	 *
+	 * @return long the version, {@link #NO_VERSION} if unknown
+	 */
+	public long getSavedVersion() {
+		return savedVersion;
+	}
+
+	public void setSavedVersion(long version) {
+		savedVersion = version;
+	}
+
+	@Override
+	protected void onCleared() {
+		super.onCleared();
+		engine.shutdown();
+	}
+}
@@ -0,0 +1,121 @@
+package de.hambuch.voronoiapp;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Passes the positions of a dragged site to the engine at most once per
+ * frame. Every touch event only stores the latest position, a
+ * {@link Choreographer} frame callback moves the site there. Positions that
+ * are overwritten before the next frame (including the historical samples
+ * of a touch event) are dropped and counted.
+ * <p>Must only be used by the main thread.</p>
+ */
+public class DragCoalescer implements Choreographer.FrameCallback {
+
+	@NonNull
+	private final GeometryEngine engine;
+	@NonNull
+	private final Choreographer choreographer = Choreographer.getInstance();
+	private boolean scheduled = false;
+	/* latest position, not yet passed to the engine */
+	private boolean hasPosition = false;
+	private float x, y;
+	/* positions since the last frame */
+	private int updates = 0;
+	/* statistics of the current drag */
+	private int moves = 0;
+	private int dropped = 0;
+
+	public DragCoalescer(@NonNull GeometryEngine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Start a new drag, resets the statistics.
+	 */
+	public void start() {
+		cancel();
+		moves = 0;
+		dropped = 0;
+	}
+
+	/**
+	 * Store the new position of the dragged site.
+	 *
+	 * @param x, y the position in the plane
+	 * @param historical number of older samples within the same touch event
+	 */
+	public void update(float x, float y, int historical) {
+		this.x = x;
+		this.y = y;
+		hasPosition = true;
+		updates += 1 + historical;
+		if (!scheduled) {
+			scheduled = true;
+			choreographer.postFrameCallback(this);
+		}
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		scheduled = false;
+		apply();
+	}
+
+	/**
+	 * Pass the latest position to the engine now, e.g. at the end of the
+	 * drag.
+	 */
+	public void flush() {
+		if (scheduled) {
+			choreographer.removeFrameCallback(this);
+			scheduled = false;
+		}
+		apply();
+	}
+
+	/**
+	 * Forget the latest position.
+	 */
+	public void cancel() {
+		if (scheduled) {
+			choreographer.removeFrameCallback(this);
+			scheduled = false;
+		}
+		hasPosition = false;
+		dropped += updates;
+		updates = 0;
+	}
+
+	/**
+	 * return the number of moves passed to the engine during the current
+	 * (or last) drag.
+	 *
+	 * @return int number of moves
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * return the number of positions of the current (or last) drag that have
+	 * been overwritten before they were passed to the engine.
+	 *
+	 * @return int number of dropped positions
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+
+	private void apply() {
+		if (!hasPosition)
+			return;
+		engine.moveTo(x, y);
+		moves++;
+		dropped += updates - 1;
+		updates = 0;
+		hasPosition = false;
+	}
+}
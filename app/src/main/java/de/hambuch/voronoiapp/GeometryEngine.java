@@ -0,0 +1,566 @@
+package de.hambuch.voronoiapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import de.hambuch.voronoiapp.VoronoiView.DrawableElement;
+import de.hambuch.voronoiapp.algo.ConvexHull;
+import de.hambuch.voronoiapp.algo.DelauTriangle;
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+import de.hambuch.voronoiapp.algo.DiagramColoring;
+import de.hambuch.voronoiapp.algo.ProximityGraph;
+import de.hambuch.voronoiapp.algo.ProximityGraphCache;
+import de.hambuch.voronoiapp.algo.VoronoiCellCache;
+import de.hambuch.voronoiapp.algo.VoronoiDiagramCircle;
+import de.hambuch.voronoiapp.algo.VoronoiException;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
+import de.hambuch.voronoiapp.geometry.Point;
+
+/**
+ * Owns the Delaunay triangulation and all derived structures and modifies
+ * them on a dedicated geometry thread. Edits are queued and executed in order;
+ * whenever the queue runs empty a new {@link RenderSnapshot} is published to
+ * the listeners on the main thread. So the UI thread never waits for a
+ * rebuild and never reads the mutable triangulation.
+ */
+public class GeometryEngine {
+
+	/**
+	 * Gets informed on the main thread about every new snapshot, in order.
+	 */
+	public interface SnapshotListener {
+		public void snapshotPublished(@NonNull RenderSnapshot snapshot);
+	}
+
+	/* sizes in the exported SVG */
+	private static final float SVG_LINE_WIDTH = 3.0f;
+	private static final float SVG_POINT_RADIUS = 3.0f;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+	/* number of queued edits, a snapshot is published when it drops to 0 */
+	private final AtomicInteger pending = new AtomicInteger();
+	private final List<SnapshotListener> listeners = new CopyOnWriteArrayList<>();
+	private volatile RenderSnapshot snapshot = RenderSnapshot.EMPTY;
+	/* the current drag from startMove() to endMove(), null if none */
+	private volatile Drag drag;
+	private final AtomicInteger droppedMoves = new AtomicInteger();
+	/* statistics for a debug overlay, null if disabled */
+	private volatile boolean statisticsEnabled = false;
+	private volatile GeometryStatistics statistics;
+	private volatile VoronoiDiagramCircle.Restriction circleRestriction = VoronoiDiagramCircle.Restriction.NONE;
+
+	/* everything below is only accessed by the geometry thread */
+	private final DelaunayTriangulation triangulation = new DelaunayTriangulation();
+	private final VoronoiDiagramCircle voronoi = new VoronoiDiagramCircle(triangulation);
+	private final VoronoiCellCache cellCache = new VoronoiCellCache(voronoi, triangulation);
+	private final ConvexHull hull = new ConvexHull(triangulation);
+	private final DiagramColoring coloring = new DiagramColoring(triangulation);
+	private final ProximityGraphCache graphs = new ProximityGraphCache(triangulation);
+	private final Set<DrawableElement> drawables = EnumSet.noneOf(DrawableElement.class);
+	/* area of the plane shown (with some border), minX, minY, maxX, maxY */
+	private final float[] area = new float[4];
+	private Point pointInMove;
+	/* area changed since the last snapshot: minX, minY, maxX, maxY */
+	private final float[] changedBounds = new float[4];
+	private boolean changedAll = false;
+	private final float[] bounds = new float[4];
+	/* time spent in edits and counters of the last published statistics */
+	private long editNanos = 0;
+	private final long[] lastCounters = new long[4];
+
+	public GeometryEngine() {
+		resetChangedBounds();
+		triangulation.addChangeListener(new DelaunayTriangulation.ChangeListener() {
+			@Override
+			public void trianglesChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created) {
+				addChangedBounds();
+			}
+
+			@Override
+			public void triangulationRebuilt() {
+				addChangedBounds();
+			}
+		});
+	}
+
+	public void addSnapshotListener(@NonNull SnapshotListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeSnapshotListener(@NonNull SnapshotListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * return the latest published snapshot. Can be called by any thread.
+	 *
+	 * @return RenderSnapshot the snapshot, empty before the first edit
+	 */
+	@NonNull
+	public RenderSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * return the version of the triangulation after all edits executed so
+	 * far. Only for the geometry thread, e.g. in the callbacks of
+	 * {@link #saveTopology(Callable, Consumer)}; other threads use
+	 * {@link #getSnapshot()}.
+	 *
+	 * @return long the version
+	 * @see DelaunayTriangulation#getVersion()
+	 */
+	public long getVersion() {
+		return triangulation.getVersion();
+	}
+
+	/**
+	 * Insert a new site, ignored if there is already one at this position.
+	 *
+	 * @param x, y position
+	 * @param color color of the site
+	 */
+	public void insertPoint(final float x, final float y, final int color) {
+		submit(() -> {
+			try {
+				triangulation.insertPoint(new Point(x, y, color));
+			} catch (VoronoiException e) {
+				// ignore
+			}
+		});
+	}
+
+	/**
+	 * Delete the site next to (x, y) if it is within distance d.
+	 *
+	 * @param x, y position
+	 * @param d maximum distance
+	 */
+	public void deletePoint(final float x, final float y, final float d) {
+		submit(() -> {
+			Point p = triangulation.findPoint(x, y, d);
+			if (p != null)
+				triangulation.deletePoint(p);
+		});
+	}
+
+	/*
+	 * Moves of one drag: the target of its queued move (x and y as float
+	 * bits), only one move per drag is queued at a time. A new drag gets a
+	 * new object, so a move still queued from the last drag never takes the
+	 * target of the next one.
+	 */
+	private static final class Drag {
+		final AtomicLong target = new AtomicLong();
+		final AtomicBoolean pending = new AtomicBoolean();
+	}
+
+	/**
+	 * Select the site next to (x, y) within distance d for
+	 * {@link #moveTo(float, float)}.
+	 *
+	 * @param x, y position
+	 * @param d maximum distance
+	 */
+	public void startMove(final float x, final float y, final float d) {
+		drag = new Drag();
+		submit(() -> pointInMove = triangulation.findPoint(x, y, d));
+	}
+
+	/**
+	 * Move the selected site to (x, y). If the geometry thread has not
+	 * started the previous move of the same drag yet, only its target is
+	 * replaced, so a slow rebuild is not followed by a queue of outdated
+	 * moves. Ignored outside of a drag.
+	 *
+	 * @param x, y new position
+	 */
+	public void moveTo(final float x, final float y) {
+		final Drag drag = this.drag;
+		if (drag == null)
+			return;
+		drag.target.set(((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xffffffffL));
+		if (!drag.pending.compareAndSet(false, true)) {
+			droppedMoves.incrementAndGet();
+			return;
+		}
+		/* queued before the endMove() of this drag, so pointInMove is its site */
+		submit(() -> {
+			drag.pending.set(false);
+			final long target = drag.target.get();
+			if (pointInMove != null)
+				triangulation.movePoint(pointInMove, Float.intBitsToFloat((int) (target >>> 32)),
+						Float.intBitsToFloat((int) target));
+		});
+	}
+
+	/**
+	 * return the number of moves replaced by a later one before the geometry
+	 * thread executed them.
+	 *
+	 * @return int number of dropped moves since the start
+	 */
+	public int getDroppedMoves() {
+		return droppedMoves.get();
+	}
+
+	public void endMove() {
+		drag = null;
+		submit(() -> pointInMove = null);
+	}
+
+	public void clear() {
+		submit(() -> {
+			pointInMove = null;
+			triangulation.clear();
+		});
+	}
+
+	/**
+	 * Replace all sites by the sites of a point set file (see
+	 * {@link PointSetFile}) or by a topology snapshot (see
+	 * {@link #saveTopology(Callable, Consumer)}). The file is mapped into
+	 * memory on the geometry thread; the sites of a point set are inserted
+	 * in spatial order, a snapshot is restored in linear time.
+	 *
+	 * @param open opens the file, called on the geometry thread; the channel
+	 *        is closed after loading
+	 * @param done called on the geometry thread with <VAR>null</VAR> or the
+	 *        error
+	 */
+	public void loadPoints(@NonNull final Callable<FileChannel> open, @NonNull final Consumer<Exception> done) {
+		submit(() -> {
+			Exception error = null;
+			try (FileChannel channel = open.call()) {
+				if (channel == null)
+					throw new IOException("cannot open file");
+				final ByteBuffer buffer = PointSetFile.mapFile(channel);
+				pointInMove = null;
+				if (DelaunayTriangulation.isTopology(buffer)) {
+					triangulation.readTopology(buffer);
+				} else {
+					final PointSetFile points = PointSetFile.wrap(buffer);
+					triangulation.clear();
+					triangulation.insertPoints(points);
+				}
+			} catch (Exception e) {
+				error = e;
+			}
+			done.accept(error);
+		});
+	}
+
+	/**
+	 * Write a snapshot of the triangulation (sites and topology), see
+	 * {@link DelaunayTriangulation#writeTopology(OutputStream)}, on the
+	 * geometry thread after all queued edits. Load it with
+	 * {@link #loadPoints(Callable, Consumer)}.
+	 *
+	 * @param open opens the stream, called on the geometry thread; the stream
+	 *        is closed after writing, <VAR>null</VAR> writes nothing
+	 * @param done called on the geometry thread with <VAR>null</VAR> or the
+	 *        error
+	 * @see #getVersion()
+	 */
+	public void saveTopology(@NonNull final Callable<OutputStream> open, @NonNull final Consumer<Exception> done) {
+		submit(() -> {
+			Exception error = null;
+			try (OutputStream outputStream = open.call()) {
+				if (outputStream != null)
+					triangulation.writeTopology(outputStream);
+			} catch (Exception e) {
+				error = e;
+			}
+			done.accept(error);
+		});
+	}
+
+	/**
+	 * Write all sites with their colors as point set file, see
+	 * {@link PointSetFile}, on the geometry thread after all queued edits.
+	 *
+	 * @param open opens the stream, called on the geometry thread; the stream
+	 *        is closed after writing
+	 * @param done called on the geometry thread with <VAR>null</VAR> or the
+	 *        error
+	 */
+	public void savePoints(@NonNull final Callable<OutputStream> open, @NonNull final Consumer<Exception> done) {
+		submit(() -> {
+			Exception error = null;
+			try (OutputStream outputStream = open.call()) {
+				if (outputStream == null)
+					throw new IOException("cannot open output stream");
+				final int n = triangulation.size();
+				final float[] coords = new float[2 * n];
+				final int[] colors = new int[n];
+				int i = 0;
+				for (Iterator<Point> iterator = triangulation.points(); iterator.hasNext() && i < n; i++) {
+					final Point p = iterator.next();
+					coords[2 * i] = p.getX();
+					coords[2 * i + 1] = p.getY();
+					colors[i] = p.getColor();
+				}
+				PointSetFile.write(outputStream, coords, colors, i);
+			} catch (Exception e) {
+				error = e;
+			}
+			done.accept(error);
+		});
+	}
+
+	/**
+	 * Set the elements that should be contained in the snapshots.
+	 *
+	 * @param elements the visible elements
+	 */
+	public void setDrawables(@NonNull Set<DrawableElement> elements) {
+		final Set<DrawableElement> copy = elements.isEmpty() ? EnumSet.noneOf(DrawableElement.class) : EnumSet.copyOf(elements);
+		submit(() -> {
+			drawables.clear();
+			drawables.addAll(copy);
+		});
+	}
+
+	/**
+	 * Set where the center of the largest empty circle may lie, the next
+	 * snapshot shows the circle found with it.
+	 *
+	 * @param restriction the new restriction
+	 */
+	public void setCircleRestriction(@NonNull final VoronoiDiagramCircle.Restriction restriction) {
+		circleRestriction = restriction;
+		submit(() -> voronoi.setRestriction(restriction));
+	}
+
+	@NonNull
+	public VoronoiDiagramCircle.Restriction getCircleRestriction() {
+		return circleRestriction;
+	}
+
+	/**
+	 * Set the area of the plane that may be shown, Voronoi rays and regions
+	 * are clipped to it.
+	 *
+	 * @param minX, minY, maxX, maxY the area
+	 */
+	public void setViewArea(final float minX, final float minY, final float maxX, final float maxY) {
+		submit(() -> {
+			area[0] = minX;
+			area[1] = minY;
+			area[2] = maxX;
+			area[3] = maxY;
+		});
+	}
+
+	/**
+	 * Write all sites and the given elements as SVG, on the geometry thread
+	 * after all queued edits. The elements are read directly from the
+	 * triangulation into a reused line buffer and streamed to the writer.
+	 *
+	 * @param elements the elements to export
+	 * @param minX, minY, maxX, maxY area of the plane to export, lines are
+	 *        clipped to it
+	 * @param width, height size of the image in pixels
+	 * @param decimals number of decimals of the coordinates
+	 * @param paths <VAR>true</VAR> to merge every layer into path elements,
+	 *        see {@link SvgWriter#setPaths(boolean)}
+	 * @param open opens the stream, called on the geometry thread; the stream
+	 *        is closed after writing
+	 * @param done called on the geometry thread with <VAR>null</VAR> or the
+	 *        error
+	 */
+	public void exportSvg(@NonNull Set<DrawableElement> elements, final float minX, final float minY,
+						  final float maxX, final float maxY, final int width, final int height, final int decimals,
+						  final boolean paths, @NonNull final Callable<OutputStream> open, @NonNull final Consumer<Exception> done) {
+		final Set<DrawableElement> copy = elements.isEmpty() ? EnumSet.noneOf(DrawableElement.class) : EnumSet.copyOf(elements);
+		submit(() -> {
+			Exception error = null;
+			try (OutputStream outputStream = open.call()) {
+				if (outputStream == null)
+					throw new IOException("cannot open output stream");
+				final SvgWriter svg = new SvgWriter(outputStream, decimals);
+				svg.setPaths(paths);
+				svg.begin(minX, minY, maxX, maxY, width, height);
+				final LineBuffer lines = new LineBuffer(4 * triangulation.size() + 16);
+				lines.setClip(minX, minY, maxX, maxY);
+				if (copy.contains(DrawableElement.VORONOI)) {
+					voronoi.fillLines(lines);
+					writeLines(svg, lines, voronoi.getColor(), minX, minY, maxX, maxY);
+				}
+				if (copy.contains(DrawableElement.DELAUNAY)) {
+					triangulation.fillLines(lines);
+					writeLines(svg, lines, triangulation.getColor(), minX, minY, maxX, maxY);
+				}
+				if (copy.contains(DrawableElement.CONVEXHULL)) {
+					hull.fillLines(lines);
+					writeLines(svg, lines, hull.getColor(), minX, minY, maxX, maxY);
+				}
+				for (DrawableElement element : new DrawableElement[] { DrawableElement.GABRIEL, DrawableElement.RNG, DrawableElement.EMST }) {
+					if (copy.contains(element)) {
+						final ProximityGraph graph = element == DrawableElement.EMST ? graphs.getMinimumSpanningTree()
+								: element == DrawableElement.GABRIEL ? graphs.getGabriel()
+								: graphs.getRelativeNeighbourhood();
+						graph.fillLines(lines);
+						writeLines(svg, lines, graph.getColor(), minX, minY, maxX, maxY);
+					}
+				}
+				/* sites in runs of the same color */
+				final float[] sites = new float[2048];
+				int count = 0, color = 0;
+				for (Iterator<Point> iterator = triangulation.points(); iterator.hasNext(); ) {
+					final Point p = iterator.next();
+					if (p.getX() >= minX && p.getX() <= maxX && p.getY() >= minY && p.getY() <= maxY) {
+						if (count > 0 && (p.getColor() != color || count == sites.length)) {
+							svg.drawPoints(sites, 0, count, color, SVG_POINT_RADIUS);
+							count = 0;
+						}
+						color = p.getColor();
+						sites[count++] = p.getX();
+						sites[count++] = p.getY();
+					}
+				}
+				if (count > 0)
+					svg.drawPoints(sites, 0, count, color, SVG_POINT_RADIUS);
+				svg.end();
+			} catch (Exception e) {
+				error = e;
+			}
+			done.accept(error);
+		});
+	}
+
+	/* visible part of the lines, the buffer is cleared */
+	private static void writeLines(@NonNull SvgWriter svg, @NonNull LineBuffer lines, int color,
+								   float minX, float minY, float maxX, float maxY) {
+		lines.clip(minX, minY, maxX, maxY);
+		lines.render(svg, color, SVG_LINE_WIDTH);
+		lines.clear();
+	}
+
+	/**
+	 * Collect statistics about the work of the geometry thread with every
+	 * snapshot. Costs two calls of System.nanoTime() per edit if enabled.
+	 *
+	 * @param enabled <VAR>true</VAR> to collect
+	 */
+	public void setStatisticsEnabled(boolean enabled) {
+		statisticsEnabled = enabled;
+		statistics = null;
+		if (enabled) {
+			/* start counting now */
+			submit(() -> {
+				lastCounters[0] = triangulation.getOperationCount();
+				lastCounters[1] = triangulation.getFlipCount();
+				lastCounters[2] = triangulation.getWalkSteps();
+				lastCounters[3] = voronoi.getRegionCount();
+				editNanos = 0;
+			});
+		}
+	}
+
+	/**
+	 * return the statistics collected with the latest snapshot.
+	 *
+	 * @return GeometryStatistics the statistics or <VAR>null</VAR> if not
+	 *         enabled or no snapshot has been published since
+	 */
+	@Nullable
+	public GeometryStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Stop the geometry thread after the queued work, so a state saved just
+	 * before is still written. Later edits are ignored.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		listeners.clear();
+	}
+
+	private void submit(@NonNull final Runnable edit) {
+		if (executor.isShutdown())
+			return;
+		pending.incrementAndGet();
+		executor.execute(() -> {
+			final boolean timed = statisticsEnabled;
+			final long start = timed ? System.nanoTime() : 0;
+			try {
+				edit.run();
+			} catch (RuntimeException e) {
+				Log.e(VoronoiApp.APPNAME, "Error in geometry thread", e);
+			}
+			if (timed)
+				editNanos += System.nanoTime() - start;
+			if (pending.decrementAndGet() == 0)
+				publish();
+		});
+	}
+
+	/* create a snapshot of the current state and pass it to the main thread */
+	private void publish() {
+		final boolean timed = statisticsEnabled;
+		final long start = timed ? System.nanoTime() : 0;
+		final RenderSnapshot next = new RenderSnapshot(snapshot, triangulation, voronoi, cellCache, hull, coloring,
+				graphs, drawables, area, changedAll ? null : changedBounds.clone());
+		if (timed)
+			collectStatistics(System.nanoTime() - start);
+		resetChangedBounds();
+		snapshot = next;
+		mainHandler.post(() -> {
+			for (SnapshotListener listener : listeners)
+				listener.snapshotPublished(next);
+		});
+	}
+
+	/* the differences of all counters since the last statistics */
+	private void collectStatistics(long snapshotNanos) {
+		final long[] counters = {triangulation.getOperationCount(), triangulation.getFlipCount(),
+				triangulation.getWalkSteps(), voronoi.getRegionCount()};
+		statistics = new GeometryStatistics(editNanos, snapshotNanos,
+				counters[0] - lastCounters[0], counters[1] - lastCounters[1],
+				counters[2] - lastCounters[2], counters[3] - lastCounters[3],
+				triangulation.size(), triangulation.getTriangleCount(), droppedMoves.get());
+		System.arraycopy(counters, 0, lastCounters, 0, counters.length);
+		editNanos = 0;
+	}
+
+	private void resetChangedBounds() {
+		changedAll = false;
+		changedBounds[0] = changedBounds[1] = Float.POSITIVE_INFINITY;
+		changedBounds[2] = changedBounds[3] = Float.NEGATIVE_INFINITY;
+	}
+
+	private void addChangedBounds() {
+		if (!triangulation.getChangedBounds(bounds)) {
+			changedAll = true;
+			return;
+		}
+		changedBounds[0] = Math.min(changedBounds[0], bounds[0]);
+		changedBounds[1] = Math.min(changedBounds[1], bounds[1]);
+		changedBounds[2] = Math.max(changedBounds[2], bounds[2]);
+		changedBounds[3] = Math.max(changedBounds[3], bounds[3]);
+	}
+}
@@ -0,0 +1,46 @@
+package de.hambuch.voronoiapp;
+
+/**
+ * Counters of the geometry thread between two snapshots, only collected if
+ * enabled by {@link GeometryEngine#setStatisticsEnabled(boolean)}. Never
+ * modified after creation.
+ */
+public final class GeometryStatistics {
+
+	/* time spent in edits and in creating the snapshot */
+	public final long editNanos;
+	public final long snapshotNanos;
+	/* public operations of the triangulation and work done by them */
+	public final long operations;
+	public final long flips;
+	public final long walkSteps;
+	public final long regions;
+	/* size of the triangulation */
+	public final int sites;
+	public final int triangles;
+	/* moves replaced by later ones before they were executed, since the start */
+	public final int droppedMoves;
+
+	GeometryStatistics(long editNanos, long snapshotNanos, long operations, long flips, long walkSteps,
+					   long regions, int sites, int triangles, int droppedMoves) {
+		this.editNanos = editNanos;
+		this.snapshotNanos = snapshotNanos;
+		this.operations = operations;
+		this.flips = flips;
+		this.walkSteps = walkSteps;
+		this.regions = regions;
+		this.sites = sites;
+		this.triangles = triangles;
+		this.droppedMoves = droppedMoves;
+	}
+
+	/**
+	 * return the average of a counter per operation.
+	 *
+	 * @param count e.g. {@link #flips}
+	 * @return float count per operation, 0 without operations
+	 */
+	public float perOperation(long count) {
+		return operations > 0 ? (float) count / operations : 0.0f;
+	}
+}
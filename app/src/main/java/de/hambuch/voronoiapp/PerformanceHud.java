@@ -0,0 +1,150 @@
+package de.hambuch.voronoiapp;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Debug overlay of {@link VoronoiView}: percentiles of the time to draw a
+ * frame, the interval between frames, the growth of the heap per frame and
+ * the statistics of the geometry thread (time per snapshot, flips and walk
+ * steps per operation, size of the triangulation). Only created if enabled,
+ * so the view has no costs otherwise.
+ */
+class PerformanceHud {
+
+	/* number of frames for the percentiles */
+	private static final int FRAMES = 120;
+	private static final float TEXT_SIZE = 28.0f;
+
+	private final long[] drawNanos = new long[FRAMES];
+	private final long[] sorted = new long[FRAMES];
+	private int frames = 0;
+	private int next = 0;
+	private long lastFrameStart = 0;
+	private long frameInterval = 0;
+	/* growth of the used heap during the last frame, 0 after a garbage collection */
+	private long lastUsedBytes = 0;
+	private long allocatedBytes = 0;
+	private final Runtime runtime = Runtime.getRuntime();
+
+	private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint backgroundPaint = new Paint();
+	/* area covered by the overlay in the view */
+	private final Rect bounds = new Rect();
+	/* reused for every frame, drawText() takes the characters without a String */
+	private final StringBuilder[] lines = new StringBuilder[6];
+	private int lineCount = 0;
+	/* the statistics in lines 2 to 5, only formatted again if they have changed */
+	@Nullable
+	private GeometryStatistics shownStatistics;
+	private boolean statisticsShown = false;
+
+	PerformanceHud() {
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = new StringBuilder(64);
+		textPaint.setColor(Color.WHITE);
+		textPaint.setTextSize(TEXT_SIZE);
+		backgroundPaint.setColor(0xA0000000);
+		backgroundPaint.setStyle(Paint.Style.FILL);
+	}
+
+	/**
+	 * return the start time of a frame, call before drawing.
+	 *
+	 * @return long start time for {@link #frameEnd(long)}
+	 */
+	long frameStart() {
+		final long start = System.nanoTime();
+		if (lastFrameStart != 0)
+			frameInterval = start - lastFrameStart;
+		lastFrameStart = start;
+		return start;
+	}
+
+	/**
+	 * Record the time of a frame, call after drawing.
+	 *
+	 * @param start value of {@link #frameStart()}
+	 */
+	void frameEnd(long start) {
+		drawNanos[next] = System.nanoTime() - start;
+		next = (next + 1) % FRAMES;
+		frames = Math.min(frames + 1, FRAMES);
+		final long used = runtime.totalMemory() - runtime.freeMemory();
+		allocatedBytes = Math.max(0, used - lastUsedBytes);
+		lastUsedBytes = used;
+	}
+
+	void draw(@NonNull Canvas canvas, @Nullable GeometryStatistics statistics) {
+		System.arraycopy(drawNanos, 0, sorted, 0, frames);
+		Arrays.sort(sorted, 0, frames);
+		StringBuilder line = lines[0];
+		line.setLength(0);
+		appendTenths(line.append("draw p50 "), percentile(0.5f));
+		appendTenths(line.append(" p90 "), percentile(0.9f));
+		appendTenths(line.append(" p99 "), percentile(0.99f)).append(" ms");
+		line = lines[1];
+		line.setLength(0);
+		appendTenths(line.append("frame interval "), frameInterval / 1e6f)
+				.append(" ms, heap +").append(allocatedBytes / 1024).append(" KB");
+		if (!statisticsShown || statistics != shownStatistics)
+			formatStatistics(statistics);
+		final float lineHeight = TEXT_SIZE * 1.2f;
+		float width = 0.0f;
+		for (int i = 0; i < lineCount; i++)
+			width = Math.max(width, textPaint.measureText(lines[i], 0, lines[i].length()));
+		bounds.set(0, 0, (int) Math.ceil(width + TEXT_SIZE), (int) Math.ceil(lineCount * lineHeight + TEXT_SIZE / 2));
+		canvas.drawRect(bounds, backgroundPaint);
+		float y = lineHeight;
+		for (int i = 0; i < lineCount; i++) {
+			canvas.drawText(lines[i], 0, lines[i].length(), TEXT_SIZE / 2, y, textPaint);
+			y += lineHeight;
+		}
+	}
+
+	/* lines 2 to 5, a new statistics object is only published with a new snapshot */
+	private void formatStatistics(@Nullable GeometryStatistics statistics) {
+		for (int i = 2; i < lines.length; i++)
+			lines[i].setLength(0);
+		shownStatistics = statistics;
+		statisticsShown = true;
+		if (statistics == null) {
+			lines[2].append("no geometry statistics yet");
+			lineCount = 3;
+			return;
+		}
+		appendTenths(lines[2].append("geometry "), statistics.editNanos / 1e6f);
+		appendTenths(lines[2].append(" ms, snapshot "), statistics.snapshotNanos / 1e6f).append(" ms");
+		lines[3].append(statistics.operations).append(" ops: ");
+		appendTenths(lines[3], statistics.perOperation(statistics.flips)).append(" flips, ");
+		appendTenths(lines[3], statistics.perOperation(statistics.walkSteps)).append(" steps, ");
+		appendTenths(lines[3], statistics.perOperation(statistics.regions)).append(" regions per op");
+		lines[4].append(statistics.sites).append(" sites, ").append(statistics.triangles).append(" triangles");
+		lines[5].append(statistics.droppedMoves).append(" moves dropped");
+		lineCount = 6;
+	}
+
+	/* value with one decimal, without the Formatter and String of String.format() */
+	@NonNull
+	static StringBuilder appendTenths(@NonNull StringBuilder builder, float value) {
+		long tenths = Math.round((double) value * 10.0);
+		if (tenths < 0) {
+			builder.append('-');
+			tenths = -tenths;
+		}
+		return builder.append(tenths / 10).append('.').append(tenths % 10);
+	}
+
+	private float percentile(float p) {
+		if (frames == 0)
+			return 0.0f;
+		return sorted[Math.min(frames - 1, (int) (p * frames))] / 1e6f;
+	}
+}
@@ -0,0 +1,191 @@
+package de.hambuch.voronoiapp;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+
+/**
+ * A set of sites in a compact binary format, all numbers little endian:
+ * <pre>
+ *  0  magic "VPTS"
+ *  4  short version (1)
+ *  6  short flags: 1 = double coordinates, 2 = color column
+ *  8  int number of sites
+ * 12  int reserved (0)
+ * 16  float minX, minY, maxX, maxY bounding box
+ * 32  x, y of every site as float or double
+ *     ARGB of every site as int, if flag 2 is set
+ * </pre>
+ * A file is mapped into memory by {@link #map(FileChannel)} and read in
+ * place, without an object per site. It may be passed directly to
+ * {@link DelaunayTriangulation#insertPoints(DelaunayTriangulation.PointSource)}.
+ */
+public class PointSetFile implements DelaunayTriangulation.PointSource {
+
+	public static final String EXTENSION = ".vpts";
+	public static final int FLAG_DOUBLE = 1;
+	public static final int FLAG_COLORS = 2;
+	private static final int MAGIC = 'V' | 'P' << 8 | 'T' << 16 | 'S' << 24;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	@NonNull
+	private final ByteBuffer buffer;
+	private final int count;
+	private final boolean doubles;
+	private final boolean colors;
+	/* byte offset of the color column */
+	private final int colorOffset;
+	@NonNull
+	private final float[] bounds = new float[4];
+
+	private PointSetFile(@NonNull ByteBuffer buffer) throws IOException {
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("not a point set");
+		if (buffer.getShort(4) != VERSION)
+			throw new IOException("unknown version " + buffer.getShort(4));
+		final int flags = buffer.getShort(6);
+		doubles = (flags & FLAG_DOUBLE) != 0;
+		colors = (flags & FLAG_COLORS) != 0;
+		count = buffer.getInt(8);
+		final long size = HEADER_SIZE + (long) count * ((doubles ? 16 : 8) + (colors ? 4 : 0));
+		if (count < 0 || size > buffer.capacity())
+			throw new IOException("point set truncated");
+		colorOffset = HEADER_SIZE + count * (doubles ? 16 : 8);
+		for (int i = 0; i < 4; i++)
+			bounds[i] = buffer.getFloat(16 + 4 * i);
+	}
+
+	/**
+	 * Map a point set file into memory. The mapping stays valid after the
+	 * channel has been closed.
+	 *
+	 * @param channel the file
+	 * @return PointSetFile the sites of the file
+	 * @throws IOException if the file cannot be mapped or has a wrong format
+	 */
+	@NonNull
+	public static PointSetFile map(@NonNull FileChannel channel) throws IOException {
+		return wrap(mapFile(channel));
+	}
+
+	/**
+	 * Read a point set from a buffer, e.g. a file mapped by
+	 * {@link #mapFile(FileChannel)}.
+	 *
+	 * @param buffer the content of the file, its byte order is changed
+	 * @return PointSetFile the sites of the buffer
+	 * @throws IOException if the buffer has a wrong format
+	 */
+	@NonNull
+	public static PointSetFile wrap(@NonNull ByteBuffer buffer) throws IOException {
+		return new PointSetFile(buffer);
+	}
+
+	/**
+	 * Map a whole file read-only into memory.
+	 *
+	 * @param channel the file
+	 * @return ByteBuffer the content of the file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	@NonNull
+	public static ByteBuffer mapFile(@NonNull FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("file too large");
+		return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	/**
+	 * Write sites with float coordinates.
+	 *
+	 * @param outputStream the stream, not closed
+	 * @param coords x, y of the sites
+	 * @param colors ARGB of the sites or <VAR>null</VAR>
+	 * @param count number of sites
+	 * @throws IOException error of the stream
+	 */
+	public static void write(@NonNull OutputStream outputStream, @NonNull float[] coords, @Nullable int[] colors,
+							 int count) throws IOException {
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < 2 * count; i += 2) {
+			minX = Math.min(minX, coords[i]);
+			minY = Math.min(minY, coords[i + 1]);
+			maxX = Math.max(maxX, coords[i]);
+			maxY = Math.max(maxY, coords[i + 1]);
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putShort((short) VERSION);
+		buffer.putShort((short) (colors != null ? FLAG_COLORS : 0));
+		buffer.putInt(count);
+		buffer.putInt(0);
+		buffer.putFloat(minX).putFloat(minY).putFloat(maxX).putFloat(maxY);
+		for (int i = 0; i < 2 * count; i++) {
+			if (buffer.remaining() < 4)
+				flush(outputStream, buffer);
+			buffer.putFloat(coords[i]);
+		}
+		if (colors != null) {
+			for (int i = 0; i < count; i++) {
+				if (buffer.remaining() < 4)
+					flush(outputStream, buffer);
+				buffer.putInt(colors[i]);
+			}
+		}
+		flush(outputStream, buffer);
+		outputStream.flush();
+	}
+
+	private static void flush(@NonNull OutputStream outputStream, @NonNull ByteBuffer buffer) throws IOException {
+		outputStream.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public float getX(int i) {
+		return doubles ? (float) buffer.getDouble(HEADER_SIZE + 16 * i) : buffer.getFloat(HEADER_SIZE + 8 * i);
+	}
+
+	public float getY(int i) {
+		return doubles ? (float) buffer.getDouble(HEADER_SIZE + 16 * i + 8) : buffer.getFloat(HEADER_SIZE + 8 * i + 4);
+	}
+
+	@ColorInt
+	public int getColor(int i) {
+		return colors ? buffer.getInt(colorOffset + 4 * i) : 0;
+	}
+
+	public boolean hasColors() {
+		return colors;
+	}
+
+	public boolean isDouble() {
+		return doubles;
+	}
+
+	/**
+	 * return the bounding box stored in the header.
+	 *
+	 * @return float[] minX, minY, maxX, maxY
+	 */
+	@NonNull
+	public float[] getBounds() {
+		return bounds.clone();
+	}
+}
@@ -0,0 +1,532 @@
+package de.hambuch.voronoiapp;
+
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import de.hambuch.voronoiapp.VoronoiView.DrawableElement;
+import de.hambuch.voronoiapp.algo.ConvexHull;
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+import de.hambuch.voronoiapp.algo.DiagramColoring;
+import de.hambuch.voronoiapp.algo.ProximityGraph;
+import de.hambuch.voronoiapp.algo.ProximityGraphCache;
+import de.hambuch.voronoiapp.algo.VoronoiCellCache;
+import de.hambuch.voronoiapp.algo.VoronoiDiagramCircle;
+import de.hambuch.voronoiapp.geometry.Circle;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
+import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.SpatialGrid;
+
+/**
+ * Everything the view needs to draw the diagram, copied into primitive arrays
+ * by the geometry thread. A snapshot is never modified after it has been
+ * created, so it can be drawn while the geometry thread works on the next
+ * one. Only the enabled elements are contained, unchanged data is shared with
+ * the previous snapshot.
+ * <p>Every new version of the triangulation copies the sites, the lines of
+ * Delaunay, Voronoi and hull and the colored triangles again together with
+ * their spatial grids, O(n) each, also if only a few sites have changed:
+ * the arrays are shared with the view and never patched. Voronoi regions
+ * are only clipped again for changed sites (see {@link VoronoiCellCache}),
+ * the proximity graphs are built once per version and only if shown (see
+ * {@link ProximityGraphCache}). A new area with the same version only
+ * copies the elements clipped to the area again.</p>
+ *
+ * @see GeometryEngine
+ */
+public final class RenderSnapshot {
+
+	static final RenderSnapshot EMPTY = new RenderSnapshot();
+
+	private final long version;
+	private final long hullVersion;
+	/* area of the plane rays and regions have been clipped to: minX, minY, maxX, maxY */
+	@NonNull
+	private final float[] area;
+	/* x, y for every site and its color, sites of the same color are stored together */
+	@NonNull
+	private final float[] points;
+	@NonNull
+	private final int[] pointColors;
+	/* color and first site of every group of sites, groupStarts has an extra entry for the end */
+	@NonNull
+	private final int[] groupColors;
+	@NonNull
+	private final int[] groupStarts;
+	/* line segments (x1, y1, x2, y2) and line color of the elements */
+	private final Map<DrawableElement, float[]> lines = new EnumMap<>(DrawableElement.class);
+	private final Map<DrawableElement, Integer> lineColors = new EnumMap<>(DrawableElement.class);
+	/* spatial indices to draw only the visible part */
+	private final Map<DrawableElement, SpatialGrid> lineGrids = new EnumMap<>(DrawableElement.class);
+	@NonNull
+	private final SpatialGrid pointGrid;
+	@Nullable
+	private final SpatialGrid cellGrid;
+	@Nullable
+	private final SpatialGrid triangleGrid;
+	/* clipped Voronoi regions (x, y, ...), shared with the cache, and their color index */
+	@Nullable
+	private final float[][] cells;
+	@Nullable
+	private final int[] cellColors;
+	/* real triangles (x1, y1, x2, y2, x3, y3) and their color index */
+	@Nullable
+	private final float[] triangles;
+	@Nullable
+	private final int[] triangleColors;
+	/* center x, y and radius of the largest empty circle */
+	@Nullable
+	private final float[] circle;
+	private final int circleColor;
+	/* area changed since the previous snapshot, null if unbounded */
+	@Nullable
+	private final float[] changedBounds;
+
+	private RenderSnapshot() {
+		version = -1;
+		hullVersion = -1;
+		area = new float[4];
+		points = new float[0];
+		pointColors = new int[0];
+		groupColors = new int[0];
+		groupStarts = new int[1];
+		pointGrid = SpatialGrid.ofPoints(points);
+		cells = null;
+		cellColors = null;
+		cellGrid = null;
+		triangles = null;
+		triangleColors = null;
+		triangleGrid = null;
+		circle = null;
+		circleColor = 0;
+		changedBounds = null;
+	}
+
+	/*
+	 * Copy the enabled elements, must be called by the geometry thread.
+	 */
+	RenderSnapshot(@NonNull RenderSnapshot previous, @NonNull DelaunayTriangulation delaunay,
+				   @NonNull VoronoiDiagramCircle voronoi, @NonNull VoronoiCellCache cellCache,
+				   @NonNull ConvexHull hull, @NonNull DiagramColoring coloring, @NonNull ProximityGraphCache graphs,
+				   @NonNull Set<DrawableElement> drawables, @NonNull float[] area, @Nullable float[] changedBounds) {
+		this.version = delaunay.getVersion();
+		this.hullVersion = delaunay.getHullVersion();
+		this.changedBounds = changedBounds;
+		final boolean unchanged = previous.version == version;
+		final boolean sameArea = unchanged && Arrays.equals(previous.area, area);
+		this.area = area.clone();
+
+		if (unchanged) {
+			points = previous.points;
+			pointColors = previous.pointColors;
+			groupColors = previous.groupColors;
+			groupStarts = previous.groupStarts;
+			pointGrid = previous.pointGrid;
+		} else {
+			/* count the sites of every color, then sort them by color (counting sort) */
+			final int n = delaunay.size();
+			final ColorGroups groups = new ColorGroups();
+			final int[] group = new int[n];
+			int i = 0;
+			for (Iterator<Point> iterator = delaunay.points(); iterator.hasNext() && i < n; i++) {
+				final Point p = iterator.next();
+				group[i] = groups.group(p.getFillColor() != 0 ? p.getFillColor() : p.getColor());
+			}
+			groupColors = Arrays.copyOf(groups.colors, groups.size);
+			groupStarts = new int[groups.size + 1];
+			for (int j = 0; j < i; j++)
+				groupStarts[group[j] + 1]++;
+			for (int g = 1; g < groupStarts.length; g++)
+				groupStarts[g] += groupStarts[g - 1];
+			final int[] next = Arrays.copyOf(groupStarts, groupColors.length);
+			points = new float[2 * i];
+			pointColors = new int[i];
+			i = 0;
+			for (Iterator<Point> iterator = delaunay.points(); iterator.hasNext() && i < group.length; i++) {
+				final Point p = iterator.next();
+				final int k = next[group[i]]++;
+				points[2 * k] = p.getX();
+				points[2 * k + 1] = p.getY();
+				pointColors[k] = groupColors[group[i]];
+			}
+			pointGrid = SpatialGrid.ofPoints(points);
+		}
+
+		final LineBuffer buffer = new LineBuffer();
+		buffer.setClip(area[0], area[1], area[2], area[3]);
+		for (DrawableElement element : drawables) {
+			if (sameArea && previous.lines.containsKey(element) && element != DrawableElement.VORONOICOLORED) {
+				lines.put(element, previous.lines.get(element));
+				lineColors.put(element, previous.lineColors.get(element));
+				lineGrids.put(element, previous.lineGrids.get(element));
+				continue;
+			}
+			buffer.clear();
+			int color;
+			switch (element) {
+				case DELAUNAY:
+				case DELAUNAYCOLORED:
+					delaunay.fillLines(buffer);
+					color = delaunay.getColor();
+					break;
+				case VORONOI:
+				case MAXCIRCLE:
+					voronoi.fillLines(buffer);
+					color = voronoi.getColor();
+					break;
+				case CONVEXHULL:
+					hull.fillLines(buffer);
+					color = hull.getColor();
+					break;
+				case EMST:
+				case GABRIEL:
+				case RNG: {
+					/* built once per version, the lines do not depend on the area and are shared */
+					final ProximityGraph graph = element == DrawableElement.EMST ? graphs.getMinimumSpanningTree()
+							: element == DrawableElement.GABRIEL ? graphs.getGabriel()
+							: graphs.getRelativeNeighbourhood();
+					final float[] segments = graph.getLines();
+					lines.put(element, segments);
+					lineColors.put(element, graph.getColor());
+					lineGrids.put(element, segments == previous.lines.get(element) ? previous.lineGrids.get(element)
+							: SpatialGrid.ofSegments(segments));
+					continue;
+				}
+				default:
+					continue; /* VORONOICOLORED: cells with outlines */
+			}
+			putLines(element, Arrays.copyOf(buffer.getLines(), buffer.size()), color);
+		}
+
+		if (!drawables.contains(DrawableElement.VORONOICOLORED)) {
+			cells = null;
+			cellColors = null;
+			cellGrid = null;
+		} else if (sameArea && previous.cells != null) {
+			cells = previous.cells;
+			cellColors = previous.cellColors;
+			cellGrid = previous.cellGrid;
+			lines.put(DrawableElement.VORONOICOLORED, previous.lines.get(DrawableElement.VORONOICOLORED));
+			lineColors.put(DrawableElement.VORONOICOLORED, previous.lineColors.get(DrawableElement.VORONOICOLORED));
+			lineGrids.put(DrawableElement.VORONOICOLORED, previous.lineGrids.get(DrawableElement.VORONOICOLORED));
+		} else {
+			/* only the regions at changed triangles are computed again */
+			coloring.update();
+			cellCache.setArea(area[0], area[1], area[2], area[3]);
+			cells = new float[delaunay.size()][];
+			cellColors = new int[delaunay.size()];
+			buffer.clear();
+			int i = 0;
+			for (Iterator<Point> iterator = voronoi.points(); iterator.hasNext(); i++) {
+				final Point site = iterator.next();
+				cells[i] = cellCache.getCell(site);
+				cellColors[i] = coloring.siteColor(site);
+				if (cells[i] != null)
+					buffer.addPolygon(cells[i]);
+			}
+			putLines(DrawableElement.VORONOICOLORED, Arrays.copyOf(buffer.getLines(), buffer.size()), Color.BLACK); /* like Region */
+			cellGrid = SpatialGrid.ofPolygons(cells);
+		}
+
+		if (!drawables.contains(DrawableElement.DELAUNAYCOLORED)) {
+			triangles = null;
+			triangleColors = null;
+			triangleGrid = null;
+		} else if (unchanged && previous.triangles != null) {
+			triangles = previous.triangles;
+			triangleColors = previous.triangleColors;
+			triangleGrid = previous.triangleGrid;
+		} else {
+			coloring.update();
+			final float[] coords = new float[12 * Math.max(1, delaunay.size())];
+			final int[] colors = new int[2 * Math.max(1, delaunay.size())];
+			final int[] count = new int[1];
+			if (!delaunay.areCollinear()) {
+				delaunay.visitTriangles(t -> {
+					if (t.isHalfplane() || count[0] >= colors.length)
+						return;
+					final int n = count[0]++;
+					coords[6 * n] = t.getPointA().getX();
+					coords[6 * n + 1] = t.getPointA().getY();
+					coords[6 * n + 2] = t.getPointB().getX();
+					coords[6 * n + 3] = t.getPointB().getY();
+					coords[6 * n + 4] = t.getPointC().getX();
+					coords[6 * n + 5] = t.getPointC().getY();
+					colors[n] = coloring.triangleColor(t);
+				});
+			}
+			triangles = Arrays.copyOf(coords, 6 * count[0]);
+			triangleColors = Arrays.copyOf(colors, count[0]);
+			triangleGrid = SpatialGrid.ofTriangles(triangles);
+		}
+
+		Circle maxCircle = null;
+		if (drawables.contains(DrawableElement.MAXCIRCLE))
+			maxCircle = voronoi.getMaxCircle(area[0], area[1], area[2], area[3]);
+		if (maxCircle != null) {
+			final float[] next = {maxCircle.getCenter().getX(), maxCircle.getCenter().getY(), maxCircle.getRadius()};
+			/* the same array for the same circle, the view redraws its layer only for a new one */
+			circle = Arrays.equals(previous.circle, next) ? previous.circle : next;
+			circleColor = Color.GREEN;
+		} else {
+			circle = null;
+			circleColor = 0;
+		}
+	}
+
+	/*
+	 * the group index of every color in order of appearance, a hash table
+	 * with linear probing on primitive ints (no boxing per site)
+	 */
+	private static final class ColorGroups {
+		/* colors in order of appearance */
+		int[] colors = new int[8];
+		int size = 0;
+		/* group + 1 per slot, 0 for an empty slot */
+		private int[] table = new int[16];
+		private int last = -1;
+
+		int group(int color) {
+			/* sites of one color often follow each other */
+			if (last >= 0 && colors[last] == color)
+				return last;
+			final int mask = table.length - 1;
+			int slot = slot(color, mask);
+			while (table[slot] != 0) {
+				if (colors[table[slot] - 1] == color)
+					return last = table[slot] - 1;
+				slot = (slot + 1) & mask;
+			}
+			if (size == colors.length)
+				colors = Arrays.copyOf(colors, 2 * size);
+			colors[size] = color;
+			table[slot] = ++size;
+			if (2 * size > table.length)
+				rehash();
+			return last = size - 1;
+		}
+
+		private void rehash() {
+			table = new int[2 * table.length];
+			final int mask = table.length - 1;
+			for (int g = 0; g < size; g++) {
+				int slot = slot(colors[g], mask);
+				while (table[slot] != 0)
+					slot = (slot + 1) & mask;
+				table[slot] = g + 1;
+			}
+		}
+
+		private static int slot(int color, int mask) {
+			final int h = color * 0x9e3779b9;
+			return (h ^ h >>> 16) & mask;
+		}
+	}
+
+	private void putLines(DrawableElement element, float[] segments, int color) {
+		lines.put(element, segments);
+		lineColors.put(element, color);
+		lineGrids.put(element, SpatialGrid.ofSegments(segments));
+	}
+
+	/**
+	 * return the version of the triangulation this snapshot was taken from.
+	 *
+	 * @return long the version or -1 for the empty snapshot
+	 * @see DelaunayTriangulation#getVersion()
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public long getHullVersion() {
+		return hullVersion;
+	}
+
+	/**
+	 * return the number of sites.
+	 *
+	 * @return int number of sites
+	 */
+	public int size() {
+		return pointColors.length;
+	}
+
+	/**
+	 * return the coordinates of all sites.
+	 *
+	 * @return float[] x and y of every site, must not be modified
+	 */
+	@NonNull
+	public float[] getPoints() {
+		return points;
+	}
+
+	@NonNull
+	public int[] getPointColors() {
+		return pointColors;
+	}
+
+	/**
+	 * return the colors of the groups of sites. The sites of group
+	 * <VAR>g</VAR> are stored in {@link #getPoints()} from
+	 * <VAR>getGroupStarts()[g]</VAR> up to <VAR>getGroupStarts()[g+1]</VAR>
+	 * (exclusive), so every group can be drawn with one call.
+	 *
+	 * @return int[] color of every group, must not be modified
+	 */
+	@NonNull
+	public int[] getGroupColors() {
+		return groupColors;
+	}
+
+	/**
+	 * return the first site of every group and the number of sites as last
+	 * entry.
+	 *
+	 * @return int[] start of every group, must not be modified
+	 * @see #getGroupColors()
+	 */
+	@NonNull
+	public int[] getGroupStarts() {
+		return groupStarts;
+	}
+
+	/**
+	 * return the line segments of an element.
+	 *
+	 * @param element the element
+	 * @return float[] x1, y1, x2, y2 of every segment (must not be modified)
+	 *         or <VAR>null</VAR> if not contained in this snapshot
+	 */
+	@Nullable
+	public float[] getLines(@NonNull DrawableElement element) {
+		return lines.get(element);
+	}
+
+	/**
+	 * return the spatial index of the line segments of an element.
+	 *
+	 * @param element the element
+	 * @return SpatialGrid the index or <VAR>null</VAR> if not contained
+	 */
+	@Nullable
+	public SpatialGrid getLineGrid(@NonNull DrawableElement element) {
+		return lineGrids.get(element);
+	}
+
+	@NonNull
+	public SpatialGrid getPointGrid() {
+		return pointGrid;
+	}
+
+	@Nullable
+	public SpatialGrid getCellGrid() {
+		return cellGrid;
+	}
+
+	@Nullable
+	public SpatialGrid getTriangleGrid() {
+		return triangleGrid;
+	}
+
+	public int getLineColor(@NonNull DrawableElement element) {
+		final Integer color = lineColors.get(element);
+		return color != null ? color : Color.BLACK;
+	}
+
+	/**
+	 * return the Voronoi regions clipped to the view.
+	 *
+	 * @return float[][] the corners of every region (an entry is <VAR>null</VAR>
+	 *         if invisible) or <VAR>null</VAR> if not contained
+	 */
+	@Nullable
+	public float[][] getCells() {
+		return cells;
+	}
+
+	/**
+	 * return the color index of every Voronoi region.
+	 *
+	 * @return int[] see {@link DiagramColoring#siteColor(Point)}
+	 */
+	@Nullable
+	public int[] getCellColors() {
+		return cellColors;
+	}
+
+	/**
+	 * return the real triangles.
+	 *
+	 * @return float[] six coordinates per triangle or <VAR>null</VAR> if not contained
+	 */
+	@Nullable
+	public float[] getTriangles() {
+		return triangles;
+	}
+
+	/**
+	 * return the color index of every triangle.
+	 *
+	 * @return int[] see {@link DiagramColoring#triangleColor}
+	 */
+	@Nullable
+	public int[] getTriangleColors() {
+		return triangleColors;
+	}
+
+	/**
+	 * return the largest empty circle.
+	 *
+	 * @return float[] center x, y and radius or <VAR>null</VAR>
+	 */
+	@Nullable
+	public float[] getCircle() {
+		return circle;
+	}
+
+	public int getCircleColor() {
+		return circleColor;
+	}
+
+	/**
+	 * return the area changed since the previous snapshot.
+	 *
+	 * @return float[] minX, minY, maxX, maxY (empty if minX &gt; maxX) or
+	 *         <VAR>null</VAR> if everything may have changed
+	 * @see DelaunayTriangulation#getChangedBounds(float[])
+	 */
+	@Nullable
+	public float[] getChangedBounds() {
+		return changedBounds;
+	}
+
+	/**
+	 * Search the site next to (x, y) within distance d.
+	 *
+	 * @param x, y the position
+	 * @param d maximum distance
+	 * @return int index of the site or -1
+	 */
+	public int findPoint(float x, float y, float d) {
+		int found = -1;
+		float best = d * d;
+		for (int i = 0; i < pointColors.length; i++) {
+			final float dx = points[2 * i] - x, dy = points[2 * i + 1] - y;
+			final float dist = dx * dx + dy * dy;
+			if (dist <= best) {
+				best = dist;
+				found = i;
+			}
+		}
+		return found;
+	}
+}
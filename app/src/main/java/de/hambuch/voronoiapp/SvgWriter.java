@@ -0,0 +1,408 @@
+package de.hambuch.voronoiapp;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import de.hambuch.voronoiapp.geometry.Renderer;
+
+/**
+ * Writes a SVG document element by element into a buffered stream, as a
+ * {@link Renderer} backend. Numbers are formatted by hand with a fixed
+ * number of decimals (trailing zeros removed) instead of string
+ * concatenation, so writing allocates nothing per element.
+ * <p>In path mode (see {@link #setPaths(boolean)}) the lines and points of
+ * one call are merged into a few <VAR>&lt;path&gt;</VAR> elements with
+ * relative commands, which makes large files several times smaller. Wrap
+ * the stream into a <VAR>GZIPOutputStream</VAR> for <VAR>.svgz</VAR>.</p>
+ * <p>Errors of the stream are kept like in <VAR>PrintWriter</VAR>: the
+ * first one stops writing and is thrown by {@link #end()} and
+ * {@link #close()}.</p>
+ */
+public class SvgWriter implements Renderer, Closeable {
+
+	public static final int DEFAULT_DECIMALS = 2;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final long[] POWERS = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L };
+	/* segments (or points) per path element, keeps the attribute reasonably short */
+	private static final int PATH_SEGMENTS = 10000;
+
+	@NonNull
+	private final Writer writer;
+	private final int decimals;
+	/* digits of a number, filled from the end */
+	private final char[] digits = new char[32];
+	private int width = 0;
+	private int height = 0;
+	private boolean paths = false;
+	/* the path being written: pen position in units of the last decimal, last command */
+	private long penX, penY;
+	private char command;
+	private boolean separate;
+	@Nullable
+	private IOException error = null;
+
+	/**
+	 * @param outputStream the stream, closed by {@link #close()}
+	 * @param decimals number of decimals of coordinates, 0 to 6
+	 */
+	public SvgWriter(@NonNull OutputStream outputStream, int decimals) {
+		this(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), decimals);
+	}
+
+	/**
+	 * @param writer the writer, buffered by this class and closed by
+	 *        {@link #close()}
+	 * @param decimals number of decimals of coordinates, 0 to 6
+	 */
+	public SvgWriter(@NonNull Writer writer, int decimals) {
+		if (decimals < 0 || decimals >= POWERS.length)
+			throw new IllegalArgumentException("decimals " + decimals);
+		this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+		this.decimals = decimals;
+	}
+
+	/**
+	 * Merge the lines and points of every call into <VAR>&lt;path&gt;</VAR>
+	 * elements instead of writing one element each.
+	 *
+	 * @param paths <VAR>true</VAR> for path mode
+	 */
+	public void setPaths(boolean paths) {
+		this.paths = paths;
+	}
+
+	public boolean isPaths() {
+		return paths;
+	}
+
+	/**
+	 * Write the header of the document.
+	 *
+	 * @param minX, minY, maxX, maxY area of the plane shown by the image
+	 * @param width, height size of the image in pixels
+	 */
+	public void begin(float minX, float minY, float maxX, float maxY, int width, int height) {
+		this.width = width;
+		this.height = height;
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+		write(width);
+		write("px\" height=\"");
+		write(height);
+		write("px\" viewBox=\"");
+		write(minX);
+		write(' ');
+		write(minY);
+		write(' ');
+		write(maxX - minX);
+		write(' ');
+		write(maxY - minY);
+		write("\">\n<title>Export of VoronoiApp</title>\n");
+	}
+
+	/**
+	 * Write the end of the document and flush the stream.
+	 *
+	 * @throws IOException the first error of the stream
+	 */
+	public void end() throws IOException {
+		write("</svg>\n");
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			if (error == null)
+				error = e;
+		}
+		if (error != null)
+			throw error;
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+		if (error != null)
+			throw error;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, @ColorInt int color, float width) {
+		write("<line x1=\"");
+		write(x1);
+		write("\" y1=\"");
+		write(y1);
+		write("\" x2=\"");
+		write(x2);
+		write("\" y2=\"");
+		write(y2);
+		write('"');
+		stroke(color, width);
+		write("/>\n");
+	}
+
+	public void drawLines(@NonNull float[] lines, int offset, int count, @ColorInt int color, float width) {
+		if (!paths) {
+			for (int i = offset; i + 3 < offset + count; i += 4)
+				drawLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3], color, width);
+			return;
+		}
+		int segments = 0;
+		for (int i = offset; i + 3 < offset + count; i += 4) {
+			if (segments == 0)
+				beginPath();
+			final long x1 = scale(lines[i]), y1 = scale(lines[i + 1]);
+			/* no move if the segment continues the last one */
+			if (command == 0 || x1 != penX || y1 != penY)
+				moveTo(x1, y1);
+			if (command != 'm' && command != 'l')
+				command('l'); /* else implicit */
+			final long x2 = scale(lines[i + 2]), y2 = scale(lines[i + 3]);
+			number(x2 - penX);
+			number(y2 - penY);
+			penX = x2;
+			penY = y2;
+			if (++segments == PATH_SEGMENTS) {
+				endPath(color, width, false);
+				segments = 0;
+			}
+		}
+		if (segments > 0)
+			endPath(color, width, false);
+	}
+
+	public void drawPolyline(@NonNull float[] coords, int offset, int count, boolean closed,
+							 @ColorInt int color, float width) {
+		if (count < 4)
+			return;
+		write(closed ? "<polygon" : "<polyline");
+		points(coords, offset, count);
+		write(" fill=\"none\"");
+		stroke(color, width);
+		write("/>\n");
+	}
+
+	public void fillPolygon(@NonNull float[] coords, int offset, int count, @ColorInt int color) {
+		if (count < 6)
+			return;
+		write("<polygon");
+		points(coords, offset, count);
+		fill(color);
+		write(" fill-rule=\"evenodd\"/>\n");
+	}
+
+	public void drawCircle(float cx, float cy, float radius, @ColorInt int color, float width) {
+		circle(cx, cy, radius);
+		write(" fill=\"none\"");
+		stroke(color, width);
+		write("/>\n");
+	}
+
+	public void fillCircle(float cx, float cy, float radius, @ColorInt int color) {
+		circle(cx, cy, radius);
+		fill(color);
+		write("/>\n");
+	}
+
+	public void drawPoints(@NonNull float[] points, int offset, int count, @ColorInt int color, float radius) {
+		if (!paths) {
+			for (int i = offset; i + 1 < offset + count; i += 2)
+				fillCircle(points[i], points[i + 1], radius, color);
+			return;
+		}
+		/* a point is a line of length 0 with round caps */
+		int n = 0;
+		for (int i = offset; i + 1 < offset + count; i += 2) {
+			if (n == 0)
+				beginPath();
+			moveTo(scale(points[i]), scale(points[i + 1]));
+			command('h');
+			number(0L);
+			if (++n == PATH_SEGMENTS) {
+				endPath(color, 2.0f * radius, true);
+				n = 0;
+			}
+		}
+		if (n > 0)
+			endPath(color, 2.0f * radius, true);
+	}
+
+	private void beginPath() {
+		write("<path d=\"");
+		command = 0;
+	}
+
+	/* the first move of a path is absolute, all other commands relative */
+	private void moveTo(long x, long y) {
+		if (command == 0) {
+			command('M');
+			number(x);
+			number(y);
+		} else {
+			command('m');
+			number(x - penX);
+			number(y - penY);
+		}
+		penX = x;
+		penY = y;
+	}
+
+	private void endPath(@ColorInt int color, float width, boolean round) {
+		write("\" fill=\"none\"");
+		stroke(color, width);
+		if (round)
+			write(" stroke-linecap=\"round\"");
+		write("/>\n");
+	}
+
+	private void command(char c) {
+		write(c);
+		command = c;
+		separate = false;
+	}
+
+	/* a number of a path, a minus sign separates too */
+	private void number(long scaled) {
+		if (separate && scaled >= 0)
+			write(' ');
+		writeScaled(scaled);
+		separate = true;
+	}
+
+	private void circle(float cx, float cy, float radius) {
+		write("<circle cx=\"");
+		write(cx);
+		write("\" cy=\"");
+		write(cy);
+		write("\" r=\"");
+		write(radius);
+		write('"');
+	}
+
+	private void points(@NonNull float[] coords, int offset, int count) {
+		write(" points=\"");
+		for (int i = offset; i + 1 < offset + count; i += 2) {
+			if (i > offset)
+				write(' ');
+			write(coords[i]);
+			write(',');
+			write(coords[i + 1]);
+		}
+		write('"');
+	}
+
+	private void stroke(@ColorInt int color, float width) {
+		write(" stroke=\"");
+		color(color);
+		write("\" stroke-width=\"");
+		write(width);
+		write('"');
+		opacity(" stroke-opacity=\"", color);
+	}
+
+	private void fill(@ColorInt int color) {
+		write(" fill=\"");
+		color(color);
+		write('"');
+		opacity(" fill-opacity=\"", color);
+	}
+
+	/* #rrggbb, the alpha is written as opacity */
+	private void color(@ColorInt int color) {
+		write('#');
+		for (int shift = 20; shift >= 0; shift -= 4)
+			write(HEX[(color >> shift) & 0xf]);
+	}
+
+	private void opacity(@NonNull String attribute, @ColorInt int color) {
+		final int alpha = color >>> 24;
+		if (alpha != 0xff) {
+			write(attribute);
+			write(alpha / 255.0f);
+			write('"');
+		}
+	}
+
+	/* number with at most the given decimals, without trailing zeros */
+	private void write(double value) {
+		writeScaled(scale(value));
+	}
+
+	/* value in units of the last decimal */
+	private long scale(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			return 0L;
+		final long scaled = Math.round(Math.abs(value) * POWERS[decimals]);
+		return value < 0.0 ? -scaled : scaled;
+	}
+
+	private void writeScaled(long scaled) {
+		final long power = POWERS[decimals];
+		long integer = Math.abs(scaled) / power;
+		long fraction = Math.abs(scaled) % power;
+		int start = digits.length;
+		if (fraction != 0) {
+			int places = decimals;
+			while (fraction % 10 == 0) {
+				fraction /= 10;
+				places--;
+			}
+			for (int i = 0; i < places; i++) {
+				digits[--start] = (char) ('0' + fraction % 10);
+				fraction /= 10;
+			}
+			digits[--start] = '.';
+		}
+		do {
+			digits[--start] = (char) ('0' + integer % 10);
+			integer /= 10;
+		} while (integer != 0);
+		if (scaled < 0)
+			digits[--start] = '-';
+		write(digits, start, digits.length - start);
+	}
+
+	private void write(char c) {
+		if (error != null)
+			return;
+		try {
+			writer.write(c);
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	private void write(@NonNull String text) {
+		if (error != null)
+			return;
+		try {
+			writer.write(text);
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	private void write(@NonNull char[] chars, int offset, int length) {
+		if (error != null)
+			return;
+		try {
+			writer.write(chars, offset, length);
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package de.hambuch.voronoiapp;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Transformation from the plane of the diagram (world) to the view (screen):
+ * <VAR>screen = world * scale + offset</VAR>. Changed by pinch zoom and pan.
+ */
+public class Viewport {
+
+	public static final float MIN_SCALE = 0.02f;
+	public static final float MAX_SCALE = 20.0f;
+
+	private float scale = 1.0f;
+	private float offsetX = 0.0f;
+	private float offsetY = 0.0f;
+	/* incremented on every change */
+	private long version = 0;
+
+	public float getScale() {
+		return scale;
+	}
+
+	public float getOffsetX() {
+		return offsetX;
+	}
+
+	public float getOffsetY() {
+		return offsetY;
+	}
+
+	/**
+	 * return a counter that is incremented on every change of the
+	 * transformation.
+	 *
+	 * @return long the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public float toScreenX(float x) {
+		return x * scale + offsetX;
+	}
+
+	public float toScreenY(float y) {
+		return y * scale + offsetY;
+	}
+
+	public float toWorldX(float x) {
+		return (x - offsetX) / scale;
+	}
+
+	public float toWorldY(float y) {
+		return (y - offsetY) / scale;
+	}
+
+	/**
+	 * Zoom by a factor, keeping the screen position (focusX, focusY) fixed.
+	 *
+	 * @param factor zoom factor (&gt; 1 zooms in)
+	 * @param focusX, focusY screen position
+	 */
+	public void zoom(float factor, float focusX, float focusY) {
+		final float newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+		if (newScale == scale)
+			return;
+		final float worldX = toWorldX(focusX), worldY = toWorldY(focusY);
+		scale = newScale;
+		offsetX = focusX - worldX * scale;
+		offsetY = focusY - worldY * scale;
+		version++;
+	}
+
+	/**
+	 * Move the diagram by (dx, dy) pixels.
+	 *
+	 * @param dx, dy distance in pixels
+	 */
+	public void pan(float dx, float dy) {
+		if (dx == 0.0f && dy == 0.0f)
+			return;
+		offsetX += dx;
+		offsetY += dy;
+		version++;
+	}
+
+	public void reset() {
+		scale = 1.0f;
+		offsetX = 0.0f;
+		offsetY = 0.0f;
+		version++;
+	}
+
+	/**
+	 * return the area of the plane shown in a screen rectangle.
+	 *
+	 * @param left, top, right, bottom the screen rectangle
+	 * @param area receives minX, minY, maxX, maxY
+	 */
+	public void toWorld(float left, float top, float right, float bottom, @NonNull float[] area) {
+		area[0] = toWorldX(left);
+		area[1] = toWorldY(top);
+		area[2] = toWorldX(right);
+		area[3] = toWorldY(bottom);
+	}
+}
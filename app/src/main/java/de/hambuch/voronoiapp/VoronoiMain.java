@@ -10,10 +10,10 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.ImageDecoder;
-import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.provider.MediaStore;
 import android.text.format.DateFormat;
 import android.util.Log;
@@ -32,6 +32,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.gms.oss.licenses.OssLicensesMenuActivity;
 import com.google.android.material.chip.ChipGroup;
@@ -40,24 +41,19 @@ import com.google.android.material.snackbar.Snackbar;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import de.hambuch.voronoiapp.algo.ConvexHull;
-import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
-import de.hambuch.voronoiapp.algo.VoronoiDiagram;
-import de.hambuch.voronoiapp.algo.VoronoiException;
-import de.hambuch.voronoiapp.geometry.GeomElement;
+import java.util.zip.GZIPOutputStream;
+
+import de.hambuch.voronoiapp.algo.VoronoiDiagramCircle.Restriction;
 import de.hambuch.voronoiapp.geometry.Point;
 
 /**
@@ -81,25 +77,35 @@ import de.hambuch.voronoiapp.geometry.Point;
  */
 public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 
-	private final DelaunayTriangulation triangulation = new DelaunayTriangulation();
+	/* the engine lives in the model, so it survives configuration changes */
+	private DiagramViewModel model;
+	private GeometryEngine engine;
+	private DragCoalescer drag;
 	private VoronoiView voronoiView;
-	private Point pointInMove;
+	private boolean moving = false;
+	private boolean zooming = false;
 	private boolean deleteMode = false;
 	private Menu menu;
 
 	private ActivityResultLauncher<PickVisualMediaRequest> loadImageLauncher;
-	private final ExecutorService executors = Executors.newFixedThreadPool(1);
+	private ActivityResultLauncher<String> loadPointsLauncher;
 
 	/** Called when the activity is first created. */
 	@Override
 	public void onCreate(@Nullable Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
+		model = new ViewModelProvider(this).get(DiagramViewModel.class);
+		engine = model.getEngine();
+		// after a configuration change the model still has the diagram, after the process has been killed read the state file
+		if (model.initialize() && savedInstanceState != null)
+			restoreState(savedInstanceState);
 
 		setContentView(R.layout.main);
 
 		voronoiView = (VoronoiView) findViewById(R.id.voronoiview);
 		voronoiView.setOnTouchListener(this);
-		voronoiView.setTriangulation(triangulation);
+		voronoiView.setEngine(engine);
+		drag = new DragCoalescer(engine);
 		registerForContextMenu(voronoiView);
 		((ChipGroup)findViewById(R.id.chipGroup)).setOnCheckedStateChangeListener((group, checkedIds) -> {
 			final Set<VoronoiView.DrawableElement> drawableElementSet = new HashSet<>();
@@ -115,6 +121,12 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 				drawableElementSet.add(VoronoiView.DrawableElement.CONVEXHULL);
 			if(checkedIds.contains(R.id.filter_circle))
 				drawableElementSet.add(VoronoiView.DrawableElement.MAXCIRCLE);
+			if(checkedIds.contains(R.id.filter_emst))
+				drawableElementSet.add(VoronoiView.DrawableElement.EMST);
+			if(checkedIds.contains(R.id.filter_gabriel))
+				drawableElementSet.add(VoronoiView.DrawableElement.GABRIEL);
+			if(checkedIds.contains(R.id.filter_rng))
+				drawableElementSet.add(VoronoiView.DrawableElement.RNG);
 			if(drawableElementSet.isEmpty())
 				drawableElementSet.add(VoronoiView.DrawableElement.VORONOI); // minimum: draw voronoi
 			voronoiView.setDrawables(drawableElementSet);
@@ -150,16 +162,39 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 					}
 				});
 
+		loadPointsLauncher =
+				registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
+					if (uri != null) {
+						final ContentResolver resolver = getContentResolver();
+						// the file is mapped into memory by the geometry thread
+						engine.loadPoints(() -> new ParcelFileDescriptor.AutoCloseInputStream(resolver.openFileDescriptor(uri, "r")).getChannel(),
+								error -> {
+									if (error != null) {
+										Log.e(getPackageName(), "Error loading sites: ", error);
+										runOnUiThread(() -> Toast.makeText(this, getString(R.string.error_loadpoints) + ": " + error.getLocalizedMessage(), Toast.LENGTH_LONG).show());
+									}
+								});
+					}
+				});
+
 		voronoiView.post(() -> {
             voronoiView.setBackgroundBitmap((Bitmap)null);
             voronoiView.setDrawables(Collections.singleton(VoronoiView.DrawableElement.VORONOI));
         });
 	}
 
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		if (drag != null)
+			drag.cancel();
+		voronoiView.releaseEngine(); // the engine is shut down by the model
+	}
+
 	@Override
 	public void onStart() {
 		super.onStart();
-		if ( triangulation.size() <= 3) { // for the first 3 points, tell the user what to do
+		if ( engine.getSnapshot().size() <= 3) { // for the first 3 points, tell the user what to do
 			Snackbar.make(voronoiView, R.string.text_clickpoint, Snackbar.LENGTH_LONG).show();
 		}
 	}
@@ -169,6 +204,10 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 		MenuInflater inflater = getMenuInflater();
 		inflater.inflate(R.menu.options_menu, menu);
 		this.menu = menu;
+		/* the restriction is kept by the engine over configuration changes */
+		final Restriction restriction = engine.getCircleRestriction();
+		menu.findItem(restriction == Restriction.CONVEXHULL ? R.id.item_circle_hull
+				: restriction == Restriction.VIEW ? R.id.item_circle_view : R.id.item_circle_none).setChecked(true);
 		return true;
 	}
 
@@ -184,15 +223,33 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 		} else if(itemId ==  R.id.item_load) {
 			loadBackground();
 			return true;
+		} else if(itemId == R.id.item_loadpoints) {
+			loadPointsLauncher.launch("*/*");
+			return true;
+		} else if(itemId == R.id.item_sharepoints) {
+			sharePoints();
+			return true;
 		} else if(itemId ==  R.id.item_share) {
 			shareImage();
 			return true;
 		} else if(itemId == R.id.item_sharesvg) {
-			exportSvg();
+			exportSvg(false);
+			return true;
+		} else if(itemId == R.id.item_sharesvgz) {
+			exportSvg(true);
 			return true;
 		} else if(itemId ==  R.id.item_oss) {
 			startActivity(new Intent(this, OssLicensesMenuActivity.class));
 			return true;
+		} else if(itemId == R.id.item_hud) {
+			item.setChecked(!item.isChecked());
+			voronoiView.setHudEnabled(item.isChecked());
+			return true;
+		} else if(itemId == R.id.item_circle_none || itemId == R.id.item_circle_hull || itemId == R.id.item_circle_view) {
+			item.setChecked(true);
+			engine.setCircleRestriction(itemId == R.id.item_circle_hull ? Restriction.CONVEXHULL
+					: itemId == R.id.item_circle_view ? Restriction.VIEW : Restriction.NONE);
+			return true;
 		} else if(itemId == R.id.item_rate) {
 			showRateGooglePlay();
 			return true;
@@ -203,57 +260,87 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 	@Override
 	public boolean onTouch(View v, MotionEvent event) {
 		voronoiView.performClick();
+		// pinch zoom and pan with two fingers, ignore the rest of such a gesture
+		if (voronoiView.onZoomGesture(event)) {
+			if ( moving )
+				endMove(false);
+			moving = false;
+			zooming = true;
+			return true;
+		}
+		if ( zooming ) {
+			if (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL)
+				zooming = false;
+			return true;
+		}
+		// all positions in the plane of the diagram
+		final float x = voronoiView.toWorldX(event.getX());
+		final float y = voronoiView.toWorldY(event.getY());
 		if (event.getAction() == MotionEvent.ACTION_UP) {
 			if ( deleteMode ) {
-				removePoint(new Point(event.getX(), event.getY()));
+				removePoint(new Point(x, y));
 				setDeleteMode(false);
 				return true;
 			} 
-			else if (pointInMove == null) {
-				try {
-					setDeleteMode(false);
-					triangulation.insertPoint(new Point(event.getX(), event.getY(), Color.RED));
-					voronoiView.invalidate();
-					if ( triangulation.size() <= 3) { // notify user to set more points
-						Snackbar.make(voronoiView, R.string.text_clickanotherpoint, Snackbar.LENGTH_LONG).show();
-					}
-				} catch(VoronoiException e) {
-					// ignore
+			else if (!moving) {
+				setDeleteMode(false);
+				// the snapshot does not contain the new point yet
+				if ( engine.getSnapshot().size() < 3) { // notify user to set more points
+					Snackbar.make(voronoiView, R.string.text_clickanotherpoint, Snackbar.LENGTH_LONG).show();
 				}
+				engine.insertPoint(x, y, Color.RED);
 				return true;
 			} else
 			{
 				setDeleteMode(false);
-				triangulation.movePoint(pointInMove, event.getX(), event.getY());
-				v.invalidate();
-				pointInMove = null;
+				drag.update(x, y, event.getHistorySize());
+				endMove(true);
 				return true;
 			}
 		}
 		else if ( event.getAction() == MotionEvent.ACTION_DOWN) {
-			pointInMove = triangulation.findPoint(event.getX(), event.getY(), 40.0f); // depends on density
+			// the geometry thread selects the same point, unless the snapshot is outdated
+			final float radius = voronoiView.toWorldDistance(40.0f); // depends on density
+			moving = engine.getSnapshot().findPoint(x, y, radius) >= 0;
+			if ( moving ) {
+				drag.start();
+				engine.startMove(x, y, radius);
+			}
 			return true; 
 		}
 		else if ( event.getAction() == MotionEvent.ACTION_MOVE) {
-			if ( pointInMove != null ) {
-				triangulation.movePoint(pointInMove, event.getX(), event.getY());
-				v.invalidate();
+			if ( moving ) {
+				// only the latest position is used, once per frame
+				drag.update(x, y, event.getHistorySize());
 				return true;
 			}
 		}
 		else if ( event.getAction() == MotionEvent.ACTION_CANCEL) {
-			pointInMove = null;
+			if ( moving )
+				endMove(false);
 			setDeleteMode(false);
 			return true;
 		}
 		return false;
 	}
 	
+	/* finish a drag, with or without its last position */
+	private void endMove(boolean apply) {
+		if (apply)
+			drag.flush();
+		else
+			drag.cancel();
+		engine.endMove();
+		moving = false;
+		Log.d(VoronoiApp.APPNAME, "Drag: " + drag.getMoves() + " moves, " + drag.getDropped()
+				+ " positions dropped, " + engine.getDroppedMoves() + " moves dropped by the engine");
+	}
+
 	public void newDiagram() {
         new MaterialAlertDialogBuilder(this).setCancelable(true).
                 setMessage(R.string.text_cleardiagram).setTitle(R.string.text_new).
                 setPositiveButton(android.R.string.yes, (dialog, which) -> {
-					triangulation.clear();
+					engine.clear();
 					setDeleteMode(false);
 					voronoiView.setBackgroundBitmap((Bitmap)null);
 					voronoiView.invalidate();
@@ -269,10 +356,7 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 	}
 
 	private void removePoint(Point p) {
-		Point deleteP = triangulation.findPoint(p.getX(), p.getY(), 100.0f);
-		if ( deleteP != null )
-			triangulation.deletePoint(deleteP);
-		voronoiView.invalidate();
+		engine.deletePoint(p.getX(), p.getY(), voronoiView.toWorldDistance(100.0f));
 		setDeleteMode(false);
 	}
 
@@ -293,84 +377,90 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 		}
 	}
 
-	private void exportSvg() {
-		final String title = "Voronoi_" + DateFormat.format("yyyyMMdd_hhmmss", Calendar.getInstance()) + ".svg";
-		OutputStream outputStream = null;
-		try {
-			// create temporary file
-			final ContentResolver resolver = getApplicationContext().getContentResolver();
-			final File imageDir = new File(getCacheDir(), "images"); // name from filepath.xml
-			if(!imageDir.exists())
-				imageDir.mkdir();
-			final File file = new File(imageDir, title);
-			final Uri uri = FileProvider.getUriForFile(this, "de.hambuch.voronoiapp.fileprovider", file);
-			outputStream = resolver.openOutputStream(uri, "w");
-
-			if(outputStream != null) {
-				final List<GeomElement> elements = new ArrayList<>();
-				// all points at once
-				triangulation.points().forEachRemaining(elements::add);
-				// and the graphics splitted into basic geometric elements
-				final VoronoiDiagram diagramToExport = voronoiView.getVoronoiDiagram();
-				if(diagramToExport != null)
-					diagramToExport.exportToElements(elements);
-				final DelaunayTriangulation delaunayToExport = voronoiView.getDelaunayTriang();
-				if(delaunayToExport != null)
-					delaunayToExport.visitTriangles(elements::add);
-				final ConvexHull hullToExport = voronoiView.getConvexHull();
-				if(hullToExport != null)
-					elements.add(hullToExport.toPolygon());
-
-				// and now we have a list of geom elements that can be exported
-				new SvgExporter(outputStream).export(
-						elements,
-						new Rect(0,0, voronoiView.getWidth(), voronoiView.getHeight()));
-
-				ContentValues newPictureDetails = new ContentValues();
-				newPictureDetails.put(MediaStore.Images.Media.DISPLAY_NAME,
-						title);
-				newPictureDetails.put(MediaStore.Images.Media.TITLE,
-						title);
-				newPictureDetails.put(MediaStore.Images.Media.DESCRIPTION,
-						"Created by VoronoiApp");
-
-				outputStream.close();
-				outputStream = null;
-
-				// on emulator dump to console
-				if(BuildConfig.DEBUG && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-					grantUriPermission(getPackageName(), uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
-					try(InputStream inputStream = resolver.openInputStream(uri))
-					{
-						Log.d(VoronoiApp.APPNAME, new String(inputStream.readAllBytes()));
+	/**
+	 * Export the visible part as SVG and share it.
+	 *
+	 * @param compressed <VAR>true</VAR> for gzip compressed SVG (.svgz)
+	 */
+	private void exportSvg(final boolean compressed) {
+		final String title = "Voronoi_" + DateFormat.format("yyyyMMdd_hhmmss", Calendar.getInstance()) + (compressed ? ".svgz" : ".svg");
+		final int width = voronoiView.getWidth(), height = voronoiView.getHeight();
+		final ContentResolver resolver = getApplicationContext().getContentResolver();
+		final File imageDir = new File(getCacheDir(), "images"); // name from filepath.xml
+		final Uri uri = FileProvider.getUriForFile(this, "de.hambuch.voronoiapp.fileprovider", new File(imageDir, title));
+		// the visible part of the plane, written directly from the triangulation by the geometry thread
+		engine.exportSvg(voronoiView.getDrawables(), voronoiView.toWorldX(0), voronoiView.toWorldY(0),
+				voronoiView.toWorldX(width), voronoiView.toWorldY(height), width, height, SvgWriter.DEFAULT_DECIMALS, true,
+				() -> {
+					// create temporary file
+					if(!imageDir.exists())
+						imageDir.mkdir();
+					final OutputStream outputStream = resolver.openOutputStream(uri, "w");
+					return compressed && outputStream != null ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+				},
+				error -> {
+					if(error != null) {
+						Log.e(getPackageName(),"Error saving SVG: ", error);
+						runOnUiThread(() -> Toast.makeText(this, "Error saving SVG: "+error.getLocalizedMessage(), Toast.LENGTH_LONG).show());
+						return;
+					}
+					// on emulator dump to console
+					if(BuildConfig.DEBUG && !compressed && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+						grantUriPermission(getPackageName(), uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+						try(InputStream inputStream = resolver.openInputStream(uri))
+						{
+							Log.d(VoronoiApp.APPNAME, new String(inputStream.readAllBytes()));
+						} catch (IOException e) {
+							// ignore
+						}
 					}
-				}
 
-				// and share
-				final Intent shareIntent = new Intent();
-				shareIntent.setAction(Intent.ACTION_SEND);
-				shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
-				shareIntent.setFlags(
-						Intent.FLAG_GRANT_READ_URI_PERMISSION);
-				shareIntent.setType("image/svg+xml"); //
-				shareIntent.setClipData(ClipData.newUri(resolver, title, uri));
-				startActivity(Intent.createChooser(shareIntent, getTitle()));
-			}
-		}
-		catch(Exception e) {
-			Log.e(getPackageName(),"Error saving SVG: ", e);
-			Toast.makeText(this, "Error saving SVG: "+e.getLocalizedMessage(), Toast.LENGTH_LONG).show();
-		}
-		finally {
-			if (outputStream != null)
-				try {
-					outputStream.close();
-				} catch (IOException e) {
-					// ignore
-				}
-		}
+					// and share
+					final Intent shareIntent = new Intent();
+					shareIntent.setAction(Intent.ACTION_SEND);
+					shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+					shareIntent.setFlags(
+							Intent.FLAG_GRANT_READ_URI_PERMISSION);
+					// svgz is gzip data, receivers must not read it as plain SVG
+					shareIntent.setType(compressed ? "application/gzip" : "image/svg+xml");
+					shareIntent.setClipData(ClipData.newUri(resolver, title, uri));
+					runOnUiThread(() -> startActivity(Intent.createChooser(shareIntent, getTitle())));
+				});
 	}
 	
+	/**
+	 * Save all sites as point set file (see PointSetFile) and share it.
+	 */
+	private void sharePoints() {
+		final String title = "Voronoi_" + DateFormat.format("yyyyMMdd_hhmmss", Calendar.getInstance()) + PointSetFile.EXTENSION;
+		final ContentResolver resolver = getApplicationContext().getContentResolver();
+		final File imageDir = new File(getCacheDir(), "images"); // name from filepath.xml
+		final Uri uri = FileProvider.getUriForFile(this, "de.hambuch.voronoiapp.fileprovider", new File(imageDir, title));
+		engine.savePoints(
+				() -> {
+					// create temporary file
+					if(!imageDir.exists())
+						imageDir.mkdir();
+					return resolver.openOutputStream(uri, "w");
+				},
+				error -> {
+					if(error != null) {
+						Log.e(getPackageName(),"Error saving sites: ", error);
+						runOnUiThread(() -> Toast.makeText(this, "Error saving sites: "+error.getLocalizedMessage(), Toast.LENGTH_LONG).show());
+						return;
+					}
+					// and share
+					final Intent shareIntent = new Intent();
+					shareIntent.setAction(Intent.ACTION_SEND);
+					shareIntent.putExtra(Intent.EXTRA_STREAM, uri);
+					shareIntent.setFlags(
+							Intent.FLAG_GRANT_READ_URI_PERMISSION);
+					shareIntent.setType("application/octet-stream");
+					shareIntent.setClipData(ClipData.newUri(resolver, title, uri));
+					runOnUiThread(() -> startActivity(Intent.createChooser(shareIntent, getTitle())));
+				});
+	}
+
 	/**
 	 * Load background from gallery.
 	 */
@@ -429,33 +519,54 @@ public class VoronoiMain extends AppCompatActivity implements OnTouchListener {
 		}
 	}
 	
+	/**
+	 * Only the name of the state file is saved, the diagram itself is kept by
+	 * the model. For the case that the process is killed, the geometry
+	 * thread streams the triangulation into a temporary file (if it has
+	 * changed since the last time) and replaces the state file with it.
+	 */
 	@Override
 	public void onSaveInstanceState(@NonNull Bundle savedInstanceState) {
 		super.onSaveInstanceState(savedInstanceState);
-		savedInstanceState.putInt("size", triangulation.size());
-		float[] state = new float[triangulation.size()*2];
-		int i = 0;
-		for(Iterator<Point> e = triangulation.points(); e.hasNext(); ) {
-			Point p = e.next();
-			state[i++] = p.getX();
-			state[i++] = p.getY();
-		}
-		savedInstanceState.putFloatArray("points", state);
+		final File stateFile = getStateFile();
+		final File tempFile = new File(stateFile.getPath() + ".tmp");
+		savedInstanceState.putString("topology", stateFile.getPath());
+		/* the snapshot may miss queued edits, so the version is checked on the geometry thread */
+		final boolean[] written = new boolean[1];
+		engine.saveTopology(() -> {
+			final long version = engine.getVersion();
+			if (version == model.getSavedVersion())
+				return null;
+			model.setSavedVersion(version);
+			written[0] = true;
+			return new FileOutputStream(tempFile);
+		}, error -> {
+			if (error != null) {
+				Log.e(getPackageName(), "Error saving state: ", error);
+				model.setSavedVersion(DiagramViewModel.NO_VERSION);
+			} else if (written[0] && !tempFile.renameTo(stateFile)) {
+				Log.e(getPackageName(), "Error saving state: cannot rename " + tempFile);
+				model.setSavedVersion(DiagramViewModel.NO_VERSION);
+			}
+		});
 	}
-	
-	@Override
-	public void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
-		  super.onRestoreInstanceState(savedInstanceState);
-		 
-		  int size = savedInstanceState.getInt("size");
-		  float[] state = savedInstanceState.getFloatArray("points");
-		  triangulation.clear();
-		  for(int i=0;i<size;i++) {
-			  try {
-				  triangulation.insertPoint(new Point(state[i*2], state[i*2+1]));
-			  } catch(VoronoiException e) { // ignore
-			  }
-		  }
+
+	/* read the state file of a killed process */
+	private void restoreState(@NonNull Bundle savedInstanceState) {
+		final String topology = savedInstanceState.getString("topology");
+		if (topology == null)
+			return;
+		engine.loadPoints(() -> FileChannel.open(new File(topology).toPath(), StandardOpenOption.READ),
+				error -> {
+					if (error != null)
+						Log.w(getPackageName(), "Cannot restore state file", error);
+				});
+	}
+
+	@NonNull
+	private File getStateFile() {
+		/* not in the cache, which the system may clear while the process is dead, and not backed up */
+		return new File(getNoBackupFilesDir(), "state.vtop");
 	}
 	
 	/**
@@ -4,36 +4,46 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import de.hambuch.voronoiapp.algo.ConvexHull;
-import de.hambuch.voronoiapp.algo.DelauTriangle;
-import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
-import de.hambuch.voronoiapp.algo.VoronoiDiagram;
-import de.hambuch.voronoiapp.algo.VoronoiDiagramCircle;
-import de.hambuch.voronoiapp.geometry.Point;
-import de.hambuch.voronoiapp.geometry.Polygon;
+import de.hambuch.voronoiapp.GeometryEngine.SnapshotListener;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
+import de.hambuch.voronoiapp.geometry.SpatialGrid;
 
 /**
- * View that display the diagram.
+ * View that display the diagram. It only draws the latest snapshot published
+ * by the {@link GeometryEngine}, the geometry itself is computed on the
+ * geometry thread.
  */
 public class VoronoiView extends View {
 
 	public enum DrawableElement {
-		VORONOI, VORONOICOLORED, DELAUNAY, DELAUNAYCOLORED, CONVEXHULL, MAXCIRCLE
+		VORONOI, VORONOICOLORED, DELAUNAY, DELAUNAYCOLORED, CONVEXHULL, MAXCIRCLE, EMST, GABRIEL, RNG
 	}
 
 	/**
-	 * Define 6 colors of a color wheel, we do not support an algorithm for the 4-color-theorem.
+	 * Define 6 colors of a color wheel, enough for a proper coloring of the
+	 * Voronoi regions (see DiagramColoring).
 	 */
 	static final int[] COLORS = new int[]{
 			Color.rgb(255, 255, 1), // yellow
@@ -44,45 +54,94 @@ public class VoronoiView extends View {
 			Color.rgb(252, 153,0) // orange
 	};
 
-	/**
-	 * Visitor to color all delaunay triangles without color conflicts of adjacents.
-	 */
-	private static class PaintFilledDelaunay implements DelaunayTriangulation.Visitor {
-		private int colorCounter = 0;
+	private GeometryEngine engine;
+	/* the snapshot drawn by this view, only replaced on the main thread */
+	@NonNull
+	private RenderSnapshot snapshot = RenderSnapshot.EMPTY;
+	/* one fill paint per color, shared by all regions and triangles */
+	private final Paint[] fillPaints = new Paint[COLORS.length];
+	private final Paint linePaint = new Paint();
+	private final Paint pointPaint = new Paint();
+	private final Path fillPath = new Path();
+	/* Path of every region in coordinates of the plane, by identity of its (cached) coordinates */
+	private Map<float[], Path> cellPaths = new IdentityHashMap<>();
+	@Nullable
+	private float[][] cellPathsOf;
 
-		private final Canvas canvas;
+	/* extra pixels around a changed area for point radius and line width */
+	private static final int DIRTY_MARGIN = 8;
+	/* below this zoom the level of detail is reduced */
+	private static final float LOD_SCALE = 0.5f;
+	/* shorter segments are skipped and smaller polygons drawn as a pixel */
+	private static final float LOD_MIN_SIZE = 1.0f;
+	/* at most one point per bucket of this size in pixels */
+	private static final int LOD_POINT_BUCKET = 4;
 
-		protected PaintFilledDelaunay(Canvas convas) {
-			this.canvas = convas;
-		}
+	/*
+	 * Offscreen cache of consecutive elements: a transparent bitmap of the view
+	 * size that is only repainted if the version of the geometry of one of its
+	 * elements has changed. Layers of local geometry only repaint the area
+	 * changed since then. The element null stands for the points.
+	 */
+	private static final class Layer {
+		Bitmap bitmap;
+		Canvas canvas;
+		final List<DrawableElement> elements = new ArrayList<>();
+		/* per element the drawn version and data, and the viewport they were drawn with */
+		long[] versions = new long[0];
+		Object[] data = new Object[0];
+		long viewport = -1;
+		final Rect dirty = new Rect();
+		boolean dirtyAll = false;
 
-		@Override
-		public void visit(@NonNull DelauTriangle triangle) {
-			if (triangle.getFillColor() == 0) {
-				setColorAccordingNeighbours(triangle);
-				if (canvas != null)
-					triangle.paint(canvas);
-			} // else: already painted
+		/* no recycle(): the bitmap may still be referenced by the last frame */
+		void release() {
+			bitmap = null;
+			canvas = null;
+			elements.clear();
+			versions = new long[0];
+			data = new Object[0];
+			viewport = -1;
 		}
 
-		protected void setColorAccordingNeighbours(DelauTriangle t) {
-			int color = COLORS[(colorCounter++) % COLORS.length];
-			if (t.getNeighbourAB() != null && color == t.getNeighbourAB().getFillColor()) {
-				color = COLORS[(colorCounter++) % COLORS.length];
-			} else if (t.getNeighbourBC() != null && color == t.getNeighbourBC().getFillColor()) {
-				color = COLORS[(colorCounter++) % COLORS.length];
-			} else if (t.getNeighbourCA() != null && color == t.getNeighbourCA().getFillColor()) {
-				color = COLORS[(colorCounter++) % COLORS.length];
-			}
-			t.setFillColor(color);
+		/* r == null: everything has changed */
+		void addDirty(@Nullable Rect r) {
+			if (r == null)
+				dirtyAll = true;
+			else
+				dirty.union(r);
 		}
 	}
 
-	private DelaunayTriangulation triang;
-	private VoronoiDiagram drawableVoronoi;
-	private DelaunayTriangulation drawableDelaunay;
-	private VoronoiDiagramCircle drawableCircle;
-	private ConvexHull drawableConvex;
+	/*
+	 * The layers of the last frame. Every bitmap of the view size needs 8 MB
+	 * on a 1080x1920 screen, so not every element gets its own one: all
+	 * consecutive elements that are either local or not share one layer.
+	 */
+	private final List<Layer> layers = new ArrayList<>();
+	/* scratch list of the visible elements in drawing order */
+	private final List<DrawableElement> parts = new ArrayList<>();
+
+	private final SnapshotListener snapshotListener = this::onSnapshot;
+	private final Rect changedRect = new Rect();
+
+	/* pinch zoom and two finger pan */
+	private final Viewport viewport = new Viewport();
+	private final ScaleGestureDetector scaleDetector;
+	private float lastFocusX, lastFocusY;
+	/* area of the plane requested from the engine, larger than the visible one */
+	private final float[] requestedArea = new float[]{0.0f, 0.0f, -1.0f, -1.0f};
+	/* scratch data for drawing, only used by the main thread */
+	private final float[] visibleArea = new float[4];
+	private final Rect clip = new Rect();
+	private final LineBuffer visibleLines = new LineBuffer();
+	private boolean[] pointBuckets = new boolean[0];
+	/* debug overlay, null if disabled */
+	@Nullable
+	private PerformanceHud hud;
+	/* screen coordinates of the visible sites of every color group */
+	private float[][] groupPoints = new float[0][];
+	private int[] groupSizes = new int[0];
 
 	private BitmapDrawable background = null;
 
@@ -91,6 +150,36 @@ public class VoronoiView extends View {
 	public VoronoiView(@NonNull Context context, @Nullable AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
 		setClickable(true);
+		for (int i = 0; i < COLORS.length; i++) {
+			fillPaints[i] = new Paint();
+			fillPaints[i].setStyle(Paint.Style.FILL);
+			fillPaints[i].setColor(COLORS[i]);
+		}
+		linePaint.setStyle(Paint.Style.STROKE);
+		linePaint.setStrokeWidth(3.0f); /* like GeomElement */
+		/* round points of radius 6 like Point, drawn by drawPoints() */
+		pointPaint.setStyle(Paint.Style.STROKE);
+		pointPaint.setStrokeCap(Paint.Cap.ROUND);
+		pointPaint.setStrokeWidth(12.0f);
+		scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+			@Override
+			public boolean onScaleBegin(ScaleGestureDetector detector) {
+				lastFocusX = detector.getFocusX();
+				lastFocusY = detector.getFocusY();
+				return true;
+			}
+
+			@Override
+			public boolean onScale(ScaleGestureDetector detector) {
+				viewport.zoom(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+				viewport.pan(detector.getFocusX() - lastFocusX, detector.getFocusY() - lastFocusY);
+				lastFocusX = detector.getFocusX();
+				lastFocusY = detector.getFocusY();
+				requestArea(false);
+				invalidate();
+				return true;
+			}
+		});
 	}
 
 	public VoronoiView(@NonNull Context context) {
@@ -101,12 +190,25 @@ public class VoronoiView extends View {
 		this(context, attrs, 0);
 	}
 
-	public void setTriangulation(@NonNull DelaunayTriangulation triang) {
-		this.triang = triang;
-		this.drawableVoronoi = new VoronoiDiagram(triang);
-		this.drawableDelaunay = triang;
-		this.drawableCircle = new VoronoiDiagramCircle(triang);
-		this.drawableConvex = new ConvexHull(triang);
+	public void setEngine(@NonNull GeometryEngine engine) {
+		if (this.engine != null)
+			this.engine.removeSnapshotListener(snapshotListener);
+		this.engine = engine;
+		engine.addSnapshotListener(snapshotListener);
+		engine.setDrawables(elementsToDraw);
+		engine.setStatisticsEnabled(hud != null);
+		requestArea(true);
+		this.snapshot = engine.getSnapshot();
+		releaseLayers();
+	}
+
+	/**
+	 * Stop listening to the engine, if the engine lives longer than this
+	 * view (e.g. after a configuration change).
+	 */
+	public void releaseEngine() {
+		if (engine != null)
+			engine.removeSnapshotListener(snapshotListener);
 	}
 
 	public void setBackgroundBitmap(@Nullable Bitmap bitmap) {
@@ -119,7 +221,104 @@ public class VoronoiView extends View {
 	}
 
 	public void onDraw(@NonNull Canvas canvas) {
+		final PerformanceHud hud = this.hud;
+		if (hud == null) {
+			drawInternal(canvas);
+			return;
+		}
+		final long start = hud.frameStart();
 		drawInternal(canvas);
+		hud.frameEnd(start);
+		hud.draw(canvas, engine != null ? engine.getStatistics() : null);
+	}
+
+	/**
+	 * Show or hide a debug overlay with frame times and the statistics of
+	 * the geometry thread.
+	 *
+	 * @param enabled <VAR>true</VAR> to show the overlay
+	 */
+	public void setHudEnabled(boolean enabled) {
+		if (enabled == (hud != null))
+			return;
+		hud = enabled ? new PerformanceHud() : null;
+		if (engine != null)
+			engine.setStatisticsEnabled(enabled);
+		invalidate();
+	}
+
+	public boolean isHudEnabled() {
+		return hud != null;
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		requestArea(true);
+	}
+
+	/**
+	 * Handle pinch zoom and two finger pan. Should get all touch events
+	 * first.
+	 *
+	 * @param event the touch event
+	 * @return boolean <VAR>true</VAR> if the event belongs to a gesture with
+	 *         two or more fingers and must not be used otherwise
+	 */
+	public boolean onZoomGesture(@NonNull MotionEvent event) {
+		scaleDetector.onTouchEvent(event);
+		return event.getPointerCount() > 1 || scaleDetector.isInProgress();
+	}
+
+	/**
+	 * Convert a position in the view to the plane of the diagram.
+	 *
+	 * @param x position in the view
+	 * @return float x coordinate in the plane
+	 */
+	public float toWorldX(float x) {
+		return viewport.toWorldX(x);
+	}
+
+	public float toWorldY(float y) {
+		return viewport.toWorldY(y);
+	}
+
+	/**
+	 * Convert a distance in the view (e.g. a touch radius) to the plane.
+	 *
+	 * @param d distance in pixels
+	 * @return float distance in the plane
+	 */
+	public float toWorldDistance(float d) {
+		return d / viewport.getScale();
+	}
+
+	/*
+	 * Tell the engine which area of the plane may be shown: the visible one
+	 * and one view size around it, so panning does not need a new snapshot
+	 * immediately. Only sent if the visible area has left the last one.
+	 */
+	private void requestArea(boolean force) {
+		final int width = getWidth(), height = getHeight();
+		if (engine == null || width <= 0 || height <= 0)
+			return;
+		viewport.toWorld(0, 0, width, height, visibleArea);
+		if (!force && visibleArea[0] >= requestedArea[0] && visibleArea[1] >= requestedArea[1]
+				&& visibleArea[2] <= requestedArea[2] && visibleArea[3] <= requestedArea[3])
+			return;
+		final float w = visibleArea[2] - visibleArea[0], h = visibleArea[3] - visibleArea[1];
+		requestedArea[0] = visibleArea[0] - w;
+		requestedArea[1] = visibleArea[1] - h;
+		requestedArea[2] = visibleArea[2] + w;
+		requestedArea[3] = visibleArea[3] + h;
+		engine.setViewArea(requestedArea[0], requestedArea[1], requestedArea[2], requestedArea[3]);
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		releaseLayers();
 	}
 
 	private void drawInternal(Canvas canvas) {
@@ -129,87 +328,404 @@ public class VoronoiView extends View {
 		}
 		else
 			canvas.drawColor(Color.WHITE);
+		final RenderSnapshot snapshot = this.snapshot;
 
-		// draw the elements, if enabled, can be draw over each other
-		if(elementsToDraw.contains(DrawableElement.DELAUNAYCOLORED) && drawableDelaunay != null) {
-			paintFilled(canvas, drawableDelaunay);
-		} else if (elementsToDraw.contains(DrawableElement.DELAUNAY) && drawableDelaunay != null) {
-			drawableDelaunay.paint(canvas);
+		// the elements, if enabled, can be draw over each other
+		parts.clear();
+		if(elementsToDraw.contains(DrawableElement.DELAUNAYCOLORED)) {
+			addPart(snapshot, DrawableElement.DELAUNAYCOLORED);
+		} else if (elementsToDraw.contains(DrawableElement.DELAUNAY)) {
+			addPart(snapshot, DrawableElement.DELAUNAY);
 		}
-		if(elementsToDraw.contains(DrawableElement.VORONOICOLORED) && drawableVoronoi != null) {
-			paintFilled(canvas, drawableVoronoi);
-		} else if (elementsToDraw.contains(DrawableElement.VORONOI) && drawableVoronoi != null) {
-			drawableVoronoi.paint(canvas);
+		if(elementsToDraw.contains(DrawableElement.VORONOICOLORED)) {
+			addPart(snapshot, DrawableElement.VORONOICOLORED);
+		} else if (elementsToDraw.contains(DrawableElement.VORONOI)) {
+			addPart(snapshot, DrawableElement.VORONOI);
 		}
 		// hull and circle only as lines
-		if (elementsToDraw.contains(DrawableElement.CONVEXHULL) && drawableConvex != null) {
-			drawableConvex.paint(canvas);
+		for (DrawableElement element : new DrawableElement[]{DrawableElement.CONVEXHULL, DrawableElement.MAXCIRCLE,
+				DrawableElement.GABRIEL, DrawableElement.RNG, DrawableElement.EMST}) {
+			if (elementsToDraw.contains(element))
+				addPart(snapshot, element);
+		}
+		// all points on top
+		parts.add(null);
+
+		// consecutive local or non local elements are cached in one layer
+		int count = 0;
+		for (int start = 0, end; start < parts.size(); start = end) {
+			final boolean local = isLocal(parts.get(start));
+			end = start + 1;
+			while (end < parts.size() && isLocal(parts.get(end)) == local)
+				end++;
+			if (count == layers.size())
+				layers.add(new Layer());
+			drawLayer(canvas, snapshot, layers.get(count++), start, end, local);
+		}
+		// the layers of hidden elements are not kept
+		while (layers.size() > count)
+			layers.remove(layers.size() - 1).release();
+	}
+
+	/* the snapshot may not contain an element that has just been enabled */
+	private void addPart(RenderSnapshot snapshot, DrawableElement element) {
+		if (snapshot.getLines(element) != null)
+			parts.add(element);
+	}
+
+	/*
+	 * Take over a new snapshot: mark the area changed since the previous one
+	 * in all layers, local layers only repaint this area. The view itself is
+	 * always invalidated completely, invalidate(Rect) is deprecated and
+	 * ignored with hardware acceleration. Nothing is invalidated if the
+	 * change is local but outside of the view.
+	 */
+	private void onSnapshot(@NonNull RenderSnapshot next) {
+		final boolean sameVersion = next.getVersion() == snapshot.getVersion();
+		snapshot = next;
+		if (sameVersion) {
+			/* other elements or size: layers are up to date or repainted completely */
+			invalidate();
+			return;
 		}
-		if (elementsToDraw.contains(DrawableElement.MAXCIRCLE) && drawableCircle != null) {
-			drawableCircle.paint(canvas);
+		final float[] changedBounds = next.getChangedBounds();
+		Rect rect = null;
+		if (changedBounds != null) {
+			if (changedBounds[0] > changedBounds[2])
+				changedRect.setEmpty();
+			else {
+				changedRect.set((int) Math.floor(viewport.toScreenX(changedBounds[0])) - DIRTY_MARGIN,
+						(int) Math.floor(viewport.toScreenY(changedBounds[1])) - DIRTY_MARGIN,
+						(int) Math.ceil(viewport.toScreenX(changedBounds[2])) + DIRTY_MARGIN,
+						(int) Math.ceil(viewport.toScreenY(changedBounds[3])) + DIRTY_MARGIN);
+				if (!changedRect.intersect(0, 0, getWidth(), getHeight()))
+					changedRect.setEmpty();
+			}
+			rect = changedRect;
 		}
+		for (Layer layer : layers)
+			layer.addDirty(rect);
+		boolean local = rect != null;
+		for (DrawableElement element : elementsToDraw)
+			local &= isLocal(element);
+		if (!local || !rect.isEmpty() || hud != null /* new statistics */)
+			invalidate();
+	}
+
+	/*
+	 * true if a modification of the triangulation changes the element only
+	 * within the changed bounds (hull changes are always unbounded). null are
+	 * the points.
+	 */
+	private static boolean isLocal(@Nullable DrawableElement element) {
+		return element == null || element == DrawableElement.DELAUNAY || element == DrawableElement.VORONOI
+				|| element == DrawableElement.CONVEXHULL;
+	}
+
+	/* version of the geometry shown by an element, the hull only changes with the hull */
+	private static long layerVersion(RenderSnapshot snapshot, @Nullable DrawableElement element) {
+		return element == DrawableElement.CONVEXHULL ? snapshot.getHullVersion() : snapshot.getVersion();
+	}
+
+	/* the circle may change without a new version, e.g. with its restriction */
+	private static Object layerData(RenderSnapshot snapshot, @Nullable DrawableElement element) {
+		return element == null ? snapshot.getPoints()
+				: element == DrawableElement.MAXCIRCLE ? snapshot.getCircle() : snapshot.getLines(element);
+	}
 
-		// draw all points
-		for (Iterator<Point> p = triang.points(); p.hasNext(); ) {
-			p.next().paint(canvas);
+	/*
+	 * repaint the layer of the elements parts[start..end) if their versions,
+	 * data or the viewport have changed and draw it. Local layers only repaint
+	 * their dirty area: it is cleared and the elements are clipped to it.
+	 * Other elements than last time are always painted completely.
+	 */
+	private void drawLayer(Canvas canvas, RenderSnapshot snapshot, Layer layer, int start, int end, boolean local) {
+		final int width = getWidth(), height = getHeight();
+		if (width <= 0 || height <= 0)
+			return;
+		if (layer.bitmap == null || layer.bitmap.getWidth() != width || layer.bitmap.getHeight() != height) {
+			layer.release();
+			layer.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			layer.canvas = new Canvas(layer.bitmap);
+		}
+		boolean same = layer.elements.size() == end - start;
+		for (int i = start; same && i < end; i++)
+			same = layer.elements.get(i - start) == parts.get(i);
+		boolean changed = !same || layer.viewport != viewport.getVersion();
+		for (int i = start; !changed && i < end; i++) {
+			changed = layer.versions[i - start] != layerVersion(snapshot, parts.get(i))
+					|| layer.data[i - start] != layerData(snapshot, parts.get(i));
+		}
+		if (changed) {
+			if (local && same && !layer.dirtyAll && layer.viewport == viewport.getVersion()) {
+				if (!layer.dirty.isEmpty()) {
+					layer.canvas.save();
+					layer.canvas.clipRect(layer.dirty);
+					layer.canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+					for (int i = start; i < end; i++)
+						paintElement(layer.canvas, snapshot, parts.get(i));
+					layer.canvas.restore();
+				}
+			} else {
+				layer.bitmap.eraseColor(Color.TRANSPARENT);
+				for (int i = start; i < end; i++)
+					paintElement(layer.canvas, snapshot, parts.get(i));
+			}
+			if (!same) {
+				layer.elements.clear();
+				layer.elements.addAll(parts.subList(start, end));
+				layer.versions = new long[end - start];
+				layer.data = new Object[end - start];
+			}
+			for (int i = start; i < end; i++) {
+				layer.versions[i - start] = layerVersion(snapshot, parts.get(i));
+				layer.data[i - start] = layerData(snapshot, parts.get(i));
+			}
+			layer.viewport = viewport.getVersion();
 		}
+		layer.dirty.setEmpty();
+		layer.dirtyAll = false;
+		canvas.drawBitmap(layer.bitmap, 0, 0, null);
 	}
 
-	/**
-	 * USe a special algorithm to paint a filled, colored voronoi diagram.
-	 * <p>We do not implement this as the standard #paint() method in the element itself. The algorithm provided here is "primitive" and inefficient, as
-	 * it convers to voronoi diagram into voronoi regions (Region) and the to closed Polygons that can be painted directly.
-	 * Nevertheless for an reasonable number of points that should work.</p>
-	 * @param voronoiDiagram the voronoi diagram to paint
-	 */
-	private void paintFilled(Canvas canvas, VoronoiDiagram voronoiDiagram) {
-		// TODO: can we avoid the same color for adjacent cells if we process according to the delaunay triangles in the correct neighbouring order?
-		// Idea: a point of the corresponding triangulation may have multiple triangles - all of them must have different colors
-		int color = 0;
-		for(Iterator<Point> iterator = voronoiDiagram.points(); iterator.hasNext(); ) {
-			Polygon polygon = voronoiDiagram.toRegion(iterator.next()).clipTo(0,0,canvas.getWidth(), canvas.getHeight());
-			if(polygon != null) {
-				polygon.setFillColor(COLORS[(color++) % COLORS.length]);
-				polygon.paint(canvas);
+	private void paintElement(Canvas canvas, RenderSnapshot snapshot, @Nullable DrawableElement element) {
+		if (element == null)
+			paintPoints(canvas, snapshot);
+		else if (element == DrawableElement.DELAUNAYCOLORED)
+			paintFilledTriangles(canvas, snapshot);
+		else if (element == DrawableElement.VORONOICOLORED)
+			paintFilledCells(canvas, snapshot);
+		else
+			paintLines(canvas, snapshot, element);
+	}
+
+	private void releaseLayers() {
+		for (Layer layer : layers)
+			layer.release();
+		layers.clear();
+		cellPaths.clear();
+		cellPathsOf = null;
+	}
+
+	/* area of the plane covered by the clip of the canvas, with a border for line width and points */
+	private void visibleArea(Canvas canvas, float[] area) {
+		if (!canvas.getClipBounds(clip))
+			clip.set(0, 0, getWidth(), getHeight());
+		viewport.toWorld(clip.left - DIRTY_MARGIN, clip.top - DIRTY_MARGIN,
+				clip.right + DIRTY_MARGIN, clip.bottom + DIRTY_MARGIN, area);
+	}
+
+	/* only the visible segments, zoomed out without the ones shorter than a pixel */
+	private void paintLines(Canvas canvas, RenderSnapshot snapshot, DrawableElement element) {
+		final float[] lines = snapshot.getLines(element);
+		final SpatialGrid grid = snapshot.getLineGrid(element);
+		if (lines == null || grid == null)
+			return;
+		visibleArea(canvas, visibleArea);
+		final float maxX = getWidth() + DIRTY_MARGIN, maxY = getHeight() + DIRTY_MARGIN;
+		final boolean decimate = viewport.getScale() < LOD_SCALE;
+		visibleLines.clear();
+		grid.query(visibleArea[0], visibleArea[1], visibleArea[2], visibleArea[3], i -> {
+			final float x1 = viewport.toScreenX(lines[4 * i]), y1 = viewport.toScreenY(lines[4 * i + 1]);
+			final float x2 = viewport.toScreenX(lines[4 * i + 2]), y2 = viewport.toScreenY(lines[4 * i + 3]);
+			if (decimate && Math.abs(x2 - x1) + Math.abs(y2 - y1) < LOD_MIN_SIZE)
+				return;
+			visibleLines.add(x1, y1, x2, y2);
+		});
+		visibleLines.clip(-DIRTY_MARGIN, -DIRTY_MARGIN, maxX, maxY);
+		linePaint.setColor(snapshot.getLineColor(element));
+		visibleLines.draw(canvas, linePaint);
+		final float[] circle = snapshot.getCircle();
+		if (element == DrawableElement.MAXCIRCLE && circle != null) {
+			linePaint.setColor(snapshot.getCircleColor());
+			canvas.drawCircle(viewport.toScreenX(circle[0]), viewport.toScreenY(circle[1]),
+					circle[2] * viewport.getScale(), linePaint);
+		}
+	}
+
+	/*
+	 * only the visible points, zoomed out at most one per bucket of some
+	 * pixels. The points are collected per color and every color is drawn
+	 * with one drawPoints() call.
+	 */
+	private void paintPoints(Canvas canvas, RenderSnapshot snapshot) {
+		final float[] points = snapshot.getPoints();
+		final int[] groupColors = snapshot.getGroupColors();
+		final int[] groupStarts = snapshot.getGroupStarts();
+		final int groups = groupColors.length;
+		if (groupPoints.length < groups) {
+			groupPoints = Arrays.copyOf(groupPoints, groups);
+			groupSizes = new int[groups];
+		}
+		Arrays.fill(groupSizes, 0);
+		final int columns = getWidth() / LOD_POINT_BUCKET + 1, rows = getHeight() / LOD_POINT_BUCKET + 1;
+		final boolean decimate = viewport.getScale() < LOD_SCALE;
+		if (decimate) {
+			if (pointBuckets.length < columns * rows)
+				pointBuckets = new boolean[columns * rows];
+			Arrays.fill(pointBuckets, false);
+		}
+		visibleArea(canvas, visibleArea);
+		snapshot.getPointGrid().query(visibleArea[0], visibleArea[1], visibleArea[2], visibleArea[3], i -> {
+			final float x = viewport.toScreenX(points[2 * i]), y = viewport.toScreenY(points[2 * i + 1]);
+			if (decimate && x >= 0 && y >= 0) {
+				final int column = (int) x / LOD_POINT_BUCKET, row = (int) y / LOD_POINT_BUCKET;
+				if (column < columns && row < rows) {
+					if (pointBuckets[row * columns + column])
+						return;
+					pointBuckets[row * columns + column] = true;
+				}
 			}
+			/* the groups are sorted by their first site */
+			int g = Arrays.binarySearch(groupStarts, 0, groups, i);
+			if (g < 0)
+				g = -g - 2;
+			float[] buffer = groupPoints[g];
+			final int size = groupSizes[g];
+			if (buffer == null || size + 2 > buffer.length)
+				buffer = groupPoints[g] = buffer == null ? new float[256] : Arrays.copyOf(buffer, 2 * buffer.length);
+			buffer[size] = x;
+			buffer[size + 1] = y;
+			groupSizes[g] = size + 2;
+		});
+		for (int g = 0; g < groups; g++) {
+			if (groupSizes[g] == 0)
+				continue;
+			pointPaint.setColor(groupColors[g]);
+			canvas.drawPoints(groupPoints[g], 0, groupSizes[g], pointPaint);
+		}
+	}
+
+	/*
+	 * fill a polygon given in coordinates of the plane, polygons smaller than
+	 * a pixel are drawn as a pixel when zoomed out.
+	 */
+	private void fillPolygon(Canvas canvas, float[] coords, int offset, int length, Paint paint, boolean decimate) {
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		fillPath.rewind();
+		for (int j = offset; j + 1 < offset + length; j += 2) {
+			final float x = viewport.toScreenX(coords[j]), y = viewport.toScreenY(coords[j + 1]);
+			if (j == offset)
+				fillPath.moveTo(x, y);
+			else
+				fillPath.lineTo(x, y);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		if (decimate && maxX - minX < LOD_MIN_SIZE && maxY - minY < LOD_MIN_SIZE) {
+			canvas.drawRect(minX, minY, minX + 1.0f, minY + 1.0f, paint);
+			return;
 		}
+		fillPath.close();
+		canvas.drawPath(fillPath, paint);
 	}
 
 	/**
-	 * USe a special algorithm to paint a filled, colored delaunay triangulation.
-	 * <p>We do not implement this as the standard #paint() method in the element itself, but simply visit all triangles and paint them.</p>
-	 * @param triangulation the triangulation to paint
+	 * Paint a filled, colored voronoi diagram.
+	 * <p>The regions have already been clipped by the geometry thread, the colors are the ones of
+	 * the cached coloring. Only the visible regions are filled with their cached Path, the canvas
+	 * is transformed by the viewport. The outlines are painted on top.</p>
+	 * @param snapshot the snapshot to paint
 	 */
-	private void paintFilled(final Canvas canvas, final DelaunayTriangulation triangulation) {
-		// first reset all colors
-		triangulation.visitTriangles(triangle -> triangle.setFillColor(0));
-		triangulation.visitTriangles(new PaintFilledDelaunay(canvas));
-		// and reset again, if drawn without filling next time
-		triangulation.visitTriangles(triangle -> triangle.setFillColor(0));
+	private void paintFilledCells(Canvas canvas, RenderSnapshot snapshot) {
+		final float[][] cells = snapshot.getCells();
+		final int[] colors = snapshot.getCellColors();
+		final SpatialGrid grid = snapshot.getCellGrid();
+		if (cells == null || colors == null || grid == null)
+			return;
+		if (cells != cellPathsOf)
+			updateCellPaths(cells);
+		final float scale = viewport.getScale();
+		final boolean decimate = scale < LOD_SCALE;
+		visibleArea(canvas, visibleArea);
+		canvas.save();
+		canvas.translate(viewport.getOffsetX(), viewport.getOffsetY());
+		canvas.scale(scale, scale);
+		grid.query(visibleArea[0], visibleArea[1], visibleArea[2], visibleArea[3], i -> {
+			final float[] cell = cells[i];
+			final Path path = cell != null ? cellPaths.get(cell) : null;
+			if (path == null || colors[i] < 0)
+				return;
+			final Paint paint = fillPaints[colors[i] % fillPaints.length];
+			if (decimate) {
+				float minX = cell[0], minY = cell[1], maxX = cell[0], maxY = cell[1];
+				for (int j = 2; j + 1 < cell.length; j += 2) {
+					minX = Math.min(minX, cell[j]);
+					minY = Math.min(minY, cell[j + 1]);
+					maxX = Math.max(maxX, cell[j]);
+					maxY = Math.max(maxY, cell[j + 1]);
+				}
+				if ((maxX - minX) * scale < LOD_MIN_SIZE && (maxY - minY) * scale < LOD_MIN_SIZE) {
+					canvas.drawRect(minX, minY, minX + 1.0f / scale, minY + 1.0f / scale, paint);
+					return;
+				}
+			}
+			canvas.drawPath(path, paint);
+		});
+		canvas.restore();
+		paintLines(canvas, snapshot, DrawableElement.VORONOICOLORED);
 	}
 
-	@Nullable
-	protected ConvexHull getConvexHull() {
-		if (elementsToDraw.contains(DrawableElement.CONVEXHULL) && drawableConvex != null) {
-			return drawableConvex;
-		} else
-			return null;
+	/*
+	 * The geometry thread shares unchanged regions between snapshots, so
+	 * only the Paths of new regions are built. Paths of old regions are reused.
+	 */
+	private void updateCellPaths(@NonNull float[][] cells) {
+		final Map<float[], Path> paths = new IdentityHashMap<>(2 * cells.length);
+		for (float[] cell : cells) {
+			if (cell != null && cell.length >= 4) {
+				final Path path = cellPaths.remove(cell);
+				if (path != null)
+					paths.put(cell, path);
+			}
+		}
+		final Iterator<Path> unused = cellPaths.values().iterator();
+		for (float[] cell : cells) {
+			if (cell == null || cell.length < 4 || paths.containsKey(cell))
+				continue;
+			final Path path = unused.hasNext() ? unused.next() : new Path();
+			path.rewind();
+			path.moveTo(cell[0], cell[1]);
+			for (int j = 2; j + 1 < cell.length; j += 2)
+				path.lineTo(cell[j], cell[j + 1]);
+			path.close();
+			paths.put(cell, path);
+		}
+		cellPaths = paths;
+		cellPathsOf = cells;
 	}
 
-	@Nullable
-	protected VoronoiDiagram getVoronoiDiagram() {
-		if (elementsToDraw.contains(DrawableElement.VORONOI) && drawableVoronoi != null) {
-			return drawableVoronoi;
-		} else
-			return null;
+	/**
+	 * Paint a filled, colored delaunay triangulation.
+	 * <p>Every visible triangle is filled with its cached color and the edges are painted on top.</p>
+	 * @param snapshot the snapshot to paint
+	 */
+	private void paintFilledTriangles(Canvas canvas, RenderSnapshot snapshot) {
+		final float[] triangles = snapshot.getTriangles();
+		final int[] colors = snapshot.getTriangleColors();
+		final SpatialGrid grid = snapshot.getTriangleGrid();
+		if (triangles == null || colors == null || grid == null)
+			return;
+		final boolean decimate = viewport.getScale() < LOD_SCALE;
+		visibleArea(canvas, visibleArea);
+		grid.query(visibleArea[0], visibleArea[1], visibleArea[2], visibleArea[3], i -> {
+			if (colors[i] >= 0)
+				fillPolygon(canvas, triangles, 6 * i, 6, fillPaints[colors[i] % fillPaints.length], decimate);
+		});
+		paintLines(canvas, snapshot, DrawableElement.DELAUNAYCOLORED);
 	}
 
-	@Nullable
-	protected DelaunayTriangulation getDelaunayTriang() {
-		if (elementsToDraw.contains(DrawableElement.DELAUNAY) && drawableDelaunay != null) {
-			return drawableDelaunay;
-		} else
-			return null;
+	/**
+	 * return the enabled elements.
+	 *
+	 * @return Set of elements
+	 */
+	@NonNull
+	protected Set<DrawableElement> getDrawables() {
+		return new HashSet<>(elementsToDraw);
 	}
 
 	/**
@@ -226,5 +742,9 @@ public class VoronoiView extends View {
 	public void setDrawables(@NonNull Set<DrawableElement> drawables) {
 		this.elementsToDraw.clear();
 		this.elementsToDraw.addAll(drawables);
+		if (engine != null)
+			engine.setDrawables(drawables);
+		// the layers are regrouped and the ones no longer needed released with the next frame
+		invalidate();
 	}
 }
@@ -0,0 +1,123 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * An indexed binary max-heap of Delaunay triangles, keyed by the radius of
+ * their circumcircles. Every triangle knows its position in the heap
+ * (<VAR>DelauTriangle.heapIndex</VAR>), so it can be removed in O(log n)
+ * when the triangulation changes. Halfplanes and triangles with an infinite
+ * circumcircle (collinear points) are never stored.
+ *
+ * @see VoronoiDiagramCircle
+ */
+class CircleHeap {
+
+	private DelauTriangle[] triangles = new DelauTriangle[64];
+	private float[] keys = new float[64];
+	private int size = 0;
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * return the triangle with the largest circumcircle.
+	 *
+	 * @return DelauTriangle or <VAR>null</VAR> if the heap is empty
+	 */
+	@Nullable
+	DelauTriangle max() {
+		return size > 0 ? triangles[0] : null;
+	}
+
+	/* the triangle at position i (0 <= i < size), children are at 2i+1 and 2i+2 */
+	@NonNull
+	DelauTriangle get(int i) {
+		return triangles[i];
+	}
+
+	float key(int i) {
+		return keys[i];
+	}
+
+	void add(@NonNull DelauTriangle t) {
+		if (t.heapIndex >= 0 || t.isHalfplane())
+			return;
+		float radius = t.circumCircle().getRadius();
+		if (Float.isInfinite(radius) || Float.isNaN(radius))
+			return;
+		if (size == triangles.length) {
+			triangles = Arrays.copyOf(triangles, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		set(size, t, radius);
+		up(size++);
+	}
+
+	void remove(@NonNull DelauTriangle t) {
+		final int i = t.heapIndex;
+		if (i < 0 || i >= size || triangles[i] != t)
+			return;
+		t.heapIndex = -1;
+		size--;
+		if (i < size) {
+			set(i, triangles[size], keys[size]);
+			triangles[size] = null;
+			if (!up(i))
+				down(i);
+		} else {
+			triangles[size] = null;
+		}
+	}
+
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			triangles[i].heapIndex = -1;
+			triangles[i] = null;
+		}
+		size = 0;
+	}
+
+	private void set(int i, DelauTriangle t, float key) {
+		triangles[i] = t;
+		keys[i] = key;
+		t.heapIndex = i;
+	}
+
+	/* sift up, returns true if the element has moved */
+	private boolean up(int i) {
+		final DelauTriangle t = triangles[i];
+		final float key = keys[i];
+		final int start = i;
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (keys[parent] >= key)
+				break;
+			set(i, triangles[parent], keys[parent]);
+			i = parent;
+		}
+		set(i, t, key);
+		return i != start;
+	}
+
+	private void down(int i) {
+		final DelauTriangle t = triangles[i];
+		final float key = keys[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && keys[child + 1] > keys[child])
+				child++;
+			if (keys[child] <= key)
+				break;
+			set(i, triangles[child], keys[child]);
+			i = child;
+		}
+		set(i, t, key);
+	}
+}
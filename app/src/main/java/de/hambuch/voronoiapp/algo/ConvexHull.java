@@ -1,17 +1,27 @@
 package de.hambuch.voronoiapp.algo;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import de.hambuch.voronoiapp.geometry.LineBuffer;
 import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Renderer;
 import de.hambuch.voronoiapp.geometry.Segment;
 import de.hambuch.voronoiapp.geometry.SimplePolygon;
 
 
 /**
  * A convex hull of a set of points based on the Delaunay triangulation.
+ * <p>The hull vertices are cached as an array in counterclockwise order
+ * (without collinear vertices) until the hull of the triangulation changes,
+ * see {@link DelaunayTriangulation#getHullVersion()}. Point location is done
+ * by binary search, diameter, width and minimum bounding rectangle with
+ * rotating calipers.</p>
  *
  * @version 1.0
  * @author Eric Hambuch
@@ -21,6 +31,14 @@ public class ConvexHull extends de.hambuch.voronoiapp.geometry.GeomElement {
 
     private final DelaunayTriangulation delaunay;
 
+	/* cached hull: vertices and x,y coordinates in ccw order */
+	private Point[] vertices = new Point[0];
+	private double[] coords = new double[0];
+	private SimplePolygon polygon;
+	private long hullVersion = -1;
+	/* reused for every paint */
+	private final LineBuffer lines = new LineBuffer();
+
     public ConvexHull() {
 		super(Color.GREEN);
 		delaunay = new DelaunayTriangulation();
@@ -38,44 +56,273 @@ public class ConvexHull extends de.hambuch.voronoiapp.geometry.GeomElement {
 		delaunay.deletePoint(p);
     }
 
-    public int pointInHull(@NonNull Point p) {
-		DelauTriangle tstart = delaunay.getFirstHullTriangle();
-		if(tstart != null) {
-			DelauTriangle t = tstart;
-			do {
-				if(Segment.pointTest(t.getPointA(), t.getPointB(), p) != Segment.POINT_LEFT) return 0;
-				// kein Test, auf Edge etc.
-				t = t.getNeighbourBC();
-			} while (t != tstart);
-		} else {
+	/**
+	 * Tests if a point lies in the interior of the hull. O(log h) for h hull
+	 * vertices.
+	 *
+	 * @param p the point
+	 * @return int <VAR>1</VAR> if p lies inside, <VAR>0</VAR> if outside or
+	 *         on the border
+	 */
+	public int pointInHull(@NonNull Point p) {
+		update();
+		final int h = vertices.length;
+		if (h < 3)
 			return 0;
+		final double px = p.getX(), py = p.getY();
+		/* p has to lie in the wedge at vertex 0, then search the wedge containing p */
+		if (cross(0, 1, px, py) <= 0.0 || cross(0, h - 1, px, py) >= 0.0)
+			return 0;
+		int lo = 1, hi = h - 1;
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if (cross(0, mid, px, py) > 0.0)
+				lo = mid;
+			else
+				hi = mid;
 		}
-		return 1;
-    }
+		return cross(lo, hi, px, py) > 0.0 ? 1 : 0;
+	}
 
+	/**
+	 * return the convex hull as polygon. The polygon is cached, don't modify
+	 * it.
+	 *
+	 * @return SimplePolygon the vertices in counterclockwise order
+	 */
 	@NonNull
 	public SimplePolygon toPolygon() {
-		DelauTriangle tstart = delaunay.getFirstHullTriangle();
-		SimplePolygon poly = new SimplePolygon();
-		poly.setColor(getColor());
-		if(tstart != null) {
+		update();
+		if (polygon == null) {
+			polygon = new SimplePolygon();
+			polygon.setColor(getColor());
+			for (Point p : vertices)
+				polygon.addPoint(p);
+		}
+		return polygon;
+	}
+
+	/**
+	 * return the number of hull vertices (without collinear ones).
+	 *
+	 * @return int number of vertices
+	 */
+	public int size() {
+		update();
+		return vertices.length;
+	}
+
+	/**
+	 * Calculate the diameter of the point set, i.e. the two points with
+	 * maximum distance. They are antipodal vertices of the hull.
+	 *
+	 * @return Segment between the two points or <VAR>null</VAR> if there are
+	 *         less than two points
+	 */
+	@Nullable
+	public Segment diameter() {
+		update();
+		final int h = vertices.length;
+		if (h < 2)
+			return null;
+		if (h == 2)
+			return new Segment(vertices[0], vertices[1], getColor());
+		int best0 = 0, best1 = 1;
+		double bestDist = -1.0;
+		int j = 1;
+		for (int i = 0; i < h; i++) {
+			int i1 = (i + 1) % h;
+			/* move j to the vertex farthest from edge i */
+			while (area(i, i1, (j + 1) % h) > area(i, i1, j))
+				j = (j + 1) % h;
+			double d = distanceSq(i, j);
+			if (d > bestDist) {
+				bestDist = d;
+				best0 = i;
+				best1 = j;
+			}
+			d = distanceSq(i1, j);
+			if (d > bestDist) {
+				bestDist = d;
+				best0 = i1;
+				best1 = j;
+			}
+		}
+		return new Segment(vertices[best0], vertices[best1], getColor());
+	}
+
+	/**
+	 * Calculate the width of the point set: the minimum distance of two
+	 * parallel lines enclosing all points. One of these lines always contains
+	 * an edge of the hull.
+	 *
+	 * @return float the width, <VAR>0</VAR> for collinear points
+	 */
+	public float width() {
+		update();
+		final int h = vertices.length;
+		if (h < 3)
+			return 0.0f;
+		double width = Double.MAX_VALUE;
+		int j = 1;
+		for (int i = 0; i < h; i++) {
+			int i1 = (i + 1) % h;
+			while (area(i, i1, (j + 1) % h) > area(i, i1, j))
+				j = (j + 1) % h;
+			width = Math.min(width, area(i, i1, j) / Math.sqrt(distanceSq(i, i1)));
+		}
+		return (float) width;
+	}
+
+	/**
+	 * Calculate the bounding rectangle with minimum area. One of its sides
+	 * contains an edge of the hull, so we rotate four calipers around the
+	 * hull. O(h).
+	 *
+	 * @return SimplePolygon the four corners in counterclockwise order or
+	 *         <VAR>null</VAR> for less than three non collinear points
+	 */
+	@Nullable
+	public SimplePolygon minimumBoundingRectangle() {
+		update();
+		final int h = vertices.length;
+		if (h < 3)
+			return null;
+		double bestArea = Double.MAX_VALUE;
+		double[] best = new double[8];
+		/* far: max. distance to the edge, right/left: max./min. projection on the edge */
+		int far = 1, right = 1, left = 1;
+		for (int i = 0; i < h; i++) {
+			int i1 = (i + 1) % h;
+			double ox = coords[2 * i], oy = coords[2 * i + 1];
+			double len = Math.sqrt(distanceSq(i, i1));
+			double ux = (coords[2 * i1] - ox) / len, uy = (coords[2 * i1 + 1] - oy) / len;
+			while (area(i, i1, (far + 1) % h) > area(i, i1, far))
+				far = (far + 1) % h;
+			while (dot(right + 1, ox, oy, ux, uy) > dot(right, ox, oy, ux, uy))
+				right = (right + 1) % h;
+			if (i == 0)
+				left = far;
+			while (dot(left + 1, ox, oy, ux, uy) < dot(left, ox, oy, ux, uy))
+				left = (left + 1) % h;
+			double maxU = dot(right, ox, oy, ux, uy);
+			double minU = dot(left, ox, oy, ux, uy);
+			double height = area(i, i1, far) / len;
+			double area = (maxU - minU) * height;
+			if (area < bestArea) {
+				bestArea = area;
+				/* corners o + a*u + b*n with the inner normal n = (-uy, ux) */
+				double[] ab = {minU, 0.0, maxU, 0.0, maxU, height, minU, height};
+				for (int k = 0; k < 4; k++) {
+					best[2 * k] = ox + ab[2 * k] * ux - ab[2 * k + 1] * uy;
+					best[2 * k + 1] = oy + ab[2 * k] * uy + ab[2 * k + 1] * ux;
+				}
+			}
+		}
+		SimplePolygon rectangle = new SimplePolygon();
+		rectangle.setColor(getColor());
+		for (int k = 0; k < 4; k++)
+			rectangle.addPoint(new Point((float) best[2 * k], (float) best[2 * k + 1]));
+		return rectangle;
+	}
+
+	/* rebuild the cached hull if the hull of the triangulation has changed */
+	private void update() {
+		if (hullVersion == delaunay.getHullVersion())
+			return;
+		hullVersion = delaunay.getHullVersion();
+		polygon = null;
+		final List<Point> ring = new ArrayList<>();
+		final DelauTriangle tstart = delaunay.getFirstHullTriangle();
+		if (tstart != null) {
 			DelauTriangle t = tstart;
 			do {
-				poly.addPoint(t.getPointA());
+				ring.add(t.getPointA());
 				t = t.getNeighbourCA();
-			} while (t!=tstart);
+			} while (t != tstart);
+		} else if (delaunay.size() == 1) {
+			ring.add(delaunay.points().next());
+		}
+		if (delaunay.areCollinear()) {
+			/* the ring runs forth and back over all points, take both ends */
+			Point min = null, max = null;
+			for (Point p : ring) {
+				if (min == null || p.compare(min) < 0)
+					min = p;
+				if (max == null || p.compare(max) > 0)
+					max = p;
+			}
+			ring.clear();
+			if (min != null)
+				ring.add(min);
+			if (max != null && max != min)
+				ring.add(max);
+		} else {
+			removeCollinear(ring);
+		}
+		vertices = ring.toArray(new Point[0]);
+		coords = new double[2 * vertices.length];
+		for (int i = 0; i < vertices.length; i++) {
+			coords[2 * i] = vertices[i].getX();
+			coords[2 * i + 1] = vertices[i].getY();
 		}
-		return poly;
 	}
 
-    public void paint(@NonNull Canvas g) {
-		DelauTriangle tstart = delaunay.getFirstHullTriangle();
-		if(tstart != null) {
-		    DelauTriangle t = tstart;
-		    do {
-				Segment.drawSegment(g, t.getPointA(), t.getPointB(), getLinePaint());
-				t = t.getNeighbourBC();
-		    } while(t != tstart);
+	/* remove vertices in the middle of a hull edge (points inserted on the hull) */
+	private static void removeCollinear(List<Point> ring) {
+		final int h = ring.size();
+		final List<Point> result = new ArrayList<>(h);
+		for (int i = 0; i < h; i++) {
+			Point a = ring.get((i + h - 1) % h);
+			Point c = ring.get((i + 1) % h);
+			if (Segment.pointTest(a, c, ring.get(i)) != Segment.POINT_ONEDGE)
+				result.add(ring.get(i));
 		}
-    }
+		ring.clear();
+		ring.addAll(result);
+	}
+
+	/* cross product (v[j] - v[i]) x (p - v[i]), positive if p lies left of v[i]-v[j] */
+	private double cross(int i, int j, double px, double py) {
+		return (coords[2 * j] - coords[2 * i]) * (py - coords[2 * i + 1])
+				- (coords[2 * j + 1] - coords[2 * i + 1]) * (px - coords[2 * i]);
+	}
+
+	/* twice the area of triangle v[i], v[j], v[k] */
+	private double area(int i, int j, int k) {
+		return cross(i, j, coords[2 * k], coords[2 * k + 1]);
+	}
+
+	private double distanceSq(int i, int j) {
+		double dx = coords[2 * i] - coords[2 * j], dy = coords[2 * i + 1] - coords[2 * j + 1];
+		return dx * dx + dy * dy;
+	}
+
+	/* projection of v[i] - o on direction u, i modulo h */
+	private double dot(int i, double ox, double oy, double ux, double uy) {
+		i %= vertices.length;
+		return (coords[2 * i] - ox) * ux + (coords[2 * i + 1] - oy) * uy;
+	}
+
+	public void render(@NonNull Renderer renderer) {
+		lines.clear();
+		fillLines(lines);
+		lines.render(renderer, getColor(), LINE_WIDTH);
+	}
+
+	/**
+	 * Add the edges of the hull to a line buffer.
+	 *
+	 * @param lines the buffer
+	 */
+	public void fillLines(@NonNull LineBuffer lines) {
+		update();
+		final int h = vertices.length;
+		if (h == 2)
+			lines.add(vertices[0], vertices[1]);
+		else if (h > 2) {
+			for (int i = 0; i < h; i++)
+				lines.add(vertices[i], vertices[(i + 1) % h]);
+		}
+	}
 }
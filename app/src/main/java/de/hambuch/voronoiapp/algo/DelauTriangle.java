@@ -1,17 +1,17 @@
 package de.hambuch.voronoiapp.algo;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.logging.Logger;
+
 import de.hambuch.voronoiapp.VoronoiApp;
 import de.hambuch.voronoiapp.geometry.Circle;
 import de.hambuch.voronoiapp.geometry.DCEL;
 import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Renderer;
 import de.hambuch.voronoiapp.geometry.Segment;
 import de.hambuch.voronoiapp.geometry.Triangle;
 
@@ -24,6 +24,12 @@ import de.hambuch.voronoiapp.geometry.Triangle;
  */
 public class DelauTriangle extends Triangle {
 
+	/* java.util.logging instead of android.util.Log, so the algorithms also run on a plain JVM */
+	private static final Logger LOG = Logger.getLogger(VoronoiApp.APPNAME);
+
+	/* relative rounding error of the incircle test */
+	private static final double INCIRCLE_EPSILON = 1e-12;
+
 	private boolean halfplane;
 
 	/* all neighbours are connected */
@@ -40,6 +46,18 @@ public class DelauTriangle extends Triangle {
 
 	transient public boolean visited = false;
 
+	/* position in CircleHeap, -1 if not stored */
+	transient int heapIndex = -1;
+
+	/* color assigned by DiagramColoring, -1 if not colored */
+	transient int colorIndex = -1;
+
+	/* last run of DelaunayTriangulation.resetVisited() that reached this triangle */
+	transient int resetStamp = 0;
+
+	/* number of this triangle in DelaunayTriangulation.writeTopology() */
+	transient int topologyIndex = -1;
+
 	/**
 	 * A Delaunay-Triangle. The points have to be in counterclockwise order!
 	 * 
@@ -51,12 +69,22 @@ public class DelauTriangle extends Triangle {
 		super(a, b, c);
 		halfplane = false;
 		if (area() < 0.0) {
-			Log.e(VoronoiApp.APPNAME, "Warning: points are not in counterclockwise order: "
+			LOG.warning("Warning: points are not in counterclockwise order: "
 							+ a + "," + b + "," + c);
 		}
 		circumcircle = new Circle(a, b, c);
 	}
 
+	/**
+	 * A triangle or halfplane restored by
+	 * {@link DelaunayTriangulation#readTopology}, with all points as given.
+	 */
+	DelauTriangle(@NonNull Point a, @NonNull Point b, @NonNull Point c, boolean halfplane) {
+		super(a, b, c);
+		this.halfplane = halfplane;
+		circumcircle = new Circle(a, b, c);
+	}
+
 	/**
 	 * A &quot;degenerated&quot; Delaunay-Triangle (left halfplane of a-b)
 	 * 
@@ -93,7 +121,10 @@ public class DelauTriangle extends Triangle {
 
 	/**
 	 * Tests, if a point lies in the circumcircle of this triangle (or in the
-	 * full halfplane)
+	 * full halfplane). The test is done in double with a margin for rounding
+	 * errors for every insertion, flip and deletion, not only for bulk loads,
+	 * so nearly cocircular points may be triangulated differently than with
+	 * the former float test of the distance to the center.
 	 * 
 	 * @param p
 	 * @return <VAR>true if point lies in the circumcircle (or halfplane),
@@ -101,8 +132,7 @@ public class DelauTriangle extends Triangle {
 	 */
 	public boolean pointInCircumcircle(@NonNull Point p) {
 		if (!halfplane) {
-			if (circumcircle.pointInCircle(p) == Circle.INCIRCLE)
-				return true;
+			return inCircle(pointA, pointB, pointC, p);
 		} else {
 			if (Segment.pointTest(pointA, pointB, p) == Segment.POINT_RIGHT)
 				return true;
@@ -110,6 +140,29 @@ public class DelauTriangle extends Triangle {
 		return false;
 	}
 
+	/*
+	 * incircle determinant in double, relative to p. Only a value clearly
+	 * above the rounding error counts, so of two triangles sharing an edge
+	 * never both see the opposite point inside (no endless flipping).
+	 */
+	static boolean inCircle(@NonNull Point a, @NonNull Point b, @NonNull Point c, @NonNull Point p) {
+		final double px = p.getX(), py = p.getY();
+		final double adx = a.getX() - px, ady = a.getY() - py;
+		final double bdx = b.getX() - px, bdy = b.getY() - py;
+		final double cdx = c.getX() - px, cdy = c.getY() - py;
+		final double alift = adx * adx + ady * ady;
+		final double blift = bdx * bdx + bdy * bdy;
+		final double clift = cdx * cdx + cdy * cdy;
+		final double bc = bdx * cdy - cdx * bdy, ca = cdx * ady - adx * cdy, ab = adx * bdy - bdx * ady;
+		double det = alift * bc + blift * ca + clift * ab;
+		final double permanent = alift * (Math.abs(bdx * cdy) + Math.abs(cdx * bdy))
+				+ blift * (Math.abs(cdx * ady) + Math.abs(adx * cdy))
+				+ clift * (Math.abs(adx * bdy) + Math.abs(bdx * ady));
+		if (bc + ca + ab < 0.0)
+			det = -det; /* clockwise */
+		return det > INCIRCLE_EPSILON * permanent;
+	}
+
 	/**
 	 * return the circumcircle of this triangle (only useful for non-halfplane
 	 * triangles)
@@ -168,7 +221,7 @@ public class DelauTriangle extends Triangle {
 		pointC = point;
 		halfplane = false;
 		if (area() < 0.0) {
-			Log.e(VoronoiApp.APPNAME,"Warning: extend points are not in counterclockwise order: "
+			LOG.warning("Warning: extend points are not in counterclockwise order: "
 							+ pointA + "," + pointB + "," + pointC);
 		}
 		circumcircle = new Circle(pointA, pointB, pointC);
@@ -182,7 +235,7 @@ public class DelauTriangle extends Triangle {
 		else if (neighbourCA == old)
 			neighbourCA = neu;
 		else
-			Log.e(VoronoiApp.APPNAME,"Error: " + this.toString()
+			LOG.severe("Error: " + this.toString()
 					+ ".replaceNeighbour " + old + " with " + neu);
 	}
 
@@ -200,7 +253,7 @@ public class DelauTriangle extends Triangle {
 			return neighbourAB;
 		if (pointC == p)
 			return neighbourBC;
-		Log.e(VoronoiApp.APPNAME,"Error in neighbour(" + p + ")");
+		LOG.severe("Error in neighbour(" + p + ")");
 		return null;
 	}
 
@@ -226,13 +279,11 @@ public class DelauTriangle extends Triangle {
 		return super.toString();
 	}
 
-	public void paint(@NonNull Canvas graphics) {
+	public void render(@NonNull Renderer renderer) {
 		if (halfplane) {
-			Paint paint = new Paint();
-			paint.setColor(Color.RED);
-			graphics.drawLine((float) pointA.getX(), (float) pointA.getY(),
-					(float) pointB.getX(), (float) pointB.getY(), paint);
+			renderer.drawLine((float) pointA.getX(), (float) pointA.getY(),
+					(float) pointB.getX(), (float) pointB.getY(), Color.RED, LINE_WIDTH);
 		} else
-			super.paint(graphics);
+			super.render(renderer);
 	}
 }
@@ -1,18 +1,27 @@
 package de.hambuch.voronoiapp.algo;
 
-import android.graphics.Canvas;
-import android.util.Log;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import de.hambuch.voronoiapp.VoronoiApp;
 import de.hambuch.voronoiapp.geometry.GeomElement;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
 import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Renderer;
 import de.hambuch.voronoiapp.geometry.Segment;
 import de.hambuch.voronoiapp.geometry.Triangle;
 
@@ -27,9 +36,58 @@ import de.hambuch.voronoiapp.geometry.Triangle;
  */
 public class DelaunayTriangulation extends GeomElement {
 
+	/* java.util.logging instead of android.util.Log, so the algorithms also run on a plain JVM */
+	private static final Logger LOG = Logger.getLogger(VoronoiApp.APPNAME);
+
+	private static final int TOPOLOGY_MAGIC = 'V' | 'T' << 8 | 'O' << 16 | 'P' << 24;
+	private static final int TOPOLOGY_VERSION = 1;
+	private static final int TOPOLOGY_HEADER = 40;
+
 	public interface Visitor {
 		public void visit(@NonNull DelauTriangle triangle);
 	}
+
+	/**
+	 * Gets informed about every modification of the triangulation.
+	 */
+	public interface ChangeListener {
+		/**
+		 * Called after a point has been inserted or an inner point has been
+		 * deleted. Triangles that are modified in place are reported in both
+		 * lists: their old version is removed and their new one created. After
+		 * an insertion all created triangles share the new point, after a
+		 * deletion all removed triangles share the deleted point.
+		 *
+		 * @param removed triangles that are no longer part of the triangulation
+		 *        (or have been modified)
+		 * @param created new (or modified) triangles
+		 */
+		public void trianglesChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created);
+
+		/**
+		 * Called if the triangulation has been rebuilt or cleared, so any
+		 * triangle may have been replaced. The geometry itself may have
+		 * changed only locally, see {@link #getChangedBounds(float[])}.
+		 */
+		public void triangulationRebuilt();
+	}
+
+	/**
+	 * Points for {@link #insertPoints(PointSource)}, read by index.
+	 */
+	public interface PointSource {
+		public int size();
+
+		public float getX(int i);
+
+		public float getY(int i);
+
+		/**
+		 * @param i index of the point
+		 * @return int color of the point, 0 for the default color
+		 */
+		public int getColor(int i);
+	}
 	
 	/* reference to first triangle of triangulation */
 	private DelauTriangle firstTriangle;
@@ -47,6 +105,29 @@ public class DelaunayTriangulation extends GeomElement {
 	/* all points in this triangulation */
 	private List<Point> allPoints;
 
+	/* incremented on every modification */
+	private long version = 0;
+
+	private final List<ChangeListener> listeners = new ArrayList<>();
+	/* triangles thrown away by flip() during one insertion */
+	private final List<DelauTriangle> droppedTriangles = new ArrayList<>();
+	/* no notifications while rebuilding */
+	private boolean rebuilding = false;
+	/* incremented whenever the convex hull may have changed */
+	private long hullVersion = 0;
+	/* bounding box of the last modification: minX, minY, maxX, maxY */
+	private final float[] changedBounds = new float[4];
+	private boolean changedBounded = false;
+	/* stamp of the last resetVisited() */
+	private int resetStamp = 0;
+	/* reused for every paint */
+	private final LineBuffer lines = new LineBuffer();
+	/* statistics: insertions and deletions, edge flips and steps of find() */
+	private long operations = 0;
+	private long flips = 0;
+	/* state of find(), counts the steps */
+	private final Walk walk = new Walk();
+
 	public DelaunayTriangulation() {
 		allPoints = new ArrayList<>();
 	}
@@ -61,6 +142,188 @@ public class DelaunayTriangulation extends GeomElement {
 		lastColTriag = null;
 		firstTriangle = null;
 		allCollinear = true;
+		hullVersion++;
+		fireRebuilt();
+	}
+
+	public void addChangeListener(@NonNull ChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeChangeListener(@NonNull ChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * return a counter that is incremented on every modification of this
+	 * triangulation. Useful to check whether cached data is still valid.
+	 *
+	 * @return long the current version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * return a counter that is incremented whenever the convex hull may have
+	 * changed (not on insertions inside of the hull).
+	 *
+	 * @return long the current version of the hull
+	 * @see ConvexHull
+	 */
+	public long getHullVersion() {
+		return hullVersion;
+	}
+
+	/**
+	 * return the number of insertions and deletions so far. Like the flips
+	 * and walk steps this includes the insertions of rebuilds and bulk
+	 * loads, a move counts as a deletion and an insertion.
+	 *
+	 * @return long number of operations
+	 */
+	public long getOperationCount() {
+		return operations;
+	}
+
+	/**
+	 * return the number of edge flips so far, including rebuilds.
+	 *
+	 * @return long number of flips
+	 */
+	public long getFlipCount() {
+		return flips;
+	}
+
+	/**
+	 * return the number of triangles visited by {@link #find(DelauTriangle, Point)}
+	 * so far, including rebuilds.
+	 *
+	 * @return long number of steps
+	 */
+	public long getWalkSteps() {
+		return walk.steps;
+	}
+
+	/**
+	 * return the number of real triangles (without halfplanes). Walks around
+	 * the convex hull.
+	 *
+	 * @return int number of triangles
+	 */
+	public int getTriangleCount() {
+		if (allCollinear || firstHullTriangle == null)
+			return 0;
+		int hull = 0;
+		DelauTriangle t = firstHullTriangle;
+		do {
+			hull++;
+			t = t.neighbourCA;
+		} while (t != null && t != firstHullTriangle);
+		/* Euler: 2n - 2 - h triangles for n points and h hull vertices */
+		return 2 * points - 2 - hull;
+	}
+
+	/**
+	 * return the area of the plane changed by the last modification: the
+	 * bounding box of all new triangles and their Voronoi vertices, after a
+	 * deletion or move also the ones of the old position. Outside of this
+	 * rectangle the triangulation and the Voronoi diagram look like before.
+	 * Can be called by a ChangeListener.
+	 *
+	 * @param bounds receives minX, minY, maxX, maxY
+	 * @return boolean <VAR>false</VAR> if the whole plane may have changed
+	 *         (unbounded regions, convex hull, clear), bounds are not set then
+	 */
+	public boolean getChangedBounds(@NonNull float[] bounds) {
+		if (!changedBounded)
+			return false;
+		System.arraycopy(changedBounds, 0, bounds, 0, 4);
+		return true;
+	}
+
+	private void fireRebuilt() {
+		fireRebuilt(false);
+	}
+
+	private void fireRebuilt(boolean bounded) {
+		version++;
+		changedBounded = bounded;
+		droppedTriangles.clear();
+		if (!rebuilding) {
+			for (ChangeListener listener : listeners)
+				listener.triangulationRebuilt();
+		}
+	}
+
+	private void fireChanged(Point p) {
+		version++;
+		if (!rebuilding) {
+			changedBounds[0] = changedBounds[1] = Float.POSITIVE_INFINITY;
+			changedBounds[2] = changedBounds[3] = Float.NEGATIVE_INFINITY;
+			changedBounded = addStarBounds(p, changedBounds);
+		}
+		if (!rebuilding && !listeners.isEmpty()) {
+			/* every new or modified triangle is incident to p (star of p) */
+			final List<DelauTriangle> created = new ArrayList<>();
+			DelauTriangle start = firstTriangle;
+			if (start.getPointC() != p)
+				start = find(firstTriangle, p);
+			DelauTriangle t = start;
+			do {
+				created.add(t);
+				t = t.neighbour(p);
+			} while (t != null && t != start);
+			final List<DelauTriangle> removed = new ArrayList<>(droppedTriangles);
+			removed.addAll(created);
+			for (ChangeListener listener : listeners)
+				listener.trianglesChanged(removed, created);
+		}
+		droppedTriangles.clear();
+	}
+
+	/* inform the listeners about a deletion, changedBounds have to be set */
+	private void fireChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created) {
+		version++;
+		changedBounded = true;
+		droppedTriangles.clear();
+		if (!rebuilding) {
+			for (ChangeListener listener : listeners)
+				listener.trianglesChanged(removed, created);
+		}
+	}
+
+	/*
+	 * extend bounds by the vertices and circumcenters of all triangles around
+	 * the site p, that is the star of p and the Voronoi region of p. Returns
+	 * false if the region is unbounded.
+	 */
+	private boolean addStarBounds(Point p, float[] bounds) {
+		if (allCollinear || firstTriangle == null)
+			return false;
+		DelauTriangle start = firstTriangle;
+		if (start.getPointA() != p && start.getPointB() != p && start.getPointC() != p)
+			start = find(firstTriangle, p);
+		if (start == null || (start.getPointA() != p && start.getPointB() != p && start.getPointC() != p))
+			return false;
+		DelauTriangle t = start;
+		do {
+			if (t.isHalfplane())
+				return false;
+			addBounds(bounds, t.getPointA());
+			addBounds(bounds, t.getPointB());
+			addBounds(bounds, t.getPointC());
+			addBounds(bounds, t.circumCircle().getCenter());
+			t = t.neighbour(p);
+		} while (t != null && t != start);
+		return t != null;
+	}
+
+	private static void addBounds(float[] bounds, Point p) {
+		bounds[0] = Math.min(bounds[0], p.getX());
+		bounds[1] = Math.min(bounds[1], p.getY());
+		bounds[2] = Math.max(bounds[2], p.getX());
+		bounds[3] = Math.max(bounds[3], p.getY());
 	}
 
 	@Nullable
@@ -90,8 +353,88 @@ public class DelaunayTriangulation extends GeomElement {
 		if (allPoints.contains(p))
 			throw new VoronoiException("Point " + p
 					+ " already in triangulation");
+		insert(p, null);
+	}
+
+	/**
+	 * Insert many points at once. They are sorted along a Hilbert curve
+	 * first, so each point is located with a few steps from the previous
+	 * one, and listeners are informed once at the end. Points already in
+	 * the triangulation and points with coordinates that are not finite are
+	 * skipped.
+	 *
+	 * @param source the points
+	 * @return int number of inserted points
+	 */
+	public int insertPoints(@NonNull PointSource source) {
+		final int[] order = HilbertCurve.order(source);
+		if (order.length == 0)
+			return 0;
+		if (allPoints instanceof ArrayList)
+			((ArrayList<Point>) allPoints).ensureCapacity(points + order.length);
+		int inserted = 0;
+		rebuilding = true;
+		try {
+			for (int i : order) {
+				final int color = source.getColor(i);
+				final Point p = color != 0 ? new Point(source.getX(i), source.getY(i), color)
+						: new Point(source.getX(i), source.getY(i));
+				DelauTriangle located = null;
+				if (allCollinear) {
+					if (allPoints.contains(p))
+						continue;
+				} else {
+					/* a point equal to a site is found in a triangle at this site */
+					located = find(firstTriangle, p);
+					if (located == null || p.equals(located.getPointA()) || p.equals(located.getPointB())
+							|| p.equals(located.getPointC()))
+						continue;
+				}
+				insert(p, located);
+				inserted++;
+			}
+		} finally {
+			rebuilding = false;
+		}
+		hullVersion++;
+		fireRebuilt();
+		return inserted;
+	}
+
+	/**
+	 * Insert many points at once, see {@link #insertPoints(PointSource)}.
+	 *
+	 * @param coords x, y of the points
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per point)
+	 * @return int number of inserted points
+	 */
+	public int insertPoints(@NonNull final float[] coords, final int offset, final int count) {
+		return insertPoints(new PointSource() {
+			public int size() {
+				return count / 2;
+			}
+
+			public float getX(int i) {
+				return coords[offset + 2 * i];
+			}
+
+			public float getY(int i) {
+				return coords[offset + 2 * i + 1];
+			}
+
+			public int getColor(int i) {
+				return 0;
+			}
+		});
+	}
+
+	/* insert a new point, located is the triangle containing p or null */
+	private void insert(@NonNull Point p, @Nullable DelauTriangle located) {
+		operations++;
 		points++;
 		allPoints.add(p);
+		final boolean wasCollinear = allCollinear;
 
 		if (points == 1) {
 			firstPoint = p;
@@ -123,7 +466,7 @@ public class DelaunayTriangulation extends GeomElement {
 		} else { /* >= 3 points */
 			if (!allCollinear) {
 				/* there are "real" triangles */
-				DelauTriangle triag = find(firstTriangle, p);
+				DelauTriangle triag = located != null ? located : find(firstTriangle, p);
 				if (triag.isHalfplane()) {
 					firstTriangle = extendHull(triag, p);
 				} else {
@@ -214,34 +557,68 @@ public class DelaunayTriangulation extends GeomElement {
 				flip(t);
 				t = t.neighbour(t.getPointC());
 			} while (t != firstTriangle && !t.isHalfplane());
+			if (t != firstTriangle) {
+				/* p is on the hull: also flip the star in the other direction */
+				t = firstTriangle.neighbourCA;
+				while (!t.isHalfplane()) {
+					flip(t);
+					t = t.neighbourCA;
+				}
+			}
 			/* behebt anscheinend unsere flipping-probleme ! */
 			flip(firstTriangle.neighbourCA);
 			// checkConsistence();
 		}
+		if (wasCollinear) {
+			hullVersion++;
+			fireRebuilt(); /* only halfplanes so far */
+		}
+		else
+			fireChanged(p);
 	}
 
 	/**
-	 * Delete a point from the Delaunay triangulation.
+	 * Delete a point from the Delaunay triangulation. Only the triangles
+	 * around an inner point are replaced, points of the convex hull rebuild
+	 * the triangulation.
 	 * 
 	 * @param p
 	 */
 	public void deletePoint(@NonNull Point p) {
 		if (allPoints.contains(p)) {
+			operations++;
+			final boolean onHull = isHullVertex(p);
+			/* the neighbours only grow into the old region of p */
+			final float[] bounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+					Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+			final boolean bounded = !onHull && addStarBounds(p, bounds);
+			final List<DelauTriangle> removed = new ArrayList<>(8);
+			final List<DelauTriangle> created = new ArrayList<>(8);
 			points--;
 			allPoints.remove(p);
+			if (bounded && removeInner(p, removed, created)) {
+				System.arraycopy(bounds, 0, changedBounds, 0, 4);
+				fireChanged(removed, created);
+				return;
+			}
 			/*
-			 * we don't have a special algorithm for deleting points, so we
-			 * rebuild the whole structure. Better have a look at: O. Devillers:
-			 * On Deletion in Delaunay Triangulation, ACM 15th Symp. Comp. Geom
-			 * 99, pp.181-188
+			 * points on the hull: we don't have a special algorithm for
+			 * deleting them, so we rebuild the whole structure. Better have a
+			 * look at: O. Devillers: On Deletion in Delaunay Triangulation, ACM
+			 * 15th Symp. Comp. Geom 99, pp.181-188
 			 */
-			rebuild();
+			retriangulate();
+			if (onHull)
+				hullVersion++;
+			System.arraycopy(bounds, 0, changedBounds, 0, 4);
+			fireRebuilt(bounded && !allCollinear);
 		}
 	}
 
 	/**
 	 * Moves the position of a point in this triangulation to new coordinates
-	 * (newX, newY).
+	 * (newX, newY). An inner point is deleted and inserted again, a point
+	 * of the convex hull rebuilds the triangulation.
 	 * 
 	 * @param p
 	 * @param newX
@@ -249,17 +626,162 @@ public class DelaunayTriangulation extends GeomElement {
 	 */
 	public void movePoint(@NonNull Point p, float newX, float newY) {
 		/*
-		 * we simply rebuild everything. We have to make sure, that this point
-		 * doens't equal to another point of our triangulation!
+		 * We have to make sure, that this point doens't equal to another point
+		 * of our triangulation!
 		 */
 		Point check = new Point(newX, newY);
 		if (!allPoints.contains(check)) {
+			operations++;
+			final boolean onHull = isHullVertex(p);
+			/* only the old and the new region of p have changed */
+			final float[] bounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+					Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+			boolean bounded = !onHull && addStarBounds(p, bounds);
+			final List<DelauTriangle> removed = new ArrayList<>(8);
+			final List<DelauTriangle> created = new ArrayList<>(8);
+			if (bounded && removeInner(p, removed, created)) {
+				/* an inner point: delete it and insert it again, both are local */
+				points--;
+				allPoints.remove(p);
+				System.arraycopy(bounds, 0, changedBounds, 0, 4);
+				fireChanged(removed, created);
+				p.setX(newX);
+				p.setY(newY);
+				insert(p, null);
+				return;
+			}
+			/* a point of the hull: we simply rebuild everything */
 			p.setX(newX);
 			p.setY(newY);
-			rebuild();
+			retriangulate();
+			final boolean nowOnHull = isHullVertex(p);
+			if (onHull || nowOnHull)
+				hullVersion++;
+			bounded = bounded && !nowOnHull && addStarBounds(p, bounds);
+			System.arraycopy(bounds, 0, changedBounds, 0, 4);
+			fireRebuilt(bounded);
 		}
 	}
 
+	/**
+	 * Remove the triangles around an inner point <VAR>p</VAR> and fill the
+	 * hole with Delaunay triangles of its neighbours. The hole is cut into
+	 * ears: an ear (three consecutive corners, convex) is taken if no other
+	 * corner of the hole lies in its circumcircle. Nothing is changed if the
+	 * star of p isn't closed or no such ear is found (rounding errors).
+	 * <VAR>p</VAR> itself stays in <VAR>allPoints</VAR>.
+	 *
+	 * @param p an inner point of the triangulation
+	 * @param removed receives the triangles around p
+	 * @param created receives the new triangles
+	 * @return boolean <VAR>true</VAR> if p has been removed
+	 */
+	private boolean removeInner(@NonNull Point p, @NonNull List<DelauTriangle> removed,
+								@NonNull List<DelauTriangle> created) {
+		if (allCollinear || firstTriangle == null)
+			return false;
+		final DelauTriangle start = find(firstTriangle, p);
+		if (start == null || (start.getPointA() != p && start.getPointB() != p && start.getPointC() != p))
+			return false;
+		DelauTriangle t = start;
+		do {
+			if (t.isHalfplane())
+				return false;
+			removed.add(t);
+			t = t.neighbour(p);
+		} while (t != null && t != start);
+		if (t == null || removed.size() < 3) {
+			removed.clear();
+			return false;
+		}
+		/* corners of the hole counterclockwise, edge i (link[i], link[i+1]) is shared with outer[i] */
+		final int k = removed.size();
+		final Point[] link = new Point[k];
+		final DelauTriangle[] outer = new DelauTriangle[k];
+		/* old neighbour to replace in outer[i], null if outer[i] is a new triangle (its CA edge) */
+		final DelauTriangle[] old = new DelauTriangle[k];
+		for (int i = 0; i < k; i++) {
+			t = removed.get(i);
+			if (t.getPointA() == p) {
+				link[i] = t.getPointB();
+				outer[i] = t.neighbourBC;
+			} else if (t.getPointB() == p) {
+				link[i] = t.getPointC();
+				outer[i] = t.neighbourCA;
+			} else {
+				link[i] = t.getPointA();
+				outer[i] = t.neighbourAB;
+			}
+			old[i] = t;
+		}
+		/* first find all ears, so a failure leaves the triangulation unchanged */
+		final int[] next = new int[k], prev = new int[k];
+		for (int i = 0; i < k; i++) {
+			next[i] = i + 1 < k ? i + 1 : 0;
+			prev[i] = i > 0 ? i - 1 : k - 1;
+		}
+		final int[] ears = new int[3 * (k - 2)];
+		int e = 0, i = 0, failed = 0;
+		for (int corners = k; corners > 3; ) {
+			if (isEar(link, prev[i], i, next[i], next)) {
+				ears[e++] = prev[i];
+				ears[e++] = i;
+				ears[e++] = next[i];
+				next[prev[i]] = next[i];
+				prev[next[i]] = prev[i];
+				i = next[i];
+				corners--;
+				failed = 0;
+			} else if (++failed > corners) {
+				removed.clear();
+				return false;
+			} else {
+				i = next[i];
+			}
+		}
+		ears[e++] = prev[i];
+		ears[e++] = i;
+		ears[e++] = next[i];
+		/* now build the triangles, an ear takes the edges (a, b) and (b, c) and leaves (a, c) */
+		for (int j = 0; j < e; j += 3) {
+			final int a = ears[j], b = ears[j + 1], c = ears[j + 2];
+			final DelauTriangle h = new DelauTriangle(link[a], link[b], link[c]);
+			h.neighbourAB = attach(outer[a], old[a], h);
+			h.neighbourBC = attach(outer[b], old[b], h);
+			if (j + 3 == e) {
+				h.neighbourCA = attach(outer[c], old[c], h); /* the last one closes the hole */
+			} else {
+				outer[a] = h;
+				old[a] = null;
+			}
+			created.add(h);
+		}
+		firstTriangle = created.get(created.size() - 1);
+		return true;
+	}
+
+	/* convex corner b with no other corner of the hole in the circumcircle of (a, b, c) */
+	private static boolean isEar(@NonNull Point[] link, int a, int b, int c, @NonNull int[] next) {
+		if (Segment.pointTest(link[a], link[b], link[c]) != Segment.POINT_LEFT)
+			return false;
+		for (int j = next[c]; j != a; j = next[j]) {
+			if (DelauTriangle.inCircle(link[a], link[b], link[c], link[j]))
+				return false;
+		}
+		return true;
+	}
+
+	/* connect the neighbour t of a new triangle h, replacing old (or its CA edge) */
+	@NonNull
+	private static DelauTriangle attach(@NonNull DelauTriangle t, @Nullable DelauTriangle old,
+										@NonNull DelauTriangle h) {
+		if (old != null)
+			t.replaceNeighbour(old, h);
+		else
+			t.neighbourCA = h;
+		return t;
+	}
+
 	/**
 	 * Extend the hull with a point <VAR>p</VAR> that lies in one of the hull
 	 * triangles <VAR>t</VAR>.
@@ -269,6 +791,7 @@ public class DelaunayTriangulation extends GeomElement {
 	 * @return DelauTriangle one of a real triangle near to p
 	 */
 	private DelauTriangle extendHull(DelauTriangle t, Point p) {
+		hullVersion++;
 		/* degenerated case */
 		if (Segment.pointTest(t.getPointA(), t.getPointB(), p) == Segment.POINT_ONEDGE) {
 			// aus VoroGlide abgeschrieben
@@ -392,6 +915,25 @@ public class DelaunayTriangulation extends GeomElement {
 		return t;
 	}
 
+	/**
+	 * The state of a walk through the triangulation: the random generator
+	 * choosing the first edge and the number of steps. A reader that walks
+	 * in its own threads (see {@link NaturalNeighbourInterpolator}) keeps
+	 * one per thread, so the triangulation itself is not written.
+	 */
+	static final class Walk {
+		private int random = 0x2545f491;
+		long steps = 0;
+
+		/* 0, 1 or 2 at random (xorshift) */
+		int nextEdge() {
+			random ^= random << 13;
+			random ^= random >>> 17;
+			random ^= random << 5;
+			return (random >>> 1) % 3;
+		}
+	}
+
 	/**
 	 * Locate the triangle that contains a given point in the interior or on the
 	 * border.
@@ -402,10 +944,25 @@ public class DelaunayTriangulation extends GeomElement {
 	 */
 	@Nullable
 	public DelauTriangle find(@Nullable DelauTriangle start, @NonNull Point p) {
+		return find(start, p, walk);
+	}
+
+	/**
+	 * Like {@link #find(DelauTriangle, Point)}, with the state of the walk
+	 * of the caller. Only reads the triangles.
+	 *
+	 * @param start the triangle at which we start searching
+	 * @param p the point to locate
+	 * @param walk random generator and step counter
+	 * @return DelauTriangle a triangle containing <VAR>p</VAR>
+	 */
+	@Nullable
+	static DelauTriangle find(@Nullable DelauTriangle start, @NonNull Point p, @NonNull Walk walk) {
 		boolean found = false;
 		while (!found) {
 			if (start == null)
 				return null;
+			walk.steps++;
 			if (start.getPointA() == p)
 				return start;
 			if (start.getPointB() == p)
@@ -417,17 +974,28 @@ public class DelaunayTriangulation extends GeomElement {
 			} else {
 				/* walk-through */
 				if (!start.isHalfplane()) {
-					if (Segment.pointTest(start.getPointA(), start.getPointB(),
-							p) == Segment.POINT_RIGHT) {
-						start = start.neighbourAB;
-					} else if (Segment.pointTest(start.getPointB(), start
-							.getPointC(), p) == Segment.POINT_RIGHT) {
-						start = start.neighbourBC;
-					} else if (Segment.pointTest(start.getPointC(), start
-							.getPointA(), p) == Segment.POINT_RIGHT) {
-						start = start.neighbourCA;
+					/*
+					 * the first edge to test is chosen at random: a walk that
+					 * always prefers the same edge may run in circles if the
+					 * triangulation isn't exactly Delaunay (rounding errors)
+					 */
+					DelauTriangle next = null;
+					int edge = walk.nextEdge();
+					for (int k = 0; k < 3 && next == null; k++, edge = edge == 2 ? 0 : edge + 1) {
+						if (edge == 0) {
+							if (Segment.pointTest(start.getPointA(), start.getPointB(), p) == Segment.POINT_RIGHT)
+								next = start.neighbourAB;
+						} else if (edge == 1) {
+							if (Segment.pointTest(start.getPointB(), start.getPointC(), p) == Segment.POINT_RIGHT)
+								next = start.neighbourBC;
+						} else if (Segment.pointTest(start.getPointC(), start.getPointA(), p) == Segment.POINT_RIGHT) {
+							next = start.neighbourCA;
+						}
+					}
+					if (next != null) {
+						start = next;
 					} else {
-						Log.e(VoronoiApp.APPNAME, "Error locating point " + p
+						LOG.severe("Error locating point " + p
 								+ " - should not happen!");
 						found = true;
 					}
@@ -436,9 +1004,11 @@ public class DelaunayTriangulation extends GeomElement {
 					if (Segment.pointTest(start.getPointA(), start.getPointB(),
 							p) == Segment.POINT_RIGHT)
 						start = start.neighbourAB;
-					else
-						Log.e(VoronoiApp.APPNAME,"Internal error find(" + start + ","
+					else {
+						LOG.severe("Internal error find(" + start + ","
 								+ p + ")");
+						found = true;
+					}
 					// andere Faelle sollte nicht vorkommen !!
 				}
 			}
@@ -473,9 +1043,11 @@ public class DelaunayTriangulation extends GeomElement {
 			v.neighbourAB = u.neighbourAB;
 			t.neighbourAB = u.neighbourCA;
 		} else {
-			Log.e(VoronoiApp.APPNAME,"Error in flip." + t);
+			LOG.severe("Error in flip." + t);
 			return;
 		}
+		flips++;
+		droppedTriangles.add(u);
 
 		v.neighbourBC = t.neighbourBC;
 		v.neighbourAB.replaceNeighbour(u, v);
@@ -494,6 +1066,12 @@ public class DelaunayTriangulation extends GeomElement {
 	 * Rebuild the triangulation from internal vector <VAR>allPoints</VAR>.
 	 */
 	public void rebuild() {
+		retriangulate();
+		fireRebuilt();
+	}
+
+	/* rebuild without notification */
+	private void retriangulate() {
 		allCollinear = true;
 		firstHullTriangle = null;
 		firstColTriag = null;
@@ -502,15 +1080,41 @@ public class DelaunayTriangulation extends GeomElement {
 		firstPoint = null;
 		lastPoint = null;
 		points = 0;
+		rebuilding = true;
+		/* same points, same hull: callers check whether the hull has changed */
+		final long oldHullVersion = hullVersion;
 		List<Point> oldPoints = allPoints;
 		allPoints = new ArrayList<>(oldPoints.size());
 		for (Iterator<Point> iterator = oldPoints.iterator(); iterator.hasNext(); ) {
+			final Point p = iterator.next();
 			try {
-				insertPoint(iterator.next());
+				insertPoint(p);
 			} catch (Exception e) {
-				Log.w(VoronoiApp.APPNAME, e);
+				LOG.log(Level.WARNING, "cannot insert " + p + " again", e);
 			}
 		}
+		rebuilding = false;
+		hullVersion = oldHullVersion;
+	}
+
+	/**
+	 * Tests if <VAR>p</VAR> is a vertex of the convex hull. O(h) for h hull
+	 * vertices.
+	 *
+	 * @param p a site of this triangulation
+	 * @return boolean <VAR>true</VAR> iff p lies on the hull
+	 */
+	public boolean isHullVertex(@NonNull Point p) {
+		final DelauTriangle tstart = firstHullTriangle;
+		if (tstart == null)
+			return points > 0 && p == firstPoint;
+		DelauTriangle t = tstart;
+		do {
+			if (t.getPointA() == p)
+				return true;
+			t = t.neighbourBC;
+		} while (t != tstart);
+		return false;
 	}
 
 	/**
@@ -578,57 +1182,67 @@ public class DelaunayTriangulation extends GeomElement {
 	 */
 	public void resetVisited(@Nullable DelauTriangle t) {
 		if (t != null) {
-			t.visited = false;
-			t.dcelAB = null;
-			t.dcelBC = null;
-			t.dcelCA = null;
-			if (t.neighbourAB != null)
-				if (t.neighbourAB.visited)
-					resetVisited(t.neighbourAB);
-			if (t.neighbourBC != null)
-				if (t.neighbourBC.visited)
-					resetVisited(t.neighbourBC);
-			if (t.neighbourCA != null)
-				if (t.neighbourCA.visited)
-					resetVisited(t.neighbourCA);
+			/*
+			 * no recursion: large triangulations would overflow the stack. New
+			 * triangles are not visited yet and may separate visited ones, so
+			 * we walk through all triangles and mark them with a stamp.
+			 */
+			final int stamp = ++resetStamp;
+			final ArrayDeque<DelauTriangle> stack = new ArrayDeque<>();
+			t.resetStamp = stamp;
+			stack.push(t);
+			while (!stack.isEmpty()) {
+				t = stack.pop();
+				reset(t);
+				if (t.neighbourAB != null && t.neighbourAB.resetStamp != stamp) {
+					t.neighbourAB.resetStamp = stamp;
+					stack.push(t.neighbourAB);
+				}
+				if (t.neighbourBC != null && t.neighbourBC.resetStamp != stamp) {
+					t.neighbourBC.resetStamp = stamp;
+					stack.push(t.neighbourBC);
+				}
+				if (t.neighbourCA != null && t.neighbourCA.resetStamp != stamp) {
+					t.neighbourCA.resetStamp = stamp;
+					stack.push(t.neighbourCA);
+				}
+			}
 		}
 	}
 
-	public void paint(@NonNull Canvas g) {
-		// g.setColor(color);
-		resetVisited(firstTriangle);
-		paintit(g, firstTriangle);
+	private static void reset(DelauTriangle t) {
+		t.visited = false;
+		t.dcelAB = null;
+		t.dcelBC = null;
+		t.dcelCA = null;
 	}
 
-	private void paintit(Canvas g, DelauTriangle t) {
-		if (t != null) {
-			if (!t.visited) {
-				t.visited = true;
-				if (!t.isHalfplane()) {
-					Point a = t.getPointA();
-					Point b = t.getPointB();
-					Point c = t.getPointC();
-					if (!t.neighbourAB.visited) 
-						g.drawLine((float) a.getX(), (float) a.getY(),
-								(float) b.getX(), (float) b.getY(),
-								getLinePaint());
-					if (!t.neighbourBC.visited)
-						g.drawLine((float) b.getX(), (float) b.getY(),
-								(float) c.getX(), (float) c.getY(),
-								getLinePaint());
-					if (!t.neighbourCA.visited)
-						g.drawLine((float) c.getX(), (float) c.getY(),
-								(float) a.getX(), (float) a.getY(),
-								getLinePaint());
-					if (!t.neighbourAB.visited) 
-						paintit(g, t.neighbourAB);
-					if (!t.neighbourBC.visited)
-						paintit(g, t.neighbourBC);
-					if (!t.neighbourCA.visited)
-						paintit(g, t.neighbourCA);
-				}
+	public void render(@NonNull Renderer renderer) {
+		lines.clear();
+		fillLines(lines);
+		lines.render(renderer, getColor(), LINE_WIDTH);
+	}
+
+	/**
+	 * Add all edges of real triangles to a line buffer.
+	 *
+	 * @param lines the buffer
+	 */
+	public void fillLines(@NonNull final LineBuffer lines) {
+		/* hull edges are added by the real triangle, inner edges by the first visited one */
+		visitTriangles(t -> {
+			if (!t.isHalfplane()) {
+				Point a = t.getPointA();
+				Point b = t.getPointB();
+				Point c = t.getPointC();
+				if (!t.neighbourAB.visited || t.neighbourAB.isHalfplane())
+					lines.add(a, b);
+				if (!t.neighbourBC.visited || t.neighbourBC.isHalfplane())
+					lines.add(b, c);
+				if (!t.neighbourCA.visited || t.neighbourCA.isHalfplane())
+					lines.add(c, a);
 			}
-		}
+		});
 	}
 
 	/**
@@ -642,13 +1256,21 @@ public class DelaunayTriangulation extends GeomElement {
 	}
 	
 	private void visitTriangles(Visitor visitor, DelauTriangle t) {
-		if ( t != null ) {
+		if (t == null)
+			return;
+		final ArrayDeque<DelauTriangle> stack = new ArrayDeque<>();
+		stack.push(t);
+		while (!stack.isEmpty()) {
+			t = stack.pop();
 			if (!t.visited) {
 				t.visited = true;
 				visitor.visit(t);
-				visitTriangles(visitor, t.neighbourAB);
-				visitTriangles(visitor, t.neighbourBC);
-				visitTriangles(visitor, t.neighbourCA);
+				if (t.neighbourCA != null && !t.neighbourCA.visited)
+					stack.push(t.neighbourCA);
+				if (t.neighbourBC != null && !t.neighbourBC.visited)
+					stack.push(t.neighbourBC);
+				if (t.neighbourAB != null && !t.neighbourAB.visited)
+					stack.push(t.neighbourAB);
 			}
 		}
 	}
@@ -663,6 +1285,255 @@ public class DelaunayTriangulation extends GeomElement {
 		return allPoints.iterator();
 	}
 
+	/**
+	 * return the index of every site in the order of {@link #points()}. The
+	 * map uses identity of the points (not <VAR>Point.equals()</VAR>) and is
+	 * only valid until the next modification of the triangulation.
+	 *
+	 * @return Map site to index
+	 */
+	@NonNull
+	public Map<Point, Integer> indexPoints() {
+		final Map<Point, Integer> indices = new IdentityHashMap<>(allPoints.size());
+		int i = 0;
+		for (Point p : allPoints)
+			indices.put(p, i++);
+		return indices;
+	}
+
+	/**
+	 * return all Delaunay edges as primitive indices (see {@link #indexPoints()}).
+	 * Every edge is stored once with four values: the two sites <VAR>a, b</VAR>
+	 * and the third sites of the triangles left and right of <VAR>a-b</VAR>,
+	 * or <VAR>-1</VAR> if there is no triangle on that side (hull edges and
+	 * collinear points).
+	 *
+	 * @param indices the index of every site
+	 * @return int[] four indices per edge
+	 */
+	@NonNull
+	public int[] edges(@NonNull final Map<Point, Integer> indices) {
+		final int[][] edges = { new int[4 * Math.max(4, 3 * points)] };
+		final int[] count = { 0 };
+		visitTriangles(t -> {
+			if (t.isHalfplane()) {
+				/* collinear: the chain of halfplanes contains every segment twice */
+				if (allCollinear)
+					addEdge(edges, count, indices, t.getPointA(), t.getPointB(), null, null, true);
+				return;
+			}
+			addEdge(edges, count, indices, t.getPointA(), t.getPointB(), t.getPointC(), t.neighbourAB, false);
+			addEdge(edges, count, indices, t.getPointB(), t.getPointC(), t.getPointA(), t.neighbourBC, false);
+			addEdge(edges, count, indices, t.getPointC(), t.getPointA(), t.getPointB(), t.neighbourCA, false);
+		});
+		return Arrays.copyOf(edges[0], count[0]);
+	}
+
+	private static void addEdge(int[][] edges, int[] count, Map<Point, Integer> indices,
+								Point a, Point b, Point left, DelauTriangle neighbour, boolean collinear) {
+		final int ia = indices.get(a), ib = indices.get(b);
+		/* inner edges are seen from both triangles, take the one with ia < ib */
+		if (ia > ib && (collinear || !neighbour.isHalfplane()))
+			return;
+		int right = -1;
+		if (!collinear && !neighbour.isHalfplane()) {
+			if (neighbour.getPointA() != a && neighbour.getPointA() != b)
+				right = indices.get(neighbour.getPointA());
+			else if (neighbour.getPointB() != a && neighbour.getPointB() != b)
+				right = indices.get(neighbour.getPointB());
+			else
+				right = indices.get(neighbour.getPointC());
+		}
+		if (count[0] + 4 > edges[0].length)
+			edges[0] = Arrays.copyOf(edges[0], 2 * edges[0].length);
+		final int[] e = edges[0];
+		e[count[0]++] = ia;
+		e[count[0]++] = ib;
+		e[count[0]++] = left != null ? indices.get(left) : -1;
+		e[count[0]++] = right;
+	}
+
+	/**
+	 * Checks if a buffer starts with a topology snapshot, see
+	 * {@link #writeTopology(OutputStream)}.
+	 *
+	 * @param buffer the buffer, its byte order is changed
+	 * @return boolean <VAR>true</VAR> for a snapshot
+	 */
+	public static boolean isTopology(@NonNull ByteBuffer buffer) {
+		return buffer.order(ByteOrder.LITTLE_ENDIAN).capacity() >= TOPOLOGY_HEADER
+				&& buffer.getInt(0) == TOPOLOGY_MAGIC;
+	}
+
+	/**
+	 * Write the sites and the triangles with their neighbours, so
+	 * {@link #readTopology(ByteBuffer)} restores this triangulation without
+	 * inserting the sites again. All numbers little endian:
+	 * <pre>
+	 *  0  magic "VTOP"
+	 *  4  short version (1)
+	 *  6  short flags: 1 = all sites collinear
+	 *  8  int n sites, int m triangles (with halfplanes)
+	 * 16  int first triangle, first hull triangle, first and last collinear
+	 *     halfplane, first and last site (-1 for none)
+	 * 40  x, y (float) and color (int) of every site
+	 *     a, b, c, neighbour AB, BC, CA (int) of every triangle, c is
+	 *     stored as -1 - c for halfplanes
+	 * </pre>
+	 *
+	 * @param outputStream the stream, not closed
+	 * @throws IOException error of the stream
+	 */
+	public void writeTopology(@NonNull OutputStream outputStream) throws IOException {
+		final Map<Point, Integer> indices = indexPoints();
+		final List<DelauTriangle> triangles = new ArrayList<>(2 * points + 4);
+		visitTriangles(t -> {
+			t.topologyIndex = triangles.size();
+			triangles.add(t);
+		});
+		final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(TOPOLOGY_MAGIC);
+		buffer.putShort((short) TOPOLOGY_VERSION);
+		buffer.putShort((short) (allCollinear ? 1 : 0));
+		buffer.putInt(allPoints.size());
+		buffer.putInt(triangles.size());
+		buffer.putInt(index(firstTriangle));
+		buffer.putInt(index(firstHullTriangle));
+		buffer.putInt(index(firstColTriag));
+		buffer.putInt(index(lastColTriag));
+		buffer.putInt(firstPoint != null ? indices.get(firstPoint) : -1);
+		buffer.putInt(lastPoint != null ? indices.get(lastPoint) : -1);
+		for (Point p : allPoints) {
+			if (buffer.remaining() < 12)
+				flush(outputStream, buffer);
+			buffer.putFloat(p.getX()).putFloat(p.getY()).putInt(p.getColor());
+		}
+		for (DelauTriangle t : triangles) {
+			if (buffer.remaining() < 24)
+				flush(outputStream, buffer);
+			final int c = indices.get(t.getPointC());
+			buffer.putInt(indices.get(t.getPointA()));
+			buffer.putInt(indices.get(t.getPointB()));
+			buffer.putInt(t.isHalfplane() ? -1 - c : c);
+			buffer.putInt(index(t.neighbourAB));
+			buffer.putInt(index(t.neighbourBC));
+			buffer.putInt(index(t.neighbourCA));
+		}
+		flush(outputStream, buffer);
+		outputStream.flush();
+	}
+
+	/**
+	 * return the size of a snapshot of {@link #writeTopology(OutputStream)}.
+	 * A triangulation of n &gt; 1 sites has 2n - 2 triangles and halfplanes,
+	 * also if all sites are collinear.
+	 *
+	 * @param sites number of sites
+	 * @return long size in bytes
+	 */
+	public static long getTopologySize(int sites) {
+		return TOPOLOGY_HEADER + 12L * sites + 24L * Math.max(0, 2 * sites - 2);
+	}
+
+	private static int index(@Nullable DelauTriangle t) {
+		return t != null ? t.topologyIndex : -1;
+	}
+
+	private static void flush(@NonNull OutputStream outputStream, @NonNull ByteBuffer buffer) throws IOException {
+		outputStream.write(buffer.array(), 0, buffer.position());
+		buffer.clear();
+	}
+
+	/**
+	 * Replace this triangulation by a snapshot of
+	 * {@link #writeTopology(OutputStream)}. Takes linear time, no point is
+	 * located and no edge flipped. Listeners are informed once. If the
+	 * snapshot is invalid, the triangulation is not changed.
+	 *
+	 * @param buffer the snapshot, e.g. a mapped file; its byte order is
+	 *        changed
+	 * @throws IOException if the snapshot is invalid
+	 */
+	public void readTopology(@NonNull ByteBuffer buffer) throws IOException {
+		if (!isTopology(buffer))
+			throw new IOException("not a topology snapshot");
+		if (buffer.getShort(4) != TOPOLOGY_VERSION)
+			throw new IOException("unknown version " + buffer.getShort(4));
+		final boolean collinear = (buffer.getShort(6) & 1) != 0;
+		final int n = buffer.getInt(8), m = buffer.getInt(12);
+		if (n < 0 || m < 0 || TOPOLOGY_HEADER + 12L * n + 24L * m > buffer.capacity())
+			throw new IOException("topology snapshot truncated");
+		final List<Point> sites = new ArrayList<>(n);
+		int offset = TOPOLOGY_HEADER;
+		for (int i = 0; i < n; i++, offset += 12)
+			sites.add(new Point(buffer.getFloat(offset), buffer.getFloat(offset + 4), buffer.getInt(offset + 8)));
+		final DelauTriangle[] triangles = new DelauTriangle[m];
+		final int trianglesOffset = offset;
+		for (int i = 0; i < m; i++, offset += 24) {
+			final int c = buffer.getInt(offset + 8);
+			final boolean halfplane = c < 0;
+			triangles[i] = new DelauTriangle(site(sites, buffer.getInt(offset)), site(sites, buffer.getInt(offset + 4)),
+					site(sites, halfplane ? -1 - c : c), halfplane);
+		}
+		offset = trianglesOffset;
+		for (int i = 0; i < m; i++, offset += 24) {
+			final DelauTriangle t = triangles[i];
+			t.neighbourAB = triangle(triangles, buffer.getInt(offset + 12));
+			t.neighbourBC = triangle(triangles, buffer.getInt(offset + 16));
+			t.neighbourCA = triangle(triangles, buffer.getInt(offset + 20));
+		}
+		/* all neighbours are set now, so they can be checked in both directions */
+		for (DelauTriangle t : triangles) {
+			if (!isNeighbour(t.neighbourAB, t) || !isNeighbour(t.neighbourBC, t) || !isNeighbour(t.neighbourCA, t))
+				throw new IOException("neighbours of triangle " + t + " not reciprocal");
+		}
+		if (n > 1 && m == 0)
+			throw new IOException("topology snapshot without triangles");
+		/* resolve the header completely before anything is changed */
+		final DelauTriangle first = triangle(triangles, buffer.getInt(16));
+		final DelauTriangle firstHull = triangle(triangles, buffer.getInt(20));
+		final DelauTriangle firstCol = triangle(triangles, buffer.getInt(24));
+		final DelauTriangle lastCol = triangle(triangles, buffer.getInt(28));
+		final Point firstSite = buffer.getInt(32) != -1 ? site(sites, buffer.getInt(32)) : null;
+		final Point lastSite = buffer.getInt(36) != -1 ? site(sites, buffer.getInt(36)) : null;
+		if (m > 0 && first == null)
+			throw new IOException("topology snapshot without first triangle");
+
+		allPoints = sites;
+		points = n;
+		allCollinear = collinear;
+		firstTriangle = first;
+		firstHullTriangle = firstHull;
+		firstColTriag = firstCol;
+		lastColTriag = lastCol;
+		firstPoint = firstSite;
+		lastPoint = lastSite;
+		hullVersion++;
+		fireRebuilt();
+	}
+
+	/* the neighbour (if any) has the triangle as neighbour too */
+	private static boolean isNeighbour(@Nullable DelauTriangle neighbour, @NonNull DelauTriangle t) {
+		return neighbour == null || neighbour.neighbourAB == t || neighbour.neighbourBC == t
+				|| neighbour.neighbourCA == t;
+	}
+
+	@NonNull
+	private static Point site(@NonNull List<Point> sites, int i) throws IOException {
+		if (i < 0 || i >= sites.size())
+			throw new IOException("invalid site " + i);
+		return sites.get(i);
+	}
+
+	@Nullable
+	private static DelauTriangle triangle(@NonNull DelauTriangle[] triangles, int i) throws IOException {
+		if (i == -1)
+			return null;
+		if (i < 0 || i >= triangles.length)
+			throw new IOException("invalid triangle " + i);
+		return triangles[i];
+	}
+
 	/**
 	 * return the number of sites in the triangulation.
 	 * 
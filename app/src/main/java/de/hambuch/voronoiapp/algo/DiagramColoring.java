@@ -0,0 +1,385 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+/**
+ * A proper coloring of the Voronoi regions (sites) and of the Delaunay
+ * triangles: adjacent regions resp. triangles never get the same color.
+ * <p>The sites are colored greedily in smallest-last order. The Delaunay
+ * graph is planar, so every subgraph has a vertex of degree &le; 5 and
+ * {@link #SITE_COLORS} colors are always enough. Every triangle has at most
+ * three neighbours, so {@link #TRIANGLE_COLORS} colors suffice for a plain
+ * greedy coloring.</p>
+ * <p>The coloring listens to the triangulation: after an insertion only the
+ * new site and the new triangles are colored, existing colors are kept.
+ * After the deletion of an inner site (also the first half of moving one)
+ * only the new triangles are colored, and of every new edge whose sites
+ * share a color one site gets a color that is free in its star, if needed
+ * by moving one of its neighbours to another color. Only if that fails, and
+ * after a real rebuild (deleting or moving a site of the hull, bulk loads),
+ * the colors of all sites are checked and the conflicts repaired on the
+ * next lookup, the triangles are then colored again.</p>
+ *
+ * @see DelaunayTriangulation.ChangeListener
+ */
+public class DiagramColoring {
+
+	public static final int SITE_COLORS = 6;
+	public static final int TRIANGLE_COLORS = 4;
+
+	@NonNull
+	private final DelaunayTriangulation delaunay;
+	/* color per site, by identity */
+	private final Map<Point, Integer> siteColors = new IdentityHashMap<>();
+	/* sites have to be checked for conflicts */
+	private boolean sitesDirty = true;
+	/* triangles have to be colored again */
+	private boolean trianglesDirty = true;
+
+	private final DelaunayTriangulation.ChangeListener listener = new DelaunayTriangulation.ChangeListener() {
+		@Override
+		public void trianglesChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created) {
+			if (!trianglesDirty) {
+				for (DelauTriangle t : created)
+					t.colorIndex = -1;
+				for (DelauTriangle t : created)
+					colorTriangle(t);
+			}
+			if (sitesDirty)
+				return;
+			/* a deletion: the removed triangles share a site that is gone */
+			final Point deleted = commonPoint(removed);
+			if (deleted != null && !created.isEmpty() && !isCorner(created.get(0), deleted)) {
+				siteColors.remove(deleted);
+				/* the new edges join sites of the old star, only they may conflict */
+				for (int i = 0; i < created.size() && !sitesDirty; i++) {
+					final DelauTriangle t = created.get(i);
+					repairEdge(t, t.getPointA(), t.getPointB());
+					repairEdge(t, t.getPointB(), t.getPointC());
+					repairEdge(t, t.getPointC(), t.getPointA());
+				}
+			} else {
+				colorNewSite(created);
+			}
+		}
+
+		@Override
+		public void triangulationRebuilt() {
+			sitesDirty = true;
+			trianglesDirty = true;
+		}
+	};
+
+	public DiagramColoring(@NonNull DelaunayTriangulation delaunay) {
+		this.delaunay = delaunay;
+		delaunay.addChangeListener(listener);
+	}
+
+	/**
+	 * Stop tracking the triangulation.
+	 */
+	public void detach() {
+		delaunay.removeChangeListener(listener);
+	}
+
+	/**
+	 * return the color of a site (its Voronoi region).
+	 *
+	 * @param p a site of the triangulation
+	 * @return int color index 0..SITE_COLORS-1 or -1 for unknown points
+	 */
+	public int siteColor(@NonNull Point p) {
+		update();
+		Integer color = siteColors.get(p);
+		return color != null ? color : -1;
+	}
+
+	/**
+	 * return the color of a Delaunay triangle.
+	 *
+	 * @param t a triangle of the triangulation
+	 * @return int color index 0..TRIANGLE_COLORS-1 or -1 for halfplanes
+	 */
+	public int triangleColor(@NonNull DelauTriangle t) {
+		update();
+		return t.colorIndex;
+	}
+
+	/**
+	 * Color everything that is not colored yet. This walks through the
+	 * triangulation, so call it before visiting the triangles and looking up
+	 * their colors.
+	 */
+	public void update() {
+		if (sitesDirty)
+			repairSites();
+		if (trianglesDirty) {
+			trianglesDirty = false;
+			if (!delaunay.areCollinear()) {
+				delaunay.visitTriangles(u -> u.colorIndex = -1);
+				delaunay.visitTriangles(this::colorTriangle);
+			}
+		}
+	}
+
+	/* smallest color not used by the (at most three) neighbours */
+	private void colorTriangle(DelauTriangle t) {
+		if (t.isHalfplane())
+			return;
+		int used = used(t.neighbourAB) | used(t.neighbourBC) | used(t.neighbourCA);
+		t.colorIndex = Integer.numberOfTrailingZeros(~used);
+	}
+
+	private static int used(DelauTriangle t) {
+		return t != null && t.colorIndex >= 0 ? 1 << t.colorIndex : 0;
+	}
+
+	/* the new site is the common point of all created triangles */
+	private void colorNewSite(List<DelauTriangle> created) {
+		final Point p = commonPoint(created);
+		if (p == null)
+			return;
+		final List<Point> neighbours = star(created.get(0), p);
+		int color = freeColor(neighbours);
+		if (color < 0) {
+			/* try to move one neighbour to another color, freeing its old one */
+			color = recolorNeighbour(p, neighbours, created);
+		}
+		if (color < 0)
+			sitesDirty = true; /* give up, color everything again */
+		else
+			siteColors.put(p, color);
+	}
+
+	private static boolean isCorner(DelauTriangle t, Point p) {
+		return t.getPointA() == p || t.getPointB() == p || t.getPointC() == p;
+	}
+
+	/* give q another color if it has the same as p, t contains both */
+	private void repairEdge(DelauTriangle t, Point p, Point q) {
+		if (sitesDirty || p == q)
+			return;
+		final Integer c = siteColors.get(p);
+		if (c == null || !c.equals(siteColors.get(q)))
+			return;
+		siteColors.remove(q);
+		final List<Point> neighbours = star(t, q);
+		int color = freeColor(neighbours);
+		if (color < 0)
+			color = recolorNeighbour(q, neighbours, fan(t, q));
+		if (color < 0)
+			sitesDirty = true; /* give up, repair everything */
+		else
+			siteColors.put(q, color);
+	}
+
+	@Nullable
+	private static Point commonPoint(List<DelauTriangle> triangles) {
+		if (triangles.isEmpty())
+			return null;
+		final DelauTriangle first = triangles.get(0);
+		for (Point p : new Point[]{first.getPointA(), first.getPointB(), first.getPointC()}) {
+			boolean common = true;
+			for (DelauTriangle t : triangles) {
+				if (t.getPointA() != p && t.getPointB() != p && t.getPointC() != p) {
+					common = false;
+					break;
+				}
+			}
+			if (common)
+				return p;
+		}
+		return null;
+	}
+
+	private int freeColor(List<Point> neighbours) {
+		int used = 0;
+		for (Point q : neighbours) {
+			Integer c = siteColors.get(q);
+			if (c != null)
+				used |= 1 << c;
+		}
+		int color = Integer.numberOfTrailingZeros(~used);
+		return color < SITE_COLORS ? color : -1;
+	}
+
+	private int recolorNeighbour(Point p, List<Point> neighbours, List<DelauTriangle> created) {
+		for (DelauTriangle t : created) {
+			for (Point q : new Point[]{t.getPointA(), t.getPointB(), t.getPointC()}) {
+				if (q == p || !siteColors.containsKey(q))
+					continue;
+				int old = siteColors.get(q);
+				/* old has to be used by q only */
+				int users = 0;
+				for (Point r : neighbours)
+					if (siteColors.get(r) != null && siteColors.get(r) == old)
+						users++;
+				if (users != 1)
+					continue;
+				List<Point> others = star(t, q);
+				others.remove(p);
+				int color = freeColor(others);
+				if (color >= 0 && color != old) {
+					siteColors.put(q, color);
+					return old;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/* all sites adjacent to p, t has to contain p */
+	private static List<Point> star(DelauTriangle t, Point p) {
+		final List<Point> neighbours = new ArrayList<>(8);
+		DelauTriangle u = t;
+		do {
+			if (u.getPointA() != p && !neighbours.contains(u.getPointA()))
+				neighbours.add(u.getPointA());
+			if (u.getPointB() != p && !neighbours.contains(u.getPointB()))
+				neighbours.add(u.getPointB());
+			if (u.getPointC() != p && !neighbours.contains(u.getPointC()))
+				neighbours.add(u.getPointC());
+			u = u.neighbour(p);
+		} while (u != null && u != t);
+		return neighbours;
+	}
+
+	/* all triangles around p, t has to contain p */
+	private static List<DelauTriangle> fan(DelauTriangle t, Point p) {
+		final List<DelauTriangle> triangles = new ArrayList<>(8);
+		DelauTriangle u = t;
+		do {
+			triangles.add(u);
+			u = u.neighbour(p);
+		} while (u != null && u != t);
+		return triangles;
+	}
+
+	/*
+	 * keep the colors of all sites, recolor the endpoints of conflicting edges
+	 * (and new sites) greedily. Falls back to the smallest-last coloring.
+	 */
+	private void repairSites() {
+		sitesDirty = false;
+		final Map<Point, Integer> indices = delaunay.indexPoints();
+		siteColors.keySet().retainAll(indices.keySet());
+		final int n = indices.size();
+		final Point[] sites = new Point[n];
+		for (Map.Entry<Point, Integer> entry : indices.entrySet())
+			sites[entry.getValue()] = entry.getKey();
+		final int[] edges = delaunay.edges(indices);
+		/* adjacency lists as compressed arrays */
+		final int[] start = new int[n + 1];
+		for (int e = 0; e < edges.length; e += 4) {
+			start[edges[e] + 1]++;
+			start[edges[e + 1] + 1]++;
+		}
+		for (int i = 1; i <= n; i++)
+			start[i] += start[i - 1];
+		final int[] adjacent = new int[start[n]];
+		final int[] next = Arrays.copyOf(start, n);
+		for (int e = 0; e < edges.length; e += 4) {
+			adjacent[next[edges[e]]++] = edges[e + 1];
+			adjacent[next[edges[e + 1]]++] = edges[e];
+		}
+		final int[] colors = new int[n];
+		for (int i = 0; i < n; i++) {
+			Integer c = siteColors.get(sites[i]);
+			colors[i] = c != null ? c : -1;
+		}
+		for (int e = 0; e < edges.length; e += 4) {
+			if (colors[edges[e]] == colors[edges[e + 1]])
+				colors[edges[e + 1]] = -1;
+		}
+		boolean ok = true;
+		for (int i = 0; i < n && ok; i++) {
+			if (colors[i] < 0)
+				ok = greedy(i, colors, start, adjacent);
+		}
+		if (!ok)
+			smallestLast(colors, start, adjacent);
+		siteColors.clear();
+		for (int i = 0; i < n; i++)
+			siteColors.put(sites[i], colors[i]);
+	}
+
+	private static boolean greedy(int i, int[] colors, int[] start, int[] adjacent) {
+		int used = 0;
+		for (int k = start[i]; k < start[i + 1]; k++)
+			if (colors[adjacent[k]] >= 0)
+				used |= 1 << colors[adjacent[k]];
+		int color = Integer.numberOfTrailingZeros(~used);
+		colors[i] = color;
+		return color < SITE_COLORS;
+	}
+
+	/*
+	 * remove a vertex of minimum degree until the graph is empty (bucket
+	 * queue), then color in reverse order: every vertex has at most 5
+	 * neighbours colored before.
+	 */
+	private static void smallestLast(int[] colors, int[] start, int[] adjacent) {
+		final int n = colors.length;
+		final int[] degree = new int[n];
+		int maxDegree = 0;
+		for (int i = 0; i < n; i++) {
+			degree[i] = start[i + 1] - start[i];
+			maxDegree = Math.max(maxDegree, degree[i]);
+		}
+		/* buckets as doubly linked lists */
+		final int[] head = new int[maxDegree + 1];
+		final int[] nextInBucket = new int[n];
+		final int[] prevInBucket = new int[n];
+		Arrays.fill(head, -1);
+		for (int i = 0; i < n; i++)
+			link(i, degree[i], head, nextInBucket, prevInBucket);
+		final boolean[] removed = new boolean[n];
+		final int[] order = new int[n];
+		int low = 0;
+		for (int k = n - 1; k >= 0; k--) {
+			while (head[low] < 0)
+				low++;
+			int v = head[low];
+			unlink(v, degree[v], head, nextInBucket, prevInBucket);
+			removed[v] = true;
+			order[k] = v;
+			for (int j = start[v]; j < start[v + 1]; j++) {
+				int w = adjacent[j];
+				if (!removed[w]) {
+					unlink(w, degree[w], head, nextInBucket, prevInBucket);
+					link(w, --degree[w], head, nextInBucket, prevInBucket);
+				}
+			}
+			low = Math.max(0, low - 1);
+		}
+		Arrays.fill(colors, -1);
+		for (int v : order)
+			greedy(v, colors, start, adjacent);
+	}
+
+	private static void link(int v, int d, int[] head, int[] next, int[] prev) {
+		next[v] = head[d];
+		prev[v] = -1;
+		if (head[d] >= 0)
+			prev[head[d]] = v;
+		head[d] = v;
+	}
+
+	private static void unlink(int v, int d, int[] head, int[] next, int[] prev) {
+		if (prev[v] >= 0)
+			next[prev[v]] = next[v];
+		else
+			head[d] = next[v];
+		if (next[v] >= 0)
+			prev[next[v]] = prev[v];
+	}
+}
@@ -0,0 +1,109 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * A regular raster over a rectangle (minX, minY)-(maxX, maxY) in R<SUP>2</SUP>
+ * with one float value per cell. Every cell is sampled at its center, the
+ * values are stored row by row.
+ *
+ * @see NaturalNeighbourInterpolator
+ */
+public class Grid {
+
+	private final float minX;
+	private final float minY;
+	private final float cellWidth;
+	private final float cellHeight;
+	private final int columns;
+	private final int rows;
+
+	@NonNull
+	private final float[] values;
+
+	/**
+	 * Create a grid of <VAR>columns</VAR> x <VAR>rows</VAR> cells covering the
+	 * given rectangle. All values are initialized to <VAR>Float.NaN</VAR>.
+	 *
+	 * @param minX, minY upper left corner
+	 * @param maxX, maxY lower right corner
+	 * @param columns number of cells in x direction (&gt; 0)
+	 * @param rows number of cells in y direction (&gt; 0)
+	 */
+	public Grid(float minX, float minY, float maxX, float maxY, int columns, int rows) {
+		if (columns <= 0 || rows <= 0)
+			throw new IllegalArgumentException("Grid size " + columns + "x" + rows);
+		this.minX = minX;
+		this.minY = minY;
+		this.columns = columns;
+		this.rows = rows;
+		this.cellWidth = (maxX - minX) / columns;
+		this.cellHeight = (maxY - minY) / rows;
+		this.values = new float[columns * rows];
+		Arrays.fill(values, Float.NaN);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public float getMinX() {
+		return minX;
+	}
+
+	public float getMinY() {
+		return minY;
+	}
+
+	public float getCellWidth() {
+		return cellWidth;
+	}
+
+	public float getCellHeight() {
+		return cellHeight;
+	}
+
+	/**
+	 * return the x coordinate of the center of all cells in column <VAR>col</VAR>.
+	 *
+	 * @param col column index
+	 * @return float x coordinate
+	 */
+	public float getX(int col) {
+		return minX + (col + 0.5f) * cellWidth;
+	}
+
+	/**
+	 * return the y coordinate of the center of all cells in row <VAR>row</VAR>.
+	 *
+	 * @param row row index
+	 * @return float y coordinate
+	 */
+	public float getY(int row) {
+		return minY + (row + 0.5f) * cellHeight;
+	}
+
+	public float get(int col, int row) {
+		return values[row * columns + col];
+	}
+
+	public void set(int col, int row, float value) {
+		values[row * columns + col] = value;
+	}
+
+	/**
+	 * return the backing array (row by row, <VAR>columns * rows</VAR> values).
+	 *
+	 * @return float[] the values of this grid
+	 */
+	@NonNull
+	public float[] getValues() {
+		return values;
+	}
+}
@@ -0,0 +1,94 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Orders points along a Hilbert curve through a grid of
+ * 2<SUP>15</SUP> x 2<SUP>15</SUP> cells. Points next to each other on the
+ * curve are close in the plane, so inserting points in this order keeps
+ * the walk of {@link DelaunayTriangulation#find} short.
+ */
+public final class HilbertCurve {
+
+	/* bits per coordinate, the index fits into 30 bits */
+	public static final int ORDER = 15;
+	private static final int SIZE = 1 << ORDER;
+
+	private HilbertCurve() {
+	}
+
+	/**
+	 * return the position of a cell on the curve.
+	 *
+	 * @param x, y cell, 0 &lt;= x, y &lt; 2<SUP>15</SUP>
+	 * @return int index on the curve, 0 &lt;= index &lt; 2<SUP>30</SUP>
+	 */
+	public static int index(int x, int y) {
+		int d = 0;
+		for (int s = SIZE >> 1; s > 0; s >>= 1) {
+			final int rx = (x & s) != 0 ? 1 : 0;
+			final int ry = (y & s) != 0 ? 1 : 0;
+			d += s * s * ((3 * rx) ^ ry);
+			/* rotate the quadrant */
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				final int swap = x;
+				x = y;
+				y = swap;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Sorts the points of a source along the curve through the square
+	 * around their bounding box. Points with a coordinate that is not finite are left out.
+	 *
+	 * @param source the points
+	 * @return int[] indices of the points in curve order
+	 */
+	@NonNull
+	public static int[] order(@NonNull DelaunayTriangulation.PointSource source) {
+		final int n = source.size();
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			final float x = source.getX(i), y = source.getY(i);
+			if (isFinite(x) && isFinite(y)) {
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, y);
+				maxX = Math.max(maxX, x);
+				maxY = Math.max(maxY, y);
+			}
+		}
+		/*
+		 * one scale for both axes: scaled to a square, the two rows of a thin
+		 * strip would lie on opposite ends of the curve and be inserted one
+		 * after the other, with quadratically many flips
+		 */
+		final double extent = Math.max((double) maxX - minX, (double) maxY - minY);
+		final double scale = extent > 0.0 ? (SIZE - 1) / extent : 0.0;
+		/* sort keys: index on the curve, index of the point */
+		final long[] keys = new long[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			final float x = source.getX(i), y = source.getY(i);
+			if (isFinite(x) && isFinite(y))
+				keys[m++] = (long) index((int) ((x - minX) * scale), (int) ((y - minY) * scale)) << 32 | i;
+		}
+		Arrays.sort(keys, 0, m);
+		final int[] order = new int[m];
+		for (int k = 0; k < m; k++)
+			order[k] = (int) keys[k];
+		return order;
+	}
+
+	private static boolean isFinite(float value) {
+		return !Float.isNaN(value) && !Float.isInfinite(value);
+	}
+}
@@ -0,0 +1,289 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+/**
+ * Natural neighbour (Sibson) interpolation of values attached to the sites of
+ * a Delaunay triangulation. The natural neighbour coordinates of a query point
+ * q are computed from the Bowyer-Watson cavity of q (all triangles whose
+ * circumcircle contains q) with the method of D.F. Watson: every cavity
+ * triangle contributes the signed areas between its circumcenter and the
+ * circumcenters of the triangles that q would form with its edges. The
+ * triangulation is only read, never modified, so there is no need to insert q
+ * temporarely like {@link VoronoiDiagram#toRegionNewPoint} does.
+ * <p>The triangulation must not be modified while an interpolator is in use.
+ * Also the point location does not write it: every thread walks with its own
+ * state, so grids are interpolated in parallel without locks. Values are
+ * indexed in the order of {@link DelaunayTriangulation#points()}.</p>
+ * <p>Between the cells of a grid only the located triangle is reused as
+ * start of the next search, the cavity itself is collected again for every
+ * cell.</p>
+ *
+ * @see DelaunayTriangulation
+ */
+public class NaturalNeighbourInterpolator {
+
+	/**
+	 * The natural neighbours of a query point and their Sibson coordinates
+	 * (all weights sum up to 1).
+	 */
+	public static class Coordinates {
+		private Point[] sites = new Point[8];
+		/* in double: Watson's terms cancel out to a large extent */
+		private double[] weights = new double[8];
+		private int size = 0;
+
+		public int size() {
+			return size;
+		}
+
+		@NonNull
+		public Point getSite(int i) {
+			return sites[i];
+		}
+
+		public float getWeight(int i) {
+			return (float) weights[i];
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		/* accumulate weight for p, the list is short (about 6 natural neighbours) */
+		void add(Point p, double weight) {
+			for (int i = 0; i < size; i++) {
+				if (sites[i] == p) {
+					weights[i] += weight;
+					return;
+				}
+			}
+			if (size == sites.length) {
+				sites = Arrays.copyOf(sites, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			sites[size] = p;
+			weights[size++] = weight;
+		}
+
+		void normalize(double total) {
+			for (int i = 0; i < size; i++)
+				weights[i] /= total;
+		}
+	}
+
+	/*
+	 * scratch data of one thread: the query point, the cavity, the state of
+	 * the walk and the triangle we start searching with (the one of the
+	 * previous query).
+	 */
+	private static class Cavity {
+		final Point query = new Point(0.0f, 0.0f);
+		final List<DelauTriangle> triangles = new ArrayList<>();
+		final Coordinates coordinates = new Coordinates();
+		final DelaunayTriangulation.Walk walk = new DelaunayTriangulation.Walk();
+		DelauTriangle seed;
+		final double[] center = new double[2];
+	}
+
+	/* relative offset to move a query point off a Delaunay edge */
+	private static final double PERTURBATION = 1.0e-6;
+
+	@NonNull
+	private final DelaunayTriangulation delaunay;
+	@NonNull
+	private final Map<Point, Integer> indices;
+
+	public NaturalNeighbourInterpolator(@NonNull DelaunayTriangulation delaunay) {
+		this.delaunay = delaunay;
+		this.indices = delaunay.indexPoints();
+	}
+
+	/**
+	 * Calculate the natural neighbours and Sibson coordinates of the point
+	 * (x, y).
+	 *
+	 * @param x, y the query point
+	 * @return Coordinates the natural neighbours or <VAR>null</VAR> if the
+	 *         point lies outside of the convex hull.
+	 */
+	@Nullable
+	public Coordinates coordinates(float x, float y) {
+		Cavity cavity = new Cavity();
+		if (compute(cavity, x, y))
+			return cavity.coordinates;
+		return null;
+	}
+
+	/**
+	 * Interpolate the value at point (x, y).
+	 *
+	 * @param values one value per site (in order of DelaunayTriangulation.points())
+	 * @param x, y the query point
+	 * @return float interpolated value or <VAR>Float.NaN</VAR> outside of the
+	 *         convex hull
+	 */
+	public float interpolate(@NonNull float[] values, float x, float y) {
+		return interpolate(new Cavity(), values, x, y);
+	}
+
+	/**
+	 * Interpolate the values for all cells of a grid. The rows are processed
+	 * in parallel. Within a row the search for the cavity starts at the
+	 * triangle of the previous cell and reuses all buffers, so the cost per
+	 * cell is a few walk steps plus the size of the cavity. Cells outside of
+	 * the convex hull are set to <VAR>Float.NaN</VAR>.
+	 *
+	 * @param values one value per site (in order of DelaunayTriangulation.points())
+	 * @param grid the grid to fill
+	 */
+	public void interpolate(@NonNull final float[] values, @NonNull final Grid grid) {
+		final DelauTriangle start = delaunay.getFirstTriangle();
+		IntStream.range(0, grid.getRows()).parallel().forEach(row -> {
+			final Cavity cavity = new Cavity();
+			cavity.seed = start;
+			final float y = grid.getY(row);
+			for (int col = 0; col < grid.getColumns(); col++)
+				grid.set(col, row, interpolate(cavity, values, grid.getX(col), y));
+		});
+	}
+
+	private float interpolate(Cavity cavity, float[] values, float x, float y) {
+		if (!compute(cavity, x, y))
+			return Float.NaN;
+		final Coordinates coords = cavity.coordinates;
+		double value = 0.0;
+		for (int i = 0; i < coords.size(); i++) {
+			Integer index = indices.get(coords.getSite(i));
+			if (index == null)
+				return Float.NaN; /* triangulation modified in between */
+			value += coords.weights[i] * values[index];
+		}
+		return (float) value;
+	}
+
+	/*
+	 * compute the Sibson coordinates of (x,y) into cavity.coordinates, returns
+	 * false if (x,y) is outside of the convex hull.
+	 */
+	private boolean compute(Cavity cavity, float x, float y) {
+		if (delaunay.size() < 3 || delaunay.areCollinear())
+			return false;
+		final Point q = cavity.query;
+		q.setX(x);
+		q.setY(y);
+		DelauTriangle t = DelaunayTriangulation.find(cavity.seed != null ? cavity.seed : delaunay.getFirstTriangle(), q,
+				cavity.walk);
+		if (t == null || t.isHalfplane())
+			return false;
+		cavity.seed = t;
+		final Coordinates coords = cavity.coordinates;
+		coords.clear();
+		/* query point equals a site */
+		if (t.getPointA().equals(q)) {
+			coords.add(t.getPointA(), 1.0f);
+			return true;
+		}
+		if (t.getPointB().equals(q)) {
+			coords.add(t.getPointB(), 1.0f);
+			return true;
+		}
+		if (t.getPointC().equals(q)) {
+			coords.add(t.getPointC(), 1.0f);
+			return true;
+		}
+		collectCavity(cavity, t, q);
+		double qx = x, qy = y;
+		for (int attempt = 0; attempt < 3; attempt++) {
+			if (watson(cavity, qx, qy))
+				return true;
+			/* q lies on a Delaunay edge: move it a little bit */
+			double d = PERTURBATION * (1.0 + Math.abs(x) + Math.abs(y));
+			qx += d;
+			qy += 0.7 * d;
+		}
+		return false;
+	}
+
+	/* Bowyer-Watson: all real triangles connected to t whose circumcircle contains q */
+	private void collectCavity(Cavity cavity, DelauTriangle t, Point q) {
+		final List<DelauTriangle> triangles = cavity.triangles;
+		triangles.clear();
+		triangles.add(t);
+		for (int i = 0; i < triangles.size(); i++) {
+			DelauTriangle u = triangles.get(i);
+			addToCavity(triangles, u.neighbourAB, q);
+			addToCavity(triangles, u.neighbourBC, q);
+			addToCavity(triangles, u.neighbourCA, q);
+		}
+	}
+
+	private void addToCavity(List<DelauTriangle> triangles, DelauTriangle t, Point q) {
+		if (t.isHalfplane() || triangles.contains(t))
+			return;
+		/* the float circle is too coarse for the large circles along the hull */
+		if (DelauTriangle.inCircle(t.getPointA(), t.getPointB(), t.getPointC(), q))
+			triangles.add(t);
+	}
+
+	/*
+	 * Watson's method: for every cavity triangle (a,b,c) with circumcenter m
+	 * and the circumcenters g_a=(b,c,q), g_b=(c,a,q), g_c=(a,b,q) the area
+	 * stolen from a is det(g_b - m, g_c - m) etc.
+	 */
+	private boolean watson(Cavity cavity, double qx, double qy) {
+		final Coordinates coords = cavity.coordinates;
+		final double[] g = cavity.center;
+		coords.clear();
+		double total = 0.0;
+		for (DelauTriangle t : cavity.triangles) {
+			Point a = t.getPointA(), b = t.getPointB(), c = t.getPointC();
+			/* the circumcenter in double, like the ones with q */
+			if (!circumcenter(a, b, c.getX(), c.getY(), g))
+				return false;
+			double mx = g[0], my = g[1];
+			if (!circumcenter(b, c, qx, qy, g))
+				return false;
+			double gax = g[0] - mx, gay = g[1] - my;
+			if (!circumcenter(c, a, qx, qy, g))
+				return false;
+			double gbx = g[0] - mx, gby = g[1] - my;
+			if (!circumcenter(a, b, qx, qy, g))
+				return false;
+			double gcx = g[0] - mx, gcy = g[1] - my;
+			double wa = gbx * gcy - gcx * gby;
+			double wb = gcx * gay - gax * gcy;
+			double wc = gax * gby - gbx * gay;
+			coords.add(a, wa);
+			coords.add(b, wb);
+			coords.add(c, wc);
+			total += wa + wb + wc;
+		}
+		if (total == 0.0 || Double.isNaN(total))
+			return false;
+		coords.normalize(total);
+		return true;
+	}
+
+	/* circumcenter of (a, b, q) into center[], false if collinear */
+	private static boolean circumcenter(Point a, Point b, double qx, double qy, double[] center) {
+		double ax = a.getX() - qx, ay = a.getY() - qy;
+		double bx = b.getX() - qx, by = b.getY() - qy;
+		double den = 2.0 * (ax * by - ay * bx);
+		if (den == 0.0)
+			return false;
+		double a2 = ax * ax + ay * ay, b2 = bx * bx + by * by;
+		center[0] = qx + (by * a2 - ay * b2) / den;
+		center[1] = qy + (ax * b2 - bx * a2) / den;
+		return true;
+	}
+}
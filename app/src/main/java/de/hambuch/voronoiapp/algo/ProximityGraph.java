@@ -0,0 +1,317 @@
+package de.hambuch.voronoiapp.algo;
+
+import android.graphics.Color;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import de.hambuch.voronoiapp.geometry.GeomElement;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
+import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Renderer;
+import de.hambuch.voronoiapp.geometry.Segment;
+
+/**
+ * A subgraph of the Delaunay triangulation: the Euclidean minimum spanning
+ * tree, the relative neighbourhood graph or the Gabriel graph. All of them
+ * only contain Delaunay edges (EMST &sube; RNG &sube; Gabriel &sube;
+ * Delaunay), so they are built from the edges of the triangulation instead
+ * of testing all pairs of points.
+ * <p>The graph is a snapshot: sites and edges are copied into primitive
+ * arrays, the triangulation may be modified afterwards. Sites are indexed in
+ * the order of {@link DelaunayTriangulation#points()}.</p>
+ *
+ * @see DelaunayTriangulation#edges
+ */
+public class ProximityGraph extends GeomElement {
+
+	/* x,y of every site */
+	@NonNull
+	private final float[] coords;
+	/* two site indices per edge */
+	@NonNull
+	private final int[] edges;
+	/* lines for Renderer.drawLines() */
+	@NonNull
+	private final float[] lines;
+
+	private ProximityGraph(@NonNull float[] coords, @NonNull int[] edges, @ColorInt int color) {
+		super(color);
+		this.coords = coords;
+		this.edges = edges;
+		this.lines = new float[2 * edges.length];
+		for (int i = 0; i < edges.length; i++) {
+			lines[2 * i] = coords[2 * edges[i]];
+			lines[2 * i + 1] = coords[2 * edges[i] + 1];
+		}
+	}
+
+	/**
+	 * Build the Euclidean minimum spanning tree (or forest if some points are
+	 * missing) with Kruskal's algorithm over the Delaunay edges. O(n log n).
+	 *
+	 * @param delaunay the triangulation
+	 * @return ProximityGraph the EMST
+	 */
+	@NonNull
+	public static ProximityGraph minimumSpanningTree(@NonNull DelaunayTriangulation delaunay) {
+		return minimumSpanningTree(coordinates(delaunay), delaunay.edges(delaunay.indexPoints()));
+	}
+
+	/* the EMST of the sites coords with the Delaunay edges quads */
+	@NonNull
+	static ProximityGraph minimumSpanningTree(@NonNull float[] coords, @NonNull int[] quads) {
+		final int m = quads.length / 4;
+		/* sort by length: non-negative floats compare like their bits */
+		final long[] order = new long[m];
+		for (int e = 0; e < m; e++) {
+			float length = distanceSq(coords, quads[4 * e], quads[4 * e + 1]);
+			order[e] = ((long) Float.floatToIntBits(length) << 32) | e;
+		}
+		Arrays.sort(order);
+		final int n = coords.length / 2;
+		final int[] parent = new int[n];
+		final int[] size = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+		final int[] tree = new int[2 * Math.max(0, n - 1)];
+		int count = 0;
+		for (int k = 0; k < m && count < tree.length; k++) {
+			int e = (int) order[k];
+			int a = find(parent, quads[4 * e]);
+			int b = find(parent, quads[4 * e + 1]);
+			if (a == b)
+				continue;
+			/* union by size */
+			if (size[a] < size[b]) {
+				int h = a;
+				a = b;
+				b = h;
+			}
+			parent[b] = a;
+			size[a] += size[b];
+			tree[count++] = quads[4 * e];
+			tree[count++] = quads[4 * e + 1];
+		}
+		return new ProximityGraph(coords, Arrays.copyOf(tree, count), Color.RED);
+	}
+
+	/**
+	 * Build the Gabriel graph: a Delaunay edge a-b belongs to it, if the circle
+	 * with diameter a-b is empty. It is enough to test the third points of the
+	 * two triangles adjacent to a-b. O(n).
+	 *
+	 * @param delaunay the triangulation
+	 * @return ProximityGraph the Gabriel graph
+	 */
+	@NonNull
+	public static ProximityGraph gabriel(@NonNull DelaunayTriangulation delaunay) {
+		return gabriel(coordinates(delaunay), delaunay.edges(delaunay.indexPoints()));
+	}
+
+	@NonNull
+	static ProximityGraph gabriel(@NonNull float[] coords, @NonNull int[] quads) {
+		final int[] graph = new int[quads.length / 2];
+		int count = 0;
+		for (int e = 0; e < quads.length; e += 4) {
+			int a = quads[e], b = quads[e + 1];
+			if (inDiametralCircle(coords, a, b, quads[e + 2]) || inDiametralCircle(coords, a, b, quads[e + 3]))
+				continue;
+			graph[count++] = a;
+			graph[count++] = b;
+		}
+		return new ProximityGraph(coords, Arrays.copyOf(graph, count), Color.BLUE);
+	}
+
+	/**
+	 * Build the relative neighbourhood graph: a Delaunay edge a-b belongs to
+	 * it, if there is no point c with max(|ac|, |bc|) &lt; |ab| (the lune of
+	 * a and b is empty). Only Gabriel edges are candidates. Most other edges
+	 * have the third point of an adjacent triangle in their lune, which is
+	 * tested first. This test alone gives the Urquhart graph, which can
+	 * still contain edges with a point in their lune. So the remaining
+	 * edges are searched: every point closer to a than b is reachable from a
+	 * by Delaunay edges getting closer to a (greedy routing), so the search
+	 * walks the triangulation from a and stays inside the circle around a
+	 * with radius |ab|.
+	 * <p>The running time is O(n) for evenly distributed points. A search may
+	 * visit all points closer to a than b, so the worst case is O(n&sup2;),
+	 * e.g. many long edges at one site with a dense cluster next to it. The
+	 * relative neighbourhood graph has at most six edges per site in general
+	 * position, so only a few searches are long. Use a
+	 * {@link ProximityGraphCache} to build the graph only once per version of
+	 * the triangulation.</p>
+	 *
+	 * @param delaunay the triangulation
+	 * @return ProximityGraph the RNG
+	 */
+	@NonNull
+	public static ProximityGraph relativeNeighbourhood(@NonNull DelaunayTriangulation delaunay) {
+		return relativeNeighbourhood(coordinates(delaunay), delaunay.edges(delaunay.indexPoints()));
+	}
+
+	@NonNull
+	static ProximityGraph relativeNeighbourhood(@NonNull float[] coords, @NonNull int[] quads) {
+		final int n = coords.length / 2;
+		/* adjacency lists as compressed arrays */
+		final int[] start = new int[n + 1];
+		for (int e = 0; e < quads.length; e += 4) {
+			start[quads[e] + 1]++;
+			start[quads[e + 1] + 1]++;
+		}
+		for (int i = 1; i <= n; i++)
+			start[i] += start[i - 1];
+		final int[] neighbours = new int[start[n]];
+		final int[] next = Arrays.copyOf(start, n);
+		for (int e = 0; e < quads.length; e += 4) {
+			neighbours[next[quads[e]]++] = quads[e + 1];
+			neighbours[next[quads[e + 1]]++] = quads[e];
+		}
+		final int[] graph = new int[quads.length / 2];
+		final int[] stamp = new int[n];
+		final int[] stack = new int[n];
+		int count = 0;
+		for (int e = 0; e < quads.length; e += 4) {
+			int a = quads[e], b = quads[e + 1];
+			if (inDiametralCircle(coords, a, b, quads[e + 2]) || inDiametralCircle(coords, a, b, quads[e + 3]))
+				continue;
+			if (inLune(coords, a, b, quads[e + 2]) || inLune(coords, a, b, quads[e + 3]))
+				continue;
+			if (inLune(coords, start, neighbours, stamp, stack, e / 4 + 1, a, b))
+				continue;
+			graph[count++] = a;
+			graph[count++] = b;
+		}
+		return new ProximityGraph(coords, Arrays.copyOf(graph, count), Color.MAGENTA);
+	}
+
+	/* x, y of every site in the order of points() */
+	@NonNull
+	static float[] coordinates(@NonNull DelaunayTriangulation delaunay) {
+		final float[] coords = new float[2 * delaunay.size()];
+		int i = 0;
+		for (Iterator<Point> iterator = delaunay.points(); iterator.hasNext(); ) {
+			Point p = iterator.next();
+			coords[i++] = p.getX();
+			coords[i++] = p.getY();
+		}
+		return coords;
+	}
+
+	private static float distanceSq(float[] coords, int a, int b) {
+		float dx = coords[2 * a] - coords[2 * b];
+		float dy = coords[2 * a + 1] - coords[2 * b + 1];
+		return dx * dx + dy * dy;
+	}
+
+	/* union-find with path halving */
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/* c strictly inside the circle with diameter a-b, i.e. angle acb > 90 degrees */
+	private static boolean inDiametralCircle(float[] coords, int a, int b, int c) {
+		if (c < 0)
+			return false;
+		float ax = coords[2 * a] - coords[2 * c], ay = coords[2 * a + 1] - coords[2 * c + 1];
+		float bx = coords[2 * b] - coords[2 * c], by = coords[2 * b + 1] - coords[2 * c + 1];
+		return ax * bx + ay * by < 0.0f;
+	}
+
+	/* c strictly inside the lune of a and b */
+	private static boolean inLune(float[] coords, int a, int b, int c) {
+		if (c < 0)
+			return false;
+		final float length = distanceSq(coords, a, b);
+		return distanceSq(coords, a, c) < length && distanceSq(coords, b, c) < length;
+	}
+
+	/*
+	 * depth first search from a over all points closer to a than b, true if
+	 * one of them is also closer to b than a. stamp[] marks the visited points
+	 * with the (unique) search id, so it never has to be cleared.
+	 */
+	private static boolean inLune(float[] coords, int[] start, int[] neighbours, int[] stamp, int[] stack,
+								  int id, int a, int b) {
+		final float length = distanceSq(coords, a, b);
+		int top = 0;
+		stamp[a] = id;
+		stack[top++] = a;
+		while (top > 0) {
+			int v = stack[--top];
+			for (int i = start[v]; i < start[v + 1]; i++) {
+				int c = neighbours[i];
+				if (stamp[c] == id || distanceSq(coords, a, c) >= length)
+					continue;
+				if (distanceSq(coords, b, c) < length)
+					return true;
+				stamp[c] = id;
+				stack[top++] = c;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * return the number of edges.
+	 *
+	 * @return int number of edges
+	 */
+	public int size() {
+		return edges.length / 2;
+	}
+
+	/**
+	 * return the edges as pairs of site indices (do not modify).
+	 *
+	 * @return int[] two indices per edge
+	 */
+	@NonNull
+	public int[] getEdges() {
+		return edges;
+	}
+
+	/**
+	 * return the edges as line segments (do not modify).
+	 *
+	 * @return float[] x1, y1, x2, y2 of every edge
+	 */
+	@NonNull
+	public float[] getLines() {
+		return lines;
+	}
+
+	/**
+	 * Converts the graph into a list of segments.
+	 *
+	 * @param toElements List of elements drawing the graph.
+	 */
+	public void exportToElements(@NonNull List<GeomElement> toElements) {
+		for (int i = 0; i < lines.length; i += 4)
+			toElements.add(new Segment(new Point(lines[i], lines[i + 1]), new Point(lines[i + 2], lines[i + 3]), getColor()));
+	}
+
+	/**
+	 * Add all edges to a line buffer.
+	 *
+	 * @param buffer the buffer
+	 */
+	public void fillLines(@NonNull LineBuffer buffer) {
+		for (int i = 0; i < lines.length; i += 4)
+			buffer.add(lines[i], lines[i + 1], lines[i + 2], lines[i + 3]);
+	}
+
+	public void render(@NonNull Renderer renderer) {
+		renderer.drawLines(lines, 0, lines.length, getColor(), LINE_WIDTH);
+	}
+}
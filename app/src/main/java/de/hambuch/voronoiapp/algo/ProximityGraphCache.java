@@ -0,0 +1,89 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Keeps the proximity graphs of a triangulation until it is modified, so a
+ * graph is built at most once per version of the triangulation, e.g. not
+ * again for every pan of the view or when it is shown again. A graph is
+ * only built when it is asked for; the sites and Delaunay edges are
+ * collected once per version for all three graphs. Not thread safe, use it
+ * on the thread modifying the triangulation.
+ *
+ * @see DelaunayTriangulation#getVersion()
+ */
+public class ProximityGraphCache {
+
+	@NonNull
+	private final DelaunayTriangulation delaunay;
+	/* version of the triangulation the cached data belongs to */
+	private long version = -1;
+	/* x, y of every site and four indices per Delaunay edge, null if not collected yet */
+	private float[] coords;
+	private int[] quads;
+	private ProximityGraph tree;
+	private ProximityGraph gabriel;
+	private ProximityGraph relativeNeighbourhood;
+
+	public ProximityGraphCache(@NonNull DelaunayTriangulation delaunay) {
+		this.delaunay = delaunay;
+	}
+
+	/**
+	 * return the Euclidean minimum spanning tree.
+	 *
+	 * @return ProximityGraph the EMST of the current version
+	 * @see ProximityGraph#minimumSpanningTree(DelaunayTriangulation)
+	 */
+	@NonNull
+	public ProximityGraph getMinimumSpanningTree() {
+		update();
+		if (tree == null)
+			tree = ProximityGraph.minimumSpanningTree(coords, quads);
+		return tree;
+	}
+
+	/**
+	 * return the Gabriel graph.
+	 *
+	 * @return ProximityGraph the Gabriel graph of the current version
+	 * @see ProximityGraph#gabriel(DelaunayTriangulation)
+	 */
+	@NonNull
+	public ProximityGraph getGabriel() {
+		update();
+		if (gabriel == null)
+			gabriel = ProximityGraph.gabriel(coords, quads);
+		return gabriel;
+	}
+
+	/**
+	 * return the relative neighbourhood graph.
+	 *
+	 * @return ProximityGraph the RNG of the current version
+	 * @see ProximityGraph#relativeNeighbourhood(DelaunayTriangulation)
+	 */
+	@NonNull
+	public ProximityGraph getRelativeNeighbourhood() {
+		update();
+		if (relativeNeighbourhood == null)
+			relativeNeighbourhood = ProximityGraph.relativeNeighbourhood(coords, quads);
+		return relativeNeighbourhood;
+	}
+
+	/* drop everything of an older version, collect the sites and edges */
+	private void update() {
+		if (version != delaunay.getVersion()) {
+			version = delaunay.getVersion();
+			coords = null;
+			quads = null;
+			tree = null;
+			gabriel = null;
+			relativeNeighbourhood = null;
+		}
+		if (coords == null) {
+			coords = ProximityGraph.coordinates(delaunay);
+			quads = delaunay.edges(delaunay.indexPoints());
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+/**
+ * Rasterizes the piecewise linear interpolant (triangulated irregular network)
+ * of values attached to the sites of a Delaunay triangulation. Every triangle
+ * is scan-converted and the covered pixels get the barycentric interpolation
+ * of the values of its three vertices. This is much faster than locating every
+ * pixel in the triangulation and needs no <VAR>Canvas</VAR>, so it can be used
+ * headless for heightmaps or heat maps.
+ * <p>The triangles are copied into primitive arrays when the rasterizer is
+ * created, afterwards the triangulation may be modified. The image is split
+ * into tiles that are processed in parallel. Values are indexed in the order
+ * of {@link DelaunayTriangulation#points()}.</p>
+ *
+ * @see NaturalNeighbourInterpolator
+ */
+public class TinRasterizer {
+
+	/* size of a tile in pixels */
+	private static final int TILE = 64;
+
+	/* tolerance for pixels exactly on an edge (no cracks between triangles) */
+	private static final float EDGE_EPSILON = -1.0e-5f;
+
+	private interface PixelWriter {
+		void write(int pixel, int triangle, float l0, float l1, float l2);
+	}
+
+	/* x0,y0,x1,y1,x2,y2 for every triangle */
+	@NonNull
+	private final float[] coords;
+	/* site indices of the three vertices of every triangle */
+	@NonNull
+	private final int[] vertices;
+	private final int triangles;
+
+	public TinRasterizer(@NonNull DelaunayTriangulation delaunay) {
+		final Map<Point, Integer> indices = delaunay.indexPoints();
+		final int maxTriangles = Math.max(0, 2 * delaunay.size());
+		final float[] coords = new float[6 * maxTriangles];
+		final int[] vertices = new int[3 * maxTriangles];
+		final int[] count = new int[1];
+		if (!delaunay.areCollinear()) {
+			delaunay.visitTriangles(t -> {
+				if (t.isHalfplane() || count[0] >= maxTriangles)
+					return;
+				int i = count[0]++;
+				put(coords, vertices, i, 0, t.getPointA(), indices);
+				put(coords, vertices, i, 1, t.getPointB(), indices);
+				put(coords, vertices, i, 2, t.getPointC(), indices);
+			});
+		}
+		this.coords = coords;
+		this.vertices = vertices;
+		this.triangles = count[0];
+	}
+
+	private static void put(float[] coords, int[] vertices, int triangle, int corner, Point p, Map<Point, Integer> indices) {
+		coords[6 * triangle + 2 * corner] = p.getX();
+		coords[6 * triangle + 2 * corner + 1] = p.getY();
+		vertices[3 * triangle + corner] = indices.get(p);
+	}
+
+	/**
+	 * return the number of (real) triangles.
+	 *
+	 * @return int number of triangles
+	 */
+	public int size() {
+		return triangles;
+	}
+
+	/**
+	 * Fill a grid with the linear interpolation of the values. Cells outside
+	 * of the convex hull are not modified.
+	 *
+	 * @param values one value per site
+	 * @param grid the grid to fill
+	 */
+	public void rasterize(@NonNull final float[] values, @NonNull Grid grid) {
+		final float[] out = grid.getValues();
+		rasterize(grid.getColumns(), grid.getRows(), grid.getMinX(), grid.getMinY(),
+				grid.getCellWidth(), grid.getCellHeight(),
+				(pixel, t, l0, l1, l2) -> out[pixel] = l0 * values[vertices[3 * t]]
+						+ l1 * values[vertices[3 * t + 1]] + l2 * values[vertices[3 * t + 2]]);
+	}
+
+	/**
+	 * Fill an ARGB image with the interpolated colors of the sites (every
+	 * channel is interpolated separately). Pixels outside of the convex hull
+	 * are not modified.
+	 *
+	 * @param colors one ARGB color per site
+	 * @param pixels the image, row by row (<VAR>width * height</VAR> pixels)
+	 * @param width, height size of the image
+	 * @param minX, minY, maxX, maxY the area of the plane shown by the image
+	 */
+	public void rasterize(@NonNull final int[] colors, @NonNull final int[] pixels, int width, int height,
+						  float minX, float minY, float maxX, float maxY) {
+		if (pixels.length < width * height)
+			throw new IllegalArgumentException("Image too small: " + pixels.length);
+		rasterize(width, height, minX, minY, (maxX - minX) / width, (maxY - minY) / height,
+				(pixel, t, l0, l1, l2) -> {
+					int c0 = colors[vertices[3 * t]];
+					int c1 = colors[vertices[3 * t + 1]];
+					int c2 = colors[vertices[3 * t + 2]];
+					pixels[pixel] = channel(c0, c1, c2, l0, l1, l2, 24)
+							| channel(c0, c1, c2, l0, l1, l2, 16)
+							| channel(c0, c1, c2, l0, l1, l2, 8)
+							| channel(c0, c1, c2, l0, l1, l2, 0);
+				});
+	}
+
+	private static int channel(int c0, int c1, int c2, float l0, float l1, float l2, int shift) {
+		float v = l0 * ((c0 >>> shift) & 0xff) + l1 * ((c1 >>> shift) & 0xff) + l2 * ((c2 >>> shift) & 0xff);
+		int i = Math.round(v);
+		if (i < 0)
+			i = 0;
+		else if (i > 255)
+			i = 255;
+		return i << shift;
+	}
+
+	private void rasterize(final int width, final int height, final float minX, final float minY,
+						   final float cellWidth, final float cellHeight, final PixelWriter writer) {
+		if (triangles == 0 || width <= 0 || height <= 0)
+			return;
+		final int tilesX = (width + TILE - 1) / TILE;
+		final int tilesY = (height + TILE - 1) / TILE;
+		final int[] bounds = new int[4 * triangles]; /* col0,row0,col1,row1 */
+		final boolean[] visible = new boolean[triangles];
+		/* bin the triangles into the tiles as compressed lists: count, prefix sums, fill */
+		final int[] start = new int[tilesX * tilesY + 1];
+		for (int t = 0; t < triangles; t++) {
+			visible[t] = pixelBounds(t, width, height, minX, minY, cellWidth, cellHeight, bounds);
+			if (visible[t]) {
+				for (int ty = bounds[4 * t + 1] / TILE; ty <= bounds[4 * t + 3] / TILE; ty++)
+					for (int tx = bounds[4 * t] / TILE; tx <= bounds[4 * t + 2] / TILE; tx++)
+						start[ty * tilesX + tx + 1]++;
+			}
+		}
+		for (int i = 1; i < start.length; i++)
+			start[i] += start[i - 1];
+		final int[] tileTriangles = new int[start[start.length - 1]];
+		final int[] next = start.clone();
+		for (int t = 0; t < triangles; t++) {
+			if (visible[t]) {
+				for (int ty = bounds[4 * t + 1] / TILE; ty <= bounds[4 * t + 3] / TILE; ty++)
+					for (int tx = bounds[4 * t] / TILE; tx <= bounds[4 * t + 2] / TILE; tx++)
+						tileTriangles[next[ty * tilesX + tx]++] = t;
+			}
+		}
+		scanTiles(tileTriangles, start, bounds, tilesX, tilesY, width, minX, minY, cellWidth, cellHeight, writer);
+	}
+
+	private void scanTiles(final int[] tileTriangles, final int[] start, final int[] bounds,
+						   final int tilesX, final int tilesY, final int width,
+						   final float minX, final float minY, final float cellWidth, final float cellHeight,
+						   final PixelWriter writer) {
+		IntStream.range(0, tilesX * tilesY).parallel().forEach(tile -> {
+			final int col0 = (tile % tilesX) * TILE, row0 = (tile / tilesX) * TILE;
+			for (int i = start[tile]; i < start[tile + 1]; i++) {
+				final int t = tileTriangles[i];
+				scan(t, Math.max(col0, bounds[4 * t]), Math.max(row0, bounds[4 * t + 1]),
+						Math.min(col0 + TILE - 1, bounds[4 * t + 2]), Math.min(row0 + TILE - 1, bounds[4 * t + 3]),
+						width, minX, minY, cellWidth, cellHeight, writer);
+			}
+		});
+	}
+
+	/* pixel range (cell centers) covered by the bounding box of triangle t, false if empty */
+	private boolean pixelBounds(int t, int width, int height, float minX, float minY,
+								float cellWidth, float cellHeight, int[] bounds) {
+		float x0 = Math.min(coords[6 * t], Math.min(coords[6 * t + 2], coords[6 * t + 4]));
+		float x1 = Math.max(coords[6 * t], Math.max(coords[6 * t + 2], coords[6 * t + 4]));
+		float y0 = Math.min(coords[6 * t + 1], Math.min(coords[6 * t + 3], coords[6 * t + 5]));
+		float y1 = Math.max(coords[6 * t + 1], Math.max(coords[6 * t + 3], coords[6 * t + 5]));
+		int c0 = Math.max(0, (int) Math.ceil((x0 - minX) / cellWidth - 0.5f));
+		int c1 = Math.min(width - 1, (int) Math.floor((x1 - minX) / cellWidth - 0.5f));
+		int r0 = Math.max(0, (int) Math.ceil((y0 - minY) / cellHeight - 0.5f));
+		int r1 = Math.min(height - 1, (int) Math.floor((y1 - minY) / cellHeight - 0.5f));
+		bounds[4 * t] = c0;
+		bounds[4 * t + 1] = r0;
+		bounds[4 * t + 2] = c1;
+		bounds[4 * t + 3] = r1;
+		return c0 <= c1 && r0 <= r1;
+	}
+
+	/* scan-convert triangle t within the pixel range using incremental barycentric coordinates */
+	private void scan(int t, int col0, int row0, int col1, int row1, int width,
+					  float minX, float minY, float cellWidth, float cellHeight, PixelWriter writer) {
+		if (col0 > col1 || row0 > row1)
+			return;
+		final float ax = coords[6 * t], ay = coords[6 * t + 1];
+		final float bx = coords[6 * t + 2], by = coords[6 * t + 3];
+		final float cx = coords[6 * t + 4], cy = coords[6 * t + 5];
+		final float area = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+		if (area == 0.0f)
+			return;
+		final float inv = 1.0f / area;
+		/* l0 = area(p,b,c), l1 = area(a,p,c) normalized; both are linear in x and y */
+		final float l0dx = (by - cy) * inv;
+		final float l1dx = (cy - ay) * inv;
+		final float px0 = minX + (col0 + 0.5f) * cellWidth;
+		for (int row = row0; row <= row1; row++) {
+			final float py = minY + (row + 0.5f) * cellHeight;
+			float l0 = ((bx - px0) * (cy - py) - (cx - px0) * (by - py)) * inv;
+			float l1 = ((cx - px0) * (ay - py) - (ax - px0) * (cy - py)) * inv;
+			final float s0 = l0dx * cellWidth, s1 = l1dx * cellWidth;
+			int pixel = row * width + col0;
+			for (int col = col0; col <= col1; col++, pixel++, l0 += s0, l1 += s1) {
+				float l2 = 1.0f - l0 - l1;
+				if (l0 >= EDGE_EPSILON && l1 >= EDGE_EPSILON && l2 >= EDGE_EPSILON)
+					writer.write(pixel, t, l0, l1, l2);
+			}
+		}
+	}
+}
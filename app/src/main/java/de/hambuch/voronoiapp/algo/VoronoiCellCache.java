@@ -0,0 +1,176 @@
+package de.hambuch.voronoiapp.algo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.PolygonClipper;
+import de.hambuch.voronoiapp.geometry.Region;
+
+/**
+ * Caches the Voronoi regions of the sites, clipped to a rectangle, as arrays
+ * of coordinates (x, y, ...).
+ * <p>The region of a site only depends on the Delaunay triangles at this
+ * site, so after an insertion only the corners of the removed and created
+ * triangles lose their regions. A rebuild (delete or move) creates all
+ * triangles again; then a region is only computed again if the triangles at
+ * its site differ, which is checked by a hash of their corners. Rebuilding
+ * nearly degenerate triangles may change them far away from the moved
+ * point, so the changed area of the triangulation is not used. The returned
+ * arrays are never modified and may be shared with other threads.</p>
+ *
+ * @see DelaunayTriangulation.ChangeListener
+ */
+public class VoronoiCellCache {
+
+	/* marks a site without region */
+	private static final float[] NONE = new float[0];
+
+	@NonNull
+	private final VoronoiDiagram voronoi;
+	@NonNull
+	private final DelaunayTriangulation delaunay;
+	/* clipped region per site, by identity */
+	private final Map<Point, float[]> cells = new IdentityHashMap<>();
+	/* hash of the triangles at every site, by identity */
+	private Map<Point, Long> stars = new IdentityHashMap<>();
+	/* clipping rectangle: minX, minY, maxX, maxY */
+	private final float[] area = new float[4];
+	/* reused for every region */
+	private final PolygonClipper clipper = new PolygonClipper();
+
+	private final DelaunayTriangulation.ChangeListener listener = new DelaunayTriangulation.ChangeListener() {
+		@Override
+		public void trianglesChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created) {
+			if (delaunay.areCollinear()) {
+				clear();
+				return;
+			}
+			/* every removed triangle has its corners in the created ones, except a deleted site */
+			final Set<Point> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (DelauTriangle t : created) {
+				if (updated.add(t.getPointA()))
+					update(t, t.getPointA());
+				if (updated.add(t.getPointB()))
+					update(t, t.getPointB());
+				if (updated.add(t.getPointC()))
+					update(t, t.getPointC());
+			}
+			for (DelauTriangle t : removed) {
+				for (Point site : new Point[]{t.getPointA(), t.getPointB(), t.getPointC()}) {
+					if (!updated.contains(site)) {
+						cells.remove(site);
+						stars.remove(site);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void triangulationRebuilt() {
+			if (delaunay.areCollinear()) {
+				clear();
+				return;
+			}
+			final Map<Point, Long> newStars = new IdentityHashMap<>(2 * delaunay.size());
+			delaunay.visitTriangles(t -> {
+				final long hash = hash(t);
+				newStars.merge(t.getPointA(), hash, Long::sum);
+				newStars.merge(t.getPointB(), hash, Long::sum);
+				if (!t.isHalfplane())
+					newStars.merge(t.getPointC(), hash, Long::sum);
+			});
+			cells.keySet().removeIf(site -> {
+				final Long hash = newStars.get(site);
+				return hash == null || !hash.equals(stars.get(site));
+			});
+			stars = newStars;
+		}
+	};
+
+	public VoronoiCellCache(@NonNull VoronoiDiagram voronoi, @NonNull DelaunayTriangulation delaunay) {
+		this.voronoi = voronoi;
+		this.delaunay = delaunay;
+		delaunay.addChangeListener(listener);
+	}
+
+	/**
+	 * Stop tracking the triangulation.
+	 */
+	public void detach() {
+		delaunay.removeChangeListener(listener);
+	}
+
+	/**
+	 * Set the rectangle the regions are clipped to. All regions are computed
+	 * again if it differs from the current one.
+	 *
+	 * @param xmin, ymin, xmax, ymax the rectangle
+	 */
+	public void setArea(float xmin, float ymin, float xmax, float ymax) {
+		if (area[0] == xmin && area[1] == ymin && area[2] == xmax && area[3] == ymax)
+			return;
+		area[0] = xmin;
+		area[1] = ymin;
+		area[2] = xmax;
+		area[3] = ymax;
+		cells.clear();
+	}
+
+	private void clear() {
+		cells.clear();
+		stars.clear();
+	}
+
+	/**
+	 * return the clipped region of a site, computed only if it has changed.
+	 *
+	 * @param site a site of the triangulation
+	 * @return float[] x, y of the corners or <VAR>null</VAR> if the region is
+	 *         empty; must not be modified
+	 */
+	@Nullable
+	public float[] getCell(@NonNull Point site) {
+		float[] cell = cells.get(site);
+		if (cell == null) {
+			cell = NONE;
+			final Region region = voronoi.toRegion(site);
+			if (region != null && region.clipTo(clipper, area[0], area[1], area[2], area[3]))
+				cell = clipper.toArray();
+			cells.put(site, cell);
+		}
+		return cell != NONE ? cell : null;
+	}
+
+	/* forget the region of a site and hash the triangles around it again */
+	private void update(@NonNull DelauTriangle start, @NonNull Point site) {
+		cells.remove(site);
+		long hash = 0;
+		DelauTriangle t = start;
+		do {
+			hash += hash(t);
+			t = t.neighbour(site);
+		} while (t != null && t != start);
+		stars.put(site, hash);
+	}
+
+	/* hash of the corners of a triangle, independent of the first corner */
+	private static long hash(@NonNull DelauTriangle t) {
+		if (t.isHalfplane())
+			return hash(t.getPointA()) + 3 * hash(t.getPointB()) + 0x9e3779b97f4a7c15L;
+		return hash(t.getPointA()) + hash(t.getPointB()) + hash(t.getPointC());
+	}
+
+	private static long hash(@NonNull Point p) {
+		long h = ((long) Float.floatToIntBits(p.getX()) << 32) ^ Float.floatToIntBits(p.getY());
+		h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+}
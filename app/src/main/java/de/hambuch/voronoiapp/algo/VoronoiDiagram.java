@@ -1,6 +1,5 @@
 package de.hambuch.voronoiapp.algo;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
 
 import androidx.annotation.NonNull;
@@ -10,10 +9,12 @@ import java.util.Iterator;
 import java.util.List;
 
 import de.hambuch.voronoiapp.geometry.GeomElement;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
 import de.hambuch.voronoiapp.geometry.Point;
 import de.hambuch.voronoiapp.geometry.QEDS;
 import de.hambuch.voronoiapp.geometry.Ray;
 import de.hambuch.voronoiapp.geometry.Region;
+import de.hambuch.voronoiapp.geometry.Renderer;
 import de.hambuch.voronoiapp.geometry.Segment;
 
 /**
@@ -34,6 +35,10 @@ public class VoronoiDiagram extends GeomElement {
 	/* the construction is based on a delaunay triangulation */
 	@NonNull
 	protected final DelaunayTriangulation delaunay;
+	/* reused for every paint */
+	private final LineBuffer lines = new LineBuffer();
+	/* statistics: number of regions built by toRegion() */
+	private long regions = 0;
 
 	public VoronoiDiagram() {
 		super(Color.BLUE);
@@ -50,6 +55,15 @@ public class VoronoiDiagram extends GeomElement {
 		return this.delaunay;
 	}
 
+	/**
+	 * return the number of regions built by {@link #toRegion(Point)} so far.
+	 *
+	 * @return long number of regions
+	 */
+	public long getRegionCount() {
+		return regions;
+	}
+
 	/**
 	 * insert a new site to this voronoi diagram. Make sure, that the diagrams
 	 * doensn't alreays contain the new site.
@@ -113,6 +127,7 @@ public class VoronoiDiagram extends GeomElement {
 
 	@Nullable
 	public Region toRegion(@NonNull Point p) {
+		regions++;
 		Region region = new Region(p);
 		if (delaunay.size() == 0) {
 			return null;
@@ -469,106 +484,68 @@ public class VoronoiDiagram extends GeomElement {
 		} // t != null
 	}
 
-	public void paint(@NonNull Canvas g) {
-		DelauTriangle t = delaunay.getFirstTriangle();
+	public void render(@NonNull Renderer renderer) {
+		lines.clear();
+		fillLines(lines);
+		lines.render(renderer, getColor(), LINE_WIDTH);
+	}
+
+	/**
+	 * Add all Voronoi edges to a line buffer, rays are clipped to the
+	 * drawable area.
+	 *
+	 * @param lines the buffer
+	 */
+	public void fillLines(@NonNull LineBuffer lines) {
 		if (delaunay.areCollinear()) {
-			t = delaunay.getFirstHullTriangle();
+			DelauTriangle t = delaunay.getFirstHullTriangle();
 			DelauTriangle startt = t;
 			if (t != null) {
 				float x1, y1, x2, y2;
-				Point p = new Point(0.0f, 0.0f);
-				Ray ray = new Ray(p, 1.0f, 1.0f);
-				ray.setColor(getColor());
 				do {
 					t = t.getNeighbourBC();
 					x1 = t.getPointA().getX();
 					y1 = t.getPointA().getY();
 					x2 = t.getPointB().getX();
 					y2 = t.getPointB().getY();
-					p.setX((x1 + x2) / 2.0f);
-					p.setY((y1 + y2) / 2.0f);
-					ray.setStartpoint(p);
-					ray.setDirection(-(y2 - y1), (x2 - x1));
-					ray.paint(g);
+					lines.addRay((x1 + x2) / 2.0f, (y1 + y2) / 2.0f, -(y2 - y1), (x2 - x1));
 				} while (startt != t);
 			} // t!=null
 		} // areCollinear
 		else {
-			delaunay.resetVisited(t);
-			// g.setColor(color);
-			paintit(g, t);
-		}
-	}
-
-	private void paintit(Canvas g, DelauTriangle t) {
-		if (t != null) {
-			if (!t.visited) {
-				t.visited = true;
+			/* every edge is added by the first of its two triangles that is visited */
+			delaunay.visitTriangles(t -> {
 				DelauTriangle t1 = t.neighbourAB;
 				DelauTriangle t2 = t.neighbourBC;
 				DelauTriangle t3 = t.neighbourCA;
 				if (!t.isHalfplane()) {
 					Point c0 = t.circumCircle().getCenter();
-					Point c1;
-					if (!t1.visited) {
-						if (!t1.isHalfplane()) {
-							c1 = t1.circumCircle().getCenter();
-							Segment.drawSegment(g, c0, c1, getLinePaint());
-						} else {
-							Ray ray = new Ray(c0, -(t1.getPointB().getY() - t1
-									.getPointA().getY()), t1.getPointB().getX()
-									- t1.getPointA().getX());
-							ray.setColor(getColor());
-							ray.paint(g);
-						}
-					}
-					if (!t2.visited) {
-						if (!t2.isHalfplane()) {
-							c1 = t2.circumCircle().getCenter();
-							Segment.drawSegment(g, c0, c1, getLinePaint());
-						} else {
-							Ray ray = new Ray(c0, -(t2.getPointB().getY() - t2
-									.getPointA().getY()), t2.getPointB().getX()
-									- t2.getPointA().getX());
-							ray.setColor(getColor());
-							ray.paint(g);
-						}
-					}
-					if (!t3.visited) {
-						if (!t3.isHalfplane()) {
-							c1 = t3.circumCircle().getCenter();
-							Segment.drawSegment(g, c0, c1, getLinePaint());
-						} else {
-							Ray ray = new Ray(c0, -(t3.getPointB().getY() - t3
-									.getPointA().getY()), t3.getPointB().getX()
-									- t3.getPointA().getX());
-							ray.setColor(getColor());
-							ray.paint(g);
-						}
-					}
-					/* Rekursion */
-					if (!t1.visited) paintit(g, t1);
-					if (!t2.visited) paintit(g, t2);
-					if (!t3.visited) paintit(g, t3);
-				} else {
-					/* t is a Halfplane */
-					if (!t1.visited) {
-						if (!t1.isHalfplane()) {
-							/* we have to visit only this neighbour */
-							Point c0 = t1.circumCircle().getCenter();
-							Ray ray = new Ray(c0, -(t.getPointB().getY() - t
-									.getPointA().getY()), t.getPointB().getX()
-									- t.getPointA().getX());
-							ray.setColor(getColor());
-							ray.paint(g);
-						}
-					}
+					addEdge(lines, c0, t1);
+					addEdge(lines, c0, t2);
+					addEdge(lines, c0, t3);
+				} else if (!t1.visited && !t1.isHalfplane()) {
+					/* t is a Halfplane, we have to visit only this neighbour */
+					addRay(lines, t1.circumCircle().getCenter(), t);
 				}
-
-			}
+			});
 		}
 	}
 
+	private static void addEdge(LineBuffer lines, Point c0, DelauTriangle neighbour) {
+		if (neighbour.visited)
+			return;
+		if (!neighbour.isHalfplane())
+			lines.add(c0, neighbour.circumCircle().getCenter());
+		else
+			addRay(lines, c0, neighbour);
+	}
+
+	/* ray from c0 perpendicular to the hull edge of the halfplane, to the outside */
+	private static void addRay(LineBuffer lines, Point c0, DelauTriangle halfplane) {
+		lines.addRay(c0.getX(), c0.getY(), -(halfplane.getPointB().getY() - halfplane.getPointA().getY()),
+				halfplane.getPointB().getX() - halfplane.getPointA().getX());
+	}
+
 	/**
 	 * Converts the VoronoiDiagram into a list of geometric elements.
 	 *
@@ -595,7 +572,7 @@ public class VoronoiDiagram extends GeomElement {
 					if (!t1.visited) {
 						if (!t1.isHalfplane()) {
 							c1 = t1.circumCircle().getCenter();
-							toElements.add(new Segment(c0, c1, getLinePaint().getColor()));
+							toElements.add(new Segment(c0, c1, getColor()));
 						} else {
 							Ray ray = new Ray(c0, -(t1.getPointB().getY() - t1
 									.getPointA().getY()), t1.getPointB().getX()
@@ -607,7 +584,7 @@ public class VoronoiDiagram extends GeomElement {
 					if (!t2.visited) {
 						if (!t2.isHalfplane()) {
 							c1 = t2.circumCircle().getCenter();
-							toElements.add(new Segment(c0, c1, getLinePaint().getColor()));
+							toElements.add(new Segment(c0, c1, getColor()));
 						} else {
 							Ray ray = new Ray(c0, -(t2.getPointB().getY() - t2
 									.getPointA().getY()), t2.getPointB().getX()
@@ -619,7 +596,7 @@ public class VoronoiDiagram extends GeomElement {
 					if (!t3.visited) {
 						if (!t3.isHalfplane()) {
 							c1 = t3.circumCircle().getCenter();
-							toElements.add(new Segment(c0, c1, getLinePaint().getColor()));
+							toElements.add(new Segment(c0, c1, getColor()));
 						} else {
 							Ray ray = new Ray(c0, -(t3.getPointB().getY() - t3
 									.getPointA().getY()), t3.getPointB().getX()
@@ -1,67 +1,224 @@
 package de.hambuch.voronoiapp.algo;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
 
 import de.hambuch.voronoiapp.geometry.Circle;
 import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Renderer;
 
 /**
  * Voronoi diagram with maximum spanning circle.
+ * <p>The circumcircles of all Delaunay triangles are kept in a max-heap that
+ * is updated with the triangles created or destroyed by every insertion and
+ * by every deletion or move of an inner point, so finding the largest empty
+ * circle does not need to visit the whole triangulation on every paint. Only
+ * changes of the convex hull rebuild the triangulation and refill the
+ * heap.</p>
  * 
  * @author eric
  * 
  */
 public class VoronoiDiagramCircle extends VoronoiDiagram {
 
+	/**
+	 * Where the center of the largest empty circle may lie.
+	 */
+	public enum Restriction {
+		/* anywhere */
+		NONE,
+		/* inside the convex hull of the points */
+		CONVEXHULL,
+		/* inside the visible area */
+		VIEW
+	}
+
 	private Point cursor;
 
-	private static class MaximumCircleVisitor implements DelaunayTriangulation.Visitor {
+	private final CircleHeap heap = new CircleHeap();
+	/* heap has to be refilled after the triangulation has been rebuilt */
+	private boolean heapValid = false;
+	private final ConvexHull hull;
+	private Restriction restriction = Restriction.NONE;
+	/* open nodes of search(): a max-heap of positions in the circle heap */
+	private int[] queue = new int[16];
+	private int queued = 0;
 
-		private Circle maxCircle = null;
+	/* result of the last query */
+	private Circle cachedCircle;
+	private long cachedVersion = -1;
+	private Restriction cachedRestriction;
+	private float cachedMinX, cachedMinY, cachedMaxX, cachedMaxY;
 
+	private final DelaunayTriangulation.ChangeListener listener = new DelaunayTriangulation.ChangeListener() {
 		@Override
-		public void visit(DelauTriangle triangle) {
-			if (triangle.isHalfplane())
+		public void trianglesChanged(@NonNull List<DelauTriangle> removed, @NonNull List<DelauTriangle> created) {
+			if (!heapValid)
 				return;
-			Circle circle = triangle.circumCircle();
-			if (maxCircle == null)
-				maxCircle = circle;
-			else if (circle.getRadius() > maxCircle.getRadius())
-				maxCircle = circle;
+			for (DelauTriangle t : removed)
+				heap.remove(t);
+			for (DelauTriangle t : created)
+				heap.add(t);
 		}
 
-		public Circle getMaxCircle() {
-			return maxCircle;
+		@Override
+		public void triangulationRebuilt() {
+			heap.clear();
+			heapValid = false;
 		}
-	}
+	};
 
 	public VoronoiDiagramCircle() {
-		super();
+		this(new DelaunayTriangulation());
 	}
 
 	public VoronoiDiagramCircle(DelaunayTriangulation delaunay) {
 		super(delaunay);
+		hull = new ConvexHull(delaunay);
+		delaunay.addChangeListener(listener);
+	}
+
+	/**
+	 * Stop tracking the triangulation (e.g. if this diagram is no longer
+	 * used but the triangulation is).
+	 */
+	public void detach() {
+		delaunay.removeChangeListener(listener);
+		heap.clear();
+		heapValid = false;
+	}
+
+	public void setRestriction(@NonNull Restriction restriction) {
+		this.restriction = restriction;
+	}
+
+	@NonNull
+	public Restriction getRestriction() {
+		return restriction;
+	}
+
+	/**
+	 * return the largest empty circle (the largest circumcircle of a Delaunay
+	 * triangle) whose center lies in the given area. Only used for
+	 * <VAR>Restriction.VIEW</VAR>, the other restrictions ignore the area.
+	 * The result is cached until the triangulation is modified.
+	 *
+	 * @param minX, minY, maxX, maxY the visible area
+	 * @return Circle the largest circle or <VAR>null</VAR>
+	 */
+	@Nullable
+	public Circle getMaxCircle(float minX, float minY, float maxX, float maxY) {
+		if (cachedVersion == delaunay.getVersion() && cachedRestriction == restriction
+				&& (restriction != Restriction.VIEW || (cachedMinX == minX && cachedMinY == minY
+				&& cachedMaxX == maxX && cachedMaxY == maxY)))
+			return cachedCircle;
+		if (!heapValid) {
+			heap.clear();
+			if (!delaunay.areCollinear())
+				delaunay.visitTriangles(heap::add);
+			heapValid = true;
+		}
+		DelauTriangle t = restriction == Restriction.NONE ? heap.max() : search(minX, minY, maxX, maxY);
+		cachedCircle = t != null ? t.circumCircle() : null;
+		cachedVersion = delaunay.getVersion();
+		cachedRestriction = restriction;
+		cachedMinX = minX;
+		cachedMinY = minY;
+		cachedMaxX = maxX;
+		cachedMaxY = maxY;
+		return cachedCircle;
+	}
+
+	/*
+	 * best first search in the heap: the children of a node are never larger,
+	 * so we only have to look at the nodes larger than the result.
+	 */
+	@Nullable
+	private DelauTriangle search(float minX, float minY, float maxX, float maxY) {
+		if (heap.size() == 0)
+			return null;
+		queued = 0;
+		offer(0);
+		while (queued > 0) {
+			int i = poll();
+			DelauTriangle t = heap.get(i);
+			if (accept(t.circumCircle().getCenter(), minX, minY, maxX, maxY))
+				return t;
+			if (2 * i + 1 < heap.size())
+				offer(2 * i + 1);
+			if (2 * i + 2 < heap.size())
+				offer(2 * i + 2);
+		}
+		return null;
+	}
+
+	private void offer(int i) {
+		if (queued == queue.length)
+			queue = Arrays.copyOf(queue, 2 * queued);
+		final float key = heap.key(i);
+		int k = queued++;
+		while (k > 0) {
+			int parent = (k - 1) / 2;
+			if (heap.key(queue[parent]) >= key)
+				break;
+			queue[k] = queue[parent];
+			k = parent;
+		}
+		queue[k] = i;
+	}
+
+	/* remove the node with the largest circle */
+	private int poll() {
+		final int top = queue[0];
+		final int last = queue[--queued];
+		final float key = heap.key(last);
+		int k = 0;
+		while (true) {
+			int child = 2 * k + 1;
+			if (child >= queued)
+				break;
+			if (child + 1 < queued && heap.key(queue[child + 1]) > heap.key(queue[child]))
+				child++;
+			if (heap.key(queue[child]) <= key)
+				break;
+			queue[k] = queue[child];
+			k = child;
+		}
+		queue[k] = last;
+		return top;
+	}
+
+	private boolean accept(Point center, float minX, float minY, float maxX, float maxY) {
+		switch (restriction) {
+			case CONVEXHULL:
+				return hull.pointInHull(center) == 1;
+			case VIEW:
+				return center.getX() >= minX && center.getX() <= maxX
+						&& center.getY() >= minY && center.getY() <= maxY;
+			default:
+				return true;
+		}
 	}
 
-	public void paint(@NonNull Canvas g) {
-		super.paint(g);
+	public void render(@NonNull Renderer g) {
+		super.render(g);
 		if (cursor != null) {
 			Point nearest = super.pointLocation(cursor);
 			if (nearest != null)
 				new Circle(cursor, nearest.distance(cursor), Color.MAGENTA)
-						.paint(g);
+						.render(g);
 		}
 
 		// draw maximum circle
-		MaximumCircleVisitor visitor = new MaximumCircleVisitor();
-		super.delaunay.visitTriangles(visitor);
-		Circle circle = visitor.getMaxCircle();
+		Circle circle = getMaxCircle(0, 0, g.getWidth(), g.getHeight());
 		if (circle != null) {
 			circle.setColor(Color.GREEN);
-			circle.paint(g);
+			circle.render(g);
 		}
 	}
 }
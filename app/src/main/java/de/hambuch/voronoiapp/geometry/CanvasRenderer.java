@@ -0,0 +1,113 @@
+package de.hambuch.voronoiapp.geometry;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+/**
+ * {@link Renderer} drawing on an Android canvas. Paint and Path are reused
+ * for all calls, so one instance must only be used by one thread.
+ */
+public class CanvasRenderer implements Renderer {
+
+	@NonNull
+	private Canvas canvas;
+	private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Path path = new Path();
+
+	public CanvasRenderer(@NonNull Canvas canvas) {
+		this.canvas = canvas;
+		path.setFillType(Path.FillType.EVEN_ODD);
+	}
+
+	/**
+	 * draw on another canvas, e.g. in the next frame.
+	 *
+	 * @param canvas the canvas
+	 */
+	public void setCanvas(@NonNull Canvas canvas) {
+		this.canvas = canvas;
+	}
+
+	@NonNull
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	public int getWidth() {
+		return canvas.getWidth();
+	}
+
+	public int getHeight() {
+		return canvas.getHeight();
+	}
+
+	@NonNull
+	private Paint stroke(@ColorInt int color, float width) {
+		paint.setStyle(Paint.Style.STROKE);
+		paint.setStrokeCap(Paint.Cap.BUTT);
+		paint.setColor(color);
+		paint.setStrokeWidth(width);
+		return paint;
+	}
+
+	@NonNull
+	private Paint fill(@ColorInt int color) {
+		paint.setStyle(Paint.Style.FILL);
+		paint.setColor(color);
+		return paint;
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, @ColorInt int color, float width) {
+		canvas.drawLine(x1, y1, x2, y2, stroke(color, width));
+	}
+
+	public void drawLines(@NonNull float[] lines, int offset, int count, @ColorInt int color, float width) {
+		if (count >= 4)
+			canvas.drawLines(lines, offset, count, stroke(color, width));
+	}
+
+	public void drawPolyline(@NonNull float[] coords, int offset, int count, boolean closed,
+							 @ColorInt int color, float width) {
+		if (count < 4)
+			return;
+		setPath(coords, offset, count, closed);
+		canvas.drawPath(path, stroke(color, width));
+	}
+
+	public void fillPolygon(@NonNull float[] coords, int offset, int count, @ColorInt int color) {
+		if (count < 6)
+			return;
+		setPath(coords, offset, count, true);
+		canvas.drawPath(path, fill(color));
+	}
+
+	private void setPath(@NonNull float[] coords, int offset, int count, boolean closed) {
+		path.rewind();
+		path.moveTo(coords[offset], coords[offset + 1]);
+		for (int i = offset + 2; i < offset + count; i += 2)
+			path.lineTo(coords[i], coords[i + 1]);
+		if (closed)
+			path.close();
+	}
+
+	public void drawCircle(float cx, float cy, float radius, @ColorInt int color, float width) {
+		canvas.drawCircle(cx, cy, radius, stroke(color, width));
+	}
+
+	public void fillCircle(float cx, float cy, float radius, @ColorInt int color) {
+		canvas.drawCircle(cx, cy, radius, fill(color));
+	}
+
+	public void drawPoints(@NonNull float[] points, int offset, int count, @ColorInt int color, float radius) {
+		if (count < 2)
+			return;
+		/* round caps of the stroke width draw discs in one call */
+		final Paint p = stroke(color, 2.0f * radius);
+		p.setStrokeCap(Paint.Cap.ROUND);
+		canvas.drawPoints(points, offset, count, p);
+	}
+}
@@ -1,9 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.RectF;
-
 import androidx.annotation.NonNull;
 
 /**
@@ -130,15 +126,7 @@ public class Circle extends GeomElement implements Cloneable {
 		return center+",r="+radius;
 	}
 
-	public void paint(@NonNull Canvas graphics) {
-		int width = (int)(radius + radius);
-		int height = (int)(radius + radius);
-		int x = (int)(center.getX() - radius);
-		int y = (int)(center.getY() - radius);
-		Paint paint = new Paint();
-		paint.setStyle(Paint.Style.STROKE);
-		paint.setColor(getColor());
-		paint.setStrokeWidth(3.0f);
-		graphics.drawOval(new RectF(x, y, x+width, y+height), paint);
+	public void render(@NonNull Renderer renderer) {
+		renderer.drawCircle(center.getX(), center.getY(), (float) radius, getColor(), LINE_WIDTH);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Clipping of many segments and rays to a rectangle with the algorithm of
+ * Liang and Barsky. The edges are packed into float arrays, 4 floats per
+ * edge: (x1, y1, x2, y2) for segments, (x, y, directionX, directionY) for
+ * rays. The visible parts are written as segments into a destination
+ * array, which may be the source array itself (clipping in place). Nothing
+ * is allocated.
+ *
+ * @see Segment#clipping(float, float, float, float, float, float, float, float, float[], int)
+ */
+public final class EdgeClipper {
+
+	private EdgeClipper() {
+	}
+
+	/**
+	 * Clips packed segments (x1, y1, x2, y2) to a rectangle.
+	 *
+	 * @param src the segments
+	 * @param srcOffset index of the first coordinate in src
+	 * @param count number of floats (4 per segment)
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the visible segments, needs room for
+	 *        <VAR>count</VAR> floats; may be src if destOffset &lt;= srcOffset
+	 * @param destOffset index of the first coordinate in dest
+	 * @return int number of floats written to dest (4 per visible segment)
+	 */
+	public static int clipSegments(@NonNull float[] src, int srcOffset, int count,
+								   float xmin, float ymin, float xmax, float ymax,
+								   @NonNull float[] dest, int destOffset) {
+		int k = destOffset;
+		for (int i = srcOffset, end = srcOffset + count; i < end; i += 4) {
+			final float x1 = src[i], y1 = src[i + 1];
+			if (clip(x1, y1, src[i + 2] - x1, src[i + 3] - y1, 1.0f, xmin, ymin, xmax, ymax, dest, k))
+				k += 4;
+		}
+		return k - destOffset;
+	}
+
+	/**
+	 * Clips packed rays (x, y, directionX, directionY) to a rectangle.
+	 *
+	 * @param src the rays
+	 * @param srcOffset index of the first coordinate in src
+	 * @param count number of floats (4 per ray)
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the visible segments, needs room for
+	 *        <VAR>count</VAR> floats; may be src if destOffset &lt;= srcOffset
+	 * @param destOffset index of the first coordinate in dest
+	 * @return int number of floats written to dest (4 per visible ray)
+	 */
+	public static int clipRays(@NonNull float[] src, int srcOffset, int count,
+							   float xmin, float ymin, float xmax, float ymax,
+							   @NonNull float[] dest, int destOffset) {
+		int k = destOffset;
+		for (int i = srcOffset, end = srcOffset + count; i < end; i += 4) {
+			if (clipRay(src[i], src[i + 1], src[i + 2], src[i + 3], xmin, ymin, xmax, ymax, dest, k))
+				k += 4;
+		}
+		return k - destOffset;
+	}
+
+	/**
+	 * Clips a single segment to a rectangle.
+	 *
+	 * @param x1, y1, x2, y2 the segment
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the visible segment (x1, y1, x2, y2)
+	 * @param offset index of the first coordinate in dest
+	 * @return boolean <VAR>false</VAR> if the segment is invisible (dest is
+	 *         not modified)
+	 */
+	public static boolean clipSegment(float x1, float y1, float x2, float y2,
+									  float xmin, float ymin, float xmax, float ymax,
+									  @NonNull float[] dest, int offset) {
+		return clip(x1, y1, x2 - x1, y2 - y1, 1.0f, xmin, ymin, xmax, ymax, dest, offset);
+	}
+
+	/**
+	 * Clips a single ray to a rectangle.
+	 *
+	 * @param x, y start point
+	 * @param directionX, directionY direction
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the visible segment (x1, y1, x2, y2)
+	 * @param offset index of the first coordinate in dest
+	 * @return boolean <VAR>false</VAR> if the ray is invisible (dest is not
+	 *         modified)
+	 */
+	public static boolean clipRay(float x, float y, float directionX, float directionY,
+								  float xmin, float ymin, float xmax, float ymax,
+								  @NonNull float[] dest, int offset) {
+		if (directionX == 0.0f && directionY == 0.0f)
+			return false;
+		return clip(x, y, directionX, directionY, Float.POSITIVE_INFINITY, xmin, ymin, xmax, ymax, dest, offset);
+	}
+
+	/*
+	 * Liang-Barsky: the visible part of (x + t*dx, y + t*dy), 0 <= t <= tmax,
+	 * is narrowed down by the four edges of the rectangle.
+	 */
+	private static boolean clip(float x, float y, float dx, float dy, float tmax,
+								float xmin, float ymin, float xmax, float ymax,
+								@NonNull float[] dest, int offset) {
+		float t0 = 0.0f, t1 = tmax;
+		/* left and right */
+		if (dx == 0.0f) {
+			if (x < xmin || x > xmax)
+				return false;
+		} else {
+			float ta = (xmin - x) / dx, tb = (xmax - x) / dx;
+			if (dx < 0.0f) {
+				final float swap = ta;
+				ta = tb;
+				tb = swap;
+			}
+			if (ta > t0)
+				t0 = ta;
+			if (tb < t1)
+				t1 = tb;
+			if (t0 > t1)
+				return false;
+		}
+		/* bottom and top */
+		if (dy == 0.0f) {
+			if (y < ymin || y > ymax)
+				return false;
+		} else {
+			float ta = (ymin - y) / dy, tb = (ymax - y) / dy;
+			if (dy < 0.0f) {
+				final float swap = ta;
+				ta = tb;
+				tb = swap;
+			}
+			if (ta > t0)
+				t0 = ta;
+			if (tb < t1)
+				t1 = tb;
+			if (t0 > t1)
+				return false;
+		}
+		dest[offset] = x + t0 * dx;
+		dest[offset + 1] = y + t0 * dy;
+		dest[offset + 2] = x + t1 * dx;
+		dest[offset + 3] = y + t1 * dy;
+		return true;
+	}
+}
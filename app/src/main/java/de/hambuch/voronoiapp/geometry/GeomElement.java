@@ -1,11 +1,10 @@
 package de.hambuch.voronoiapp.geometry;
 
 import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Color;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 
 /**
  * A superclass for all geometic objects that can be painted.
@@ -14,29 +13,28 @@ import androidx.annotation.Nullable;
  * @author Eric Hambuch
  */
 public abstract class GeomElement {
-	private final Paint linePaint = new Paint();
-	private Paint fillPaint = null;
-	
+	/* stroke width of all lines */
+	protected static final float LINE_WIDTH = 3.0f;
+
+	/* plain colors, the Paint objects are owned by the renderer (one per layer) */
+	@ColorInt
+	private int color = Color.BLACK;
+	@ColorInt
+	private int fillColor = 0;
+
 	public GeomElement() {
-		init();
 	}
 
-	public GeomElement(int color) {
-		setColor(color);
-		init();
+	public GeomElement(@ColorInt int color) {
+		this.color = color;
 	}
 
-	private void init() {
-		linePaint.setStrokeWidth(3.0f);
-	}
-	
 	public void setColor(@ColorInt int color) {
-		linePaint.setStyle(Paint.Style.STROKE);
-		linePaint.setColor(color);
+		this.color = color;
 	}
 
 	public @ColorInt int getColor() {
-		return linePaint.getColor();
+		return color;
 	}
 
 	/**
@@ -44,13 +42,7 @@ public abstract class GeomElement {
 	 * @param color the color or 0 to clear the filling
 	 */
 	public void setFillColor(@ColorInt int color) {
-		if(color == 0) {
-			fillPaint = null;
-		} else {
-			fillPaint = new Paint();
-			fillPaint.setStyle(Paint.Style.FILL);
-			fillPaint.setColor(color);
-		}
+		fillColor = color;
 	}
 
 	/**
@@ -59,20 +51,29 @@ public abstract class GeomElement {
 	 *
 	 * @return the color or 0
 	 */
-	public int getFillColor() {
-		return fillPaint != null ? fillPaint.getColor() : 0;
+	public @ColorInt int getFillColor() {
+		return fillColor;
 	}
 
-	@NonNull
-	protected Paint getLinePaint() {
-		return linePaint;
-	}
-
-	@Nullable
-	protected Paint getFillPaint() {
-		return fillPaint;
+	/**
+	 * paint this element on an Android canvas. The renderer owns the Paint
+	 * and Path, so a view keeps one renderer for all elements and frames and
+	 * only the canvas is replaced.
+	 *
+	 * @param renderer the renderer of the view
+	 * @param graphics the canvas
+	 */
+	public void paint(@NonNull CanvasRenderer renderer, @NonNull Canvas graphics) {
+		renderer.setCanvas(graphics);
+		render(renderer);
 	}
 
-	public abstract void paint(@NonNull Canvas graphics);
+	/**
+	 * draw this element with any rendering backend, e.g. a
+	 * {@link RasterRenderer} on a plain JVM.
+	 *
+	 * @param renderer the backend
+	 */
+	public abstract void render(@NonNull Renderer renderer);
 
 }
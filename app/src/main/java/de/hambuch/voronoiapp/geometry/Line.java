@@ -1,7 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -172,7 +170,7 @@ public class Line extends GeomElement implements Cloneable, Edge {
 		return startPoint.toString()+"-Line: dx="+directionX+",dy="+directionY;
    }
 
-   public void paint(@NonNull Canvas graphics) {
+   public void render(@NonNull Renderer renderer) {
 	   float x0 = startPoint.getX();
 	   float y0 = startPoint.getY();
 		float x1 = x0, y1= y0, x2 = x1, y2 = y1;
@@ -197,6 +195,6 @@ public class Line extends GeomElement implements Cloneable, Edge {
 			y2 = y0 + t*directionY;
 			// Clipping could be done better!
 		}
-		graphics.drawLine((float)x1,(float)y1,(float)x2,(float)y2,getLinePaint());
+		renderer.drawLine((float)x1,(float)y1,(float)x2,(float)y2,getColor(),LINE_WIDTH);
 	}
 }
@@ -0,0 +1,205 @@
+package de.hambuch.voronoiapp.geometry;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of line segments (x1, y1, x2, y2) in the format of
+ * <VAR>Canvas.drawLines()</VAR>. Elements fill the buffer instead of calling
+ * <VAR>Canvas.drawLine()</VAR> per edge, so a whole diagram is drawn with a
+ * single call. The buffer is meant to be cleared and reused.
+ *
+ * @see Segment#clipping(float, float, float, float, float, float, float, float, float[], int)
+ */
+public class LineBuffer {
+
+	/* maximum coordinate, see Segment.drawSegment() */
+	private static final float LIMIT = 16000.0f;
+
+	@NonNull
+	private float[] lines;
+	private int size = 0;
+	/* area for rays and far away segments */
+	private float clipMinX = 0.0f;
+	private float clipMinY = 0.0f;
+	private float clipMaxX = LIMIT;
+	private float clipMaxY = LIMIT;
+
+	public LineBuffer() {
+		this(256);
+	}
+
+	/**
+	 * @param capacity initial number of segments
+	 */
+	public LineBuffer(int capacity) {
+		lines = new float[4 * Math.max(1, capacity)];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Set the area rays and far away segments are clipped to, the default is
+	 * the drawable area (0,0)-(16000,16000).
+	 *
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 */
+	public void setClip(float xmin, float ymin, float xmax, float ymax) {
+		clipMinX = xmin;
+		clipMinY = ymin;
+		clipMaxX = xmax;
+		clipMaxY = ymax;
+	}
+
+	/**
+	 * return the number of floats used (4 per segment).
+	 *
+	 * @return int number of floats
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * return the backing array, only the first <VAR>size()</VAR> floats are
+	 * valid.
+	 *
+	 * @return float[] the segments
+	 */
+	@NonNull
+	public float[] getLines() {
+		return lines;
+	}
+
+	/* make room for one more segment and return its offset */
+	private int reserve() {
+		if (size + 4 > lines.length)
+			lines = Arrays.copyOf(lines, 2 * lines.length);
+		return size;
+	}
+
+	public void add(float x1, float y1, float x2, float y2) {
+		final int i = reserve();
+		lines[i] = x1;
+		lines[i + 1] = y1;
+		lines[i + 2] = x2;
+		lines[i + 3] = y2;
+		size += 4;
+	}
+
+	/**
+	 * add a segment, clipped to the clipping area if it is far away (like
+	 * {@link Segment#drawSegment}).
+	 *
+	 * @param a, b end points
+	 */
+	public void add(@NonNull Point a, @NonNull Point b) {
+		final float ax = a.getX(), ay = a.getY(), bx = b.getX(), by = b.getY();
+		if (ax < -LIMIT || ax > LIMIT || ay < -LIMIT || ay > LIMIT
+				|| bx < -LIMIT || bx > LIMIT || by < -LIMIT || by > LIMIT)
+			addClipped(ax, ay, bx, by, clipMinX, clipMinY, clipMaxX, clipMaxY);
+		else
+			add(ax, ay, bx, by);
+	}
+
+	/**
+	 * add the part of a segment inside a rectangle (nothing if outside).
+	 *
+	 * @param x1, y1, x2, y2 the segment
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 */
+	public void addClipped(float x1, float y1, float x2, float y2,
+						   float xmin, float ymin, float xmax, float ymax) {
+		final int i = reserve();
+		if (EdgeClipper.clipSegment(x1, y1, x2, y2, xmin, ymin, xmax, ymax, lines, i))
+			size += 4;
+	}
+
+	/**
+	 * add the parts of many rays inside the clipping area.
+	 *
+	 * @param rays x, y, directionX, directionY of every ray
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (4 per ray)
+	 */
+	public void addRays(@NonNull float[] rays, int offset, int count) {
+		if (size + count > lines.length)
+			lines = Arrays.copyOf(lines, Math.max(2 * lines.length, size + count));
+		size += EdgeClipper.clipRays(rays, offset, count, clipMinX, clipMinY, clipMaxX, clipMaxY, lines, size);
+	}
+
+	/**
+	 * Clip all segments in the buffer to a rectangle at once, invisible
+	 * segments are removed.
+	 *
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 */
+	public void clip(float xmin, float ymin, float xmax, float ymax) {
+		size = EdgeClipper.clipSegments(lines, 0, size, xmin, ymin, xmax, ymax, lines, 0);
+	}
+
+	/**
+	 * add the part of a ray inside the clipping area (like {@link Ray#render}).
+	 *
+	 * @param x, y start point
+	 * @param directionX, directionY direction
+	 */
+	public void addRay(float x, float y, float directionX, float directionY) {
+		final int i = reserve();
+		if (Ray.clipping(x, y, directionX, directionY, clipMinX, clipMinY, clipMaxX, clipMaxY, lines, i))
+			size += 4;
+	}
+
+	/**
+	 * add the outline of a closed polygon.
+	 *
+	 * @param points the vertices
+	 */
+	public void addPolygon(@NonNull Point[] points) {
+		for (int i = 0; i < points.length; i++)
+			add(points[i], points[(i + 1) % points.length]);
+	}
+
+	/**
+	 * add the outline of a closed polygon.
+	 *
+	 * @param coords x, y of the vertices
+	 */
+	public void addPolygon(@NonNull float[] coords) {
+		final int n = coords.length / 2;
+		for (int i = 0; i < n; i++) {
+			final int j = (i + 1) % n;
+			add(coords[2 * i], coords[2 * i + 1], coords[2 * j], coords[2 * j + 1]);
+		}
+	}
+
+	/**
+	 * draw all segments with one call.
+	 *
+	 * @param g the canvas
+	 * @param paint paint for the lines
+	 */
+	public void draw(@NonNull Canvas g, @NonNull Paint paint) {
+		if (size > 0)
+			g.drawLines(lines, 0, size, paint);
+	}
+
+	/**
+	 * draw all segments with one call of a rendering backend.
+	 *
+	 * @param renderer the backend
+	 * @param color color of the lines
+	 * @param width stroke width
+	 */
+	public void render(@NonNull Renderer renderer, @ColorInt int color, float width) {
+		if (size > 0)
+			renderer.drawLines(lines, 0, size, color, width);
+	}
+}
@@ -1,8 +1,6 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
 
 import androidx.annotation.NonNull;
 
@@ -74,7 +72,7 @@ public class Point extends GeomElement implements Cloneable {
 	@Override
 	@NonNull
 	public Object clone() {
-		return new Point(x,y,getLinePaint().getColor());
+		return new Point(x,y,getColor());
 	}
 
 	@NonNull
@@ -122,8 +120,8 @@ public class Point extends GeomElement implements Cloneable {
 		return 0;
 	}
 
-	public void paint(@NonNull Canvas graphics) {
-		final Paint paint = getFillPaint() != null ? getFillPaint() : getLinePaint();
-		graphics.drawCircle((float)x, (float)y, 6, paint);
+	public void render(@NonNull Renderer renderer) {
+		final int color = getFillColor() != 0 ? getFillColor() : getColor();
+		renderer.fillCircle(x, y, 6.0f, color);
 	}
 }
@@ -1,7 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -18,7 +16,6 @@ public abstract class Polygon extends GeomElement {
 
 	@NonNull
 	protected final Vector<Point> points;
-	protected int fillColor = 0x000000;
 
 	public Polygon() {
 		super();
@@ -56,7 +53,7 @@ public abstract class Polygon extends GeomElement {
 		points.removeElement(point);
 	}
 
-	public abstract void paint(@NonNull Canvas g);
+	public abstract void render(@NonNull Renderer renderer);
 
 	/**
 	 * return an array of all points.
@@ -98,115 +95,61 @@ public abstract class Polygon extends GeomElement {
 	 * @return Polygon the polygon clipped to the given rectangle (may be
 	 *         <VAR>null</VAR> if empty!)
 	 */
+	@Nullable
 	public Polygon clipTo(float xmin, float ymin, float xmax, float ymax) {
-		Vector<Point> points1 = cutBottom(this.points, ymax);
-		Vector<Point> points2 = cutTop(points1, ymin);
-		points1 = cutLeft(points2, xmin);
-		points2 = cutRight(points1, xmax);
-		if (points2.size() > 1) {
-			SimplePolygon poly = new SimplePolygon(points2);
-			poly.setColor(getColor());
-			poly.setFillColor(getFillColor());
-			return poly;
-		}
-		return null;
+		final PolygonClipper clipper = new PolygonClipper(points.size() + 4);
+		return clipTo(clipper, xmin, ymin, xmax, ymax) ? clipper.toPolygon(this) : null;
 	}
 
-	/*
-	 * Clipping routines for every edge. See: W.D. Fellner: Computergrafik,
-	 * B.I.Wissenschaftsverlag, 1992
+	/**
+	 * Clips the polygon to (xmin, ymin)-(xmax, ymax) without creating a new
+	 * polygon.
+	 *
+	 * @param clipper receives the vertices of the clipped polygon
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @return boolean <VAR>false</VAR> if the polygon is invisible
 	 */
-	@NonNull
-	protected Vector<Point> cutBottom(@NonNull Vector<Point> points, float ymax) {
-		Vector<Point> newpoints = new Vector<Point>();
-		int i = 0;
-		while (i < points.size()) {
-			Point p = (Point) points.get(i % points.size());
-			Point q = (Point) points.get((i + 1) % points.size());
-			/* normal point */
-			if (p.getY() <= ymax) {
-				/* is visible */
-				newpoints.addElement(p);
-			}
-			/* intersection of (p,q) with clipping edge */
-			if (p.getY() != q.getY()) {
-				float t = (ymax - q.getY()) / (p.getY() - q.getY());
-				float sx = q.getX() + t * (p.getX() - q.getX());
-				if (t >= 0.0 && t <= 1.0)
-					newpoints.addElement(new Point(sx, ymax));
-			}
-			i++;
-		}
-		return newpoints;
-	}
-
-	@NonNull
-	protected Vector<Point> cutTop(@NonNull Vector<Point> points, float ymin) {
-		Vector<Point> newpoints = new Vector<Point>();
-		int i = 0;
-		while (i < points.size()) {
-			Point p = (Point) points.get(i % points.size());
-			Point q = (Point) points.get((i + 1) % points.size());
-			/* normal point */
-			if (p.getY() >= ymin) {
-				/* is visible */
-				newpoints.addElement(p);
-			}
-			/* intersection of (lastPoint-p) with clipping edge */
-			if (p.getY() != q.getY()) {
-				float t = (ymin - q.getY()) / (p.getY() - q.getY());
-				float sx = q.getX() + t * (p.getX() - q.getX());
-				if (t >= 0.0 && t <= 1.0)
-					newpoints.addElement(new Point(sx, ymin));
-			}
-			i++;
-		}
-		return newpoints;
+	public boolean clipTo(@NonNull PolygonClipper clipper, float xmin, float ymin, float xmax, float ymax) {
+		clipper.reset();
+		addOutline(clipper, xmin, ymin, xmax, ymax);
+		return clipper.clip(xmin, ymin, xmax, ymax) > 1;
 	}
 
-	protected Vector<Point> cutLeft(Vector<Point> points, float xmin) {
-		Vector<Point> newpoints = new Vector<Point>();
-		int i = 0;
-		while (i < points.size()) {
-			Point p = (Point) points.elementAt(i % points.size());
-			Point q = (Point) points.elementAt((i + 1) % points.size());
-			/* normal point */
-			if (p.getX() >= xmin) {
-				/* is visible */
-				newpoints.addElement(p);
-			}
-			/* intersection of (p-q) with clipping edge */
-			if (p.getX() != q.getX()) {
-				float t = (xmin - q.getX()) / (p.getX() - q.getX());
-				float sy = q.getY() + t * (p.getY() - q.getY());
-				if (t >= 0.0 && t <= 1.0)
-					newpoints.addElement(new Point(xmin, sy));
-			}
-			i++;
+	/**
+	 * Clips the polygon to a convex polygon.
+	 *
+	 * @param clipper receives the vertices of the clipped polygon
+	 * @param clip x, y of the vertices of the convex polygon
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 * @return boolean <VAR>false</VAR> if the polygon is invisible
+	 */
+	public boolean clipTo(@NonNull PolygonClipper clipper, @NonNull float[] clip, int offset, int count) {
+		float xmin = Float.POSITIVE_INFINITY, ymin = Float.POSITIVE_INFINITY;
+		float xmax = Float.NEGATIVE_INFINITY, ymax = Float.NEGATIVE_INFINITY;
+		for (int i = offset; i + 1 < offset + count; i += 2) {
+			xmin = Math.min(xmin, clip[i]);
+			xmax = Math.max(xmax, clip[i]);
+			ymin = Math.min(ymin, clip[i + 1]);
+			ymax = Math.max(ymax, clip[i + 1]);
 		}
-		return newpoints;
+		clipper.reset();
+		if (xmin > xmax)
+			return false;
+		addOutline(clipper, xmin, ymin, xmax, ymax);
+		return clipper.clip(clip, offset, count) > 1;
 	}
 
-	protected Vector<Point> cutRight(Vector<Point> points, float xmax) {
-		Vector<Point> newpoints = new Vector<Point>();
-		int i = 0;
-		while (i < points.size()) {
-			Point p = (Point) points.elementAt(i % points.size());
-			Point q = (Point) points.elementAt((i + 1) % points.size());
-			/* normal point */
-			if (p.getX() <= xmax) {
-				/* is visible */
-				newpoints.addElement(p);
-			}
-			/* intersection of (p-q) with clipping edge */
-			if (p.getX() != q.getX()) {
-				float t = (xmax - q.getX()) / (p.getX() - q.getX());
-				float sy = q.getY() + t * (p.getY() - q.getY());
-				if (t >= 0.0 && t <= 1.0)
-					newpoints.addElement(new Point(xmax, sy));
-			}
-			i++;
-		}
-		return newpoints;
+	/**
+	 * add the vertices of a closed polygon to a clipper that covers this
+	 * polygon inside the clipping area.
+	 *
+	 * @param clipper the clipper
+	 * @param xmin, ymin, xmax, ymax bounding box of the clipping area
+	 */
+	protected void addOutline(@NonNull PolygonClipper clipper, float xmin, float ymin, float xmax, float ymax) {
+		final int size = points.size();
+		for (int i = 0; i < size; i++)
+			clipper.addPoint(points.get(i));
 	}
 }
@@ -0,0 +1,204 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Clips polygons with the algorithm of Sutherland and Hodgman, see W.D.
+ * Fellner: Computergrafik, B.I.Wissenschaftsverlag, 1992. The vertices are
+ * kept as x, y in two float arrays used alternately for the clipping edges,
+ * so a clipper reused for many polygons does not allocate anything once the
+ * arrays are large enough.
+ * <p>Usage: add the vertices with {@link #addPoint(float, float)} (or
+ * {@link #set(float[], int, int)}), clip with {@link #clip(float, float, float, float)}
+ * or {@link #clip(float[], int, int)} (several times if needed), then read
+ * {@link #getCoords()}. Not thread-safe, use one clipper per thread.</p>
+ */
+public class PolygonClipper {
+
+	@NonNull
+	private float[] coords;
+	@NonNull
+	private float[] buffer;
+	/* number of floats used in coords */
+	private int size = 0;
+
+	public PolygonClipper() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity initial number of vertices
+	 */
+	public PolygonClipper(int capacity) {
+		coords = new float[2 * Math.max(4, capacity)];
+		buffer = new float[coords.length];
+	}
+
+	/**
+	 * remove all vertices.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	public void addPoint(float x, float y) {
+		if (size + 2 > coords.length)
+			coords = Arrays.copyOf(coords, 2 * coords.length);
+		coords[size] = x;
+		coords[size + 1] = y;
+		size += 2;
+	}
+
+	public void addPoint(@NonNull Point p) {
+		addPoint(p.getX(), p.getY());
+	}
+
+	/**
+	 * replace the vertices.
+	 *
+	 * @param points x, y of the vertices
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 */
+	public void set(@NonNull float[] points, int offset, int count) {
+		if (count > coords.length)
+			coords = new float[count];
+		System.arraycopy(points, offset, coords, 0, count);
+		size = count;
+	}
+
+	/**
+	 * return the vertices, only the first <VAR>size()</VAR> floats are valid.
+	 *
+	 * @return float[] x, y of the vertices, changed by the next call
+	 */
+	@NonNull
+	public float[] getCoords() {
+		return coords;
+	}
+
+	/**
+	 * return the number of floats used (2 per vertex).
+	 *
+	 * @return int number of floats
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * return the number of vertices.
+	 *
+	 * @return int number of vertices
+	 */
+	public int getPointCount() {
+		return size / 2;
+	}
+
+	/**
+	 * return a copy of the vertices.
+	 *
+	 * @return float[] x, y of the vertices
+	 */
+	@NonNull
+	public float[] toArray() {
+		return Arrays.copyOf(coords, size);
+	}
+
+	/**
+	 * Clips the polygon to (xmin, ymin)-(xmax, ymax). Intersections with the
+	 * edges of the rectangle lie exactly on them.
+	 *
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @return int number of vertices left, 0 if the polygon is invisible
+	 */
+	public int clip(float xmin, float ymin, float xmax, float ymax) {
+		clip(0.0f, -1.0f, ymax);
+		clip(0.0f, 1.0f, -ymin);
+		clip(1.0f, 0.0f, -xmin);
+		clip(-1.0f, 0.0f, xmax);
+		return getPointCount();
+	}
+
+	/**
+	 * Clips the polygon to a convex polygon of either orientation.
+	 *
+	 * @param clip x, y of the vertices of the convex polygon
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 * @return int number of vertices left, 0 if the polygon is invisible
+	 */
+	public int clip(@NonNull float[] clip, int offset, int count) {
+		final int n = count / 2;
+		if (n < 3) {
+			size = 0;
+			return 0;
+		}
+		/* orientation of the clip polygon */
+		double area = 0.0;
+		for (int i = 0, j = n - 1; i < n; j = i++)
+			area += (double) clip[offset + 2 * j] * clip[offset + 2 * i + 1]
+					- (double) clip[offset + 2 * i] * clip[offset + 2 * j + 1];
+		final float sign = area < 0.0 ? -1.0f : 1.0f;
+		for (int i = 0, j = n - 1; i < n && size > 0; j = i++) {
+			final float x1 = clip[offset + 2 * j], y1 = clip[offset + 2 * j + 1];
+			final float x2 = clip[offset + 2 * i], y2 = clip[offset + 2 * i + 1];
+			/* inside is left of (x1,y1)->(x2,y2) for counterclockwise polygons */
+			final float a = sign * (y1 - y2);
+			final float b = sign * (x2 - x1);
+			clip(a, b, -(a * x1 + b * y1));
+		}
+		return getPointCount();
+	}
+
+	/* keep the part of the polygon with a*x + b*y + c >= 0 */
+	private void clip(float a, float b, float c) {
+		if (size == 0)
+			return;
+		if (buffer.length < 2 * size)
+			buffer = new float[Math.max(2 * size, coords.length)];
+		final float[] in = coords;
+		final float[] out = buffer;
+		int k = 0;
+		float px = in[size - 2], py = in[size - 1];
+		float dp = a * px + b * py + c;
+		for (int i = 0; i < size; i += 2) {
+			final float qx = in[i], qy = in[i + 1];
+			final float dq = a * qx + b * qy + c;
+			if ((dp >= 0.0f) != (dq >= 0.0f)) {
+				/* the edge (p,q) crosses the clipping edge */
+				final float t = dp / (dp - dq);
+				out[k++] = b == 0.0f ? -c / a : px + t * (qx - px);
+				out[k++] = a == 0.0f ? -c / b : py + t * (qy - py);
+			}
+			if (dq >= 0.0f) {
+				out[k++] = qx;
+				out[k++] = qy;
+			}
+			px = qx;
+			py = qy;
+			dp = dq;
+		}
+		coords = out;
+		buffer = in;
+		size = k;
+	}
+
+	/**
+	 * create a polygon from the vertices, with the colors of another element.
+	 *
+	 * @param style element to take the colors from
+	 * @return SimplePolygon the polygon
+	 */
+	@NonNull
+	public SimplePolygon toPolygon(@NonNull GeomElement style) {
+		final SimplePolygon polygon = new SimplePolygon();
+		for (int i = 0; i < size; i += 2)
+			polygon.addPoint(new Point(coords[i], coords[i + 1]));
+		polygon.setColor(style.getColor());
+		polygon.setFillColor(style.getFillColor());
+		return polygon;
+	}
+}
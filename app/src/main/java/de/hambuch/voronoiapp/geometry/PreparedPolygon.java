@@ -0,0 +1,204 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * A simple polygon prepared for many point-in-polygon tests. The plane is
+ * cut into horizontal slabs at the y coordinates of the vertices; inside a
+ * slab the edges crossing it do not intersect, so they are sorted by x once.
+ * A test finds the slab and the position of the point among its edges by
+ * binary search, in O(log n). The number of edges left of the point decides
+ * (even-odd rule).
+ * <p>Points on the border (within {@link Point#CLOSE}) belong to the
+ * polygon. The polygon must not change after preparing, a prepared polygon
+ * is immutable and may be shared by threads.</p>
+ *
+ * @see SimplePolygon#prepare()
+ */
+public class PreparedPolygon {
+
+	private static final float CLOSE = (float) Point.CLOSE;
+
+	/* all edges (x1, y1, x2, y2), also horizontal ones */
+	@NonNull
+	private final float[] edges;
+	/* sorted distinct y of the vertices, slab i is between ys[i] and ys[i + 1] */
+	@NonNull
+	private final float[] ys;
+	/* edges of slab i (indices into edges / 4) are slabEdges[slabStart[i] .. slabStart[i + 1] - 1] */
+	@NonNull
+	private final int[] slabStart;
+	@NonNull
+	private final int[] slabEdges;
+
+	/**
+	 * @param coords x, y of the vertices
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 */
+	public PreparedPolygon(@NonNull float[] coords, int offset, int count) {
+		final int n = count / 2;
+		edges = new float[4 * n];
+		final float[] vertexYs = new float[n];
+		for (int i = 0; i < n; i++) {
+			final int j = (i + 1) % n;
+			edges[4 * i] = coords[offset + 2 * i];
+			edges[4 * i + 1] = coords[offset + 2 * i + 1];
+			edges[4 * i + 2] = coords[offset + 2 * j];
+			edges[4 * i + 3] = coords[offset + 2 * j + 1];
+			vertexYs[i] = coords[offset + 2 * i + 1];
+		}
+		Arrays.sort(vertexYs);
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (m == 0 || vertexYs[i] != vertexYs[m - 1])
+				vertexYs[m++] = vertexYs[i];
+		}
+		ys = Arrays.copyOf(vertexYs, m);
+		final int slabs = Math.max(0, m - 1);
+
+		/* count, then fill the edges of every slab */
+		slabStart = new int[slabs + 1];
+		for (int e = 0; e < n; e++) {
+			final float y1 = edges[4 * e + 1], y2 = edges[4 * e + 3];
+			if (y1 != y2) {
+				final int last = Arrays.binarySearch(ys, Math.max(y1, y2));
+				for (int s = Arrays.binarySearch(ys, Math.min(y1, y2)); s < last; s++)
+					slabStart[s + 1]++;
+			}
+		}
+		for (int s = 0; s < slabs; s++)
+			slabStart[s + 1] += slabStart[s];
+		slabEdges = new int[slabStart[slabs]];
+		final int[] next = Arrays.copyOf(slabStart, slabs);
+		for (int e = 0; e < n; e++) {
+			final float y1 = edges[4 * e + 1], y2 = edges[4 * e + 3];
+			if (y1 != y2) {
+				final int last = Arrays.binarySearch(ys, Math.max(y1, y2));
+				for (int s = Arrays.binarySearch(ys, Math.min(y1, y2)); s < last; s++)
+					slabEdges[next[s]++] = e;
+			}
+		}
+
+		/* sort the edges of a slab by x in its middle, as long keys: sortable float bits, index */
+		long[] keys = new long[0];
+		for (int s = 0; s < slabs; s++) {
+			final int from = slabStart[s], size = slabStart[s + 1] - from;
+			if (keys.length < size)
+				keys = new long[size];
+			final double mid = ((double) ys[s] + ys[s + 1]) / 2.0;
+			for (int k = 0; k < size; k++) {
+				final int e = slabEdges[from + k];
+				int bits = Float.floatToIntBits((float) xAt(e, mid));
+				if (bits < 0)
+					bits ^= 0x7fffffff;
+				keys[k] = (long) bits << 32 | e;
+			}
+			Arrays.sort(keys, 0, size);
+			for (int k = 0; k < size; k++)
+				slabEdges[from + k] = (int) keys[k];
+		}
+	}
+
+	/**
+	 * @param polygon the polygon, must be simple
+	 */
+	public PreparedPolygon(@NonNull Polygon polygon) {
+		this(coords(polygon), 0, 2 * polygon.size());
+	}
+
+	@NonNull
+	private static float[] coords(@NonNull Polygon polygon) {
+		final float[] coords = new float[2 * polygon.size()];
+		for (int i = 0; i < polygon.size(); i++) {
+			final Point p = polygon.points.get(i);
+			coords[2 * i] = p.getX();
+			coords[2 * i + 1] = p.getY();
+		}
+		return coords;
+	}
+
+	/* x of the (not horizontal) edge e at height y */
+	private double xAt(int e, double y) {
+		final double x1 = edges[4 * e], y1 = edges[4 * e + 1];
+		final double x2 = edges[4 * e + 2], y2 = edges[4 * e + 3];
+		return x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+	}
+
+	/**
+	 * Checks if a point lies in the polygon or on its border.
+	 *
+	 * @param x, y the point
+	 * @return boolean <VAR>true</VAR> if inside or on the border
+	 */
+	public boolean contains(float x, float y) {
+		final int m = ys.length;
+		if (m == 0 || y < ys[0] - CLOSE || y > ys[m - 1] + CLOSE)
+			return false;
+		/* slab with ys[s] <= y < ys[s + 1] */
+		int s = Arrays.binarySearch(ys, y);
+		if (s < 0)
+			s = -s - 2;
+		if (s < 0 || s >= m - 1 || y - ys[s] <= CLOSE || ys[s + 1] - y <= CLOSE)
+			return containsNearVertex(x, y); /* at the height of a vertex */
+		final int from = slabStart[s], to = slabStart[s + 1];
+		/* number of edges left of the point */
+		int lo = from, hi = to;
+		while (lo < hi) {
+			final int k = (lo + hi) >>> 1;
+			if (xAt(slabEdges[k], y) < x)
+				lo = k + 1;
+			else
+				hi = k;
+		}
+		/* the border can only be close on the edges next to the point */
+		if (lo > from && closeToEdge(x, y, slabEdges[lo - 1]))
+			return true;
+		if (lo < to && closeToEdge(x, y, slabEdges[lo]))
+			return true;
+		return ((lo - from) & 1) == 1;
+	}
+
+	/**
+	 * Checks many points at once.
+	 *
+	 * @param xy x, y of the points
+	 * @param out result for every point, see {@link #contains(float, float)}
+	 */
+	public void contains(@NonNull float[] xy, @NonNull boolean[] out) {
+		final int n = Math.min(xy.length / 2, out.length);
+		for (int i = 0; i < n; i++)
+			out[i] = contains(xy[2 * i], xy[2 * i + 1]);
+	}
+
+	/* linear test for points close to the height of a vertex */
+	private boolean containsNearVertex(float x, float y) {
+		boolean inside = false;
+		for (int i = 0; i < edges.length; i += 4) {
+			final float x1 = edges[i], y1 = edges[i + 1], x2 = edges[i + 2], y2 = edges[i + 3];
+			if (distanceSquare(x, y, x1, y1, x2, y2) <= CLOSE * CLOSE)
+				return true;
+			/* half open edges, so a vertex is counted once */
+			if ((y1 <= y) != (y2 <= y) && x1 + (y - y1) * (x2 - x1) / (y2 - y1) < x)
+				inside = !inside;
+		}
+		return inside;
+	}
+
+	private boolean closeToEdge(float x, float y, int e) {
+		return distanceSquare(x, y, edges[4 * e], edges[4 * e + 1], edges[4 * e + 2], edges[4 * e + 3])
+				<= CLOSE * CLOSE;
+	}
+
+	/* squared distance of (x, y) to the segment (x1, y1)-(x2, y2) */
+	static double distanceSquare(double x, double y, double x1, double y1, double x2, double y2) {
+		final double dx = x2 - x1, dy = y2 - y1;
+		final double length = dx * dx + dy * dy;
+		double t = length > 0.0 ? ((x - x1) * dx + (y - y1) * dy) / length : 0.0;
+		t = Math.max(0.0, Math.min(1.0, t));
+		final double ex = x1 + t * dx - x, ey = y1 + t * dy - y;
+		return ex * ex + ey * ey;
+	}
+}
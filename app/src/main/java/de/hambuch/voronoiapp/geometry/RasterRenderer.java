@@ -0,0 +1,214 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * {@link Renderer} drawing into an <VAR>int[]</VAR> of ARGB pixels, in pure
+ * Java without any Android classes. Meant for images created on a plain JVM
+ * (servers, benchmarks). Every primitive is filled by scanlines, sampled at
+ * the pixel centers, without anti-aliasing; translucent colors are blended
+ * with src-over. Independent instances may be used by different threads.
+ */
+public class RasterRenderer implements Renderer {
+
+	private final int width;
+	private final int height;
+	@NonNull
+	private final int[] pixels;
+	/* reused: vertices of a thick line, clipped segment and crossings of a scanline */
+	private final float[] quad = new float[8];
+	private final float[] segment = new float[4];
+	@NonNull
+	private float[] crossings = new float[16];
+
+	/**
+	 * @param width, height size of the image in pixels
+	 */
+	public RasterRenderer(int width, int height) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("size " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		pixels = new int[width * height];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * return the pixels row by row, (x, y) is at index <VAR>y * width + x</VAR>.
+	 *
+	 * @return int[] ARGB pixels, not copied
+	 */
+	@NonNull
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * fill the whole image with a color (without blending).
+	 *
+	 * @param color the color, e.g. 0 for transparent
+	 */
+	public void clear(@ColorInt int color) {
+		Arrays.fill(pixels, color);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, @ColorInt int color, float width) {
+		final float half = Math.max(1.0f, width) / 2.0f;
+		/* clip first, lines may be thousands of pixels long (see Segment.drawSegment()) */
+		if (!Segment.clipping(x1, y1, x2, y2, -half, -half, this.width + half, height + half, segment, 0))
+			return;
+		x1 = segment[0];
+		y1 = segment[1];
+		x2 = segment[2];
+		y2 = segment[3];
+		final float dx = x2 - x1, dy = y2 - y1;
+		final float length = (float) Math.sqrt(dx * dx + dy * dy);
+		if (length == 0.0f) {
+			fillCircle(x1, y1, half, color);
+			return;
+		}
+		/* the line is a rectangle around the segment */
+		final float nx = -dy / length * half, ny = dx / length * half;
+		quad[0] = x1 + nx;
+		quad[1] = y1 + ny;
+		quad[2] = x2 + nx;
+		quad[3] = y2 + ny;
+		quad[4] = x2 - nx;
+		quad[5] = y2 - ny;
+		quad[6] = x1 - nx;
+		quad[7] = y1 - ny;
+		fillPolygon(quad, 0, 8, color);
+	}
+
+	public void drawLines(@NonNull float[] lines, int offset, int count, @ColorInt int color, float width) {
+		for (int i = offset; i + 3 < offset + count; i += 4)
+			drawLine(lines[i], lines[i + 1], lines[i + 2], lines[i + 3], color, width);
+	}
+
+	public void drawPolyline(@NonNull float[] coords, int offset, int count, boolean closed,
+							 @ColorInt int color, float width) {
+		final int end = offset + count - 2;
+		for (int i = offset; i < end; i += 2)
+			drawLine(coords[i], coords[i + 1], coords[i + 2], coords[i + 3], color, width);
+		if (closed && count >= 6)
+			drawLine(coords[end], coords[end + 1], coords[offset], coords[offset + 1], color, width);
+	}
+
+	public void fillPolygon(@NonNull float[] coords, int offset, int count, @ColorInt int color) {
+		final int n = count / 2;
+		if (n < 3)
+			return;
+		float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			final float y = coords[offset + 2 * i + 1];
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		if (crossings.length < n)
+			crossings = new float[2 * n];
+		final int firstRow = Math.max(0, (int) Math.ceil(minY - 0.5f));
+		final int lastRow = Math.min(height - 1, (int) Math.floor(maxY - 0.5f));
+		for (int row = firstRow; row <= lastRow; row++) {
+			final float sy = row + 0.5f;
+			int k = 0;
+			for (int i = 0, j = n - 1; i < n; j = i++) {
+				final float xi = coords[offset + 2 * i], yi = coords[offset + 2 * i + 1];
+				final float xj = coords[offset + 2 * j], yj = coords[offset + 2 * j + 1];
+				if ((yi <= sy) != (yj <= sy)) {
+					/* insertion sort, there are only a few crossings */
+					final float x = xi + (sy - yi) / (yj - yi) * (xj - xi);
+					int m = k++;
+					while (m > 0 && crossings[m - 1] > x) {
+						crossings[m] = crossings[m - 1];
+						m--;
+					}
+					crossings[m] = x;
+				}
+			}
+			/* even-odd: fill between pairs of crossings */
+			for (int m = 0; m + 1 < k; m += 2)
+				span(row, crossings[m], crossings[m + 1], color);
+		}
+	}
+
+	public void drawCircle(float cx, float cy, float radius, @ColorInt int color, float width) {
+		final float half = Math.max(1.0f, width) / 2.0f;
+		final float outer = radius + half, inner = radius - half;
+		if (inner <= 0.0f) {
+			fillCircle(cx, cy, outer, color);
+			return;
+		}
+		final int firstRow = Math.max(0, (int) Math.ceil(cy - outer - 0.5f));
+		final int lastRow = Math.min(height - 1, (int) Math.floor(cy + outer - 0.5f));
+		for (int row = firstRow; row <= lastRow; row++) {
+			final float dy = row + 0.5f - cy;
+			final float dxOuter = (float) Math.sqrt(Math.max(0.0f, outer * outer - dy * dy));
+			if (Math.abs(dy) >= inner) {
+				span(row, cx - dxOuter, cx + dxOuter, color);
+			} else {
+				/* the ring is cut twice by this row */
+				final float dxInner = (float) Math.sqrt(inner * inner - dy * dy);
+				span(row, cx - dxOuter, cx - dxInner, color);
+				span(row, cx + dxInner, cx + dxOuter, color);
+			}
+		}
+	}
+
+	public void fillCircle(float cx, float cy, float radius, @ColorInt int color) {
+		final int firstRow = Math.max(0, (int) Math.ceil(cy - radius - 0.5f));
+		final int lastRow = Math.min(height - 1, (int) Math.floor(cy + radius - 0.5f));
+		for (int row = firstRow; row <= lastRow; row++) {
+			final float dy = row + 0.5f - cy;
+			final float dx = (float) Math.sqrt(Math.max(0.0f, radius * radius - dy * dy));
+			span(row, cx - dx, cx + dx, color);
+		}
+	}
+
+	public void drawPoints(@NonNull float[] points, int offset, int count, @ColorInt int color, float radius) {
+		for (int i = offset; i + 1 < offset + count; i += 2)
+			fillCircle(points[i], points[i + 1], radius, color);
+	}
+
+	/* fill the pixels of a row whose centers lie in [x1, x2) */
+	private void span(int row, float x1, float x2, @ColorInt int color) {
+		final int from = Math.max(0, (int) Math.ceil(x1 - 0.5f));
+		final int to = Math.min(width, (int) Math.ceil(x2 - 0.5f));
+		if (from >= to)
+			return;
+		final int start = row * width;
+		final int alpha = color >>> 24;
+		if (alpha == 0xff) {
+			Arrays.fill(pixels, start + from, start + to, color);
+		} else if (alpha != 0) {
+			for (int i = start + from; i < start + to; i++)
+				pixels[i] = blend(pixels[i], color, alpha);
+		}
+	}
+
+	/* src-over of color (with alpha 1..254) on an ARGB pixel */
+	private static int blend(int dst, int src, int alpha) {
+		final int inverse = 255 - alpha;
+		final int dstAlpha = dst >>> 24;
+		final int outAlpha = alpha + dstAlpha * inverse / 255;
+		if (outAlpha == 0)
+			return 0;
+		final int r = channel(src >> 16, dst >> 16, alpha, dstAlpha * inverse / 255, outAlpha);
+		final int g = channel(src >> 8, dst >> 8, alpha, dstAlpha * inverse / 255, outAlpha);
+		final int b = channel(src, dst, alpha, dstAlpha * inverse / 255, outAlpha);
+		return outAlpha << 24 | r << 16 | g << 8 | b;
+	}
+
+	private static int channel(int src, int dst, int srcWeight, int dstWeight, int outAlpha) {
+		return ((src & 0xff) * srcWeight + (dst & 0xff) * dstWeight) / outAlpha;
+	}
+}
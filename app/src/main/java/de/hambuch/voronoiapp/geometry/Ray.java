@@ -1,7 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -223,26 +221,9 @@ public class Ray extends GeomElement implements Cloneable, Edge {
 
 	@Nullable
 	public Segment clipTo(float xmin, float ymin, float xmax, float ymax) {
-		float x1 = startPoint.getX();
-		float y1 = startPoint.getY();
-		float x2 = x1, y2 = y1;
-
-		if (directionX > 0.0f) {
-			x2 = xmax;
-			y2 = y1 + (x2 - x1) / directionX * directionY;
-		} else if (directionX < 0.0f) {
-			x2 = xmin;
-			y2 = y1 + (x2 - x1) / directionX * directionY;
-		} else {
-			x2 = x1;
-			if (directionY > 0.0)
-				y2 = ymax;
-			else
-				y2 = ymin;
-		}
-		float[] koords = Segment.clipping(x1, y1, x2, y2, xmin, ymin, xmax,
-				ymax);
-		if(koords == null)
+		final float[] koords = new float[4];
+		if (!clipping(startPoint.getX(), startPoint.getY(), directionX, directionY,
+				xmin, ymin, xmax, ymax, koords, 0))
 			return null;
 		final Segment segment = new Segment(koords[0], koords[1], koords[2], koords[3]);
 		segment.setColor(getColor());
@@ -255,32 +236,41 @@ public class Ray extends GeomElement implements Cloneable, Edge {
 				+ directionY;
 	}
 
-	public void paint(@NonNull Canvas graphics) {
-		float x1 = startPoint.getX();
-		float y1 = startPoint.getY();
-		float x2 = x1, y2 = y1;
-		float xmax = 16000.0f; /* maximum size of graphics ?! */
-		float ymax = 16000.0f;
-		/* Ray is vertical */
-		if (directionX == 0.0f) {
-			x2 = x1;
-			if (directionY < 0f)
-				y2 = 0.0f;
-			else
-				y2 = ymax;
-		} else if (directionX > 0.0f) {
-			y2 = y1 + (xmax - x1) / directionX * directionY;
-			x2 = xmax;
-		} else {
-			y2 = y1 + (0 - x1) / directionX * directionY;
-			x2 = 0.0f;
+	public void render(@NonNull Renderer renderer) {
+		float[] koords = new float[4];
+		if (clipping(startPoint.getX(), startPoint.getY(), directionX, directionY, koords, 0)) {
+			renderer.drawLine(koords[0], koords[1], koords[2], koords[3], getColor(), LINE_WIDTH);
 		}
+	}
 
-		float[] koords = Segment.clipping(x1, y1, x2, y2, 0.0f, 0.0f, 16000.0f,
-				16000.0f);
-		if (koords != null) {
-			graphics.drawLine((float) koords[0], (float) koords[1],
-					(float) koords[2], (float) koords[3], getLinePaint());
-		}
+	/**
+	 * Clip a ray to the drawable area (0,0)-(16000,16000) without allocation.
+	 *
+	 * @param x1, y1 start point
+	 * @param directionX, directionY direction
+	 * @param dest array for the visible segment (x1, y1, x2, y2)
+	 * @param offset index of the first coordinate in dest
+	 * @return boolean <VAR>false</VAR> if the ray is invisible
+	 */
+	public static boolean clipping(float x1, float y1, float directionX, float directionY,
+								   @NonNull float[] dest, int offset) {
+		/* maximum size of graphics ?! */
+		return clipping(x1, y1, directionX, directionY, 0.0f, 0.0f, 16000.0f, 16000.0f, dest, offset);
+	}
+
+	/**
+	 * Clip a ray to a rectangle without allocation.
+	 *
+	 * @param x1, y1 start point
+	 * @param directionX, directionY direction
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the visible segment (x1, y1, x2, y2)
+	 * @param offset index of the first coordinate in dest
+	 * @return boolean <VAR>false</VAR> if the ray is invisible
+	 */
+	public static boolean clipping(float x1, float y1, float directionX, float directionY,
+								   float xmin, float ymin, float xmax, float ymax,
+								   @NonNull float[] dest, int offset) {
+		return EdgeClipper.clipRay(x1, y1, directionX, directionY, xmin, ymin, xmax, ymax, dest, offset);
 	}
 }
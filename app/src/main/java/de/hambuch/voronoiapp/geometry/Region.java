@@ -1,7 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -83,31 +81,27 @@ public class Region extends Polygon implements Cloneable {
 	}
 
 	/**
-	 * Clips the region to an given rectangle (xmin, ymin)-(xmax, ymax)
+	 * Closes the region for the polygon clipping algorithm: every pair of
+	 * rays is replaced by far away points on them and a point between them,
+	 * the whole R<SUP>2</SUP> by the clipping area.
 	 * 
+	 * @param clipper
 	 * @param xmin
 	 * @param ymin
 	 * @param xmax
 	 * @param ymax
-	 * @return Polygon the clipped polygon. May be <VAR>null</VAR> if invisible.
 	 */
-
-	@Nullable
-	public Polygon clipTo(float xmin, float ymin, float xmax, float ymax) {
-		/*
-		 * we try to close our region so that we can use the polygon clipping
-		 * algorithm
-		 */
-		Vector<Point> points1 = new Vector<Point>(this.points.size());
+	@Override
+	protected void addOutline(@NonNull PolygonClipper clipper, float xmin, float ymin, float xmax, float ymax) {
 		if (points.size() <= 1) {
 			/* the whole R^2 clips to (xmin,ymin,xmax,ymax) */
-			points1.addElement(new Point(xmin, ymin)); /*
-														 * mind the correct
-														 * orientation !
-														 */
-			points1.addElement(new Point(xmax, ymin));
-			points1.addElement(new Point(xmax, ymax));
-			points1.addElement(new Point(xmin, ymax));
+			clipper.addPoint(xmin, ymin); /*
+											 * mind the correct
+											 * orientation !
+											 */
+			clipper.addPoint(xmax, ymin);
+			clipper.addPoint(xmax, ymax);
+			clipper.addPoint(xmin, ymax);
 		} else {
 			float dist = (xmax - xmin) * (xmax - xmin) + (ymax - ymin)
 					* (ymax - ymin);
@@ -116,7 +110,7 @@ public class Region extends Polygon implements Cloneable {
 				Point p = (Point) points.elementAt(i);
 				Point q = (Point) points.elementAt((i + 1) % points.size());
 				Point r = (Point) points.elementAt((i + 2) % points.size());
-				points1.addElement(p);
+				clipper.addPoint(p);
 
 				if (r.isInfinityPoint()) { // rays from p->q and t->s
 					Point s = (Point) points.elementAt((i + 3) % points.size());
@@ -124,7 +118,7 @@ public class Region extends Polygon implements Cloneable {
 					// now we take a point on ray p->q that is far away ...
 					Ray ray1 = new Ray(p, q);
 					Ray ray2 = new Ray(t, s);
-					points1.addElement(ray1.pointOnRay(dist + p.getX()
+					clipper.addPoint(ray1.pointOnRay(dist + p.getX()
 							* p.getX() + p.getY() * p.getY()));
 					// an extra point between the rays...
 					Line l1 = new Line(p, q);
@@ -147,47 +141,15 @@ public class Region extends Polygon implements Cloneable {
 					} else {
 						ray3 = new Ray(isec, innerPoint);
 					}
-					points1.addElement(ray3.pointOnRay(3.0f * dist));
+					clipper.addPoint(ray3.pointOnRay(3.0f * dist));
 					// and a point on ray t->s far away
-					points1.addElement(ray2.pointOnRay(dist + t.getX()
+					clipper.addPoint(ray2.pointOnRay(dist + t.getX()
 							* t.getX() + t.getY() * t.getY()));
 					i += 3;
 				} // if
 				i++;
 			} // while
-			Vector<Point> points2 = super.cutBottom(points1, ymax);
-			points1 = super.cutTop(points2, ymin);
-			points2 = super.cutLeft(points1, xmin);
-			points1 = super.cutRight(points2, xmax);
 		} // if
-
-		if (points1.size() > 1) {
-			SimplePolygon poly = new SimplePolygon(points1);
-			poly.setColor(getColor());
-			poly.setFillColor(fillColor);
-			return poly;
-		}
-		return null;
-	}
-
-	/**
-	 * If you wan't to cut a ray (s+------) from a point that lies onto the ray
-	 * and get a ray line (s+---+f+----- ) you need a new direction point. This
-	 * method will create one, that the new ray from <VAR>from</VAR> points into
-	 * the same direction like <VAR>ray</VAR>. Make sure, that the startpoint of
-	 * <VAR>ray</VAR> is different from <VAR>from</VAR> !!!!
-	 * 
-	 * @param ray
-	 * @param from a point on the ray
-	 * @return Point a new direction point for a ray with startpoint
-	 *         <VAR>from</VAR> and some direction line <VAR>ray</VAR>
-	 */
-	private Point getDirectionPoint(Ray ray, Point from) {
-		float x = from.getX() + (from.getX() - ray.getStartpoint().getX())
-				* ray.getDirectionX();
-		float y = from.getY() + (from.getY() - ray.getStartpoint().getY())
-				* ray.getDirectionY();
-		return new Point(x, y);
 	}
 
 	/**
@@ -196,13 +158,13 @@ public class Region extends Polygon implements Cloneable {
 	 * 
 	 * @param g
 	 */
-	public void paint(@NonNull Canvas g) {
-		if (fillColor > 0) {
+	public void render(@NonNull Renderer g) {
+		if (getFillColor() != 0) {
 			Polygon poly = clipTo(0.0f, 0.0f, g.getWidth(), g.getHeight()); // besser
 																	// getClipBounds()
 																	// abfragen!
 			if (poly != null)
-				poly.paint(g);
+				poly.render(g);
 		} else {
 			if (points.size() > 2) {
 				int i = 0;
@@ -213,20 +175,20 @@ public class Region extends Polygon implements Cloneable {
 					if (r.isInfinityPoint()) {
 						Ray ray = new Ray(p, q);
 						ray.setColor(getColor());
-						ray.paint(g);
+						ray.render(g);
 						i++;
 					} else if (p.isInfinityPoint()) {
 						Ray ray = new Ray(r, q);
 						ray.setColor(getColor());
-						ray.paint(g);
+						ray.render(g);
 						i++;
 					} else {
-						Segment.drawSegment(g, p, q, getLinePaint());
+						Segment.drawSegment(g, p, q, getColor());
 					}
 					i++;
 				} // while
 			} // if
-			innerPoint.paint(g);
+			innerPoint.render(g);
 		} // if
 	}
 
@@ -244,7 +206,7 @@ public class Region extends Polygon implements Cloneable {
 	public Object clone() {
 		Region region = new Region(this.points, this.innerPoint);
 		region.setColor(getColor());
-		region.setFillColor(this.fillColor);
+		region.setFillColor(getFillColor());
 		return region;
 	}
 }
@@ -0,0 +1,104 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+/**
+ * The drawing operations needed by the geometric elements, independent of
+ * <VAR>android.graphics.Canvas</VAR>. Colors are ARGB values, widths are
+ * stroke widths in pixels. Coordinates are given as (x, y) pairs in float
+ * arrays, so many primitives are drawn with a single call.
+ *
+ * @see CanvasRenderer
+ * @see RasterRenderer
+ */
+public interface Renderer {
+
+	/**
+	 * return the width of the drawable area.
+	 *
+	 * @return int width in pixels
+	 */
+	int getWidth();
+
+	/**
+	 * return the height of the drawable area.
+	 *
+	 * @return int height in pixels
+	 */
+	int getHeight();
+
+	/**
+	 * draw a single segment.
+	 *
+	 * @param x1, y1, x2, y2 the end points
+	 * @param color color of the line
+	 * @param width stroke width
+	 */
+	void drawLine(float x1, float y1, float x2, float y2, @ColorInt int color, float width);
+
+	/**
+	 * draw independent segments (x1, y1, x2, y2) like
+	 * <VAR>Canvas.drawLines()</VAR>.
+	 *
+	 * @param lines the segments
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (4 per segment)
+	 * @param color color of the lines
+	 * @param width stroke width
+	 */
+	void drawLines(@NonNull float[] lines, int offset, int count, @ColorInt int color, float width);
+
+	/**
+	 * draw a chain of segments through the given vertices.
+	 *
+	 * @param coords x, y of the vertices
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 * @param closed <VAR>true</VAR> to connect the last with the first vertex
+	 * @param color color of the lines
+	 * @param width stroke width
+	 */
+	void drawPolyline(@NonNull float[] coords, int offset, int count, boolean closed,
+					  @ColorInt int color, float width);
+
+	/**
+	 * fill a polygon with the even-odd rule.
+	 *
+	 * @param coords x, y of the vertices
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per vertex)
+	 * @param color fill color
+	 */
+	void fillPolygon(@NonNull float[] coords, int offset, int count, @ColorInt int color);
+
+	/**
+	 * draw the outline of a circle.
+	 *
+	 * @param cx, cy center
+	 * @param radius radius
+	 * @param color color of the line
+	 * @param width stroke width
+	 */
+	void drawCircle(float cx, float cy, float radius, @ColorInt int color, float width);
+
+	/**
+	 * fill a circle.
+	 *
+	 * @param cx, cy center
+	 * @param radius radius
+	 * @param color fill color
+	 */
+	void fillCircle(float cx, float cy, float radius, @ColorInt int color);
+
+	/**
+	 * draw points (x, y) as filled discs of the same color.
+	 *
+	 * @param points the centers
+	 * @param offset index of the first coordinate
+	 * @param count number of floats (2 per point)
+	 * @param color fill color
+	 * @param radius radius of the discs
+	 */
+	void drawPoints(@NonNull float[] points, int offset, int count, @ColorInt int color, float radius);
+}
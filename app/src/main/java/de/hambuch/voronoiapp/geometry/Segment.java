@@ -1,8 +1,7 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-import android.graphics.Paint;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -14,12 +13,6 @@ import androidx.annotation.Nullable;
  */
 public class Segment extends GeomElement implements Edge, Cloneable {
 
-	/* for clipping */
-	private static final int CLIP_LEFT = 1;
-	private static final int CLIP_RIGHT = 2;
-	private static final int CLIP_TOP = 4;
-	private static final int CLIP_BOTTOM = 8;
-
 	protected Point startPoint;
 	protected Point endPoint;
 
@@ -64,7 +57,8 @@ public class Segment extends GeomElement implements Edge, Cloneable {
 		float by = b.getY();
 		float cx = c.getX();
 		float cy = c.getY();
-		float area = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+		/* in double: exact for integer coordinates up to 2^24 */
+		double area = ((double) bx - ax) * ((double) cy - ay) - ((double) cx - ax) * ((double) by - ay);
 		if (area > 0.0)
 			return POINT_LEFT;
 		else if (area < 0.0)
@@ -233,13 +227,12 @@ public class Segment extends GeomElement implements Edge, Cloneable {
 		return startPoint.toString() + "-" + endPoint.toString();
 	}
 
-	public void paint(@NonNull Canvas graphics) {
-		drawSegment(graphics, startPoint, endPoint, getLinePaint());
+	public void render(@NonNull Renderer renderer) {
+		drawSegment(renderer, startPoint, endPoint, getColor());
 	}
 
 	/**
-	 * internal method for Cohen-Sutherland-Clipping. (see M.Berger,
-	 * Computergrafik mit Pascal, Adisson-Wesley)
+	 * clips a segment to a rectangle.
 	 * 
 	 * @param x1, y1, x2, y2 coordinates of a segment
 	 * @param xmin, ymin, xmax, ymax clipping area
@@ -249,95 +242,28 @@ public class Segment extends GeomElement implements Edge, Cloneable {
 	@Nullable
 	public static float[] clipping(float x1, float y1, float x2, float y2,
 			float xmin, float ymin, float xmax, float ymax) {
-		int dir1 = 0, dir2 = 0; /* Richtungen bestimmen */
-		if (x1 < xmin)
-			dir1 = CLIP_LEFT;
-		else if (x1 > xmax)
-			dir1 = CLIP_RIGHT;
-		if (y1 < ymin)
-			dir1 += CLIP_BOTTOM;
-		else if (y1 > ymax)
-			dir1 += CLIP_TOP;
-		if (x2 < xmin)
-			dir2 = CLIP_LEFT;
-		else if (x2 > xmax)
-			dir2 = CLIP_RIGHT;
-		if (y2 < ymin)
-			dir2 += CLIP_BOTTOM;
-		else if (y2 > ymax)
-			dir2 += CLIP_TOP;
-		float m = 0.0f, minverse = 0.0f; /* Steigungen berechnen */
-		if (x1 != x2)
-			m = (y2 - y1) / (x2 - x1);
-		if (y1 != y2)
-			minverse = (x2 - x1) / (y2 - y1);
-
-		float x, y;
-		int dir;
-
-		/* beide Punkte liegen in gleichen Bereichen -> ganz aus dem Bild! */
-		if ((dir1 & dir2) != 0)
-			return null;
-
-		while (dir1 != 0 || dir2 != 0) {
-			if (dir1 == 0) {
-				dir = dir2;
-				x = x2;
-				y = y2;
-			} else {
-				dir = dir1;
-				x = x1;
-				y = y1;
-			}
-			if ((dir & CLIP_LEFT) != 0) {
-				/* Clip_Left */
-				y = m * (xmin - x1) + y1;
-				x = xmin;
-			} else if ((dir & CLIP_RIGHT) != 0) {
-				/* Clip_Right */
-				y = m * (xmax - x1) + y1;
-				x = xmax;
-			} else if ((dir & CLIP_BOTTOM) != 0) {
-				/* Clip_Buttom */
-				x = minverse * (ymin - y1) + x1;
-				y = ymin;
-			} else if ((dir & CLIP_TOP) != 0) {
-				/* Clip_Top */
-				x = minverse * (ymax - y1) + x1;
-				y = ymax;
-			}
-			if (dir == dir1) {
-				x1 = x;
-				y1 = y;
-				dir1 = 0;
-				if (x1 < xmin)
-					dir1 = CLIP_LEFT;
-				else if (x1 > xmax)
-					dir1 = CLIP_RIGHT;
-				if (y1 < ymin)
-					dir1 += CLIP_BOTTOM;
-				else if (y1 > ymax)
-					dir1 += CLIP_TOP;
-			} else {
-				x2 = x;
-				y2 = y;
-				dir2 = 0;
-				if (x2 < xmin)
-					dir2 = CLIP_LEFT;
-				else if (x2 > xmax)
-					dir2 = CLIP_RIGHT;
-				if (y2 < ymin)
-					dir2 += CLIP_BOTTOM;
-				else if (y2 > ymax)
-					dir2 += CLIP_TOP;
-			}
-		}
 		float[] koords = new float[4];
-		koords[0] = x1;
-		koords[1] = y1;
-		koords[2] = x2;
-		koords[3] = y2;
-		return koords;
+		if (clipping(x1, y1, x2, y2, xmin, ymin, xmax, ymax, koords, 0))
+			return koords;
+		return null;
+	}
+
+	/**
+	 * Clipping without allocation: the clipped coordinates are written to
+	 * <VAR>dest[offset..offset+3]</VAR>. Uses the Liang-Barsky algorithm of
+	 * {@link EdgeClipper}, the former Cohen-Sutherland loop could run forever
+	 * because of rounding errors.
+	 *
+	 * @param x1, y1, x2, y2 coordinates of a segment
+	 * @param xmin, ymin, xmax, ymax clipping area
+	 * @param dest array for the new coordinates
+	 * @param offset index of the first coordinate in dest
+	 * @return boolean <VAR>false</VAR> if the segment is invisible (dest is
+	 *         not modified)
+	 */
+	public static boolean clipping(float x1, float y1, float x2, float y2,
+			float xmin, float ymin, float xmax, float ymax, @NonNull float[] dest, int offset) {
+		return EdgeClipper.clipSegment(x1, y1, x2, y2, xmin, ymin, xmax, ymax, dest, offset);
 	}
 
 	/**
@@ -349,7 +275,7 @@ public class Segment extends GeomElement implements Edge, Cloneable {
 	 * @param a
 	 * @param b
 	 */
-	public static void drawSegment(@NonNull Canvas g, @NonNull Point a, @NonNull Point b, @NonNull Paint paint) {
+	public static void drawSegment(@NonNull Renderer g, @NonNull Point a, @NonNull Point b, @ColorInt int color) {
 		float ax = a.getX(), ay = a.getY(), bx = b.getX(), by = b.getY();
 		/*
 		 * this is necessary because of Java Bug 4252578 (even in JDK1.3!!),
@@ -363,10 +289,10 @@ public class Segment extends GeomElement implements Edge, Cloneable {
 					16000.0f);
 			if (koords != null) {
 				g.drawLine((float) koords[0], (float) koords[1],
-						(float) koords[2], (float) koords[3], paint);
+						(float) koords[2], (float) koords[3], color, LINE_WIDTH);
 			}
 		} else {
-			g.drawLine((float) ax, (float) ay, (float) bx, (float) by, paint);
+			g.drawLine((float) ax, (float) ay, (float) bx, (float) by, color, LINE_WIDTH);
 		}
 	}
 }
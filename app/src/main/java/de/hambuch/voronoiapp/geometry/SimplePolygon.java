@@ -1,8 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-import android.graphics.Path;
-
 import androidx.annotation.NonNull;
 
 import java.util.Enumeration;
@@ -21,6 +18,8 @@ public class SimplePolygon extends Polygon implements Cloneable {
 	 * 
 	 */
 	private static final long serialVersionUID = -1084936749239423555L;
+	/* reused by every renderOutline() call, like the buffer of ConvexHull */
+	private final LineBuffer lines = new LineBuffer(16);
 
 	public SimplePolygon() {
 		super();
@@ -48,57 +47,79 @@ public class SimplePolygon extends Polygon implements Cloneable {
 		return segs;
    }
 
+   /**
+    * Checks if a point lies in the polygon or on its border. For many tests
+    * use {@link #prepare()}.
+    *
+    * @param point
+    * @return boolean <VAR>true</VAR> if inside or on the border
+    */
    public boolean pointInPolygon(@NonNull Point point) {
-		Ray ray = new Ray(point, 1.0f, 1.0f);
-		int intersects = 0;
-		Vector<Segment> segs = toSegments();
-		Enumeration<Segment> enume=segs.elements();
-		Segment seg;
-		while(enume.hasMoreElements()) {
-			seg = (Segment)enume.nextElement();
-			if(ray.intersect(seg) != null) intersects++; // doesn't work for point ON the polygon's border
+		final float x = point.getX(), y = point.getY();
+		final int size = points.size();
+		boolean inside = false;
+		for(int i=0, j=size-1;i<size;j=i++) {
+			final Point p = points.get(j), q = points.get(i);
+			final float x1 = p.getX(), y1 = p.getY(), x2 = q.getX(), y2 = q.getY();
+			if(PreparedPolygon.distanceSquare(x, y, x1, y1, x2, y2) <= Point.CLOSE * Point.CLOSE) return true;
+			/* half open edges, so a vertex is counted once */
+			if((y1 <= y) != (y2 <= y) && x1 + (y - y1) * (x2 - x1) / (y2 - y1) < x)
+				inside = !inside;
 		}
-		if((intersects % 2) == 1) return true;
-		return false;
+		return inside;
    }
 
+   /**
+    * Prepare this polygon for many point-in-polygon tests. The prepared
+    * polygon doesn't follow later changes of this polygon.
+    *
+    * @return PreparedPolygon the prepared polygon
+    */
+   @NonNull
+   public PreparedPolygon prepare() {
+		return new PreparedPolygon(this);
+   }
 
    @NonNull
    public Object clone() {
 		SimplePolygon polygon = new SimplePolygon(points);
 		polygon.setColor(getColor());
-		polygon.setFillColor(fillColor);
+		polygon.setFillColor(getFillColor());
 		return polygon;
    }
 
-   public void paint(@NonNull Canvas g) {
+   public void render(@NonNull Renderer renderer) {
 		if(points.size() > 1) {
-		    if(getFillPaint() != null) {
-				final Path path = new Path();
-				path.setFillType(Path.FillType.EVEN_ODD);
-				path.moveTo(points.get(0).getX(), points.get(0).getY());
-				for(int i=1;i<points.size();i++)
-					path.lineTo(points.get(i).getX(), points.get(i).getY());
-				path.close();
-				g.drawPath(path, getFillPaint());
+		    if(getFillColor() != 0) {
+				final float[] coords = new float[2 * points.size()];
+				for(int i=0;i<points.size();i++) {
+					coords[2 * i] = points.get(i).getX();
+					coords[2 * i + 1] = points.get(i).getY();
+				}
+				renderer.fillPolygon(coords, 0, coords.length, getFillColor());
 		    }
-			paintOutline(g); // paint outline seperately
+			renderOutline(renderer); // paint outline seperately
 		}
    }
 
-   protected void paintOutline(@NonNull Canvas g) {
+   protected void renderOutline(@NonNull Renderer renderer) {
 		if(points.size() > 1) {
-		    Enumeration<Point> enume = points.elements();
-		    Point firstp = (Point)enume.nextElement();
-		    Point lastp = firstp, nextp;
-		    while(enume.hasMoreElements()) {
-				nextp = (Point)enume.nextElement();
-				g.drawLine((float)lastp.getX(), (float)lastp.getY(),
-						   (float)nextp.getX(), (float)nextp.getY(), getLinePaint());
-				lastp = nextp;
-		    }
-		    g.drawLine((float)lastp.getX(), (float)lastp.getY(),
-				       (float)firstp.getX(), (float)firstp.getY(), getLinePaint());
+			lines.clear();
+			fillLines(lines);
+			lines.render(renderer, getColor(), LINE_WIDTH);
 		}
    }
+
+	/**
+	 * add the outline of this polygon to a line buffer.
+	 *
+	 * @param lines the buffer
+	 */
+	public void fillLines(@NonNull LineBuffer lines) {
+		final int size = points.size();
+		if (size > 1) {
+			for (int i = 0; i < size; i++)
+				lines.add(points.get(i), points.get((i + 1) % size));
+		}
+	}
 }
@@ -0,0 +1,254 @@
+package de.hambuch.voronoiapp.geometry;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A uniform grid over the bounding boxes of items (segments, polygons,
+ * triangles or points) to find all items that intersect a rectangle. Every
+ * item is stored in all cells covered by its box, items covering too many
+ * cells (e.g. long Voronoi rays) are kept in an extra list. The grid is not
+ * modified after construction, so it can be queried by any thread.
+ */
+public final class SpatialGrid {
+
+	/**
+	 * Receives the index of every item found by a query.
+	 */
+	public interface Visitor {
+		public void visit(int item);
+	}
+
+	/* items covering more cells are checked on every query */
+	private static final int MAX_CELLS = 16;
+	/* limits the size of the grid */
+	private static final int MAX_COLUMNS = 512;
+
+	/* minX, minY, maxX, maxY of every item, empty if minX > maxX */
+	@NonNull
+	private final float[] boxes;
+	private final int count;
+	private final float minX;
+	private final float minY;
+	private final float cellSize;
+	private final int columns;
+	private final int rows;
+	/* items of cell c are items[start[c]] ... items[start[c+1]-1] */
+	@NonNull
+	private final int[] start;
+	@NonNull
+	private final int[] items;
+	@NonNull
+	private final int[] large;
+
+	/**
+	 * Index line segments in the format of <VAR>Canvas.drawLines()</VAR>.
+	 *
+	 * @param lines x1, y1, x2, y2 of every segment
+	 * @return SpatialGrid the index, items are segment numbers
+	 */
+	@NonNull
+	public static SpatialGrid ofSegments(@NonNull float[] lines) {
+		final int n = lines.length / 4;
+		final float[] boxes = new float[4 * n];
+		for (int i = 0; i < n; i++) {
+			boxes[4 * i] = Math.min(lines[4 * i], lines[4 * i + 2]);
+			boxes[4 * i + 1] = Math.min(lines[4 * i + 1], lines[4 * i + 3]);
+			boxes[4 * i + 2] = Math.max(lines[4 * i], lines[4 * i + 2]);
+			boxes[4 * i + 3] = Math.max(lines[4 * i + 1], lines[4 * i + 3]);
+		}
+		return new SpatialGrid(boxes);
+	}
+
+	/**
+	 * Index triangles.
+	 *
+	 * @param triangles x1, y1, x2, y2, x3, y3 of every triangle
+	 * @return SpatialGrid the index, items are triangle numbers
+	 */
+	@NonNull
+	public static SpatialGrid ofTriangles(@NonNull float[] triangles) {
+		final int n = triangles.length / 6;
+		final float[] boxes = new float[4 * n];
+		for (int i = 0; i < n; i++)
+			polygonBox(triangles, 6 * i, 6, boxes, i);
+		return new SpatialGrid(boxes);
+	}
+
+	/**
+	 * Index polygons.
+	 *
+	 * @param polygons x, y of the corners of every polygon, an entry may be
+	 *        <VAR>null</VAR>
+	 * @return SpatialGrid the index, items are polygon numbers
+	 */
+	@NonNull
+	public static SpatialGrid ofPolygons(@NonNull float[][] polygons) {
+		final float[] boxes = new float[4 * polygons.length];
+		for (int i = 0; i < polygons.length; i++)
+			polygonBox(polygons[i], 0, polygons[i] != null ? polygons[i].length : 0, boxes, i);
+		return new SpatialGrid(boxes);
+	}
+
+	/**
+	 * Index points.
+	 *
+	 * @param points x, y of every point
+	 * @return SpatialGrid the index, items are point numbers
+	 */
+	@NonNull
+	public static SpatialGrid ofPoints(@NonNull float[] points) {
+		final int n = points.length / 2;
+		final float[] boxes = new float[4 * n];
+		for (int i = 0; i < n; i++) {
+			boxes[4 * i] = boxes[4 * i + 2] = points[2 * i];
+			boxes[4 * i + 1] = boxes[4 * i + 3] = points[2 * i + 1];
+		}
+		return new SpatialGrid(boxes);
+	}
+
+	private static void polygonBox(@Nullable float[] coords, int offset, int length, float[] boxes, int i) {
+		float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+		float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+		for (int j = offset; j + 1 < offset + length; j += 2) {
+			x0 = Math.min(x0, coords[j]);
+			y0 = Math.min(y0, coords[j + 1]);
+			x1 = Math.max(x1, coords[j]);
+			y1 = Math.max(y1, coords[j + 1]);
+		}
+		boxes[4 * i] = x0;
+		boxes[4 * i + 1] = y0;
+		boxes[4 * i + 2] = x1;
+		boxes[4 * i + 3] = y1;
+	}
+
+	private SpatialGrid(@NonNull float[] boxes) {
+		this.boxes = boxes;
+		this.count = boxes.length / 4;
+		/* the grid covers the centers of the boxes, larger boxes are clamped to the border cells */
+		float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY;
+		float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY;
+		int items = 0;
+		for (int i = 0; i < count; i++) {
+			if (isEmpty(i))
+				continue;
+			final float cx = 0.5f * (boxes[4 * i] + boxes[4 * i + 2]);
+			final float cy = 0.5f * (boxes[4 * i + 1] + boxes[4 * i + 3]);
+			x0 = Math.min(x0, cx);
+			y0 = Math.min(y0, cy);
+			x1 = Math.max(x1, cx);
+			y1 = Math.max(y1, cy);
+			items++;
+		}
+		if (items == 0) {
+			x0 = y0 = 0.0f;
+			x1 = y1 = 1.0f;
+		}
+		final float width = Math.max(x1 - x0, 1.0f), height = Math.max(y1 - y0, 1.0f);
+		/* about one item per cell */
+		float size = (float) Math.sqrt(width * height / Math.max(1, items));
+		size = Math.max(size, Math.max(width, height) / MAX_COLUMNS);
+		this.minX = x0;
+		this.minY = y0;
+		this.cellSize = size;
+		this.columns = Math.min(MAX_COLUMNS, (int) (width / size) + 1);
+		this.rows = Math.min(MAX_COLUMNS, (int) (height / size) + 1);
+
+		/* count, prefix sums, fill */
+		final int[] start = new int[columns * rows + 1];
+		int largeCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (isEmpty(i))
+				continue;
+			final int c0 = column(boxes[4 * i]), c1 = column(boxes[4 * i + 2]);
+			final int r0 = row(boxes[4 * i + 1]), r1 = row(boxes[4 * i + 3]);
+			if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS) {
+				largeCount++;
+				continue;
+			}
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					start[r * columns + c + 1]++;
+		}
+		for (int c = 1; c < start.length; c++)
+			start[c] += start[c - 1];
+		this.items = new int[start[start.length - 1]];
+		this.large = new int[largeCount];
+		final int[] next = start.clone();
+		largeCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (isEmpty(i))
+				continue;
+			final int c0 = column(boxes[4 * i]), c1 = column(boxes[4 * i + 2]);
+			final int r0 = row(boxes[4 * i + 1]), r1 = row(boxes[4 * i + 3]);
+			if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_CELLS) {
+				large[largeCount++] = i;
+				continue;
+			}
+			for (int r = r0; r <= r1; r++)
+				for (int c = c0; c <= c1; c++)
+					this.items[next[r * columns + c]++] = i;
+		}
+		this.start = start;
+	}
+
+	private boolean isEmpty(int i) {
+		return !(boxes[4 * i] <= boxes[4 * i + 2] && boxes[4 * i + 1] <= boxes[4 * i + 3]);
+	}
+
+	private int column(float x) {
+		final float c = (x - minX) / cellSize;
+		return c <= 0.0f ? 0 : c >= columns - 1 ? columns - 1 : (int) c;
+	}
+
+	private int row(float y) {
+		final float r = (y - minY) / cellSize;
+		return r <= 0.0f ? 0 : r >= rows - 1 ? rows - 1 : (int) r;
+	}
+
+	/**
+	 * return the number of items (including empty ones).
+	 *
+	 * @return int number of items
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Report every item whose bounding box intersects the rectangle exactly
+	 * once. The cost depends on the number of cells and items in the
+	 * rectangle, not on the total number of items.
+	 *
+	 * @param qMinX, qMinY, qMaxX, qMaxY the rectangle
+	 * @param visitor receives the items
+	 */
+	public void query(float qMinX, float qMinY, float qMaxX, float qMaxY, @NonNull Visitor visitor) {
+		if (count == 0 || qMinX > qMaxX || qMinY > qMaxY)
+			return;
+		final int c0 = column(qMinX), c1 = column(qMaxX);
+		final int r0 = row(qMinY), r1 = row(qMaxY);
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				final int cell = r * columns + c;
+				for (int k = start[cell]; k < start[cell + 1]; k++) {
+					final int i = items[k];
+					if (!intersects(i, qMinX, qMinY, qMaxX, qMaxY))
+						continue;
+					/* report an item only in the first cell of its box within the query */
+					if (c == column(Math.max(boxes[4 * i], qMinX)) && r == row(Math.max(boxes[4 * i + 1], qMinY)))
+						visitor.visit(i);
+				}
+			}
+		}
+		for (int i : large) {
+			if (intersects(i, qMinX, qMinY, qMaxX, qMaxY))
+				visitor.visit(i);
+		}
+	}
+
+	private boolean intersects(int i, float qMinX, float qMinY, float qMaxX, float qMaxY) {
+		return boxes[4 * i] <= qMaxX && boxes[4 * i + 2] >= qMinX
+				&& boxes[4 * i + 1] <= qMaxY && boxes[4 * i + 3] >= qMinY;
+	}
+}
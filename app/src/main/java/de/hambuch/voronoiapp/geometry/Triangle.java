@@ -1,8 +1,5 @@
 package de.hambuch.voronoiapp.geometry;
 
-import android.graphics.Canvas;
-import android.graphics.Path;
-
 import androidx.annotation.NonNull;
 
 /**
@@ -71,13 +68,14 @@ public class Triangle extends GeomElement {
 	/**
 	 * calculates the signed area of a triangle given by three points <VAR>p,q,r</VAR>.
 	 * Useful to check whether r lies left (area>0) oder right (area<0) from pq.
+	 * Computed in double like {@link Segment#pointTest(Point, Point, Point)},
+	 * so both agree on the orientation.
 	 *
 	 * @return double signed area of Triag(p,q,r)
 	 */
 	public static double signedArea(@NonNull Point p, @NonNull Point q, @NonNull Point r) {
-		return ((r.getX() - p.getX()) * (r.getY() + p.getY())+
-				(q.getX() - r.getX()) * (q.getY() + r.getY())+
-				(p.getX() - q.getX()) * (p.getY() + q.getY())) /2.0;
+		return (((double) q.getX() - p.getX()) * ((double) r.getY() - p.getY())
+				- ((double) r.getX() - p.getX()) * ((double) q.getY() - p.getY())) / 2.0;
 	}
 
 	/**
@@ -121,7 +119,7 @@ public class Triangle extends GeomElement {
 
 	@NonNull
 	public Object clone() {
-		return new Triangle(pointA, pointB, pointC, getLinePaint().getColor());
+		return new Triangle(pointA, pointB, pointC, getColor());
 	}
 
 	/**
@@ -137,19 +135,12 @@ public class Triangle extends GeomElement {
 		}
 	}
 
-	public void paint(@NonNull Canvas graphics) {
-		if(getFillPaint() != null) {
-			Path path = new Path();
-			path.setFillType(Path.FillType.EVEN_ODD);
-			path.moveTo((float) pointA.getX(), (float) pointA.getY());
-			path.lineTo((float) pointB.getX(), (float) pointB.getY());
-			path.lineTo((float) pointC.getX(), (float) pointC.getY());
-			path.close();
-			graphics.drawPath(path, getFillPaint());
-		}
-		graphics.drawLine((float) pointA.getX(), (float) pointA.getY(), (float) pointB.getX(), (float) pointB.getY(), getLinePaint());
-		graphics.drawLine((float) pointB.getX(), (float) pointB.getY(), (float) pointC.getX(), (float) pointC.getY(), getLinePaint());
-		graphics.drawLine((float) pointC.getX(), (float) pointC.getY(), (float) pointA.getX(), (float) pointA.getY(), getLinePaint());
+	public void render(@NonNull Renderer renderer) {
+		final float[] coords = { pointA.getX(), pointA.getY(), pointB.getX(), pointB.getY(),
+				pointC.getX(), pointC.getY() };
+		if(getFillColor() != 0)
+			renderer.fillPolygon(coords, 0, 6, getFillColor());
+		renderer.drawPolyline(coords, 0, 6, true, getColor(), LINE_WIDTH);
 	}
 
 }
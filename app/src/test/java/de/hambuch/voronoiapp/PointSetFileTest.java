@@ -0,0 +1,149 @@
+package de.hambuch.voronoiapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes point sets, reads them again from a buffer and from a mapped file,
+ * and damages the header to check that every broken file is rejected with
+ * an <VAR>IOException</VAR> instead of reading outside the buffer.
+ */
+public class PointSetFileTest {
+
+	@Test
+	public void roundTrip() throws IOException {
+		final Random random = new Random(48);
+		/* more than one write buffer */
+		final int count = 20000;
+		final float[] coords = new float[2 * count];
+		final int[] colors = new int[count];
+		for (int i = 0; i < count; i++) {
+			coords[2 * i] = 1000.0f * random.nextFloat() - 500.0f;
+			coords[2 * i + 1] = 300.0f * random.nextFloat();
+			colors[i] = random.nextInt();
+		}
+		for (boolean withColors : new boolean[]{false, true}) {
+			final PointSetFile file = PointSetFile.wrap(ByteBuffer.wrap(write(coords, withColors ? colors : null, count)));
+			assertEquals(count, file.size());
+			assertEquals(withColors, file.hasColors());
+			assertFalse(file.isDouble());
+			for (int i = 0; i < count; i++) {
+				assertEquals(coords[2 * i], file.getX(i), 0.0f);
+				assertEquals(coords[2 * i + 1], file.getY(i), 0.0f);
+				assertEquals(withColors ? colors[i] : 0, file.getColor(i));
+			}
+			final float[] bounds = file.getBounds();
+			for (int i = 0; i < count; i++) {
+				assertTrue(coords[2 * i] >= bounds[0] && coords[2 * i] <= bounds[2]);
+				assertTrue(coords[2 * i + 1] >= bounds[1] && coords[2 * i + 1] <= bounds[3]);
+			}
+			assertTrue(bounds[0] < -490.0f && bounds[2] > 490.0f && bounds[1] < 10.0f && bounds[3] > 290.0f);
+		}
+	}
+
+	@Test
+	public void empty() throws IOException {
+		final PointSetFile file = PointSetFile.wrap(ByteBuffer.wrap(write(new float[0], null, 0)));
+		assertEquals(0, file.size());
+		assertEquals(0, new DelaunayTriangulation().insertPoints(file));
+	}
+
+	@Test
+	public void mappedFile() throws IOException {
+		final float[] coords = {0, 0, 100, 0, 0, 100, 100, 100, 50, 50};
+		final File temp = File.createTempFile("points", PointSetFile.EXTENSION);
+		try {
+			try (FileOutputStream os = new FileOutputStream(temp)) {
+				PointSetFile.write(os, coords, new int[]{1, 2, 3, 4, 5}, 5);
+			}
+			final PointSetFile file;
+			try (RandomAccessFile raf = new RandomAccessFile(temp, "r"); FileChannel channel = raf.getChannel()) {
+				file = PointSetFile.map(channel);
+			}
+			/* the mapping stays valid after closing */
+			assertEquals(5, file.size());
+			assertEquals(100.0f, file.getX(3), 0.0f);
+			assertEquals(50.0f, file.getY(4), 0.0f);
+			assertEquals(5, file.getColor(4));
+			assertArrayEquals(new float[]{0, 0, 100, 100}, file.getBounds(), 0.0f);
+			final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+			assertEquals(5, delaunay.insertPoints(file));
+			assertEquals(5, delaunay.size());
+		} finally {
+			assertTrue(temp.delete());
+		}
+	}
+
+	/* sites read from a file may repeat or be NaN, the bulk load skips them */
+	@Test
+	public void bulkLoadSkipsInvalidSites() throws IOException {
+		final float[] coords = {0, 0, 10, 0, Float.NaN, 5, 0, 10, 10, 0, 5, Float.POSITIVE_INFINITY, 10, 10};
+		final PointSetFile file = PointSetFile.wrap(ByteBuffer.wrap(write(coords, null, coords.length / 2)));
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		assertEquals(4, delaunay.insertPoints(file));
+		assertEquals(4, delaunay.size());
+	}
+
+	@Test
+	public void corruptHeader() throws IOException {
+		final byte[] valid = write(new float[]{1, 2, 3, 4, 5, 6}, new int[]{7, 8, 9}, 3);
+		/* magic */
+		assertRejected(patch(valid, 0, 'X'));
+		/* version */
+		assertRejected(patch(valid, 4, 2));
+		/* more sites than in the file */
+		assertRejected(patchInt(valid, 8, 4));
+		assertRejected(patchInt(valid, 8, Integer.MAX_VALUE));
+		assertRejected(patchInt(valid, 8, -1));
+		/* double coordinates need twice the space */
+		assertRejected(patch(valid, 6, PointSetFile.FLAG_DOUBLE | PointSetFile.FLAG_COLORS));
+		/* truncated colors, sites and header */
+		for (int length : new int[]{valid.length - 1, 32 + 3 * 8 - 1, 31, 4, 0})
+			assertRejected(Arrays.copyOf(valid, length));
+	}
+
+	private static void assertRejected(byte[] content) {
+		try {
+			PointSetFile.wrap(ByteBuffer.wrap(content));
+			fail("corrupt point set accepted");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+	private static byte[] patch(byte[] content, int offset, int value) {
+		final byte[] copy = content.clone();
+		copy[offset] = (byte) value;
+		return copy;
+	}
+
+	private static byte[] patchInt(byte[] content, int offset, int value) {
+		final byte[] copy = content.clone();
+		ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+		return copy;
+	}
+
+	private static byte[] write(float[] coords, int[] colors, int count) throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		PointSetFile.write(os, coords, colors, count);
+		return os.toByteArray();
+	}
+}
@@ -0,0 +1,209 @@
+package de.hambuch.voronoiapp;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+import de.hambuch.voronoiapp.geometry.LineBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes SVG documents, parses them again and compares the coordinates
+ * with the drawn ones, rounded to the decimals of the writer.
+ */
+public class SvgWriterTest {
+
+	@Test
+	public void elements() throws Exception {
+		final StringWriter text = new StringWriter();
+		final SvgWriter svg = new SvgWriter(text, 2);
+		svg.begin(-10.0f, 0.0f, 90.0f, 50.0f, 200, 100);
+		svg.drawLine(1.005f, -2.5f, 30.125f, 0.0f, 0xffff0000, 3.0f);
+		svg.fillPolygon(new float[]{0, 0, 10, 0, 5, 7.75f}, 0, 6, 0x800000ff);
+		svg.drawCircle(20.0f, 30.0f, 12.5f, 0xff00ff00, 1.0f);
+		svg.end();
+		svg.close();
+		final Document document = parse(text.toString());
+		final Element root = document.getDocumentElement();
+		assertEquals("svg", root.getTagName());
+		assertEquals("-10 0 100 50", root.getAttribute("viewBox"));
+		assertEquals("200px", root.getAttribute("width"));
+
+		final Element line = (Element) document.getElementsByTagName("line").item(0);
+		assertEquals("1", line.getAttribute("x1")); /* 1.005f is slightly below 1.005 */
+		assertEquals("-2.5", line.getAttribute("y1"));
+		assertEquals("30.13", line.getAttribute("x2"));
+		assertEquals("0", line.getAttribute("y2"));
+		assertEquals("#ff0000", line.getAttribute("stroke"));
+		assertEquals("", line.getAttribute("stroke-opacity"));
+
+		final Element polygon = (Element) document.getElementsByTagName("polygon").item(0);
+		assertEquals("0,0 10,0 5,7.75", polygon.getAttribute("points"));
+		assertEquals("#0000ff", polygon.getAttribute("fill"));
+		assertEquals(0x80 / 255.0, Double.parseDouble(polygon.getAttribute("fill-opacity")), 0.005);
+
+		final Element circle = (Element) document.getElementsByTagName("circle").item(0);
+		assertEquals("12.5", circle.getAttribute("r"));
+		assertEquals("none", circle.getAttribute("fill"));
+	}
+
+	/* random lines, many of them continuing the last one, and points as paths */
+	@Test
+	public void pathsRoundTrip() throws Exception {
+		final Random random = new Random(46);
+		for (int decimals = 0; decimals <= 3; decimals++) {
+			final float[] lines = new float[4 * 3000];
+			for (int i = 0; i < lines.length; i += 4) {
+				final boolean continued = i > 0 && random.nextBoolean();
+				lines[i] = continued ? lines[i - 2] : coordinate(random);
+				lines[i + 1] = continued ? lines[i - 1] : coordinate(random);
+				lines[i + 2] = coordinate(random);
+				lines[i + 3] = coordinate(random);
+			}
+			final float[] points = new float[2 * 500];
+			for (int i = 0; i < points.length; i++)
+				points[i] = coordinate(random);
+			final StringWriter text = new StringWriter();
+			final SvgWriter svg = new SvgWriter(text, decimals);
+			svg.setPaths(true);
+			svg.begin(-1000, -1000, 1000, 1000, 500, 500);
+			svg.drawLines(lines, 0, lines.length, 0xff000000, 3.0f);
+			svg.drawPoints(points, 0, points.length, 0xffff0000, 3.0f);
+			svg.end();
+			svg.close();
+			final NodeList paths = parse(text.toString()).getElementsByTagName("path");
+			final List<long[]> parsed = new ArrayList<>();
+			for (int i = 0; i < paths.getLength(); i++)
+				parsePath(((Element) paths.item(i)).getAttribute("d"), decimals, parsed);
+			assertEquals(lines.length / 4 + points.length / 2, parsed.size());
+			for (int i = 0; i < lines.length; i += 4)
+				assertSegment(lines[i], lines[i + 1], lines[i + 2], lines[i + 3], decimals, parsed.get(i / 4));
+			for (int i = 0; i < points.length; i += 2)
+				assertSegment(points[i], points[i + 1], points[i], points[i + 1], decimals,
+						parsed.get(lines.length / 4 + i / 2));
+		}
+	}
+
+	/* the edges of a triangulation, as exported by the GeometryEngine */
+	@Test
+	public void triangulationRoundTrip() throws Exception {
+		final Random random = new Random(47);
+		final float[] coords = new float[2 * 2000];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = 1000.0f * random.nextFloat();
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		final LineBuffer lines = new LineBuffer();
+		delaunay.fillLines(lines);
+		final StringWriter text = new StringWriter();
+		final SvgWriter svg = new SvgWriter(text, SvgWriter.DEFAULT_DECIMALS);
+		svg.setPaths(true);
+		svg.begin(0, 0, 1000, 1000, 1000, 1000);
+		lines.render(svg, delaunay.getColor(), 3.0f);
+		svg.end();
+		svg.close();
+		final NodeList paths = parse(text.toString()).getElementsByTagName("path");
+		final List<long[]> parsed = new ArrayList<>();
+		for (int i = 0; i < paths.getLength(); i++)
+			parsePath(((Element) paths.item(i)).getAttribute("d"), SvgWriter.DEFAULT_DECIMALS, parsed);
+		final float[] expected = lines.getLines();
+		assertEquals(lines.size() / 4, parsed.size());
+		assertTrue(parsed.size() > 2 * 2000); /* about 3n edges */
+		for (int i = 0; i < lines.size(); i += 4)
+			assertSegment(expected[i], expected[i + 1], expected[i + 2], expected[i + 3],
+					SvgWriter.DEFAULT_DECIMALS, parsed.get(i / 4));
+	}
+
+	private static float coordinate(Random random) {
+		return -1000.0f + 2000.0f * random.nextFloat();
+	}
+
+	private static Document parse(String text) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(text)));
+	}
+
+	/* like the writer: the absolute value is rounded */
+	private static long scale(double value, int decimals) {
+		final long scaled = Math.round(Math.abs(value) * Math.pow(10, decimals));
+		return value < 0.0 ? -scaled : scaled;
+	}
+
+	private static void assertSegment(float x1, float y1, float x2, float y2, int decimals, long[] segment) {
+		final String message = "(" + x1 + "," + y1 + ")-(" + x2 + "," + y2 + ")";
+		assertEquals(message, scale(x1, decimals), segment[0]);
+		assertEquals(message, scale(y1, decimals), segment[1]);
+		assertEquals(message, scale(x2, decimals), segment[2]);
+		assertEquals(message, scale(y2, decimals), segment[3]);
+	}
+
+	/*
+	 * the segments of the commands M, m, l and h written by SvgWriter, in
+	 * units of the last decimal. A move only continues with relative lines.
+	 */
+	private static void parsePath(String d, int decimals, List<long[]> segments) {
+		final List<Object> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < d.length()) {
+			final char c = d.charAt(i);
+			if (Character.isLetter(c)) {
+				tokens.add(c);
+				i++;
+			} else if (c == ' ' || c == ',') {
+				i++;
+			} else {
+				int end = i + 1;
+				while (end < d.length() && (Character.isDigit(d.charAt(end)) || d.charAt(end) == '.'))
+					end++;
+				tokens.add(scale(Double.parseDouble(d.substring(i, end)), decimals));
+				i = end;
+			}
+		}
+		char command = 0;
+		long x = 0, y = 0;
+		for (int k = 0; k < tokens.size(); ) {
+			if (tokens.get(k) instanceof Character) {
+				command = (Character) tokens.get(k++);
+				continue;
+			}
+			final long a = (Long) tokens.get(k++);
+			switch (command) {
+				case 'M':
+					x = a;
+					y = (Long) tokens.get(k++);
+					command = 'L';
+					break;
+				case 'm':
+					x += a;
+					y += (Long) tokens.get(k++);
+					command = 'l';
+					break;
+				case 'l': {
+					final long b = (Long) tokens.get(k++);
+					segments.add(new long[]{x, y, x + a, y + b});
+					x += a;
+					y += b;
+					break;
+				}
+				case 'h':
+					segments.add(new long[]{x, y, x + a, y});
+					x += a;
+					break;
+				default:
+					throw new AssertionError("unexpected command " + command + " in " + d);
+			}
+		}
+	}
+}
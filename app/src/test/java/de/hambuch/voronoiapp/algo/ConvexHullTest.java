@@ -0,0 +1,232 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.hambuch.voronoiapp.geometry.Point;
+import de.hambuch.voronoiapp.geometry.Segment;
+import de.hambuch.voronoiapp.geometry.SimplePolygon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the queries of the convex hull with brute force over all pairs
+ * of sites. The sites have integer coordinates, so the brute force is exact.
+ * A pair a, b is a supporting line if no site lies right of a-b; a point is
+ * inside the hull if it lies strictly left of every supporting line.
+ */
+public class ConvexHullTest {
+
+	/* relative error of float results (width and rectangle corners) */
+	private static final double TOLERANCE = 1e-5;
+
+	@Test
+	public void randomSites() {
+		final Random random = new Random(30);
+		for (int run = 0; run < 30; run++) {
+			final int n = 3 + random.nextInt(run < 10 ? 10 : 200);
+			final List<Point> sites = new ArrayList<>();
+			final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+			while (sites.size() < n)
+				insert(delaunay, sites, random.nextInt(1000), random.nextInt(1000));
+			final ConvexHull hull = new ConvexHull(delaunay);
+			check(hull, sites, random);
+			/* the cached hull follows deletes of hull sites */
+			for (int i = 0; i < 3 && sites.size() > 3; i++) {
+				final Point p = DelaunayTriangulationTest.extreme(sites, random);
+				delaunay.deletePoint(p);
+				sites.remove(p);
+				check(hull, sites, random);
+			}
+		}
+	}
+
+	@Test
+	public void fewSites() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final ConvexHull hull = new ConvexHull(delaunay);
+		assertEquals(0, hull.size());
+		assertNull(hull.diameter());
+		assertEquals(0.0f, hull.width(), 0.0f);
+		assertNull(hull.minimumBoundingRectangle());
+		final List<Point> sites = new ArrayList<>();
+		insert(delaunay, sites, 10, 10);
+		assertEquals(1, hull.size());
+		assertNull(hull.diameter());
+		assertEquals(0, hull.pointInHull(new Point(10, 10)));
+		insert(delaunay, sites, 40, 50);
+		assertEquals(2, hull.size());
+		assertEquals(50.0, length(hull.diameter()), 0.0);
+		assertEquals(0.0f, hull.width(), 0.0f);
+		assertNull(hull.minimumBoundingRectangle());
+		assertEquals(0, hull.pointInHull(new Point(25, 30)));
+		insert(delaunay, sites, 40, 10);
+		assertEquals(3, hull.size());
+		check(hull, sites, new Random(3));
+		/* a right triangle: the rectangle has twice its area */
+		assertEquals(1200.0, area(hull.minimumBoundingRectangle()), 1200.0 * TOLERANCE);
+		assertEquals(24.0, hull.width(), 24.0 * TOLERANCE);
+	}
+
+	@Test
+	public void collinearSites() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final ConvexHull hull = new ConvexHull(delaunay);
+		final List<Point> sites = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			insert(delaunay, sites, 100 + 3 * ((7 * i) % 20), 50 + 4 * ((7 * i) % 20));
+		assertTrue(delaunay.areCollinear());
+		assertEquals(2, hull.size());
+		final Segment diameter = hull.diameter();
+		assertNotNull(diameter);
+		assertEquals(95.0, length(diameter), 0.0);
+		assertEquals(0.0f, hull.width(), 0.0f);
+		assertNull(hull.minimumBoundingRectangle());
+		for (Point p : sites)
+			assertEquals(0, hull.pointInHull(p));
+		/* a site off the line: a triangle, the sites on its base are no vertices */
+		insert(delaunay, sites, 0, 300);
+		assertEquals(3, hull.size());
+		check(hull, sites, new Random(4));
+	}
+
+	@Test
+	public void pointsOnEdges() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final ConvexHull hull = new ConvexHull(delaunay);
+		final List<Point> sites = new ArrayList<>();
+		insert(delaunay, sites, 0, 0);
+		insert(delaunay, sites, 100, 0);
+		insert(delaunay, sites, 100, 60);
+		insert(delaunay, sites, 0, 60);
+		/* a site in the middle of an edge is no vertex */
+		insert(delaunay, sites, 50, 0);
+		insert(delaunay, sites, 40, 30);
+		assertEquals(4, hull.size());
+		for (float[] q : new float[][]{{25, 0}, {100, 30}, {50, 60}, {0, 1}, {0, 0}, {100, 60}, {50, 0}})
+			assertEquals(0, hull.pointInHull(new Point(q[0], q[1])));
+		for (float[] q : new float[][]{{25, 0.5f}, {99.5f, 30}, {50, 59.5f}, {0.5f, 1}, {40, 30}})
+			assertEquals(1, hull.pointInHull(new Point(q[0], q[1])));
+		assertEquals(60.0f, hull.width(), 0.0f);
+		assertEquals(Math.sqrt(100 * 100 + 60 * 60), length(hull.diameter()), 1e-4);
+		assertEquals(6000.0, area(hull.minimumBoundingRectangle()), 6000.0 * TOLERANCE);
+		check(hull, sites, new Random(5));
+	}
+
+	private static void check(ConvexHull hull, List<Point> sites, Random random) {
+		final List<Point[]> lines = supportingLines(sites);
+		/* queries at sites, in the middle of hull edges and anywhere */
+		final List<Point> queries = new ArrayList<>(sites);
+		for (Point[] line : lines)
+			queries.add(new Point((line[0].getX() + line[1].getX()) / 2, (line[0].getY() + line[1].getY()) / 2));
+		for (int i = 0; i < 200; i++)
+			queries.add(new Point(random.nextInt(2200) / 2.0f - 50.0f, random.nextInt(2200) / 2.0f - 50.0f));
+		for (Point q : queries)
+			assertEquals("point " + q, inside(lines, q) ? 1 : 0, hull.pointInHull(q));
+
+		double diameter = 0.0;
+		for (Point p : sites)
+			for (Point q : sites)
+				diameter = Math.max(diameter, distance(p, q));
+		assertEquals(diameter, length(hull.diameter()), 0.0);
+
+		double width = Double.MAX_VALUE, area = Double.MAX_VALUE;
+		for (Point[] line : lines) {
+			final double ux = line[1].getX() - line[0].getX(), uy = line[1].getY() - line[0].getY();
+			final double len = Math.sqrt(ux * ux + uy * uy);
+			double height = 0.0, minU = Double.MAX_VALUE, maxU = -Double.MAX_VALUE;
+			for (Point p : sites) {
+				final double dx = p.getX() - line[0].getX(), dy = p.getY() - line[0].getY();
+				height = Math.max(height, (ux * dy - uy * dx) / len);
+				minU = Math.min(minU, (ux * dx + uy * dy) / len);
+				maxU = Math.max(maxU, (ux * dx + uy * dy) / len);
+			}
+			width = Math.min(width, height);
+			area = Math.min(area, height * (maxU - minU));
+		}
+		assertEquals(width, hull.width(), width * TOLERANCE);
+		final SimplePolygon rectangle = hull.minimumBoundingRectangle();
+		assertNotNull(rectangle);
+		assertEquals(area, area(rectangle), area * TOLERANCE);
+		/* all sites inside (or on) the rectangle */
+		final Point[] corners = rectangle.toPoints();
+		final double scale = Math.sqrt(area);
+		for (int k = 0; k < 4; k++) {
+			final Point a = corners[k], b = corners[(k + 1) % 4];
+			for (Point p : sites)
+				assertTrue(cross(a, b, p) >= -scale * distance(a, b) * TOLERANCE);
+		}
+	}
+
+	/* all pairs a-b without a site right of them */
+	private static List<Point[]> supportingLines(List<Point> sites) {
+		final List<Point[]> lines = new ArrayList<>();
+		for (Point a : sites) {
+			for (Point b : sites) {
+				if (a == b)
+					continue;
+				boolean supporting = true;
+				for (Point p : sites) {
+					if (cross(a, b, p) < 0.0) {
+						supporting = false;
+						break;
+					}
+				}
+				if (supporting)
+					lines.add(new Point[]{a, b});
+			}
+		}
+		return lines;
+	}
+
+	private static boolean inside(List<Point[]> lines, Point q) {
+		for (Point[] line : lines)
+			if (cross(line[0], line[1], q) <= 0.0)
+				return false;
+		return !lines.isEmpty();
+	}
+
+	/* exact for coordinates that are multiples of 0.5 below 2^20 */
+	private static double cross(Point a, Point b, Point p) {
+		return ((double) b.getX() - a.getX()) * ((double) p.getY() - a.getY())
+				- ((double) b.getY() - a.getY()) * ((double) p.getX() - a.getX());
+	}
+
+	private static double distance(Point p, Point q) {
+		final double dx = (double) p.getX() - q.getX(), dy = (double) p.getY() - q.getY();
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static double length(Segment segment) {
+		assertNotNull(segment);
+		return distance(segment.getStartpoint(), segment.getEndpoint());
+	}
+
+	/* counterclockwise polygons have a positive area */
+	private static double area(SimplePolygon polygon) {
+		assertNotNull(polygon);
+		final Point[] corners = polygon.toPoints();
+		double area = 0.0;
+		for (int k = 0; k < corners.length; k++) {
+			final Point a = corners[k], b = corners[(k + 1) % corners.length];
+			area += (double) a.getX() * b.getY() - (double) b.getX() * a.getY();
+		}
+		return area / 2.0;
+	}
+
+	private static void insert(DelaunayTriangulation delaunay, List<Point> sites, float x, float y) {
+		final Point p = new Point(x, y);
+		try {
+			delaunay.insertPoint(p);
+			sites.add(p);
+		} catch (VoronoiException e) {
+			/* the same site again */
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import de.hambuch.voronoiapp.geometry.Circle;
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the triangulation of degenerate inputs with exact arithmetic:
+ * collinear and cocircular sites, sites very close to a line or circle,
+ * the termination of the walk in find(), and local deletions and moves
+ * together with the heap of the largest empty circle.
+ */
+public class DelaunayTriangulationTest {
+
+	/* the incircle test of DelauTriangle may miss violations below this part of the permanent */
+	private static final double INCIRCLE_MARGIN = 1e-11;
+
+	@Test
+	public void collinearSites() throws VoronoiException {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		for (int i = 0; i < 50; i++)
+			delaunay.insertPoint(new Point((i * 37) % 50, 2 * ((i * 37) % 50) + 1));
+		assertTrue(delaunay.areCollinear());
+		assertEquals(50, delaunay.size());
+		assertEquals(0, delaunay.getTriangleCount());
+		delaunay.insertPoint(new Point(10.0f, 0.0f));
+		assertFalse(delaunay.areCollinear());
+		check(delaunay);
+		/* and a site on the line again */
+		delaunay.insertPoint(new Point(60.0f, 121.0f));
+		check(delaunay);
+	}
+
+	@Test
+	public void collinearBulk() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		assertEquals(4, delaunay.insertPoints(new float[]{0, 0, 10, 0, 5, 0, 5, 0, 20, 0}, 0, 10));
+		assertTrue(delaunay.areCollinear());
+		assertEquals(4, delaunay.insertPoints(new float[]{5, 5, 5, -5, 0, 0, 7, 1, 3, 3}, 0, 10));
+		check(delaunay);
+	}
+
+	/* a grid has four cocircular sites in every cell */
+	@Test
+	public void gridSites() throws VoronoiException {
+		final List<Point> sites = new ArrayList<>();
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 40; y++)
+				sites.add(new Point(10 * x, 10 * y));
+		}
+		Collections.shuffle(sites, new Random(48));
+		final DelaunayTriangulation single = new DelaunayTriangulation();
+		for (Point p : sites)
+			single.insertPoint(p);
+		check(single);
+		final float[] coords = new float[2 * sites.size()];
+		for (int i = 0; i < sites.size(); i++) {
+			coords[2 * i] = sites.get(i).getX();
+			coords[2 * i + 1] = sites.get(i).getY();
+		}
+		final DelaunayTriangulation bulk = new DelaunayTriangulation();
+		bulk.insertPoints(coords, 0, coords.length);
+		check(bulk);
+		assertEquals(single.getTriangleCount(), bulk.getTriangleCount());
+	}
+
+	/* sites on a circle, rounded to integers: many are collinear on the hull */
+	@Test
+	public void cocircularSites() throws VoronoiException {
+		for (int radius : new int[]{100, 10000, 1000000}) {
+			final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+			final Set<Point> sites = new HashSet<>();
+			for (int i = 0; i < 2000; i++) {
+				final double angle = 2.0 * Math.PI * i / 2000;
+				final Point p = new Point(Math.round(radius * Math.cos(angle)), Math.round(radius * Math.sin(angle)));
+				if (sites.add(p)) {
+					try {
+						delaunay.insertPoint(p);
+					} catch (VoronoiException e) {
+						/* closer than Point.CLOSE to a site */
+					}
+				}
+			}
+			delaunay.insertPoint(new Point(0.0f, 0.0f));
+			check(delaunay);
+		}
+	}
+
+	/* float coordinates very close to a line and to a circle */
+	@Test
+	public void nearlyDegenerateSites() throws VoronoiException {
+		final Random random = new Random(49);
+		final DelaunayTriangulation line = new DelaunayTriangulation();
+		for (int i = 0; i < 1000; i++) {
+			final float x = 10000.0f * random.nextFloat();
+			final Point p = new Point(x, 0.5f * x + 1e-3f * random.nextFloat());
+			try {
+				line.insertPoint(p);
+			} catch (VoronoiException e) {
+				/* equal site */
+			}
+		}
+		line.insertPoint(new Point(0.0f, 5000.0f));
+		check(line);
+		final DelaunayTriangulation circle = new DelaunayTriangulation();
+		for (int i = 0; i < 1000; i++) {
+			final double angle = 2.0 * Math.PI * random.nextDouble();
+			try {
+				circle.insertPoint(new Point((float) (5000.0 * Math.cos(angle)), (float) (5000.0 * Math.sin(angle))));
+			} catch (VoronoiException e) {
+				/* equal site */
+			}
+		}
+		check(circle);
+	}
+
+	/*
+	 * find() must end in the triangle of the point from every start: random
+	 * sites, a grid and thin triangles along a line
+	 */
+	@Test(timeout = 20000)
+	public void walkTerminates() {
+		final Random random = new Random(50);
+		for (int input = 0; input < 3; input++) {
+			final float[] coords = new float[2 * 10000];
+			for (int i = 0; i < coords.length; i += 2) {
+				if (input == 0) {
+					coords[i] = 2000.0f * random.nextFloat();
+					coords[i + 1] = 2000.0f * random.nextFloat();
+				} else if (input == 1) {
+					coords[i] = 10 * random.nextInt(200);
+					coords[i + 1] = 10 * random.nextInt(200);
+				} else {
+					coords[i] = 2000.0f * random.nextFloat();
+					coords[i + 1] = i < 20 ? 2000.0f * random.nextFloat() : coords[i] + 1e-3f * random.nextFloat();
+				}
+			}
+			final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+			delaunay.insertPoints(coords, 0, coords.length);
+			final List<DelauTriangle> triangles = new ArrayList<>();
+			delaunay.visitTriangles(triangles::add);
+			final List<Point> sites = new ArrayList<>();
+			delaunay.points().forEachRemaining(sites::add);
+			for (int i = 0; i < 20000; i++) {
+				final DelauTriangle start = triangles.get(random.nextInt(triangles.size()));
+				final float x = 10.0f + 1980.0f * random.nextFloat();
+				final Point p = i % 2 == 0 ? sites.get(random.nextInt(sites.size()))
+						: new Point(x, input == 2 ? x + 1e-3f * random.nextFloat() : 10.0f + 1980.0f * random.nextFloat());
+				final DelauTriangle found = delaunay.find(start, p);
+				assertNotNull(found);
+				if (!found.isHalfplane()) {
+					assertTrue(orientation(found.getPointA(), found.getPointB(), p).signum() >= 0);
+					assertTrue(orientation(found.getPointB(), found.getPointC(), p).signum() >= 0);
+					assertTrue(orientation(found.getPointC(), found.getPointA(), p).signum() >= 0);
+				}
+			}
+		}
+	}
+
+	/*
+	 * one million integer sites with many duplicates and cocircular ones
+	 * (they hung in find() with the float predicates); the walks per site
+	 * stay constant with the Hilbert order.
+	 */
+	@Test(timeout = 120000)
+	public void millionSites() {
+		final Random random = new Random(3);
+		final int n = 1000000;
+		final float[] coords = new float[2 * n];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = random.nextInt(100000);
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final int inserted = delaunay.insertPoints(coords, 0, coords.length);
+		assertEquals(inserted, delaunay.size());
+		assertTrue(inserted > 0.99 * n);
+		assertTrue("walk steps " + delaunay.getWalkSteps(), delaunay.getWalkSteps() < 10L * n);
+		checkLocally(delaunay);
+	}
+
+	/* the Hilbert order of a thin strip must not insert its rows one after the other */
+	@Test(timeout = 20000)
+	public void thinStrip() {
+		final int n = 20000;
+		final float[] coords = new float[2 * n];
+		for (int i = 0; i < n; i++) {
+			coords[2 * i] = i;
+			coords[2 * i + 1] = i % 2;
+		}
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		assertEquals(n, delaunay.insertPoints(coords, 0, coords.length));
+		assertTrue("flips " + delaunay.getFlipCount(), delaunay.getFlipCount() < 10L * n);
+		checkLocally(delaunay);
+	}
+
+	/*
+	 * delete inner and hull sites; inner sites must be removed locally, and
+	 * the circle heap must follow every change
+	 */
+	@Test
+	public void deleteSites() throws VoronoiException {
+		final Random random = new Random(28);
+		final List<Point> sites = new ArrayList<>();
+		final DelaunayTriangulation delaunay = randomSites(random, 300, sites);
+		final VoronoiDiagramCircle voronoi = new VoronoiDiagramCircle(delaunay);
+		final int[] rebuilds = countRebuilds(delaunay);
+		int inner = 0;
+		for (int i = 0; i < 250; i++) {
+			final boolean hull = i % 5 == 0;
+			final Point p = hull ? extreme(sites, random) : sites.get(random.nextInt(sites.size()));
+			final boolean wasHull = isHullVertex(delaunay, p);
+			final int before = rebuilds[0];
+			delaunay.deletePoint(p);
+			sites.remove(p);
+			assertEquals(sites.size(), delaunay.size());
+			if (!wasHull) {
+				assertEquals("inner site not deleted locally", before, rebuilds[0]);
+				inner++;
+			}
+			if (sites.size() >= 3) {
+				check(delaunay);
+				checkMaxCircle(delaunay, voronoi);
+			}
+		}
+		assertTrue(inner > 100);
+		/* all others too */
+		while (!sites.isEmpty())
+			delaunay.deletePoint(sites.remove(random.nextInt(sites.size())));
+		assertEquals(0, delaunay.size());
+	}
+
+	/* small moves of inner sites, jumps, moves onto and off the hull */
+	@Test
+	public void moveSites() throws VoronoiException {
+		final Random random = new Random(29);
+		final List<Point> sites = new ArrayList<>();
+		final DelaunayTriangulation delaunay = randomSites(random, 300, sites);
+		final VoronoiDiagramCircle voronoi = new VoronoiDiagramCircle(delaunay);
+		final int[] rebuilds = countRebuilds(delaunay);
+		int local = 0;
+		for (int i = 0; i < 240; i++) {
+			final Point p;
+			final float x, y;
+			switch (i % 4) {
+				case 0: /* a drag step */
+					p = sites.get(random.nextInt(sites.size()));
+					x = p.getX() + 5.0f * (random.nextFloat() - 0.5f);
+					y = p.getY() + 5.0f * (random.nextFloat() - 0.5f);
+					break;
+				case 1: /* anywhere inside */
+					p = sites.get(random.nextInt(sites.size()));
+					x = 1000.0f * random.nextFloat();
+					y = 1000.0f * random.nextFloat();
+					break;
+				case 2: /* out of the hull */
+					p = sites.get(random.nextInt(sites.size()));
+					x = random.nextBoolean() ? -100.0f * random.nextFloat() : 1000.0f + 100.0f * random.nextFloat();
+					y = 1200.0f * random.nextFloat() - 100.0f;
+					break;
+				default: /* a hull site inwards */
+					p = extreme(sites, random);
+					x = 200.0f + 600.0f * random.nextFloat();
+					y = 200.0f + 600.0f * random.nextFloat();
+					break;
+			}
+			final boolean wasHull = isHullVertex(delaunay, p);
+			final int before = rebuilds[0];
+			delaunay.movePoint(p, x, y);
+			assertEquals(sites.size(), delaunay.size());
+			if (p.getX() == x && p.getY() == y && !wasHull && !isHullVertex(delaunay, p)) {
+				assertEquals("inner site not moved locally", before, rebuilds[0]);
+				local++;
+			}
+			check(delaunay);
+			checkMaxCircle(delaunay, voronoi);
+		}
+		assertTrue(local > 60);
+		/* onto another site: nothing happens */
+		final Point p = sites.get(0), q = sites.get(1);
+		final long version = delaunay.getVersion();
+		delaunay.movePoint(p, q.getX(), q.getY());
+		assertEquals(version, delaunay.getVersion());
+		check(delaunay);
+	}
+
+	static DelaunayTriangulation randomSites(Random random, int n, List<Point> sites) throws VoronoiException {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		while (sites.size() < n) {
+			final Point p = new Point(1000.0f * random.nextFloat(), 1000.0f * random.nextFloat());
+			try {
+				delaunay.insertPoint(p);
+				sites.add(p);
+			} catch (VoronoiException e) {
+				/* too close to another site */
+			}
+		}
+		return delaunay;
+	}
+
+	private static int[] countRebuilds(DelaunayTriangulation delaunay) {
+		final int[] rebuilds = new int[1];
+		delaunay.addChangeListener(new DelaunayTriangulation.ChangeListener() {
+			@Override
+			public void trianglesChanged(List<DelauTriangle> removed, List<DelauTriangle> created) {
+			}
+
+			@Override
+			public void triangulationRebuilt() {
+				rebuilds[0]++;
+			}
+		});
+		return rebuilds;
+	}
+
+	/* the site farthest in a random direction, always a vertex of the hull */
+	static Point extreme(List<Point> sites, Random random) {
+		final double angle = 2.0 * Math.PI * random.nextDouble();
+		final double dx = Math.cos(angle), dy = Math.sin(angle);
+		Point best = null;
+		for (Point p : sites) {
+			if (best == null || p.getX() * dx + p.getY() * dy > best.getX() * dx + best.getY() * dy)
+				best = p;
+		}
+		return best;
+	}
+
+	private static boolean isHullVertex(DelaunayTriangulation delaunay, Point p) {
+		final boolean[] hull = new boolean[1];
+		delaunay.visitTriangles(t -> {
+			if (t.isHalfplane() && (t.getPointA() == p || t.getPointB() == p))
+				hull[0] = true;
+		});
+		return hull[0];
+	}
+
+	/*
+	 * the largest circle of the heap equals the largest circumcircle of all
+	 * triangles, also with the center restricted to the hull or an area
+	 */
+	private static void checkMaxCircle(DelaunayTriangulation delaunay, VoronoiDiagramCircle voronoi) {
+		final ConvexHull hull = new ConvexHull(delaunay);
+		final float[] best = new float[3]; /* anywhere, in the hull, in the area */
+		delaunay.visitTriangles(t -> {
+			if (t.isHalfplane())
+				return;
+			final float radius = t.circumCircle().getRadius();
+			final Point center = t.circumCircle().getCenter();
+			best[0] = Math.max(best[0], radius);
+			if (hull.pointInHull(center) == 1)
+				best[1] = Math.max(best[1], radius);
+			if (center.getX() >= 250.0f && center.getX() <= 750.0f && center.getY() >= 250.0f && center.getY() <= 750.0f)
+				best[2] = Math.max(best[2], radius);
+		});
+		final VoronoiDiagramCircle.Restriction[] restrictions = VoronoiDiagramCircle.Restriction.values();
+		for (int i = 0; i < restrictions.length; i++) {
+			voronoi.setRestriction(restrictions[i]);
+			final Circle circle = voronoi.getMaxCircle(250.0f, 250.0f, 750.0f, 750.0f);
+			assertEquals(restrictions[i].toString(), best[i], circle != null ? circle.getRadius() : 0.0f, 0.0f);
+		}
+	}
+
+	/*
+	 * structure, orientation and empty circles of the triangulation: every
+	 * triangle is counterclockwise, the neighbours refer back and no
+	 * neighbouring site is inside a circumcircle.
+	 */
+	static void check(DelaunayTriangulation delaunay) {
+		final int[] counts = new int[2]; /* triangles, halfplanes */
+		final Set<Point> vertices = Collections.newSetFromMap(new IdentityHashMap<>());
+		delaunay.visitTriangles(t -> {
+			checkNeighbours(t);
+			if (t.isHalfplane()) {
+				counts[1]++;
+				return;
+			}
+			counts[0]++;
+			vertices.add(t.getPointA());
+			vertices.add(t.getPointB());
+			vertices.add(t.getPointC());
+			assertTrue("not counterclockwise: " + t,
+					orientation(t.getPointA(), t.getPointB(), t.getPointC()).signum() > 0);
+			checkCircle(t);
+		});
+		final int n = delaunay.size();
+		assertEquals(n, vertices.size());
+		assertEquals(2 * n - 2 - counts[1], counts[0]);
+		assertEquals(counts[0], delaunay.getTriangleCount());
+	}
+
+	/* like check() but only with the fast predicates, for large triangulations */
+	private static void checkLocally(DelaunayTriangulation delaunay) {
+		final int[] violations = new int[1];
+		delaunay.visitTriangles(t -> {
+			checkNeighbours(t);
+			if (t.isHalfplane())
+				return;
+			for (DelauTriangle u : new DelauTriangle[]{t.getNeighbourAB(), t.getNeighbourBC(), t.getNeighbourCA()}) {
+				final Point q = opposite(t, u);
+				if (q != null && t.pointInCircumcircle(q))
+					violations[0]++;
+			}
+		});
+		assertEquals(0, violations[0]);
+	}
+
+	private static void checkNeighbours(DelauTriangle t) {
+		for (DelauTriangle u : new DelauTriangle[]{t.getNeighbourAB(), t.getNeighbourBC(), t.getNeighbourCA()}) {
+			assertNotNull("missing neighbour: " + t, u);
+			assertTrue("not reciprocal: " + t + " " + u,
+					u.getNeighbourAB() == t || u.getNeighbourBC() == t || u.getNeighbourCA() == t);
+		}
+	}
+
+	private static void checkCircle(DelauTriangle t) {
+		for (DelauTriangle u : new DelauTriangle[]{t.getNeighbourAB(), t.getNeighbourBC(), t.getNeighbourCA()}) {
+			final Point q = opposite(t, u);
+			if (q == null)
+				continue;
+			final Point a = t.getPointA(), b = t.getPointB(), c = t.getPointC();
+			final BigDecimal det = incircle(a, b, c, q);
+			assertTrue("not Delaunay: " + q + " in " + t,
+					det.doubleValue() <= INCIRCLE_MARGIN * permanent(a, b, c, q));
+		}
+	}
+
+	/* the site of a real neighbour u that is not a corner of t */
+	private static Point opposite(DelauTriangle t, DelauTriangle u) {
+		if (u == null || u.isHalfplane())
+			return null;
+		for (Point q : new Point[]{u.getPointA(), u.getPointB(), u.getPointC()}) {
+			if (q != t.getPointA() && q != t.getPointB() && q != t.getPointC())
+				return q;
+		}
+		return null;
+	}
+
+	private static BigDecimal orientation(Point a, Point b, Point c) {
+		final BigDecimal ax = exact(a.getX()), ay = exact(a.getY());
+		return exact(b.getX()).subtract(ax).multiply(exact(c.getY()).subtract(ay))
+				.subtract(exact(b.getY()).subtract(ay).multiply(exact(c.getX()).subtract(ax)));
+	}
+
+	/* > 0 if p is inside the circle through the counterclockwise a, b, c */
+	private static BigDecimal incircle(Point a, Point b, Point c, Point p) {
+		final BigDecimal px = exact(p.getX()), py = exact(p.getY());
+		final BigDecimal[][] m = new BigDecimal[3][];
+		final Point[] corners = {a, b, c};
+		for (int i = 0; i < 3; i++) {
+			final BigDecimal dx = exact(corners[i].getX()).subtract(px), dy = exact(corners[i].getY()).subtract(py);
+			m[i] = new BigDecimal[]{dx, dy, dx.multiply(dx).add(dy.multiply(dy))};
+		}
+		return m[0][0].multiply(m[1][1].multiply(m[2][2]).subtract(m[1][2].multiply(m[2][1])))
+				.subtract(m[0][1].multiply(m[1][0].multiply(m[2][2]).subtract(m[1][2].multiply(m[2][0]))))
+				.add(m[0][2].multiply(m[1][0].multiply(m[2][1]).subtract(m[1][1].multiply(m[2][0]))));
+	}
+
+	private static double permanent(Point a, Point b, Point c, Point p) {
+		final Point[] corners = {a, b, c};
+		final double[][] m = new double[3][];
+		for (int i = 0; i < 3; i++) {
+			final double dx = Math.abs((double) corners[i].getX() - p.getX());
+			final double dy = Math.abs((double) corners[i].getY() - p.getY());
+			m[i] = new double[]{dx, dy, dx * dx + dy * dy};
+		}
+		return m[0][0] * (m[1][1] * m[2][2] + m[1][2] * m[2][1]) + m[0][1] * (m[1][0] * m[2][2] + m[1][2] * m[2][0])
+				+ m[0][2] * (m[1][0] * m[2][1] + m[1][1] * m[2][0]);
+	}
+
+	private static BigDecimal exact(float value) {
+		return new BigDecimal(value);
+	}
+}
@@ -0,0 +1,139 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the coloring stays proper (no adjacent sites resp. triangles
+ * share a color, no color beyond the limits) while sites are inserted,
+ * deleted and moved, and that deleting an inner site only recolors sites
+ * near the hole.
+ */
+public class DiagramColoringTest {
+
+	@Test
+	public void randomEdits() throws VoronoiException {
+		final Random random = new Random(31);
+		final List<Point> sites = new ArrayList<>();
+		final DelaunayTriangulation delaunay = DelaunayTriangulationTest.randomSites(random, 200, sites);
+		final DiagramColoring coloring = new DiagramColoring(delaunay);
+		check(delaunay, coloring);
+		for (int i = 0; i < 400; i++) {
+			switch (i % 5) {
+				case 0:
+				case 1: {
+					final Point p = new Point(1000.0f * random.nextFloat(), 1000.0f * random.nextFloat());
+					try {
+						delaunay.insertPoint(p);
+						sites.add(p);
+					} catch (VoronoiException e) {
+						/* too close to another site */
+					}
+					break;
+				}
+				case 2:
+					delaunay.deletePoint(sites.remove(random.nextInt(sites.size())));
+					break;
+				case 3: {
+					final Point p = sites.get(random.nextInt(sites.size()));
+					delaunay.movePoint(p, p.getX() + 20.0f * (random.nextFloat() - 0.5f),
+							p.getY() + 20.0f * (random.nextFloat() - 0.5f));
+					break;
+				}
+				default: {
+					final Point p = DelaunayTriangulationTest.extreme(sites, random);
+					if (random.nextBoolean())
+						delaunay.movePoint(p, 1000.0f * random.nextFloat(), 1000.0f * random.nextFloat());
+					else
+						delaunay.deletePoint(sites.remove(sites.indexOf(p)));
+					break;
+				}
+			}
+			assertEquals(sites.size(), delaunay.size());
+			check(delaunay, coloring);
+		}
+	}
+
+	@Test
+	public void innerDeletesAreLocal() throws VoronoiException {
+		final Random random = new Random(32);
+		final List<Point> sites = new ArrayList<>();
+		final DelaunayTriangulation delaunay = DelaunayTriangulationTest.randomSites(random, 400, sites);
+		final DiagramColoring coloring = new DiagramColoring(delaunay);
+		for (int i = 0; i < 150; i++) {
+			final Point p = sites.get(random.nextInt(sites.size()));
+			final Map<Point, Integer> indices = delaunay.indexPoints();
+			final List<Set<Integer>> adjacent = adjacency(delaunay, indices);
+			final int index = indices.get(p);
+			/* the star of p and the neighbours of its sites */
+			final Set<Integer> near = new HashSet<>(adjacent.get(index));
+			for (int j : adjacent.get(index))
+				near.addAll(adjacent.get(j));
+			final Map<Point, Integer> before = new IdentityHashMap<>();
+			for (Point q : sites)
+				before.put(q, coloring.siteColor(q));
+			delaunay.deletePoint(p);
+			sites.remove(p);
+			check(delaunay, coloring);
+			for (Map.Entry<Point, Integer> entry : indices.entrySet()) {
+				final Point q = entry.getKey();
+				if (q != p && !near.contains(entry.getValue()))
+					assertEquals("far site recolored", (int) before.get(q), coloring.siteColor(q));
+			}
+		}
+	}
+
+	/* a proper coloring of all sites and triangles */
+	private static void check(DelaunayTriangulation delaunay, DiagramColoring coloring) {
+		coloring.update();
+		final Map<Point, Integer> indices = delaunay.indexPoints();
+		for (Point p : indices.keySet()) {
+			final int color = coloring.siteColor(p);
+			assertTrue(color >= 0 && color < DiagramColoring.SITE_COLORS);
+		}
+		final Point[] sites = new Point[indices.size()];
+		for (Map.Entry<Point, Integer> entry : indices.entrySet())
+			sites[entry.getValue()] = entry.getKey();
+		final int[] edges = delaunay.edges(indices);
+		for (int e = 0; e < edges.length; e += 4)
+			assertNotEquals("adjacent sites share a color",
+					coloring.siteColor(sites[edges[e]]), coloring.siteColor(sites[edges[e + 1]]));
+		if (delaunay.areCollinear())
+			return;
+		delaunay.visitTriangles(t -> {
+			if (t.isHalfplane())
+				return;
+			final int color = coloring.triangleColor(t);
+			assertTrue(color >= 0 && color < DiagramColoring.TRIANGLE_COLORS);
+			for (DelauTriangle u : new DelauTriangle[]{t.getNeighbourAB(), t.getNeighbourBC(), t.getNeighbourCA()}) {
+				if (u != null && !u.isHalfplane())
+					assertNotEquals("adjacent triangles share a color", color, coloring.triangleColor(u));
+			}
+		});
+	}
+
+	private static List<Set<Integer>> adjacency(DelaunayTriangulation delaunay, Map<Point, Integer> indices) {
+		final List<Set<Integer>> adjacent = new ArrayList<>();
+		for (int i = 0; i < indices.size(); i++)
+			adjacent.add(new HashSet<>());
+		final int[] edges = delaunay.edges(indices);
+		for (int e = 0; e < edges.length; e += 4) {
+			adjacent.get(edges[e]).add(edges[e + 1]);
+			adjacent.get(edges[e + 1]).add(edges[e]);
+		}
+		return adjacent;
+	}
+}
@@ -0,0 +1,137 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the properties of Sibson coordinates on random sites: the weights
+ * are positive and sum up to 1, they reproduce the query point and every
+ * linear field, and the parallel grid gives the same values as single
+ * queries.
+ */
+public class NaturalNeighbourInterpolatorTest {
+
+	private static final float SIZE = 1000.0f;
+
+	@Test
+	public void partitionOfUnity() {
+		final DelaunayTriangulation delaunay = random(500, 26);
+		final NaturalNeighbourInterpolator interpolator = new NaturalNeighbourInterpolator(delaunay);
+		final Random random = new Random(1);
+		int inside = 0;
+		for (int i = 0; i < 2000; i++) {
+			final float x = SIZE * random.nextFloat(), y = SIZE * random.nextFloat();
+			final NaturalNeighbourInterpolator.Coordinates coordinates = interpolator.coordinates(x, y);
+			if (coordinates == null)
+				continue;
+			inside++;
+			double sum = 0.0, px = 0.0, py = 0.0;
+			for (int k = 0; k < coordinates.size(); k++) {
+				final float w = coordinates.getWeight(k);
+				assertTrue("negative weight " + w, w > -1e-5f);
+				sum += w;
+				px += w * coordinates.getSite(k).getX();
+				py += w * coordinates.getSite(k).getY();
+			}
+			assertEquals(1.0, sum, 1e-5);
+			/* linear precision of the coordinates */
+			assertEquals(x, px, 1e-3);
+			assertEquals(y, py, 1e-3);
+		}
+		assertTrue(inside > 1500);
+	}
+
+	@Test
+	public void linearPrecision() {
+		final DelaunayTriangulation delaunay = random(500, 27);
+		final float[] values = linear(delaunay);
+		final NaturalNeighbourInterpolator interpolator = new NaturalNeighbourInterpolator(delaunay);
+		final Random random = new Random(2);
+		for (int i = 0; i < 2000; i++) {
+			final float x = SIZE * random.nextFloat(), y = SIZE * random.nextFloat();
+			final float value = interpolator.interpolate(values, x, y);
+			if (!Float.isNaN(value))
+				assertEquals(field(x, y), value, 1e-3f);
+		}
+		/* at the sites themselves */
+		final Iterator<Point> sites = delaunay.points();
+		while (sites.hasNext()) {
+			final Point p = sites.next();
+			assertEquals(field(p.getX(), p.getY()), interpolator.interpolate(values, p.getX(), p.getY()), 1e-3f);
+		}
+	}
+
+	@Test
+	public void outsideOfHull() {
+		final DelaunayTriangulation delaunay = random(100, 28);
+		final NaturalNeighbourInterpolator interpolator = new NaturalNeighbourInterpolator(delaunay);
+		assertNull(interpolator.coordinates(-1.0f, 500.0f));
+		assertNull(interpolator.coordinates(500.0f, SIZE + 1.0f));
+		assertTrue(Float.isNaN(interpolator.interpolate(linear(delaunay), 2 * SIZE, 2 * SIZE)));
+		assertNotNull(interpolator.coordinates(500.0f, 500.0f));
+	}
+
+	/* the grid (parallel rows, reused seeds) equals single queries */
+	@Test
+	public void gridEqualsSingleQueries() {
+		final DelaunayTriangulation delaunay = random(2000, 29);
+		final float[] values = new float[delaunay.size()];
+		final Random random = new Random(3);
+		for (int i = 0; i < values.length; i++)
+			values[i] = random.nextFloat();
+		final NaturalNeighbourInterpolator interpolator = new NaturalNeighbourInterpolator(delaunay);
+		final Grid grid = new Grid(-10.0f, -10.0f, SIZE + 10.0f, SIZE + 10.0f, 157, 131);
+		final long steps = delaunay.getWalkSteps();
+		interpolator.interpolate(values, grid);
+		/* the grid did not walk with the state of the triangulation */
+		assertEquals(steps, delaunay.getWalkSteps());
+		int nan = 0;
+		for (int row = 0; row < grid.getRows(); row++) {
+			for (int col = 0; col < grid.getColumns(); col++) {
+				final float expected = interpolator.interpolate(values, grid.getX(col), grid.getY(row));
+				if (Float.isNaN(expected)) {
+					assertTrue(Float.isNaN(grid.get(col, row)));
+					nan++;
+				} else {
+					assertEquals(expected, grid.get(col, row), 1e-5f);
+				}
+			}
+		}
+		/* the margin of the grid is outside */
+		assertTrue(nan >= 2 * (grid.getRows() + grid.getColumns()) - 4);
+	}
+
+	private static float field(float x, float y) {
+		return 3.0f + 0.5f * x - 0.25f * y;
+	}
+
+	/* values of field() at the sites, in the order of points() */
+	private static float[] linear(DelaunayTriangulation delaunay) {
+		final float[] values = new float[delaunay.size()];
+		final Iterator<Point> sites = delaunay.points();
+		for (int i = 0; sites.hasNext(); i++) {
+			final Point p = sites.next();
+			values[i] = field(p.getX(), p.getY());
+		}
+		return values;
+	}
+
+	private static DelaunayTriangulation random(int n, long seed) {
+		final Random random = new Random(seed);
+		final float[] coords = new float[2 * n];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = SIZE * random.nextFloat();
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		return delaunay;
+	}
+}
@@ -0,0 +1,190 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the proximity graphs with brute force over all pairs of sites
+ * and checks that the cache builds them once per version.
+ */
+public class ProximityGraphTest {
+
+	@Test
+	public void randomSites() {
+		final Random random = new Random(29);
+		for (int run = 0; run < 20; run++) {
+			final float[] coords = new float[2 * 150];
+			for (int i = 0; i < coords.length; i++)
+				coords[i] = random.nextInt(1000);
+			checkAll(triangulate(coords));
+		}
+	}
+
+	@Test
+	public void sitesOnCircle() {
+		/* many cocircular sites and the center: the center has n long edges */
+		final float[] coords = new float[2 * 201];
+		for (int i = 0; i < 200; i++) {
+			final double angle = 2.0 * Math.PI * i / 200;
+			coords[2 * i] = Math.round(10000 * Math.cos(angle));
+			coords[2 * i + 1] = Math.round(10000 * Math.sin(angle));
+		}
+		checkAll(triangulate(coords));
+	}
+
+	@Test
+	public void clusterNearLongEdges() {
+		/* a fan of long edges from the origin and a dense cluster next to the origin */
+		final float[] coords = new float[2 * 400];
+		for (int i = 0; i < 200; i++) {
+			final double angle = Math.PI * (i + 0.5) / 200 - Math.PI / 2;
+			coords[2 * i] = Math.round(100000 * Math.cos(angle));
+			coords[2 * i + 1] = Math.round(100000 * Math.sin(angle));
+			coords[400 + 2 * i] = -10 - i;
+			coords[400 + 2 * i + 1] = i % 2;
+		}
+		coords[0] = 0;
+		coords[1] = 0;
+		checkAll(triangulate(coords));
+	}
+
+	/* one site with very many long edges: a long search for every edge of the center */
+	@Test(timeout = 10000)
+	public void manySitesOnCircle() {
+		final int n = 20000;
+		final float[] coords = new float[2 * n + 2];
+		for (int i = 0; i < n; i++) {
+			final double angle = 2.0 * Math.PI * i / n;
+			coords[2 * i] = Math.round(1e6 * Math.cos(angle));
+			coords[2 * i + 1] = Math.round(1e6 * Math.sin(angle));
+		}
+		final DelaunayTriangulation delaunay = triangulate(coords);
+		final Set<Long> tree = edges(ProximityGraph.minimumSpanningTree(delaunay));
+		final Set<Long> rng = edges(ProximityGraph.relativeNeighbourhood(delaunay));
+		assertEquals(n, tree.size());
+		assertTrue(rng.containsAll(tree));
+		assertTrue(edges(ProximityGraph.gabriel(delaunay)).containsAll(rng));
+	}
+
+	/* the cache builds every graph once per version, equal to a new one */
+	@Test
+	public void cachedGraphs() throws VoronoiException {
+		final Random random = new Random(35);
+		final float[] coords = new float[2 * 300];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = random.nextInt(1000);
+		final DelaunayTriangulation delaunay = triangulate(coords);
+		final ProximityGraphCache cache = new ProximityGraphCache(delaunay);
+		for (int edit = 0; edit < 3; edit++) {
+			final ProximityGraph tree = cache.getMinimumSpanningTree(), gabriel = cache.getGabriel(),
+					rng = cache.getRelativeNeighbourhood();
+			assertSame(tree, cache.getMinimumSpanningTree());
+			assertSame(gabriel, cache.getGabriel());
+			assertSame(rng, cache.getRelativeNeighbourhood());
+			assertEquals(edges(ProximityGraph.minimumSpanningTree(delaunay)), edges(tree));
+			assertEquals(edges(ProximityGraph.gabriel(delaunay)), edges(gabriel));
+			assertEquals(edges(ProximityGraph.relativeNeighbourhood(delaunay)), edges(rng));
+			delaunay.insertPoint(new Point(1000.5f + edit, 500.5f));
+			assertNotSame(tree, cache.getMinimumSpanningTree());
+			assertEquals(tree.size() + 1, cache.getMinimumSpanningTree().size());
+		}
+	}
+
+	private static DelaunayTriangulation triangulate(float[] coords) {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		return delaunay;
+	}
+
+	private static void checkAll(DelaunayTriangulation delaunay) {
+		final float[] coords = new float[2 * delaunay.size()];
+		int k = 0;
+		for (Iterator<Point> iterator = delaunay.points(); iterator.hasNext(); ) {
+			final Point p = iterator.next();
+			coords[k++] = p.getX();
+			coords[k++] = p.getY();
+		}
+		final int n = coords.length / 2;
+		final Set<Long> gabriel = new HashSet<>();
+		final Set<Long> rng = new HashSet<>();
+		for (int a = 0; a < n; a++) {
+			for (int b = a + 1; b < n; b++) {
+				final double length = distanceSq(coords, a, b);
+				boolean inCircle = false, inLune = false;
+				for (int c = 0; c < n; c++) {
+					if (c == a || c == b)
+						continue;
+					final double ac = distanceSq(coords, a, c), bc = distanceSq(coords, b, c);
+					inCircle |= ac + bc < length;
+					inLune |= ac < length && bc < length;
+				}
+				if (!inCircle)
+					gabriel.add(key(a, b));
+				if (!inLune)
+					rng.add(key(a, b));
+			}
+		}
+		assertEquals(gabriel, edges(ProximityGraph.gabriel(delaunay)));
+		assertEquals(rng, edges(ProximityGraph.relativeNeighbourhood(delaunay)));
+		assertEquals(primLength(coords), length(coords, ProximityGraph.minimumSpanningTree(delaunay)), 1e-3);
+	}
+
+	/* total length of the minimum spanning tree over all pairs, O(n^2) */
+	private static double primLength(float[] coords) {
+		final int n = coords.length / 2;
+		final double[] distance = new double[n];
+		final boolean[] done = new boolean[n];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[0] = 0.0;
+		double total = 0.0;
+		for (int step = 0; step < n; step++) {
+			int next = -1;
+			for (int i = 0; i < n; i++)
+				if (!done[i] && (next < 0 || distance[i] < distance[next]))
+					next = i;
+			done[next] = true;
+			total += Math.sqrt(distance[next]);
+			for (int i = 0; i < n; i++)
+				if (!done[i])
+					distance[i] = Math.min(distance[i], distanceSq(coords, next, i));
+		}
+		return total;
+	}
+
+	private static double length(float[] coords, ProximityGraph graph) {
+		final int[] edges = graph.getEdges();
+		double total = 0.0;
+		for (int i = 0; i < edges.length; i += 2)
+			total += Math.sqrt(distanceSq(coords, edges[i], edges[i + 1]));
+		return total;
+	}
+
+	private static Set<Long> edges(ProximityGraph graph) {
+		final int[] edges = graph.getEdges();
+		final Set<Long> set = new HashSet<>();
+		for (int i = 0; i < edges.length; i += 2)
+			set.add(key(edges[i], edges[i + 1]));
+		return set;
+	}
+
+	private static long key(int a, int b) {
+		return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+	}
+
+	private static double distanceSq(float[] coords, int a, int b) {
+		final double dx = coords[2 * a] - coords[2 * b], dy = coords[2 * a + 1] - coords[2 * b + 1];
+		return dx * dx + dy * dy;
+	}
+}
@@ -0,0 +1,154 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the tiled scan conversion with the barycentric interpolation of
+ * every pixel center on its own, found by testing all triangles in double.
+ * Sites on integer coordinates and pixel centers on integer coordinates put
+ * many pixels exactly on shared edges and vertices; none of them may be
+ * left empty.
+ */
+public class TinRasterizerTest {
+
+	/* rounding error of the barycentric coordinates in double */
+	private static final double EPSILON = 1e-12;
+
+	@Test
+	public void pixelsOnEdges() {
+		final Random random = new Random(27);
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final float[] coords = new float[2 * 300];
+		/* the corners make the hull the whole square */
+		final float[] corners = {0, 0, 100, 0, 0, 100, 100, 100};
+		System.arraycopy(corners, 0, coords, 0, corners.length);
+		for (int i = corners.length; i < coords.length; i++)
+			coords[i] = random.nextInt(101);
+		delaunay.insertPoints(coords, 0, coords.length);
+		/* pixel centers on 0, 1, ..., 100 and beyond */
+		final Grid grid = new Grid(-10.5f, -10.5f, 110.5f, 110.5f, 121, 121);
+		compare(delaunay, randomValues(delaunay, random), grid, true);
+	}
+
+	@Test
+	public void randomSites() {
+		final Random random = new Random(28);
+		final float[] coords = new float[2 * 2000];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = 1000.0f * random.nextFloat();
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		/* several tiles of 64 pixels, not a multiple of it */
+		final Grid grid = new Grid(-20.0f, 0.0f, 1020.0f, 1000.0f, 151, 103);
+		compare(delaunay, randomValues(delaunay, random), grid, false);
+	}
+
+	/* the color channels are interpolated like values */
+	@Test
+	public void colors() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(new float[]{0, 0, 100, 0, 0, 100}, 0, 6);
+		final int[] colors = new int[3];
+		final Map<Point, Integer> indices = delaunay.indexPoints();
+		for (Map.Entry<Point, Integer> e : indices.entrySet())
+			colors[e.getValue()] = e.getKey().getX() > 0 ? 0xffff0000 : e.getKey().getY() > 0 ? 0xff00ff00 : 0x800000ff;
+		final int[] pixels = new int[100 * 100];
+		new TinRasterizer(delaunay).rasterize(colors, pixels, 100, 100, 0.0f, 0.0f, 100.0f, 100.0f);
+		/* pixel (10, 20) at (10.5, 20.5) */
+		final int pixel = pixels[20 * 100 + 10];
+		assertEquals(Math.round(0.69f * 0x80 + 0.31f * 0xff), pixel >>> 24, 1);
+		assertEquals(Math.round(0.105f * 255), (pixel >> 16) & 0xff, 1);
+		assertEquals(Math.round(0.205f * 255), (pixel >> 8) & 0xff, 1);
+		assertEquals(Math.round(0.69f * 255), pixel & 0xff, 1);
+		/* outside of the triangle nothing is written */
+		assertEquals(0, pixels[99 * 100 + 99]);
+	}
+
+	/* visitTriangles() walks without recursion, also through long chains of triangles */
+	@Test
+	public void visitAllTriangles() {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final float[] coords = new float[2 * 50000];
+		for (int i = 0; i < coords.length; i += 2) {
+			coords[i] = i / 2;
+			coords[i + 1] = (i / 2) % 2 == 0 ? 0.0f : 1.0f;
+		}
+		delaunay.insertPoints(coords, 0, coords.length);
+		final int[] count = new int[2];
+		delaunay.visitTriangles(t -> count[t.isHalfplane() ? 1 : 0]++);
+		assertEquals(delaunay.getTriangleCount(), count[0]);
+		assertEquals(2 * delaunay.size() - 2, count[0] + count[1]);
+		assertEquals(count[0], new TinRasterizer(delaunay).size());
+	}
+
+	private static float[] randomValues(DelaunayTriangulation delaunay, Random random) {
+		final float[] values = new float[delaunay.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = 100.0f * random.nextFloat();
+		return values;
+	}
+
+	private static void compare(DelaunayTriangulation delaunay, float[] values, Grid grid, boolean onEdges) {
+		final Map<Point, Integer> indices = delaunay.indexPoints();
+		final List<DelauTriangle> triangles = new ArrayList<>();
+		delaunay.visitTriangles(t -> {
+			if (!t.isHalfplane())
+				triangles.add(t);
+		});
+		new TinRasterizer(delaunay).rasterize(values, grid);
+		int inside = 0, shared = 0;
+		for (int row = 0; row < grid.getRows(); row++) {
+			for (int col = 0; col < grid.getColumns(); col++) {
+				final double x = grid.getX(col), y = grid.getY(row);
+				double expected = Double.NaN;
+				int containing = 0;
+				for (DelauTriangle t : triangles) {
+					final double[] l = barycentric(t, x, y);
+					if (l[0] >= -EPSILON && l[1] >= -EPSILON && l[2] >= -EPSILON) {
+						final double value = l[0] * values[indices.get(t.getPointA())]
+								+ l[1] * values[indices.get(t.getPointB())] + l[2] * values[indices.get(t.getPointC())];
+						/* the interpolant is continuous across shared edges */
+						if (containing++ > 0)
+							assertEquals(expected, value, 1e-9);
+						expected = value;
+					}
+				}
+				final float actual = grid.get(col, row);
+				if (containing == 0) {
+					assertTrue("pixel outside of the hull written: " + x + "," + y, Float.isNaN(actual));
+				} else {
+					assertFalse("crack at " + x + "," + y, Float.isNaN(actual));
+					/* the rasterizer steps its coordinates in float along a row */
+					assertEquals(expected, actual, 1e-2);
+					inside++;
+					if (containing > 1)
+						shared++;
+				}
+			}
+		}
+		assertTrue(inside > grid.getRows() * grid.getColumns() / 2);
+		if (onEdges)
+			assertTrue("too few pixels on edges: " + shared, shared > 1000);
+	}
+
+	private static double[] barycentric(DelauTriangle t, double x, double y) {
+		final double ax = t.getPointA().getX(), ay = t.getPointA().getY();
+		final double bx = t.getPointB().getX(), by = t.getPointB().getY();
+		final double cx = t.getPointC().getX(), cy = t.getPointC().getY();
+		final double area = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+		final double l0 = ((bx - x) * (cy - y) - (cx - x) * (by - y)) / area;
+		final double l1 = ((cx - x) * (ay - y) - (ax - x) * (cy - y)) / area;
+		return new double[]{l0, l1, 1.0 - l0 - l1};
+	}
+}
@@ -0,0 +1,156 @@
+package de.hambuch.voronoiapp.algo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import de.hambuch.voronoiapp.geometry.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes topology snapshots, reads them into another triangulation and
+ * compares both. Damaged snapshots must be rejected with an
+ * <VAR>IOException</VAR> and leave the triangulation unchanged.
+ */
+public class TopologyTest {
+
+	/* see DelaunayTriangulation.writeTopology() */
+	private static final int HEADER = 40;
+
+	@Test
+	public void roundTrip() throws IOException, VoronoiException {
+		final DelaunayTriangulation delaunay = random(2000, 49);
+		final byte[] snapshot = write(delaunay);
+		assertEquals(DelaunayTriangulation.getTopologySize(delaunay.size()), snapshot.length);
+		final DelaunayTriangulation copy = new DelaunayTriangulation();
+		copy.readTopology(ByteBuffer.wrap(snapshot));
+		DelaunayTriangulationTest.check(copy);
+		assertEquals(delaunay.size(), copy.size());
+		assertEquals(delaunay.getTriangleCount(), copy.getTriangleCount());
+		final Iterator<Point> expected = delaunay.points(), actual = copy.points();
+		while (expected.hasNext()) {
+			final Point p = expected.next(), q = actual.next();
+			assertEquals(p.getX(), q.getX(), 0.0f);
+			assertEquals(p.getY(), q.getY(), 0.0f);
+			assertEquals(p.getColor(), q.getColor());
+		}
+		assertFalse(actual.hasNext());
+		/* the copy is a working triangulation */
+		copy.insertPoint(new Point(-10.0f, 5000.0f));
+		copy.insertPoint(new Point(500.5f, 499.5f));
+		DelaunayTriangulationTest.check(copy);
+		/* and written again it is the same */
+		final DelaunayTriangulation again = new DelaunayTriangulation();
+		again.readTopology(ByteBuffer.wrap(write(copy)));
+		assertEquals(copy.size(), again.size());
+		DelaunayTriangulationTest.check(again);
+	}
+
+	@Test
+	public void smallRoundTrips() throws IOException, VoronoiException {
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		final float[][] sites = {{0, 0}, {10, 0}, {20, 0}, {5, 10}};
+		for (int i = 0; i <= sites.length; i++) {
+			final byte[] snapshot = write(delaunay);
+			assertEquals(DelaunayTriangulation.getTopologySize(i), snapshot.length);
+			final DelaunayTriangulation copy = random(10, i);
+			copy.readTopology(ByteBuffer.wrap(snapshot));
+			assertEquals(i, copy.size());
+			assertEquals(i < 4, copy.areCollinear());
+			if (i == 4)
+				DelaunayTriangulationTest.check(copy);
+			/* the copy can be extended from here */
+			copy.insertPoint(new Point(3.0f, -7.0f));
+			assertEquals(i + 1, copy.size());
+			if (i < sites.length)
+				delaunay.insertPoint(new Point(sites[i][0], sites[i][1]));
+		}
+	}
+
+	@Test
+	public void corruptSnapshots() throws IOException {
+		final DelaunayTriangulation source = random(100, 7);
+		final byte[] valid = write(source);
+		final int n = source.size(), m = ByteBuffer.wrap(valid).order(ByteOrder.LITTLE_ENDIAN).getInt(12);
+		final int triangles = HEADER + 12 * n;
+		final DelaunayTriangulation target = random(50, 8);
+
+		assertRejected(target, patchInt(valid, 0, 0));
+		assertRejected(target, patchInt(valid, 4, 2));
+		/* counts beyond the end */
+		assertRejected(target, patchInt(valid, 8, n + 1));
+		assertRejected(target, patchInt(valid, 12, m + 1));
+		assertRejected(target, patchInt(valid, 8, -1));
+		assertRejected(target, patchInt(valid, 12, Integer.MAX_VALUE));
+		assertRejected(target, Arrays.copyOf(valid, valid.length - 1));
+		assertRejected(target, Arrays.copyOf(valid, HEADER - 1));
+		/* every index of the header */
+		for (int offset = 16; offset < HEADER; offset += 4) {
+			final int limit = offset < 32 ? m : n;
+			assertRejected(target, patchInt(valid, offset, limit));
+			assertRejected(target, patchInt(valid, offset, -2));
+		}
+		/* sites and neighbours of a triangle */
+		assertRejected(target, patchInt(valid, triangles, n));
+		assertRejected(target, patchInt(valid, triangles + 8, -2 - n));
+		assertRejected(target, patchInt(valid, triangles + 12, m));
+		assertRejected(target, patchInt(valid, triangles + 20, -2));
+		/* a neighbour that does not refer back */
+		assertRejected(target, patchInt(valid, triangles + 12, stranger(valid, triangles, m)));
+	}
+
+	/* a triangle that is not a neighbour of triangle 0 */
+	private static int stranger(byte[] snapshot, int triangles, int m) {
+		final ByteBuffer buffer = ByteBuffer.wrap(snapshot).order(ByteOrder.LITTLE_ENDIAN);
+		for (int j = 1; j < m; j++) {
+			final int offset = triangles + 24 * j;
+			if (buffer.getInt(offset + 12) != 0 && buffer.getInt(offset + 16) != 0 && buffer.getInt(offset + 20) != 0)
+				return j;
+		}
+		throw new AssertionError("no triangle found");
+	}
+
+	private static void assertRejected(DelaunayTriangulation target, byte[] snapshot) {
+		final int size = target.size(), triangles = target.getTriangleCount();
+		try {
+			target.readTopology(ByteBuffer.wrap(snapshot));
+			fail("corrupt snapshot accepted");
+		} catch (IOException e) {
+			/* expected */
+		}
+		assertEquals(size, target.size());
+		assertEquals(triangles, target.getTriangleCount());
+		DelaunayTriangulationTest.check(target);
+	}
+
+	private static DelaunayTriangulation random(int n, long seed) {
+		final Random random = new Random(seed);
+		final float[] coords = new float[2 * n];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = 1000.0f * random.nextFloat();
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		return delaunay;
+	}
+
+	private static byte[] patchInt(byte[] content, int offset, int value) {
+		final byte[] copy = content.clone();
+		ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+		return copy;
+	}
+
+	private static byte[] write(DelaunayTriangulation delaunay) throws IOException {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		delaunay.writeTopology(os);
+		return os.toByteArray();
+	}
+}
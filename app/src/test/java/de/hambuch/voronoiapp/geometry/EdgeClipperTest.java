@@ -0,0 +1,138 @@
+package de.hambuch.voronoiapp.geometry;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the clipped segments and rays with sample points along the
+ * unclipped edges.
+ */
+public class EdgeClipperTest {
+
+	private static final float XMIN = 0.0f, YMIN = 0.0f, XMAX = 1000.0f, YMAX = 600.0f;
+	private static final double EPSILON = 1e-2;
+	private static final int SAMPLES = 2000;
+
+	@Test
+	public void randomSegments() {
+		final Random random = new Random(44);
+		final float[] out = new float[4];
+		for (int run = 0; run < 20000; run++) {
+			final float x1 = coordinate(random), y1 = coordinate(random);
+			final float x2 = coordinate(random), y2 = coordinate(random);
+			final boolean visible = EdgeClipper.clipSegment(x1, y1, x2, y2, XMIN, YMIN, XMAX, YMAX, out, 0);
+			check(x1, y1, x2 - x1, y2 - y1, 1.0, visible, out);
+		}
+	}
+
+	@Test
+	public void randomRays() {
+		final Random random = new Random(45);
+		final float[] out = new float[4];
+		for (int run = 0; run < 20000; run++) {
+			final float x = coordinate(random), y = coordinate(random);
+			final double angle = 2.0 * Math.PI * random.nextDouble();
+			final float dx = (float) Math.cos(angle), dy = (float) Math.sin(angle);
+			final boolean visible = EdgeClipper.clipRay(x, y, dx, dy, XMIN, YMIN, XMAX, YMAX, out, 0);
+			/* a ray from at most 1500 outside ends within 4000 */
+			check(x, y, dx, dy, 4000.0, visible, out);
+		}
+	}
+
+	@Test
+	public void axisParallelEdges() {
+		final float[] out = new float[4];
+		assertTrue(EdgeClipper.clipSegment(-10, 100, 2000, 100, XMIN, YMIN, XMAX, YMAX, out, 0));
+		assertSegment(0, 100, 1000, 100, out);
+		assertTrue(EdgeClipper.clipSegment(0, -10, 0, 700, XMIN, YMIN, XMAX, YMAX, out, 0));
+		assertSegment(0, 0, 0, 600, out);
+		assertFalse(EdgeClipper.clipSegment(-1, -10, -1, 700, XMIN, YMIN, XMAX, YMAX, out, 0));
+		assertTrue(EdgeClipper.clipRay(500, 300, 0, -1, XMIN, YMIN, XMAX, YMAX, out, 0));
+		assertSegment(500, 300, 500, 0, out);
+		assertFalse(EdgeClipper.clipRay(500, 300, 0, 0, XMIN, YMIN, XMAX, YMAX, out, 0));
+	}
+
+	/* the batch methods give the same result as single edges, also in place */
+	@Test
+	public void batchInPlace() {
+		final Random random = new Random(46);
+		final int n = 1000;
+		final float[] segments = new float[4 * n];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = coordinate(random);
+		final float[] expected = new float[4 * n];
+		int k = 0;
+		for (int i = 0; i < segments.length; i += 4) {
+			if (EdgeClipper.clipSegment(segments[i], segments[i + 1], segments[i + 2], segments[i + 3],
+					XMIN, YMIN, XMAX, YMAX, expected, k))
+				k += 4;
+		}
+		final int count = EdgeClipper.clipSegments(segments, 0, segments.length, XMIN, YMIN, XMAX, YMAX, segments, 0);
+		assertEquals(k, count);
+		for (int i = 0; i < k; i++)
+			assertEquals(expected[i], segments[i], 0.0f);
+	}
+
+	private static float coordinate(Random random) {
+		return -500.0f + 2000.0f * random.nextFloat();
+	}
+
+	private static void assertSegment(float x1, float y1, float x2, float y2, float[] out) {
+		assertEquals(x1, out[0], EPSILON);
+		assertEquals(y1, out[1], EPSILON);
+		assertEquals(x2, out[2], EPSILON);
+		assertEquals(y2, out[3], EPSILON);
+	}
+
+	/*
+	 * brute force: the edge (x, y) + t * (dx, dy), 0 <= t <= tmax, is sampled.
+	 * The clipped part must be inside the rectangle and on the edge, contain
+	 * every sample inside the rectangle and end at an end of the edge or at
+	 * the border of the rectangle.
+	 */
+	private static void check(float x, float y, float dx, float dy, double tmax, boolean visible, float[] out) {
+		final String edge = "(" + x + "," + y + ")+t*(" + dx + "," + dy + ")";
+		final double length = Math.sqrt((double) dx * dx + (double) dy * dy);
+		double first = Double.POSITIVE_INFINITY, last = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i <= SAMPLES; i++) {
+			final double t = tmax * i / SAMPLES;
+			final double px = x + t * dx, py = y + t * dy;
+			if (px > XMIN + EPSILON && px < XMAX - EPSILON && py > YMIN + EPSILON && py < YMAX - EPSILON) {
+				first = Math.min(first, t);
+				last = Math.max(last, t);
+			}
+		}
+		if (!visible) {
+			assertTrue(edge + " is visible", first == Double.POSITIVE_INFINITY);
+			return;
+		}
+		final double t0 = parameter(x, y, dx, dy, out[0], out[1]), t1 = parameter(x, y, dx, dy, out[2], out[3]);
+		for (int j = 0; j < 4; j += 2) {
+			assertTrue(edge + " outside", out[j] >= XMIN - EPSILON && out[j] <= XMAX + EPSILON
+					&& out[j + 1] >= YMIN - EPSILON && out[j + 1] <= YMAX + EPSILON);
+			final double t = j == 0 ? t0 : t1;
+			assertEquals(edge + " off the edge", 0.0, Math.hypot(x + t * dx - out[j], y + t * dy - out[j + 1]), EPSILON);
+			assertTrue(edge + " beyond the edge", t * length >= -EPSILON && t <= tmax + EPSILON / length);
+		}
+		assertTrue(edge + " reversed", t0 <= t1 + EPSILON / length);
+		if (first != Double.POSITIVE_INFINITY)
+			assertTrue(edge + " too short", t0 <= first + EPSILON / length && t1 >= last - EPSILON / length);
+		/* the start is the start of the edge or on the border, the end too if it is a segment */
+		assertTrue(edge + " start", t0 * length <= EPSILON || onBorder(out[0], out[1]));
+		assertTrue(edge + " end", (tmax == 1.0 && (1.0 - t1) * length <= EPSILON) || onBorder(out[2], out[3]));
+	}
+
+	private static double parameter(float x, float y, float dx, float dy, float px, float py) {
+		return ((px - (double) x) * dx + (py - (double) y) * dy) / ((double) dx * dx + (double) dy * dy);
+	}
+
+	private static boolean onBorder(float x, float y) {
+		return Math.abs(x - XMIN) <= EPSILON || Math.abs(x - XMAX) <= EPSILON
+				|| Math.abs(y - YMIN) <= EPSILON || Math.abs(y - YMAX) <= EPSILON;
+	}
+}
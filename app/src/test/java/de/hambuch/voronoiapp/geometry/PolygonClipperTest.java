@@ -0,0 +1,112 @@
+package de.hambuch.voronoiapp.geometry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares clipped polygons with brute force: a sample point is in the
+ * clipped polygon if and only if it is in the polygon and in the clipping
+ * area. Points close to a border are skipped.
+ */
+public class PolygonClipperTest {
+
+	private static final double EPSILON = 1e-2;
+
+	@Test
+	public void starPolygonsToRectangle() {
+		final Random random = new Random(44);
+		final PolygonClipper clipper = new PolygonClipper();
+		final float[] rectangle = {200, 150, 800, 150, 800, 650, 200, 650};
+		for (int run = 0; run < 100; run++) {
+			final float[] polygon = starPolygon(random);
+			clipper.set(polygon, 0, polygon.length);
+			clipper.clip(200, 150, 800, 650);
+			check(random, polygon, rectangle, clipper);
+		}
+	}
+
+	@Test
+	public void starPolygonsToConvexPolygon() {
+		final Random random = new Random(45);
+		final PolygonClipper clipper = new PolygonClipper();
+		for (int run = 0; run < 100; run++) {
+			final float[] polygon = starPolygon(random);
+			/* both orientations of the clipping polygon */
+			final float[] convex = run % 2 == 0 ? new float[]{100, 100, 900, 200, 700, 900, 150, 700}
+					: new float[]{150, 700, 700, 900, 900, 200, 100, 100};
+			clipper.set(polygon, 0, polygon.length);
+			clipper.clip(convex, 0, convex.length);
+			check(random, polygon, convex, clipper);
+		}
+	}
+
+	@Test
+	public void outsideAndInside() {
+		final PolygonClipper clipper = new PolygonClipper();
+		final float[] square = {0, 0, 10, 0, 10, 10, 0, 10};
+		clipper.set(square, 0, square.length);
+		assertEquals(0, clipper.clip(20, 20, 30, 30));
+		clipper.set(square, 0, square.length);
+		assertEquals(4, clipper.clip(-1, -1, 11, 11));
+		assertTrue(Arrays.equals(square, clipper.toArray()));
+		/* intersections lie exactly on the clipping edges */
+		clipper.set(square, 0, square.length);
+		clipper.clip(2.5f, 2.5f, 7.25f, 7.25f);
+		for (float c : clipper.toArray())
+			assertTrue(c == 2.5f || c == 7.25f);
+	}
+
+	/* random polygon that is star-shaped around the center, so it is simple */
+	private static float[] starPolygon(Random random) {
+		final int n = 3 + random.nextInt(30);
+		final double[] angles = new double[n];
+		for (int i = 0; i < n; i++)
+			angles[i] = 2.0 * Math.PI * random.nextDouble();
+		Arrays.sort(angles);
+		final float[] coords = new float[2 * n];
+		for (int i = 0; i < n; i++) {
+			final double radius = 50.0 + 500.0 * random.nextDouble();
+			coords[2 * i] = (float) (500.0 + radius * Math.cos(angles[i]));
+			coords[2 * i + 1] = (float) (400.0 + radius * Math.sin(angles[i]));
+		}
+		return coords;
+	}
+
+	private static void check(Random random, float[] polygon, float[] clip, PolygonClipper clipper) {
+		final float[] clipped = clipper.toArray();
+		for (int i = 0; i < 1000; i++) {
+			final float x = 1000.0f * random.nextFloat(), y = 1000.0f * random.nextFloat();
+			if (nearBorder(polygon, x, y) || nearBorder(clip, x, y) || nearBorder(clipped, x, y))
+				continue;
+			final boolean expected = inside(polygon, x, y) && inside(clip, x, y);
+			assertEquals("(" + x + "," + y + ") in " + Arrays.toString(polygon), expected, inside(clipped, x, y));
+		}
+	}
+
+	/* crossing number, independent of PreparedPolygon and SimplePolygon */
+	private static boolean inside(float[] coords, float x, float y) {
+		final int n = coords.length / 2;
+		boolean inside = false;
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			final double x1 = coords[2 * j], y1 = coords[2 * j + 1], x2 = coords[2 * i], y2 = coords[2 * i + 1];
+			if ((y1 <= y) != (y2 <= y) && x1 + (y - y1) * (x2 - x1) / (y2 - y1) < x)
+				inside = !inside;
+		}
+		return inside;
+	}
+
+	private static boolean nearBorder(float[] coords, float x, float y) {
+		final int n = coords.length / 2;
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			if (PreparedPolygon.distanceSquare(x, y, coords[2 * j], coords[2 * j + 1], coords[2 * i], coords[2 * i + 1])
+					<= EPSILON * EPSILON)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,118 @@
+package de.hambuch.voronoiapp.geometry;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the slab lookup of PreparedPolygon with the linear test of
+ * SimplePolygon, also for points on the border and at the height of
+ * vertices.
+ */
+public class PreparedPolygonTest {
+
+	@Test
+	public void randomPolygons() {
+		final Random random = new Random(45);
+		for (int run = 0; run < 100; run++)
+			check(random, starPolygon(random), false);
+	}
+
+	/* vertices and points on a grid: horizontal edges, points on edges and at vertex heights */
+	@Test
+	public void gridPolygons() {
+		final Random random = new Random(46);
+		for (int run = 0; run < 200; run++)
+			check(random, gridPolygon(random), true);
+	}
+
+	@Test
+	public void square() {
+		final SimplePolygon square = new SimplePolygon();
+		square.addPoint(new Point(0.0f, 0.0f));
+		square.addPoint(new Point(10.0f, 0.0f));
+		square.addPoint(new Point(10.0f, 10.0f));
+		square.addPoint(new Point(0.0f, 10.0f));
+		final PreparedPolygon prepared = square.prepare();
+		assertTrue(prepared.contains(5, 5));
+		assertTrue(prepared.contains(0, 5));
+		assertTrue(prepared.contains(10, 10));
+		assertTrue(prepared.contains(5, 0));
+		assertFalse(prepared.contains(11, 5));
+		assertFalse(prepared.contains(5, 10.5f));
+		assertFalse(prepared.contains(-5, 0));
+	}
+
+	@Test
+	public void degenerate() {
+		assertFalse(new PreparedPolygon(new float[0], 0, 0).contains(0, 0));
+		/* all vertices at the same height: only the border */
+		final PreparedPolygon flat = new PreparedPolygon(new float[]{0, 0, 10, 0, 5, 0}, 0, 6);
+		assertTrue(flat.contains(5, 0));
+		assertFalse(flat.contains(5, 1));
+	}
+
+	private static SimplePolygon starPolygon(Random random) {
+		final int n = 3 + random.nextInt(40);
+		final double[] angles = new double[n];
+		for (int i = 0; i < n; i++)
+			angles[i] = 2.0 * Math.PI * random.nextDouble();
+		Arrays.sort(angles);
+		final SimplePolygon polygon = new SimplePolygon();
+		for (int i = 0; i < n; i++) {
+			final double radius = 50.0 + 400.0 * random.nextDouble();
+			polygon.addPoint(new Point((float) (500.0 + radius * Math.cos(angles[i])),
+					(float) (500.0 + radius * Math.sin(angles[i]))));
+		}
+		return polygon;
+	}
+
+	/*
+	 * vertices on a grid with distinct angles around the center (500, 500)
+	 * and gaps below 180 degrees: star-shaped, so still simple
+	 */
+	private static SimplePolygon gridPolygon(Random random) {
+		while (true) {
+			final int n = 3 + random.nextInt(40);
+			final double[][] vertices = new double[n][];
+			for (int i = 0; i < n; i++) {
+				final double x = 50 * (2 + random.nextInt(17)), y = 50 * (2 + random.nextInt(17));
+				vertices[i] = new double[]{Math.atan2(y - 500, x - 500), x, y};
+			}
+			Arrays.sort(vertices, (a, b) -> Double.compare(a[0], b[0]));
+			boolean star = true;
+			for (int i = 0; i < n && star; i++) {
+				final double gap = i + 1 < n ? vertices[i + 1][0] - vertices[i][0]
+						: vertices[0][0] + 2.0 * Math.PI - vertices[i][0];
+				star = gap > 1e-9 && gap < Math.PI - 1e-9 && (vertices[i][1] != 500 || vertices[i][2] != 500);
+			}
+			if (!star)
+				continue;
+			final SimplePolygon polygon = new SimplePolygon();
+			for (double[] vertex : vertices)
+				polygon.addPoint(new Point((float) vertex[1], (float) vertex[2]));
+			return polygon;
+		}
+	}
+
+	private static void check(Random random, SimplePolygon polygon, boolean grid) {
+		final PreparedPolygon prepared = polygon.prepare();
+		final float[] xy = new float[2 * 1000];
+		for (int i = 0; i < xy.length; i++)
+			xy[i] = grid ? Math.round(random.nextFloat() * 40.0f) * 25.0f : 1000.0f * random.nextFloat();
+		final boolean[] out = new boolean[xy.length / 2];
+		prepared.contains(xy, out);
+		for (int i = 0; i < out.length; i++) {
+			final boolean expected = polygon.pointInPolygon(new Point(xy[2 * i], xy[2 * i + 1]));
+			assertEquals("(" + xy[2 * i] + "," + xy[2 * i + 1] + ") in " + polygon, expected, out[i]);
+		}
+		/* the vertices are on the border */
+		for (Point p : polygon.toPoints())
+			assertTrue(prepared.contains(p.getX(), p.getY()));
+	}
+}
@@ -0,0 +1,90 @@
+package de.hambuch.voronoiapp.geometry;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import de.hambuch.voronoiapp.algo.DelaunayTriangulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the pixels of the pure Java renderer and renders a large
+ * triangulation without any Android classes.
+ */
+public class RasterRendererTest {
+
+	private static final int WHITE = 0xffffffff;
+	private static final int BLACK = 0xff000000;
+
+	@Test
+	public void fillPolygonCoversPixelCenters() {
+		final RasterRenderer renderer = new RasterRenderer(40, 20);
+		renderer.clear(WHITE);
+		renderer.fillPolygon(new float[]{2, 2, 12, 2, 12, 12, 2, 12}, 0, 8, BLACK);
+		final int[] pixels = renderer.getPixels();
+		for (int y = 0; y < 20; y++) {
+			for (int x = 0; x < 40; x++) {
+				final boolean inside = x >= 2 && x < 12 && y >= 2 && y < 12;
+				assertEquals("pixel " + x + "," + y, inside ? BLACK : WHITE, pixels[y * 40 + x]);
+			}
+		}
+	}
+
+	@Test
+	public void longLineIsClipped() {
+		final RasterRenderer renderer = new RasterRenderer(40, 20);
+		renderer.clear(WHITE);
+		renderer.drawLine(-100000.0f, 10.5f, 100000.0f, 10.5f, BLACK, 1.0f);
+		final int[] pixels = renderer.getPixels();
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 20; y++)
+				assertEquals("pixel " + x + "," + y, y == 10 ? BLACK : WHITE, pixels[y * 40 + x]);
+		}
+	}
+
+	@Test
+	public void fillCircleHasItsArea() {
+		final RasterRenderer renderer = new RasterRenderer(64, 64);
+		renderer.fillCircle(32.0f, 32.0f, 20.0f, BLACK);
+		int count = 0;
+		for (int pixel : renderer.getPixels()) {
+			if (pixel == BLACK)
+				count++;
+		}
+		assertEquals(Math.PI * 400.0, count, 0.03 * Math.PI * 400.0);
+	}
+
+	@Test
+	public void translucentColorsAreBlended() {
+		final RasterRenderer renderer = new RasterRenderer(4, 4);
+		renderer.clear(WHITE);
+		renderer.fillPolygon(new float[]{0, 0, 4, 0, 4, 4, 0, 4}, 0, 8, 0x80000000);
+		final int pixel = renderer.getPixels()[5];
+		assertEquals(0xff, pixel >>> 24);
+		for (int shift = 0; shift < 24; shift += 8)
+			assertEquals(0x7f, (pixel >>> shift) & 0xff, 1);
+	}
+
+	/* smoke test: a whole triangulation through the Renderer interface */
+	@Test(timeout = 20000)
+	public void renderLargeTriangulation() {
+		final Random random = new Random(41);
+		final float[] coords = new float[2 * 100000];
+		for (int i = 0; i < coords.length; i++)
+			coords[i] = 1000.0f * random.nextFloat();
+		final DelaunayTriangulation delaunay = new DelaunayTriangulation();
+		delaunay.insertPoints(coords, 0, coords.length);
+		final RasterRenderer renderer = new RasterRenderer(1000, 1000);
+		renderer.clear(WHITE);
+		delaunay.render(renderer);
+		int painted = 0;
+		for (int pixel : renderer.getPixels()) {
+			if (pixel != WHITE)
+				painted++;
+		}
+		/* 300000 edges of a few pixels cover most of the image */
+		assertTrue("painted " + painted, painted > 500000);
+	}
+}